@@ -3,10 +3,7 @@ package aggregation_functions;
 import org.neo4j.graphdb.Node;
 import org.neo4j.procedure.*;
 import result_classes.TimeSeriesResult;
-import util.TimeSeriesUtil;
 
-import java.time.Duration;
-import java.time.ZonedDateTime;
 import java.util.*;
 import java.util.stream.Stream;
 
@@ -27,18 +24,15 @@ public class CumulativeSum_Integral {
 
 
     public static TimeSeriesResult calc_cu_sum(String[] timestampStrs, Map<String, List<Double>> valueMap) {
-        ZonedDateTime[] timestamps = Arrays.stream(timestampStrs)
-                .map(TimeSeriesUtil::parseToZonedDateTime)
-                .toArray(ZonedDateTime[]::new);
-
         Map<String, List<Double>> cumulativeSums = new HashMap<>();
 
         for (String key : valueMap.keySet()) {
             List<Double> values = valueMap.get(key);
-            List<Double> cumSumList = new ArrayList<>();
+            List<Double> cumSumList = new ArrayList<>(values.size());
             double sum = 0.0;
 
-            for (int i = 1; i < values.size(); i++) {
+            // ab dem ersten Wert summieren, Zeitstempel bleiben 1:1 erhalten
+            for (int i = 0; i < values.size(); i++) {
                 sum += values.get(i);
                 cumSumList.add(sum);
             }
@@ -46,12 +40,7 @@ public class CumulativeSum_Integral {
             cumulativeSums.put(key, cumSumList);
         }
 
-        List<String> resultTimestamps = Arrays.stream(timestamps)
-                .skip(1)
-                .map(ZonedDateTime::toString)
-                .toList();
-
-        return new TimeSeriesResult(resultTimestamps, cumulativeSums);
+        return new TimeSeriesResult(Arrays.asList(timestampStrs), cumulativeSums);
     }
 
 
@@ -126,22 +115,20 @@ public class CumulativeSum_Integral {
 
 
     public static TimeSeriesResult calc_integral(String[] timestampStrs, Map<String, List<Double>> valueMap){
-        ZonedDateTime[] timestamps = Arrays.stream(timestampStrs)
-                .map(TimeSeriesUtil::parseToZonedDateTime)
-                .toArray(ZonedDateTime[]::new);
-
+        long[] times = Rate_Increase.toMillis(timestampStrs);
 
         Map<String, List<Double>> integrals = new HashMap<>();
 
         for (String key : valueMap.keySet()) {
 
             List<Double> values = valueMap.get(key);
-            List<Double> intList = new ArrayList<>();
+            int n = Math.min(values.size(), times.length);
+            List<Double> intList = new ArrayList<>(Math.max(0, n - 1));
             double integral = 0.0;
 
-            for (int i = 1; i < values.size(); i++) {
+            for (int i = 1; i < n; i++) {
                 double v = values.get(i - 1);
-                long dtMillis = Duration.between(timestamps[i - 1], timestamps[i]).toMillis();
+                long dtMillis = times[i] - times[i - 1];
                 integral += v * (dtMillis / 1000.0); // in Sekunden umrechnen
 
                 intList.add(integral);
@@ -150,17 +137,9 @@ public class CumulativeSum_Integral {
             integrals.put(key, intList);
         }
 
-        List<String> resultTimestamps = Arrays.stream(timestamps)
-                .skip(1)
-                .map(ZonedDateTime::toString)
-                .toList();
+        List<String> resultTimestamps = Arrays.asList(timestampStrs).subList(Math.min(1, timestampStrs.length), timestampStrs.length);
 
         return new TimeSeriesResult(resultTimestamps, integrals);
     }
 
-
-
-
-
-
 }
@@ -33,10 +33,6 @@ public class Difference_Derivative {
 
 
     public static TimeSeriesResult calc_difference(String[] timestampStrs, Map<String, List<Double>> valueMap){
-        ZonedDateTime[] timestamps = Arrays.stream(timestampStrs)
-                .map(TimeSeriesUtil::parseToZonedDateTime)
-                .toArray(ZonedDateTime[]::new);
-
         Map<String, List<Double>> differences = new HashMap<>();
         for (String key : valueMap.keySet()) {
 
@@ -50,10 +46,7 @@ public class Difference_Derivative {
             differences.put(key, diffs);
         }
 
-        List<String> trimmedTimestamps = Arrays.stream(timestamps)
-                .skip(1)
-                .map(ZonedDateTime::toString)
-                .toList();
+        List<String> trimmedTimestamps = Arrays.asList(timestampStrs).subList(Math.min(1, timestampStrs.length), timestampStrs.length);
 
         return new TimeSeriesResult(trimmedTimestamps, differences);
     }
@@ -116,9 +109,7 @@ public class Difference_Derivative {
 
     public static TimeSeriesResult calc_derivative(String[] timestampStrs, Map<String, List<Double>> valueMap) {
 
-        ZonedDateTime[] timestamps = Arrays.stream(timestampStrs)
-                .map(TimeSeriesUtil::parseToZonedDateTime)
-                .toArray(ZonedDateTime[]::new);
+        long[] times = Rate_Increase.toMillis(timestampStrs);
 
 
         Map<String, List<Double>> derivatives = new HashMap<>();
@@ -129,7 +120,7 @@ public class Difference_Derivative {
 
             for (int i = 1; i < values.size(); i++) {
                 double deltaVal = values.get(i)- values.get(i - 1);
-                long deltaTimeSec = Duration.between(timestamps[i - 1], timestamps[i]).toMillis();
+                long deltaTimeSec = times[i] - times[i - 1];
                 if (deltaTimeSec == 0) deltaTimeSec = 1; // Schutz gegen Division durch 0
                 double der = deltaVal / (deltaTimeSec / 1000.0);
                 ders.add(der);
@@ -138,10 +129,7 @@ public class Difference_Derivative {
             derivatives.put(key, ders);
         }
 
-        List<String> trimmedTimestamps = Arrays.stream(timestamps)
-                .skip(1)
-                .map(ZonedDateTime::toString)
-                .toList();
+        List<String> trimmedTimestamps = Arrays.asList(timestampStrs).subList(Math.min(1, timestampStrs.length), timestampStrs.length);
 
         return new TimeSeriesResult(trimmedTimestamps, derivatives);
     }
@@ -29,6 +29,16 @@ public class LinerRegression {
         Map<String, List<Double>> regressionValues = new HashMap<>();
         int n = timestampStrs.length;
 
+        // x = Sekunden relativ zum ersten Zeitstempel (unregelmäßige Abtastung korrekt berücksichtigen);
+        // nicht parsebare Zeitstempel -> Fallback auf den Index
+        double[] xs = new double[n];
+        try {
+            long t0 = n > 0 ? TimeSeriesUtil.toEpochMillis(timestampStrs[0]) : 0L;
+            for (int i = 0; i < n; i++) xs[i] = (TimeSeriesUtil.toEpochMillis(timestampStrs[i]) - t0) / 1000.0;
+        } catch (Exception e) {
+            for (int i = 0; i < n; i++) xs[i] = i;
+        }
+
         for (Map.Entry<String, List<Double>> entry : valueMap.entrySet()) {
             List<Double> yValuesRaw = entry.getValue();
             double[] y = yValuesRaw.stream()
@@ -38,7 +48,7 @@ public class LinerRegression {
             // Berechne lineare Regression: y = a·x + b
             double sumX = 0, sumY = 0, sumXY = 0, sumX2 = 0;
             for (int i = 0; i < n; i++) {
-                double x = i;
+                double x = xs[i];
                 double yi = y[i];
 
                 sumX += x;
@@ -53,7 +63,7 @@ public class LinerRegression {
             // Berechne Regressionswerte für alle Zeitpunkte
             List<Double> fitted = new ArrayList<>();
             for (int i = 0; i < n; i++) {
-                double x = i;
+                double x = xs[i];
                 double yFit = slope * x + intercept;
                 fitted.add(yFit);
             }
@@ -0,0 +1,228 @@
+package aggregation_functions;
+
+import org.neo4j.procedure.*;
+import result_classes.TimeSeriesResult;
+import util.TimeSeriesUtil;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Zeitgewichtete Kernels auf Epoch-Millis-Arrays: rate, irate, increase (mit Counter-Reset-Behandlung und
+ * Extrapolation an die Fenstergrenzen wie in PromQL) sowie das laufende Trapez-Integral.
+ * <p>
+ * Alle Kernels laufen in einem Durchgang: Counter-Resets werden einmal in eine monotone, kumulierte Reihe
+ * umgerechnet, danach ergibt sich die Zunahme eines Fensters als Differenz zweier Einträge; die
+ * Fenstergrenzen werden per Zwei-Zeiger-Verfahren mitgeführt.
+ */
+public class Rate_Increase {
+
+    @Procedure(name = "graphobs.aggregation.rate", mode = Mode.READ)
+    @Description("Mittlere Zunahme pro Sekunde eines Counters im Fenster [t - window, t] (wie PromQL rate). " +
+            "params: window (Default '5m'), step (optional: Auswertung auf einem Raster statt an jedem Sample).")
+    public Stream<TimeSeriesResult> rate(
+            @Name("timestamps") List<String> timestamps,
+            @Name("values") Map<String, List<Double>> values,
+            @Name(value = "params", defaultValue = "{}") Map<String, Object> params
+    ) {
+        return Stream.of(calc_counter(timestamps.toArray(new String[0]), values, params, Kind.RATE));
+    }
+
+    @Procedure(name = "graphobs.aggregation.irate", mode = Mode.READ)
+    @Description("Momentane Rate pro Sekunde aus den letzten zwei Samples im Fenster (wie PromQL irate). " +
+            "params: window (Default '5m'), step (optional).")
+    public Stream<TimeSeriesResult> irate(
+            @Name("timestamps") List<String> timestamps,
+            @Name("values") Map<String, List<Double>> values,
+            @Name(value = "params", defaultValue = "{}") Map<String, Object> params
+    ) {
+        return Stream.of(calc_counter(timestamps.toArray(new String[0]), values, params, Kind.IRATE));
+    }
+
+    @Procedure(name = "graphobs.aggregation.increase", mode = Mode.READ)
+    @Description("Zunahme eines Counters im Fenster [t - window, t] inkl. Reset-Behandlung und Extrapolation (wie PromQL increase). " +
+            "params: window (Default '5m'), step (optional).")
+    public Stream<TimeSeriesResult> increase(
+            @Name("timestamps") List<String> timestamps,
+            @Name("values") Map<String, List<Double>> values,
+            @Name(value = "params", defaultValue = "{}") Map<String, Object> params
+    ) {
+        return Stream.of(calc_counter(timestamps.toArray(new String[0]), values, params, Kind.INCREASE));
+    }
+
+    @Procedure(name = "graphobs.aggregation.time_integral", mode = Mode.READ)
+    @Description("Laufendes Integral nach der Trapezregel (Wert × Sekunden), beginnend mit 0 am ersten Zeitstempel.")
+    public Stream<TimeSeriesResult> timeIntegral(
+            @Name("timestamps") List<String> timestamps,
+            @Name("values") Map<String, List<Double>> values
+    ) {
+        String[] stamps = timestamps.toArray(new String[0]);
+        long[] times = toMillis(stamps);
+        Map<String, List<Double>> out = new HashMap<>();
+        for (Map.Entry<String, List<Double>> entry : values.entrySet()) {
+            out.put(entry.getKey(), box(trapezoidIntegral(times, column(entry.getKey(), entry.getValue(), times.length))));
+        }
+        return Stream.of(new TimeSeriesResult(Arrays.asList(stamps), out));
+    }
+
+    // --- Kernels ---
+
+    public enum Kind { RATE, IRATE, INCREASE }
+
+    public static TimeSeriesResult calc_counter(String[] timestampStrs, Map<String, List<Double>> valueMap,
+                                                Map<String, Object> params, Kind kind) {
+        long windowMillis = TimeSeriesUtil.parseDuration(params.getOrDefault("window", "5m"));
+        if (windowMillis <= 0) throw new IllegalArgumentException("window muss > 0 sein.");
+        long[] times = toMillis(timestampStrs);
+
+        List<String> outTimestamps;
+        long[] evalTimes;
+        if (params.containsKey("step") && times.length > 0) {
+            long step = TimeSeriesUtil.parseDuration(params.get("step"));
+            if (step <= 0) throw new IllegalArgumentException("step muss > 0 sein.");
+            long first = Math.floorDiv(times[0], step) * step + step;
+            int count = (int) Math.max(0, (times[times.length - 1] - first) / step + 1);
+            evalTimes = new long[count];
+            outTimestamps = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                evalTimes[i] = first + i * step;
+                outTimestamps.add(Instant.ofEpochMilli(evalTimes[i]).toString());
+            }
+        } else {
+            evalTimes = times;
+            outTimestamps = Arrays.asList(timestampStrs);
+        }
+
+        Map<String, List<Double>> out = new HashMap<>();
+        for (Map.Entry<String, List<Double>> entry : valueMap.entrySet()) {
+            double[] v = column(entry.getKey(), entry.getValue(), times.length);
+            double[] result = kind == Kind.IRATE
+                    ? irate(times, v, windowMillis, evalTimes)
+                    : extrapolatedIncrease(times, v, windowMillis, evalTimes, kind == Kind.RATE);
+            out.put(entry.getKey(), box(result));
+        }
+        return new TimeSeriesResult(outTimestamps, out);
+    }
+
+    /**
+     * Reset-bereinigte kumulierte Zunahme: adj[i] - adj[j] ist die Zunahme zwischen Sample j und i, wobei ein
+     * Rückgang (Counter-Reset) als Neustart bei 0 gewertet wird.
+     */
+    public static double[] resetAdjusted(double[] v) {
+        double[] adj = new double[v.length];
+        for (int i = 1; i < v.length; i++) {
+            double delta = v[i] >= v[i - 1] ? v[i] - v[i - 1] : v[i];
+            adj[i] = adj[i - 1] + delta;
+        }
+        return adj;
+    }
+
+    /**
+     * increase bzw. rate je Auswertungszeitpunkt t über die Samples in [t - window, t], mit der
+     * Extrapolation aus Prometheus (extrapolatedRate): bis zur Fenstergrenze, wenn der Abstand kleiner als
+     * 1.1 × mittlerer Sample-Abstand ist, sonst um einen halben Abstand; nicht unter den Nullpunkt des Counters.
+     * Fenster mit weniger als zwei Samples liefern NaN.
+     */
+    public static double[] extrapolatedIncrease(long[] times, double[] v, long windowMillis, long[] evalTimes, boolean asRate) {
+        double[] adj = resetAdjusted(v);
+        double[] out = new double[evalTimes.length];
+        int lo = 0, hi = 0;
+        double rangeSeconds = windowMillis / 1000.0;
+
+        for (int k = 0; k < evalTimes.length; k++) {
+            long end = evalTimes[k];
+            long start = end - windowMillis;
+            while (hi < times.length && times[hi] <= end) hi++;
+            while (lo < hi && times[lo] < start) lo++;
+            int count = hi - lo;
+            if (count < 2) {
+                out[k] = Double.NaN;
+                continue;
+            }
+            int first = lo, last = hi - 1;
+            double increase = adj[last] - adj[first];
+
+            double sampled = (times[last] - times[first]) / 1000.0;
+            double avgBetween = sampled / (count - 1);
+            double toStart = (times[first] - start) / 1000.0;
+            double toEnd = (end - times[last]) / 1000.0;
+            if (increase > 0 && v[first] >= 0) {
+                double toZero = sampled * (v[first] / increase);
+                if (toZero < toStart) toStart = toZero;
+            }
+            double threshold = avgBetween * 1.1;
+            double interval = sampled;
+            interval += toStart < threshold ? toStart : avgBetween / 2;
+            interval += toEnd < threshold ? toEnd : avgBetween / 2;
+
+            double extrapolated = sampled > 0 ? increase * (interval / sampled) : increase;
+            out[k] = asRate ? extrapolated / rangeSeconds : extrapolated;
+        }
+        return out;
+    }
+
+    /** irate: letzte zwei Samples in [t - window, t]; bei Reset zählt der neue Wert als Zunahme. */
+    public static double[] irate(long[] times, double[] v, long windowMillis, long[] evalTimes) {
+        double[] out = new double[evalTimes.length];
+        int lo = 0, hi = 0;
+        for (int k = 0; k < evalTimes.length; k++) {
+            long end = evalTimes[k];
+            long start = end - windowMillis;
+            while (hi < times.length && times[hi] <= end) hi++;
+            while (lo < hi && times[lo] < start) lo++;
+            if (hi - lo < 2) {
+                out[k] = Double.NaN;
+                continue;
+            }
+            int last = hi - 1;
+            double delta = v[last] >= v[last - 1] ? v[last] - v[last - 1] : v[last];
+            double dt = (times[last] - times[last - 1]) / 1000.0;
+            out[k] = dt > 0 ? delta / dt : Double.NaN;
+        }
+        return out;
+    }
+
+    /** Laufendes Trapez-Integral in Wert × Sekunden; out[0] = 0. */
+    public static double[] trapezoidIntegral(long[] times, double[] v) {
+        double[] out = new double[v.length];
+        for (int i = 1; i < v.length; i++) {
+            double dt = (times[i] - times[i - 1]) / 1000.0;
+            out[i] = out[i - 1] + 0.5 * (v[i] + v[i - 1]) * dt;
+        }
+        return out;
+    }
+
+    // --- Hilfsfunktionen ---
+
+    public static long[] toMillis(String[] timestampStrs) {
+        long[] times = new long[timestampStrs.length];
+        for (int i = 0; i < times.length; i++) times[i] = TimeSeriesUtil.toEpochMillis(timestampStrs[i]);
+        return times;
+    }
+
+    /** Werte einer Spalte; die Kernels lesen v[i] zu times[i], daher müssen die Längen übereinstimmen. */
+    static double[] column(String key, List<Double> list, int n) {
+        if (list.size() != n) {
+            throw new IllegalArgumentException("Spalte '" + key + "' hat " + list.size() + " Werte, aber "
+                    + n + " Zeitstempel.");
+        }
+        return unbox(list, n);
+    }
+
+    static double[] unbox(List<Double> list, int n) {
+        int len = Math.min(n, list.size());
+        double[] out = new double[len];
+        for (int i = 0; i < len; i++) {
+            Double d = list.get(i);
+            out[i] = d == null ? Double.NaN : d;
+        }
+        return out;
+    }
+
+    static List<Double> box(double[] values) {
+        List<Double> out = new ArrayList<>(values.length);
+        for (double v : values) out.add(v);
+        return out;
+    }
+}
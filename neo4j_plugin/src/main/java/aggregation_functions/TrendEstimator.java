@@ -0,0 +1,165 @@
+package aggregation_functions;
+
+import org.apache.commons.math3.distribution.NormalDistribution;
+import org.apache.commons.math3.distribution.TDistribution;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Lineare Trendschätzung gegen echte Zeit (x = Epoch-Sekunden), damit unregelmäßige Abtastung die Steigung
+ * nicht verfälscht.
+ * <ul>
+ *   <li>OLS mit Standardfehler und t-Konfidenzintervall der Steigung</li>
+ *   <li>Theil–Sen (Median der paarweisen Steigungen). Oberhalb von maxPairs Paaren werden zufällige Paare
+ *       gezogen, sodass der Aufwand O(n + maxPairs log maxPairs) bleibt; das Intervall folgt Sen (1968).</li>
+ * </ul>
+ * Intern wird x um den Mittelwert zentriert; intercept bezieht sich wie üblich auf x = 0 (Epoch).
+ */
+public final class TrendEstimator {
+
+    private TrendEstimator() {}
+
+    public static final int DEFAULT_MAX_PAIRS = 200_000;
+
+    public static final class Trend {
+        public final String method;
+        public final long n;
+        public final double slope;      // pro Sekunde
+        public final double intercept;  // bei Epoch-Sekunde 0
+        public final double r2;
+        public final double slopeLower;
+        public final double slopeUpper;
+        public final double meanX;      // Epoch-Sekunden, für Prognosen
+
+        Trend(String method, long n, double slope, double intercept, double r2, double slopeLower, double slopeUpper, double meanX) {
+            this.method = method;
+            this.n = n;
+            this.slope = slope;
+            this.intercept = intercept;
+            this.r2 = r2;
+            this.slopeLower = slopeLower;
+            this.slopeUpper = slopeUpper;
+            this.meanX = meanX;
+        }
+
+        public double valueAt(double epochSeconds) {
+            return intercept + slope * epochSeconds;
+        }
+
+        /** Epoch-Sekunde, zu der die Trendgerade threshold erreicht; NaN bei Steigung 0. */
+        public double timeToReach(double threshold) {
+            if (slope == 0.0 || Double.isNaN(slope)) return Double.NaN;
+            return (threshold - intercept) / slope;
+        }
+    }
+
+    /** Epoch-Millis -> Sekunden (double, ohne String-Parsing). */
+    public static double[] toSeconds(long[] times) {
+        double[] x = new double[times.length];
+        for (int i = 0; i < times.length; i++) x[i] = times[i] / 1000.0;
+        return x;
+    }
+
+    public static Trend ols(double[] x, double[] y, double confidence) {
+        int n = x.length;
+        if (n < 2) throw new IllegalArgumentException("Mindestens zwei Punkte für eine Regression erforderlich.");
+        double meanX = 0, meanY = 0;
+        for (int i = 0; i < n; i++) {
+            meanX += x[i];
+            meanY += y[i];
+        }
+        meanX /= n;
+        meanY /= n;
+
+        double sxx = 0, sxy = 0, syy = 0;
+        for (int i = 0; i < n; i++) {
+            double dx = x[i] - meanX;
+            double dy = y[i] - meanY;
+            sxx += dx * dx;
+            sxy += dx * dy;
+            syy += dy * dy;
+        }
+        if (sxx == 0) throw new IllegalArgumentException("Alle Zeitstempel sind identisch.");
+
+        double slope = sxy / sxx;
+        double intercept = meanY - slope * meanX;
+        double sse = Math.max(0.0, syy - slope * sxy);
+        double r2 = syy > 0 ? 1.0 - sse / syy : 1.0;
+
+        double lower = Double.NaN, upper = Double.NaN;
+        if (n > 2) {
+            double se = Math.sqrt(sse / (n - 2) / sxx);
+            double t = new TDistribution(n - 2).inverseCumulativeProbability(0.5 + confidence / 2.0);
+            lower = slope - t * se;
+            upper = slope + t * se;
+        }
+        return new Trend("ols", n, slope, intercept, r2, lower, upper, meanX);
+    }
+
+    public static Trend theilSen(double[] x, double[] y, double confidence, int maxPairs) {
+        int n = x.length;
+        if (n < 2) throw new IllegalArgumentException("Mindestens zwei Punkte für eine Regression erforderlich.");
+
+        long totalPairs = (long) n * (n - 1) / 2;
+        double[] slopes;
+        int count = 0;
+        if (totalPairs <= maxPairs) {
+            slopes = new double[(int) totalPairs];
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    double dx = x[j] - x[i];
+                    if (dx != 0) slopes[count++] = (y[j] - y[i]) / dx;
+                }
+            }
+        } else {
+            // fester Seed: gleiche Eingabe -> gleiches Ergebnis
+            SplittableRandom random = new SplittableRandom(42L);
+            slopes = new double[maxPairs];
+            while (count < maxPairs) {
+                int i = random.nextInt(n);
+                int j = random.nextInt(n);
+                double dx = x[j] - x[i];
+                if (dx != 0) slopes[count++] = (y[j] - y[i]) / dx;
+            }
+        }
+        if (count == 0) throw new IllegalArgumentException("Alle Zeitstempel sind identisch.");
+        Arrays.sort(slopes, 0, count);
+        double slope = medianSorted(slopes, count);
+
+        double[] residual = new double[n];
+        double meanX = 0;
+        for (int i = 0; i < n; i++) {
+            residual[i] = y[i] - slope * x[i];
+            meanX += x[i];
+        }
+        meanX /= n;
+        double[] sortedResidual = residual.clone();
+        Arrays.sort(sortedResidual);
+        double intercept = medianSorted(sortedResidual, n);
+
+        double meanY = 0;
+        for (double v : y) meanY += v;
+        meanY /= n;
+        double ssTot = 0, ssRes = 0;
+        for (int i = 0; i < n; i++) {
+            double fit = intercept + slope * x[i];
+            ssTot += (y[i] - meanY) * (y[i] - meanY);
+            ssRes += (y[i] - fit) * (y[i] - fit);
+        }
+        double r2 = ssTot > 0 ? 1.0 - ssRes / ssTot : 1.0;
+
+        // Sen-Intervall: Ränge N/2 ± z * sqrt(Var(S)) / 2, bei Stichprobe auf deren Größe skaliert
+        double z = new NormalDistribution().inverseCumulativeProbability(0.5 + confidence / 2.0);
+        double varS = n * (n - 1.0) * (2.0 * n + 5.0) / 18.0;
+        double halfWidth = z * Math.sqrt(varS) / 2.0 * ((double) count / totalPairs);
+        int lo = (int) Math.max(0, Math.floor(count / 2.0 - halfWidth));
+        int hi = (int) Math.min(count - 1, Math.ceil(count / 2.0 + halfWidth));
+        return new Trend("theil_sen", n, slope, intercept, r2, slopes[lo], slopes[hi], meanX);
+    }
+
+    private static double medianSorted(double[] a, int len) {
+        int mid = len / 2;
+        return len % 2 == 1 ? a[mid] : 0.5 * (a[mid - 1] + a[mid]);
+    }
+}
@@ -0,0 +1,126 @@
+package aggregation_functions;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.logging.Log;
+import org.neo4j.procedure.*;
+import util.NumericSeries;
+import util.ParallelUtil;
+import util.TimeSeriesUtil;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Trendschätzung gegen echte Zeit (Steigung pro Sekunde) für übergebene Serien oder für Knoten-Metriken.
+ * Mit threshold wird zusätzlich der Zeitpunkt geliefert, zu dem die Trendgerade den Wert erreicht
+ * (z.B. "wann ist die Platte voll").
+ */
+public class TrendProcedure {
+
+    @Context
+    public GraphDatabaseService db;
+
+    @Context
+    public Log log;
+
+    public static class TrendResult {
+        public Node node;
+        public String property;
+        public String method;
+        public long n;
+        public double slopePerSecond;
+        public double intercept;
+        public double r2;
+        public double slopeLower;
+        public double slopeUpper;
+        public String thresholdTime;
+
+        public TrendResult(Node node, String property, TrendEstimator.Trend trend, String thresholdTime) {
+            this.node = node;
+            this.property = property;
+            this.method = trend.method;
+            this.n = trend.n;
+            this.slopePerSecond = trend.slope;
+            this.intercept = trend.intercept;
+            this.r2 = trend.r2;
+            this.slopeLower = trend.slopeLower;
+            this.slopeUpper = trend.slopeUpper;
+            this.thresholdTime = thresholdTime;
+        }
+    }
+
+    @Procedure(name = "graphobs.aggregation.linear_trend", mode = Mode.READ)
+    @Description("Linearer Trend je Serie gegen die Zeit (x = Epoch-Sekunden): Steigung pro Sekunde, Intercept, R², " +
+            "Konfidenzgrenzen der Steigung. params: method ('ols' (Default) oder 'theil_sen'), confidence (0.95), " +
+            "maxPairs (Theil–Sen, Default 200000), threshold (optional: Zeitpunkt, an dem der Trend den Wert erreicht).")
+    public Stream<TrendResult> linearTrend(
+            @Name("timestamps") List<String> timestamps,
+            @Name("values") Map<String, List<Double>> values,
+            @Name(value = "params", defaultValue = "{}") Map<String, Object> params
+    ) {
+        List<TrendResult> results = new ArrayList<>();
+        for (Map.Entry<String, List<Double>> entry : values.entrySet()) {
+            NumericSeries series = NumericSeries.of(timestamps, entry.getValue());
+            if (series.size() < 2) continue;
+            results.add(toResult(null, entry.getKey(), series, params));
+        }
+        return results.stream();
+    }
+
+    @Procedure(name = "graphobs.analysis.trend", mode = Mode.READ)
+    @Description("Wie graphobs.aggregation.linear_trend, für eine Metrik auf vielen Knoten (parallel, über den normalen " +
+            "Fetch-Pfad). Zusätzlich die üblichen Zeitfenster-Parameter. Sortiert nach thresholdTime (früheste zuerst), " +
+            "sonst nach Steigung absteigend.")
+    public Stream<TrendResult> trend(
+            @Name("nodes") List<Node> nodes,
+            @Name("metric") String metric,
+            @Name(value = "params", defaultValue = "{}") Map<String, Object> params
+    ) {
+        if (nodes == null || nodes.isEmpty()) {
+            throw new IllegalArgumentException("nodes darf nicht leer sein.");
+        }
+        List<TrendResult> results = ParallelUtil.mapNodesIndexed(db, nodes, (node, i) -> {
+            NumericSeries series = NumericSeries.of(
+                    TimeSeriesUtil.getFilteredTimeSeries(node, metric, params, db, log).collect(Collectors.toList()),
+                    metric);
+            if (series.size() < 2) return null;
+            return toResult(nodes.get(i), metric, series, params);
+        }, log);
+
+        Comparator<TrendResult> order = Comparator
+                .comparing((TrendResult r) -> r.thresholdTime == null ? null : Instant.parse(r.thresholdTime),
+                        Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(r -> -r.slopePerSecond);
+        return results.stream().filter(Objects::nonNull).sorted(order);
+    }
+
+    private static TrendResult toResult(Node node, String property, NumericSeries series, Map<String, Object> params) {
+        String method = params.getOrDefault("method", "ols").toString().toLowerCase();
+        double confidence = ((Number) params.getOrDefault("confidence", 0.95)).doubleValue();
+        double[] x = TrendEstimator.toSeconds(series.times);
+
+        TrendEstimator.Trend trend;
+        if ("theil_sen".equals(method) || "theilsen".equals(method)) {
+            int maxPairs = ((Number) params.getOrDefault("maxPairs", (long) TrendEstimator.DEFAULT_MAX_PAIRS)).intValue();
+            trend = TrendEstimator.theilSen(x, series.values, confidence, maxPairs);
+        } else if ("ols".equals(method)) {
+            trend = TrendEstimator.ols(x, series.values, confidence);
+        } else {
+            throw new IllegalArgumentException("Unbekannte Methode '" + method + "'. Erlaubt: ols, theil_sen.");
+        }
+
+        String thresholdTime = null;
+        if (params.get("threshold") != null) {
+            double seconds = trend.timeToReach(((Number) params.get("threshold")).doubleValue());
+            double lastSeconds = x[x.length - 1];
+            // nur zukünftige Erreichung melden (bezogen auf den letzten Messpunkt)
+            if (!Double.isNaN(seconds) && seconds >= lastSeconds && seconds < 1e12) {
+                thresholdTime = Instant.ofEpochMilli((long) (seconds * 1000.0)).toString();
+            }
+        }
+        return new TrendResult(node, property, trend, thresholdTime);
+    }
+}
@@ -0,0 +1,109 @@
+package comparison;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.logging.Log;
+import org.neo4j.procedure.*;
+import result_classes.GroupComparisonResult;
+import util.ComparisonUtil;
+import util.GroupStatistics;
+import util.RunningStats;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Vergleich zweier Knotengruppen auf Basis von Streaming-Zusammenfassungen.
+ * <p>
+ * Alle Knoten beider Gruppen werden parallel geholt und jede Serie direkt auf Anzahl/Mittelwert/M2 reduziert.
+ * Stichprobeneinheit ist wie bei compare_two_groups der Mittelwert einer Serie; darauf laufen Welch-t-Test,
+ * Mann-Whitney-U und ein Bootstrap-Konfidenzintervall der Differenz meanB - meanA.
+ *
+ * Usage example in Cypher:
+ *   MATCH (p:Pod {version: "v1"}) WITH collect(p) AS a
+ *   MATCH (q:Pod {version: "v2"}) WITH a, collect(q) AS b
+ *   CALL graphobs.comparison.compare_groups(a, b, "latency_ms", {range: "-1h"}, {alpha: 0.01}) YIELD *
+ */
+public class CompareGroupsProcedure {
+
+    @Context
+    public GraphDatabaseService db;
+
+    @Context
+    public Log log;
+
+    @Procedure(name = "graphobs.comparison.compare_groups", mode = Mode.READ)
+    @Description("Compare a metric between two groups of nodes with Welch t-test, Mann-Whitney U and a bootstrap CI. " +
+            "Nodes are fetched in parallel and reduced to streaming summaries. " +
+            "options: alpha (0.05), confidence (0.95), bootstrap (resamples, default 2000, 0 disables), seed.")
+    public Stream<GroupComparisonResult> compareGroups(
+            @Name("groupA") List<Node> groupA,
+            @Name("groupB") List<Node> groupB,
+            @Name("metric") String metric,
+            @Name(value = "params", defaultValue = "{}") Map<String, Object> params,
+            @Name(value = "options", defaultValue = "{}") Map<String, Object> options
+    ) {
+        if (groupA == null || groupB == null || groupA.isEmpty() || groupB.isEmpty()) {
+            log.warn("One or both groups are empty.");
+            return Stream.empty();
+        }
+        if (metric == null || metric.isBlank()) {
+            log.warn("No metric name provided.");
+            return Stream.empty();
+        }
+
+        double alpha = ((Number) options.getOrDefault("alpha", 0.05)).doubleValue();
+        double confidence = ((Number) options.getOrDefault("confidence", 0.95)).doubleValue();
+        int resamples = ((Number) options.getOrDefault("bootstrap", 2000L)).intValue();
+        long seed = ((Number) options.getOrDefault("seed", 42L)).longValue();
+        if (confidence <= 0 || confidence >= 1) throw new IllegalArgumentException("confidence must be in (0, 1).");
+
+        Group a = Group.of(ComparisonUtil.summarizeNodes(groupA, metric, params, db, log));
+        Group b = Group.of(ComparisonUtil.summarizeNodes(groupB, metric, params, db, log));
+        if (a.means.length < 2 || b.means.length < 2) {
+            log.info("Not enough samples for group comparison: groupA=%d, groupB=%d", a.means.length, b.means.length);
+        }
+
+        GroupStatistics.TestResult welch = GroupStatistics.welch(a.samples, b.samples);
+        GroupStatistics.TestResult mwu = GroupStatistics.mannWhitney(a.means, b.means);
+        double[] ci = resamples > 0
+                ? GroupStatistics.bootstrapMeanDiff(a.means, b.means, resamples, confidence, seed)
+                : new double[]{Double.NaN, Double.NaN};
+        boolean significant = !Double.isNaN(welch.pValue) && welch.pValue < alpha;
+
+        return Stream.of(new GroupComparisonResult(
+                a.samples.getN(), b.samples.getN(), a.points.getN(), b.points.getN(),
+                a.samples.getMean(), b.samples.getMean(),
+                a.samples.getStandardDeviation(), b.samples.getStandardDeviation(),
+                welch.statistic, welch.pValue, mwu.statistic, mwu.pValue, ci[0], ci[1], significant));
+    }
+
+    /** Serienmittelwerte einer Gruppe, deren Zusammenfassung und die aller Rohpunkte. */
+    static final class Group {
+        final double[] means;
+        final RunningStats samples;
+        final RunningStats points;
+
+        private Group(double[] means, RunningStats samples, RunningStats points) {
+            this.means = means;
+            this.samples = samples;
+            this.points = points;
+        }
+
+        static Group of(List<List<RunningStats>> perNode) {
+            RunningStats points = new RunningStats();
+            int count = 0;
+            for (List<RunningStats> series : perNode) count += series.size();
+            double[] means = new double[count];
+            int i = 0;
+            for (List<RunningStats> series : perNode) {
+                for (RunningStats s : series) {
+                    means[i++] = s.getMean();
+                    points.merge(s);
+                }
+            }
+            return new Group(means, RunningStats.of(means), points);
+        }
+    }
+}
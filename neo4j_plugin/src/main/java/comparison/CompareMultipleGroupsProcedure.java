@@ -0,0 +1,187 @@
+package comparison;
+
+import org.neo4j.graphdb.*;
+import org.neo4j.logging.Log;
+import org.neo4j.procedure.*;
+import result_classes.MultiGroupComparisonResult;
+import util.ComparisonUtil;
+import util.GroupStatistics;
+import util.RunningStats;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Vergleich einer Metrik über k Gruppen in einem Aufruf (statt k² paarweiser compare_* Aufrufe).
+ * <p>
+ * Gruppiert wird nach einer Property der Knoten (groupBy, z.B. version oder zone) oder nach einem verbundenen
+ * Knoten (relation, z.B. DEPLOYED_ON -> Server); Knoten, die über die Relation zu mehreren Gruppen gehören, werden
+ * übersprungen und gemeldet. Alle Knoten werden parallel geholt und pro Serie auf eine
+ * Streaming-Zusammenfassung reduziert; darauf laufen ANOVA, Kruskal-Wallis und paarweise Post-hoc-Tests
+ * mit Holm-Korrektur.
+ *
+ * Usage example in Cypher:
+ *   MATCH (p:Pod) WITH collect(p) AS pods
+ *   CALL graphobs.comparison.compare_multiple_groups(pods, "latency_ms", {range: "-1h"}, {relation: "DEPLOYED_ON"}) YIELD *
+ */
+public class CompareMultipleGroupsProcedure {
+
+    @Context
+    public GraphDatabaseService db;
+
+    @Context
+    public Log log;
+
+    @Procedure(name = "graphobs.comparison.compare_multiple_groups", mode = Mode.READ)
+    @Description("Compare a metric across k groups of nodes (one-way ANOVA, Kruskal-Wallis, pairwise post-hoc tests with Holm correction). " +
+            "options: groupBy (node property) or relation (relationship type, e.g. 'DEPLOYED_ON') with direction " +
+            "('OUTGOING' (default), 'INCOMING', 'BOTH') and keyProperty ('name'); alpha (0.05); posthoc ('welch' (default), " +
+            "'mann_whitney' or 'none').")
+    public Stream<MultiGroupComparisonResult> compareMultipleGroups(
+            @Name("nodes") List<Node> nodes,
+            @Name("metric") String metric,
+            @Name(value = "params", defaultValue = "{}") Map<String, Object> params,
+            @Name(value = "options", defaultValue = "{}") Map<String, Object> options
+    ) {
+        if (nodes == null || nodes.isEmpty()) {
+            log.warn("No nodes provided to compare_multiple_groups.");
+            return Stream.empty();
+        }
+        if (metric == null || metric.isBlank()) {
+            log.warn("No metric name provided to compare_multiple_groups.");
+            return Stream.empty();
+        }
+        String groupBy = options.containsKey("groupBy") ? Objects.toString(options.get("groupBy"), null) : null;
+        String relation = options.containsKey("relation") ? Objects.toString(options.get("relation"), null) : null;
+        if ((groupBy == null) == (relation == null)) {
+            throw new IllegalArgumentException("Exactly one of options.groupBy or options.relation must be given.");
+        }
+        double alpha = ((Number) options.getOrDefault("alpha", 0.05)).doubleValue();
+        String posthoc = options.getOrDefault("posthoc", "welch").toString().toLowerCase();
+        if (!posthoc.equals("welch") && !posthoc.equals("mann_whitney") && !posthoc.equals("none")) {
+            throw new IllegalArgumentException("Unsupported posthoc '" + posthoc + "'. Allowed: welch, mann_whitney, none.");
+        }
+
+        // 1. Gruppenschlüssel pro Knoten (in der Aufrufer-Transaktion)
+        String[] keys = new String[nodes.size()];
+        if (groupBy != null) {
+            for (int i = 0; i < keys.length; i++) {
+                Object value = nodes.get(i).getProperty(groupBy, null);
+                keys[i] = value == null ? null : value.toString();
+            }
+        } else {
+            Direction direction = Direction.valueOf(options.getOrDefault("direction", "OUTGOING").toString().toUpperCase());
+            String keyProperty = options.getOrDefault("keyProperty", "name").toString();
+            RelationshipType type = RelationshipType.withName(relation);
+            int ambiguous = 0;
+            for (int i = 0; i < keys.length; i++) {
+                Node node = nodes.get(i);
+                try (ResourceIterable<Relationship> rels = node.getRelationships(direction, type)) {
+                    for (Relationship rel : rels) {
+                        Node other = rel.getOtherNode(node);
+                        String key = other.getProperty(keyProperty, other.getElementId()).toString();
+                        if (keys[i] != null && !keys[i].equals(key)) {
+                            // mehrere verschiedene Gruppen: nicht willkürlich zuordnen
+                            keys[i] = null;
+                            ambiguous++;
+                            break;
+                        }
+                        keys[i] = key;
+                    }
+                }
+            }
+            if (ambiguous > 0) {
+                log.warn("compare_multiple_groups: %d nodes are related to more than one group via %s and were skipped.",
+                        ambiguous, relation);
+            }
+        }
+
+        // 2. Alle Knoten parallel holen und reduzieren
+        List<List<RunningStats>> perNode = ComparisonUtil.summarizeNodes(nodes, metric, params, db, log);
+
+        Map<String, List<Double>> meansByGroup = new TreeMap<>();
+        Map<String, RunningStats> pointsByGroup = new HashMap<>();
+        Map<String, Integer> nodesByGroup = new HashMap<>();
+        int ungrouped = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == null) {
+                ungrouped++;
+                continue;
+            }
+            nodesByGroup.merge(keys[i], 1, Integer::sum);
+            List<Double> means = meansByGroup.computeIfAbsent(keys[i], k -> new ArrayList<>());
+            RunningStats points = pointsByGroup.computeIfAbsent(keys[i], k -> new RunningStats());
+            for (RunningStats series : perNode.get(i)) {
+                means.add(series.getMean());
+                points.merge(series);
+            }
+        }
+        if (ungrouped > 0) log.info("compare_multiple_groups: %d nodes without group key were skipped.", ungrouped);
+        meansByGroup.values().removeIf(List::isEmpty);
+        if (meansByGroup.size() < 2) {
+            log.warn("compare_multiple_groups: fewer than two groups with data (%d).", meansByGroup.size());
+            return Stream.empty();
+        }
+
+        // 3. Tests
+        List<String> names = new ArrayList<>(meansByGroup.keySet());
+        int k = names.size();
+        double[][] samples = new double[k][];
+        List<RunningStats> summaries = new ArrayList<>(k);
+        List<Map<String, Object>> groups = new ArrayList<>(k);
+        for (int g = 0; g < k; g++) {
+            String name = names.get(g);
+            samples[g] = meansByGroup.get(name).stream().mapToDouble(Double::doubleValue).toArray();
+            RunningStats summary = RunningStats.of(samples[g]);
+            summaries.add(summary);
+
+            Map<String, Object> group = new LinkedHashMap<>();
+            group.put("group", name);
+            group.put("nodes", (long) nodesByGroup.get(name));
+            group.put("samples", summary.getN());
+            group.put("points", pointsByGroup.get(name).getN());
+            group.put("mean", summary.getMean());
+            group.put("std", summary.getStandardDeviation());
+            groups.add(group);
+        }
+
+        GroupStatistics.TestResult anova = GroupStatistics.anova(summaries);
+        GroupStatistics.TestResult kruskal = GroupStatistics.kruskalWallis(samples);
+
+        List<Map<String, Object>> pairwise = new ArrayList<>();
+        if (!posthoc.equals("none")) {
+            int pairs = k * (k - 1) / 2;
+            double[] statistics = new double[pairs];
+            double[] pValues = new double[pairs];
+            int[][] index = new int[pairs][];
+            int p = 0;
+            for (int a = 0; a < k; a++) {
+                for (int b = a + 1; b < k; b++) {
+                    GroupStatistics.TestResult test = posthoc.equals("welch")
+                            ? GroupStatistics.welch(summaries.get(a), summaries.get(b))
+                            : GroupStatistics.mannWhitney(samples[a], samples[b]);
+                    statistics[p] = test.statistic;
+                    pValues[p] = test.pValue;
+                    index[p++] = new int[]{a, b};
+                }
+            }
+            double[] adjusted = GroupStatistics.holm(pValues);
+            for (int i = 0; i < pairs; i++) {
+                int a = index[i][0], b = index[i][1];
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("groupA", names.get(a));
+                row.put("groupB", names.get(b));
+                row.put("difference", summaries.get(b).getMean() - summaries.get(a).getMean());
+                row.put("statistic", statistics[i]);
+                row.put("pValue", pValues[i]);
+                row.put("pAdjusted", adjusted[i]);
+                row.put("significant", !Double.isNaN(adjusted[i]) && adjusted[i] < alpha);
+                pairwise.add(row);
+            }
+        }
+
+        boolean significant = !Double.isNaN(anova.pValue) && anova.pValue < alpha;
+        return Stream.of(new MultiGroupComparisonResult(groups, anova.statistic, anova.pValue,
+                kruskal.statistic, kruskal.pValue, significant, pairwise));
+    }
+}
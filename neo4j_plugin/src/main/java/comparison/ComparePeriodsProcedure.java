@@ -12,7 +12,7 @@ import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import static util.ComparisonUtil.computeMeansForNodeAndPeriod;
+import static util.ComparisonUtil.collectMeans;
 
 /**
  * Compare per-node means across two time periods.
@@ -54,22 +54,9 @@ public class ComparePeriodsProcedure {
 
         double alpha = options.containsKey("alpha") ? ((Number) options.get("alpha")).doubleValue() : 0.05;
 
-        List<Double> meansA = new ArrayList<>();
-        List<Double> meansB = new ArrayList<>();
-
-        for (Node node : nodes) {
-            try {
-                // Für jeden Knoten: Mittelwert in Periode A und Periode B (falls vorhanden)
-                List<Double> meanAOpt = computeMeansForNodeAndPeriod(node, metric, periodA, db, log);
-                List<Double> meanBOpt = computeMeansForNodeAndPeriod(node, metric, periodB, db, log);
-
-                meansA.addAll(meanAOpt);
-                meansB.addAll(meanBOpt);
-
-            } catch (Exception e) {
-                log.warn("Failed for node %s while computing means: %s", node.getElementId(), e.getMessage());
-            }
-        }
+        // Für jeden Knoten: Mittelwerte in Periode A und Periode B, jeweils parallel über alle Knoten
+        List<Double> meansA = toList(collectMeans(nodes, metric, periodA, db, log));
+        List<Double> meansB = toList(collectMeans(nodes, metric, periodB, db, log));
 
 
         double meanA = meansA.isEmpty() ? Double.NaN : meanFromList(meansA);
@@ -221,6 +208,12 @@ public class ComparePeriodsProcedure {
 
 
 
+    private List<Double> toList(double[] values) {
+        List<Double> list = new ArrayList<>(values.length);
+        for (double v : values) list.add(v);
+        return list;
+    }
+
     private double meanFromList(List<Double> list) {
         if (list == null || list.isEmpty()) return Double.NaN;
         double s = 0.0;
@@ -13,7 +13,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
-import static util.ComparisonUtil.computeMeansForNodeAndPeriod;
+import static util.ComparisonUtil.collectMeans;
 
 /**
  * Procedure to compare mean metric values between two groups of Pods using a two-sample t-test.
@@ -211,18 +211,8 @@ public class CompareTimeSeriesProcedure {
      * Holt Mittelwerte für alle Pods in einer Gruppe.
      */
     private double[] collectPodMeans(List<Node> pods, String metric, Map<String,Object> options) {
-        List<Double> means = new ArrayList<>();
-        for (Node pod : pods) {
-            try {
-                List<Double> meanOpt = computeMeansForNodeAndPeriod(pod, metric, options, db, log);
-                //meanOpt.ifPresent(means::add);
-                means.addAll(meanOpt);
-            } catch (Exception e) {
-                log.warn("Failed to compute mean for pod id %s metric %s: %s",
-                        pod.getElementId(), metric, e.getMessage());
-            }
-        }
-        return means.stream().mapToDouble(Double::doubleValue).toArray();
+        // Pods parallel holen und reduzieren (ein Mittelwert pro Serie)
+        return collectMeans(pods, metric, options, db, log);
     }
 
 
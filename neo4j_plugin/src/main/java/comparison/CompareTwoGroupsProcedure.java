@@ -12,7 +12,7 @@ import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import static util.ComparisonUtil.computeMeansForNodeAndPeriod;
+import static util.ComparisonUtil.collectMeans;
 
 /**
  * Procedure to compare mean metric values between two explicit groups of Pods using a two-sample t-test.
@@ -95,18 +95,8 @@ public class CompareTwoGroupsProcedure {
     // -----------------------
 
     private double[] collectPodMeans(List<Node> pods, String metric, Map<String, Object> params) {
-        List<Double> means = new ArrayList<>();
-        for (Node pod : pods) {
-            try {
-                List<Double> meanList = computeMeansForNodeAndPeriod(pod, metric, params, db, log);
-                if (meanList != null && !meanList.isEmpty()) {
-                    means.addAll(meanList);
-                }
-            } catch (Exception e) {
-                log.warn("Failed to compute mean for pod id %s metric %s: %s", pod.getElementId(), metric, e.getMessage());
-            }
-        }
-        return means.stream().mapToDouble(Double::doubleValue).toArray();
+        // Pods parallel holen und reduzieren (ein Mittelwert pro Serie)
+        return collectMeans(pods, metric, params, db, log);
     }
 
 
@@ -0,0 +1,265 @@
+package comparison;
+
+import org.apache.commons.math3.distribution.NormalDistribution;
+import org.neo4j.graphdb.*;
+import org.neo4j.logging.Log;
+import org.neo4j.procedure.*;
+import util.NumericSeries;
+import util.ParallelUtil;
+import util.SeasonalBaseline;
+import util.TimeSeriesUtil;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Saisonale Baselines (Stunde der Woche) pro Knoten + Metrik und der Vergleich eines aktuellen Fensters dagegen.
+ * <p>
+ * build_seasonal_baseline legt das Profil an bzw. rechnet nur die seit dem letzten Lauf neuen Samples ein;
+ * start_seasonal_baseline_refresh macht dasselbe periodisch im Hintergrund für alle vorhandenen Baselines.
+ * compare_to_baseline braucht danach nur noch die Punkte des aktuellen Fensters.
+ */
+public class SeasonalBaselineProcedure {
+
+    private static final ConcurrentMap<String, ScheduledExecutorService> REFRESHERS = new ConcurrentHashMap<>();
+
+    @Context
+    public GraphDatabaseService db;
+
+    @Context
+    public Transaction tx;
+
+    @Context
+    public Log log;
+
+    public static class BaselineResult {
+        public Node node;
+        public String metric;
+        public long addedPoints;
+        public long totalPoints;
+        public String lastTime;
+
+        public BaselineResult(Node node, String metric, long addedPoints, long totalPoints, String lastTime) {
+            this.node = node;
+            this.metric = metric;
+            this.addedPoints = addedPoints;
+            this.totalPoints = totalPoints;
+            this.lastTime = lastTime;
+        }
+    }
+
+    public static class BaselineComparisonResult {
+        public Node node;
+        public String metric;
+        public long points;
+        public double currentMean;
+        public double baselineMean;
+        public double zScore;
+        public double pValue;
+        public boolean significant;
+        public double maxPointZ;
+        public long anomalousPoints;
+
+        public BaselineComparisonResult(Node node, String metric, long points, double currentMean, double baselineMean,
+                                        double zScore, double pValue, boolean significant, double maxPointZ, long anomalousPoints) {
+            this.node = node;
+            this.metric = metric;
+            this.points = points;
+            this.currentMean = currentMean;
+            this.baselineMean = baselineMean;
+            this.zScore = zScore;
+            this.pValue = pValue;
+            this.significant = significant;
+            this.maxPointZ = maxPointZ;
+            this.anomalousPoints = anomalousPoints;
+        }
+    }
+
+    public static class RefreshJobResult {
+        public String database;
+        public long intervalSeconds;
+        public boolean started;
+
+        public RefreshJobResult(String database, long intervalSeconds, boolean started) {
+            this.database = database;
+            this.intervalSeconds = intervalSeconds;
+            this.started = started;
+        }
+    }
+
+    @Procedure(name = "graphobs.comparison.build_seasonal_baseline", mode = Mode.WRITE)
+    @Description("Erstellt bzw. aktualisiert inkrementell das Stunde-der-Woche-Profil (Mittelwert/Varianz, UTC) einer Metrik " +
+            "für jeden Knoten und speichert es an (:seasonal_baseline) via HAS_BASELINE. params: lookback (erster Aufbau, Default '28d').")
+    public Stream<BaselineResult> buildSeasonalBaseline(
+            @Name("nodes") List<Node> nodes,
+            @Name("metric") String metric,
+            @Name(value = "params", defaultValue = "{}") Map<String, Object> params
+    ) {
+        if (nodes == null || nodes.isEmpty()) {
+            throw new IllegalArgumentException("nodes darf nicht leer sein.");
+        }
+        long lookbackMillis = TimeSeriesUtil.parseDuration(params.getOrDefault("lookback", "28d"));
+
+        List<Object[]> updates = ParallelUtil.mapNodes(db, nodes,
+                node -> update(node, metric, lookbackMillis, params, db, log), log);
+
+        List<BaselineResult> results = new ArrayList<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            Object[] update = updates.get(i);
+            if (update == null) continue;
+            SeasonalBaseline baseline = (SeasonalBaseline) update[0];
+            SeasonalBaseline.store(tx, nodes.get(i), metric, baseline);
+            results.add(new BaselineResult(nodes.get(i), metric, (Integer) update[1], baseline.totalCount(),
+                    baseline.lastTime == Long.MIN_VALUE ? null : Instant.ofEpochMilli(baseline.lastTime).toString()));
+        }
+        return results.stream();
+    }
+
+    @Procedure(name = "graphobs.comparison.start_seasonal_baseline_refresh", mode = Mode.READ)
+    @Description("Startet (einmal pro Datenbank) einen Hintergrundjob, der alle vorhandenen :seasonal_baseline-Profile " +
+            "alle intervalSeconds inkrementell um neue Samples ergänzt.")
+    public Stream<RefreshJobResult> startSeasonalBaselineRefresh(
+            @Name(value = "intervalSeconds", defaultValue = "3600") long intervalSeconds
+    ) {
+        if (intervalSeconds <= 0) throw new IllegalArgumentException("intervalSeconds muss > 0 sein.");
+        GraphDatabaseService database = db;
+        Log jobLog = log;
+        boolean[] started = {false};
+        REFRESHERS.computeIfAbsent(database.databaseName(), name -> {
+            ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "seasonal-baseline-refresh-" + name);
+                t.setDaemon(true);
+                return t;
+            });
+            scheduler.scheduleAtFixedRate(() -> {
+                try {
+                    refreshAll(database, jobLog);
+                } catch (Exception e) {
+                    jobLog.error("Seasonal baseline refresh failed: %s", e.getMessage());
+                }
+            }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+            started[0] = true;
+            return scheduler;
+        });
+        return Stream.of(new RefreshJobResult(database.databaseName(), intervalSeconds, started[0]));
+    }
+
+    @Procedure(name = "graphobs.comparison.compare_to_baseline", mode = Mode.READ)
+    @Description("Vergleicht das aktuelle Fenster (Zeitfenster-Parameter, Default: letzte Stunde) mit dem gespeicherten " +
+            "Stunde-der-Woche-Profil. params: threshold (|z| je Punkt, Default 3.0), alpha (0.05).")
+    public Stream<BaselineComparisonResult> compareToBaseline(
+            @Name("node") Node node,
+            @Name("metric") String metric,
+            @Name(value = "params", defaultValue = "{}") Map<String, Object> params
+    ) {
+        SeasonalBaseline baseline = SeasonalBaseline.load(node, metric);
+        if (baseline == null) {
+            log.warn("compare_to_baseline: Keine seasonal_baseline für Metrik '%s' an Knoten %s. Zuerst build_seasonal_baseline ausführen.",
+                    metric, node.getElementId());
+            return Stream.empty();
+        }
+        double threshold = ((Number) params.getOrDefault("threshold", 3.0)).doubleValue();
+        double alpha = ((Number) params.getOrDefault("alpha", 0.05)).doubleValue();
+
+        Map<String, Object> windowParams = params;
+        if (!params.containsKey("startTime") && !params.containsKey("time")) {
+            windowParams = new HashMap<>(params);
+            long now = System.currentTimeMillis();
+            windowParams.put("startTime", now - 3_600_000L);
+            windowParams.put("endTime", now);
+        }
+        NumericSeries current = NumericSeries.of(
+                TimeSeriesUtil.getFilteredTimeSeries(node, metric, windowParams, db, log).collect(Collectors.toList()),
+                metric);
+
+        long n = 0, anomalous = 0;
+        double sum = 0.0, expectedSum = 0.0, varianceSum = 0.0, maxZ = 0.0;
+        for (int i = 0; i < current.size(); i++) {
+            int b = SeasonalBaseline.hourOfWeek(current.times[i]);
+            double var = baseline.variance(b);
+            if (Double.isNaN(var)) continue;
+            double x = current.values[i];
+            double mean = baseline.means[b];
+            n++;
+            sum += x;
+            expectedSum += mean;
+            varianceSum += var;
+            double z = var > 0 ? (x - mean) / Math.sqrt(var) : 0.0;
+            if (Math.abs(z) > Math.abs(maxZ)) maxZ = z;
+            if (Math.abs(z) > threshold) anomalous++;
+        }
+        if (n == 0) {
+            log.warn("compare_to_baseline: Keine Punkte im Fenster mit ausreichender Baseline.");
+            return Stream.empty();
+        }
+
+        double currentMean = sum / n;
+        double baselineMean = expectedSum / n;
+        // Standardfehler des Fenstermittels bei unabhängigen Punkten: sqrt(sum var_i) / n
+        double se = Math.sqrt(varianceSum) / n;
+        double z = se > 0 ? (currentMean - baselineMean) / se : 0.0;
+        double pValue = 2.0 * (1.0 - new NormalDistribution().cumulativeProbability(Math.abs(z)));
+
+        return Stream.of(new BaselineComparisonResult(node, metric, n, currentMean, baselineMean, z, pValue,
+                pValue < alpha, maxZ, anomalous));
+    }
+
+    /**
+     * Lädt nur die Samples nach baseline.lastTime (bzw. lookback beim ersten Aufbau) und rechnet sie in eine Kopie ein.
+     *
+     * @return {SeasonalBaseline, Integer neuePunkte}
+     */
+    private static Object[] update(Node node, String metric, long lookbackMillis, Map<String, Object> params,
+                                   GraphDatabaseService db, Log log) {
+        SeasonalBaseline existing = SeasonalBaseline.load(node, metric);
+        SeasonalBaseline baseline = existing == null ? new SeasonalBaseline() : existing.copy();
+
+        long now = System.currentTimeMillis();
+        Map<String, Object> fetchParams = new HashMap<>(params);
+        fetchParams.remove("time");
+        fetchParams.remove("range");
+        fetchParams.put("startTime", baseline.lastTime == Long.MIN_VALUE ? now - lookbackMillis : baseline.lastTime + 1);
+        fetchParams.put("endTime", now);
+
+        NumericSeries fresh = NumericSeries.of(
+                TimeSeriesUtil.getFilteredTimeSeries(node, metric, fetchParams, db, log).collect(Collectors.toList()),
+                metric);
+        int added = baseline.add(fresh);
+        return new Object[]{baseline, added};
+    }
+
+    private static void refreshAll(GraphDatabaseService database, Log log) {
+        try (Transaction tx = database.beginTx()) {
+            List<Node> sources = new ArrayList<>();
+            List<String> metrics = new ArrayList<>();
+            try (Result result = tx.execute("MATCH (n)-[:HAS_BASELINE]->(b:seasonal_baseline) RETURN n, b.metric AS metric")) {
+                while (result.hasNext()) {
+                    Map<String, Object> row = result.next();
+                    sources.add((Node) row.get("n"));
+                    metrics.add((String) row.get("metric"));
+                }
+            }
+            List<Integer> stored = new ArrayList<>();
+            List<SeasonalBaseline> baselines = new ArrayList<>();
+            for (int i = 0; i < sources.size(); i++) {
+                Object[] update = update(sources.get(i), metrics.get(i), 0L, Collections.emptyMap(), database, log);
+                if ((Integer) update[1] > 0) {
+                    SeasonalBaseline.store(tx, sources.get(i), metrics.get(i), (SeasonalBaseline) update[0]);
+                    stored.add(i);
+                    baselines.add((SeasonalBaseline) update[0]);
+                }
+            }
+            tx.commit();
+            // Cache erst nach dem Commit; bei build_seasonal_baseline committet der Aufrufer, dort lädt der nächste Zugriff neu
+            for (int k = 0; k < stored.size(); k++) {
+                int i = stored.get(k);
+                SeasonalBaseline.cache(sources.get(i).getElementId(), metrics.get(i), baselines.get(k));
+            }
+            int updated = stored.size();
+            log.info("Seasonal baseline refresh: %d of %d baselines updated.", updated, sources.size());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package core;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.logging.Log;
+import org.neo4j.procedure.*;
+import util.Ownership;
+
+import java.util.stream.Stream;
+
+public class BackfillOwningService {
+
+    @Context
+    public GraphDatabaseService db;
+
+    @Context
+    public Log log;
+
+    public static class BackfillResult {
+        public long updated;
+
+        public BackfillResult(long updated) {
+            this.updated = updated;
+        }
+    }
+
+    @Procedure(name = "graphobs.data.backfill_owning_service", mode = Mode.WRITE)
+    @Description("Füllt den Cache owningService/owningServiceId (siehe graphobs.search.get_owning_service) für " +
+            "Bestandsdaten, in Transaktionen zu je batchSize Knoten. Neue Besitz-Kanten pflegt der Listener selbst.")
+    public Stream<BackfillResult> backfill(@Name(value = "batchSize", defaultValue = "10000") Long batchSize) {
+        return Stream.of(new BackfillResult(Ownership.backfill(db, batchSize.intValue(), log)));
+    }
+}
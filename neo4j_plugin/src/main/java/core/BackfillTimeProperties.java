@@ -0,0 +1,32 @@
+package core;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.logging.Log;
+import org.neo4j.procedure.*;
+import util.TemporalProperties;
+
+import java.util.stream.Stream;
+
+public class BackfillTimeProperties {
+
+    @Context
+    public GraphDatabaseService db;
+
+    @Context
+    public Log log;
+
+    public static class BackfillResult {
+        public long updated;
+
+        public BackfillResult(long updated) {
+            this.updated = updated;
+        }
+    }
+
+    @Procedure(name = "graphobs.data.backfill_time_ms", mode = Mode.WRITE)
+    @Description("Ergänzt startMs/endMs (time_series, time_period, time_list) bzw. timeMs (event) als Epoch-Millis " +
+            "für Bestandsdaten, in Transaktionen zu je batchSize Knoten. Läuft auch automatisch beim Start.")
+    public Stream<BackfillResult> backfill(@Name(value = "batchSize", defaultValue = "10000") Long batchSize) {
+        return Stream.of(new BackfillResult(TemporalProperties.backfill(db, batchSize.intValue(), log)));
+    }
+}
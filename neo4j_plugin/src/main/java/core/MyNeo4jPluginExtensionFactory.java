@@ -11,6 +11,10 @@ import org.neo4j.kernel.extension.context.ExtensionContext;
 import org.neo4j.kernel.lifecycle.Lifecycle;
 import org.neo4j.kernel.lifecycle.LifecycleAdapter;
 import org.neo4j.logging.internal.LogService;
+import util.EventCountRollup;
+import util.ReachabilityIndex;
+import util.TemporalIndex;
+import util.TemporalProperties;
 
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -83,6 +87,15 @@ public class MyNeo4jPluginExtensionFactory extends ExtensionFactory<MyNeo4jPlugi
                         createIndexIfNotExists(tx, "time_period", new String[]{"start"});
                         createIndexIfNotExists(tx, "time_period", new String[]{"end"});
 
+                        createIndexIfNotExists(tx, "event", new String[]{"time"});
+
+                        // Kanonische Epoch-Millis-Properties (siehe TemporalProperties): reine long-Range-Scans
+                        createIndexIfNotExists(tx, "time_series", new String[]{"startMs", "endMs"});
+                        createIndexIfNotExists(tx, "time_series", new String[]{"endMs"});
+                        createIndexIfNotExists(tx, "time_period", new String[]{"startMs", "endMs"});
+                        createIndexIfNotExists(tx, "time_period", new String[]{"endMs"});
+                        createIndexIfNotExists(tx, "event", new String[]{"timeMs"});
+
 
                         tx.commit();
                     }
@@ -91,6 +104,22 @@ public class MyNeo4jPluginExtensionFactory extends ExtensionFactory<MyNeo4jPlugi
                 } catch (Exception e) {
                     log.getUserLog(MyNeo4jPluginExtensionFactory.class).info("Nicht funktioniert");
                 }
+
+                // Bestandsdaten ohne startMs/endMs/timeMs ergänzen, danach den In-Memory-Intervallindex aufbauen
+                if (!db.databaseName().equals(SYSTEM_DATABASE_NAME)) {
+                    try {
+                        TemporalProperties.backfill(db, 10_000, log.getUserLog(TemporalProperties.class));
+                    } catch (Exception e) {
+                        log.getUserLog(MyNeo4jPluginExtensionFactory.class).warn("Backfill der Zeit-Properties fehlgeschlagen: " + e.getMessage());
+                    }
+                    TemporalIndex.of(db).rebuild(db, log.getUserLog(TemporalIndex.class));
+                    EventCountRollup.of(db).rebuild(db, log.getUserLog(EventCountRollup.class));
+                    try {
+                        ReachabilityIndex.of(db).rebuild(db, log.getUserLog(ReachabilityIndex.class));
+                    } catch (Exception e) {
+                        log.getUserLog(MyNeo4jPluginExtensionFactory.class).warn("Reachability index build failed: " + e.getMessage());
+                    }
+                }
             }, 30, TimeUnit.SECONDS);
 
 
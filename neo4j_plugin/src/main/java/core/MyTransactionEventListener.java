@@ -2,10 +2,20 @@ package core;
 
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.event.LabelEntry;
+import org.neo4j.graphdb.event.PropertyEntry;
 import org.neo4j.graphdb.event.TransactionData;
 import org.neo4j.graphdb.event.TransactionEventListenerAdapter;
 import org.neo4j.logging.internal.LogService;
+import time_series_analysis.CusumDetector;
+import time_series_analysis.ForecastModels;
+import util.EventCountRollup;
+import util.Ownership;
+import util.ReachabilityIndex;
+import util.TemporalIndex;
+import util.TemporalProperties;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
@@ -13,9 +23,18 @@ import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
-import java.util.Arrays;
+import java.util.*;
 
-public class MyTransactionEventListener extends TransactionEventListenerAdapter<Void> {
+public class MyTransactionEventListener extends TransactionEventListenerAdapter<MyTransactionEventListener.CommitState> {
+
+    /** Wird in beforeCommit gesammelt und erst in afterCommit angewendet (bei Rollback verworfen). */
+    public static class CommitState {
+        TemporalIndex.Changes temporal;
+        EventCountRollup.Changes eventCounts;
+        boolean callGraphChanged;
+        List<CusumDetector.Publication> changepointStates;
+        Set<String> deletedNodes;
+    }
 
     private final GraphDatabaseService db;
     private final LogService logsvc;
@@ -26,7 +45,7 @@ public class MyTransactionEventListener extends TransactionEventListenerAdapter<
     }
 
     @Override
-    public Void beforeCommit(TransactionData data, Transaction transaction, GraphDatabaseService databaseService) throws Exception {
+    public CommitState beforeCommit(TransactionData data, Transaction transaction, GraphDatabaseService databaseService) throws Exception {
         // Für alle neu erstellten Knoten
         data.createdNodes().forEach(node -> {
             if (node.hasLabel(Label.label("time_series"))) {
@@ -101,7 +120,49 @@ public class MyTransactionEventListener extends TransactionEventListenerAdapter<
             }
         });
 
-        return null;
+        // Kanonische Epoch-Millis-Properties (startMs/endMs/timeMs) für neue und zeitlich geänderte Knoten
+        for (Node node : temporalTouched(data)) {
+            try {
+                TemporalProperties.normalize(node);
+            } catch (IllegalArgumentException e) {
+                logsvc.getUserLog(MyTransactionEventListener.class).warn(e.getMessage());
+            }
+        }
+
+        // Cache des besitzenden Services für Knoten unter geänderten Besitz-Kanten bzw. Service-Labels
+        for (Node node : Ownership.affected(data)) {
+            try {
+                Ownership.refresh(node);
+            } catch (RuntimeException e) {
+                logsvc.getUserLog(MyTransactionEventListener.class).warn("owningService: " + e.getMessage());
+            }
+        }
+
+        CommitState state = new CommitState();
+        state.temporal = TemporalIndex.collect(data);
+        state.eventCounts = EventCountRollup.of(db).collect(data);
+        state.callGraphChanged = ReachabilityIndex.affects(data);
+        state.changepointStates = CusumDetector.collect(data);
+        state.deletedNodes = ForecastModels.deleted(data);
+        return state;
+    }
+
+    private static Collection<Node> temporalTouched(TransactionData data) {
+        Map<String, Node> touched = new LinkedHashMap<>();
+        data.createdNodes().forEach(node -> touched.put(node.getElementId(), node));
+        for (PropertyEntry<Node> entry : data.assignedNodeProperties()) {
+            if (TemporalProperties.SOURCE_KEYS.contains(entry.key())) touched.put(entry.entity().getElementId(), entry.entity());
+        }
+        for (PropertyEntry<Node> entry : data.removedNodeProperties()) {
+            if (TemporalProperties.SOURCE_KEYS.contains(entry.key())) touched.put(entry.entity().getElementId(), entry.entity());
+        }
+        for (LabelEntry entry : data.assignedLabels()) touched.put(entry.node().getElementId(), entry.node());
+
+        List<Node> out = new ArrayList<>(touched.size());
+        for (Node node : touched.values()) {
+            if (!data.isDeleted(node) && TemporalProperties.isTemporal(node)) out.add(node);
+        }
+        return out;
     }
 
 
@@ -131,7 +192,14 @@ public class MyTransactionEventListener extends TransactionEventListenerAdapter<
 
 
     @Override
-    public void afterCommit(TransactionData data, Void state, GraphDatabaseService databaseService) {
+    public void afterCommit(TransactionData data, CommitState state, GraphDatabaseService databaseService) {
+        if (state != null) {
+            TemporalIndex.of(db).apply(state.temporal);
+            EventCountRollup.of(db).apply(state.eventCounts);
+            if (state.callGraphChanged) ReachabilityIndex.of(db).invalidate();
+            CusumDetector.apply(state.changepointStates);
+            ForecastModels.forget(state.deletedNodes);
+        }
         logsvc
                 .getUserLog(MyTransactionEventListener.class)
                 .info("Logging after commit on transaction with ID %s for database %s", data.getTransactionId(), db.databaseName());
@@ -0,0 +1,132 @@
+package mathematical_relations;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.logging.Log;
+import org.neo4j.procedure.*;
+import util.EventUtil;
+import util.NumericSeries;
+import util.TimeSeriesUtil;
+import util.TimeWindow;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Korrelation zwischen Ereignishäufigkeit und dem mittleren Wert einer Metrik pro Intervall.
+ * <p>
+ * Im Gegensatz zu {@link EventCorrelationById} werden die Events per Label + Zeitfenster über den
+ * Range-Index auf event.time gelesen und die Metrik über die registrierten TimeSeriesSources geholt
+ * (lokal oder Prometheus). Das Bucketing läuft mit Ganzzahlarithmetik auf Epoch-Sekunden in Arrays.
+ */
+public class EventMetricCorrelation {
+
+    /** Obergrenze für die Anzahl der Intervalle (schützt vor zu kleinem intervalSeconds bei langen Zeiträumen). */
+    private static final long MAX_BUCKETS = 10_000_000L;
+
+    @Context
+    public GraphDatabaseService db;
+
+    @Context
+    public Transaction tx;
+
+    @Context
+    public Log log;
+
+    public static class CorrelationResult {
+        public double correlation;
+        public long contributingIntervals;
+        public long eventCount;
+
+        public CorrelationResult(double correlation, long contributingIntervals, long eventCount) {
+            this.correlation = correlation;
+            this.contributingIntervals = contributingIntervals;
+            this.eventCount = eventCount;
+        }
+    }
+
+    @Procedure(name = "graphobs.analysis.correlate_events_with_metric", mode = Mode.READ)
+    @Description("Pearson-Korrelation zwischen der Anzahl von :event-Knoten (optional mit zusätzlichem Label) und dem " +
+            "mittleren Wert einer Metrik je Intervall. params: intervalSeconds (Default 60), eventFilter (Map mit " +
+            "Gleichheitsfiltern auf Event-Properties) sowie die üblichen Zeitfenster-Parameter (startTime/endTime, time/range).")
+    public Stream<CorrelationResult> correlateEventsWithMetric(
+            @Name("eventLabel") String eventLabel,
+            @Name("valueNode") Node valueNode,
+            @Name("metric") String metric,
+            @Name(value = "params", defaultValue = "{}") Map<String, Object> params
+    ) {
+        long intervalSeconds = ((Number) params.getOrDefault("intervalSeconds", 60L)).longValue();
+        if (intervalSeconds <= 0) {
+            throw new IllegalArgumentException("Parameter 'intervalSeconds' muss > 0 sein.");
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> eventFilter = (Map<String, Object>) params.get("eventFilter");
+
+        // --- 1) Metrik über den normalen TimeSeriesSource-Pfad ---
+        NumericSeries series = NumericSeries.of(
+                TimeSeriesUtil.getFilteredTimeSeries(valueNode, metric, params, db, log).collect(Collectors.toList()),
+                metric);
+        if (series.isEmpty()) {
+            log.warn("correlate_events_with_metric: Keine Werte für Metrik '%s' gefunden.", metric);
+            return Stream.empty();
+        }
+
+        // --- 2) Events nur im Zeitraum der Metrik laden (Range-Scan auf event.time) ---
+        long intervalMillis = intervalSeconds * 1000L;
+        long firstBucket = Math.floorDiv(Math.floorDiv(series.firstTime(), 1000L), intervalSeconds);
+        long lastBucket = Math.floorDiv(Math.floorDiv(series.lastTime(), 1000L), intervalSeconds);
+        long bucketCount = lastBucket - firstBucket + 1;
+        if (bucketCount > MAX_BUCKETS) {
+            throw new IllegalArgumentException("Zu viele Intervalle (" + bucketCount + "); intervalSeconds vergrößern oder Zeitfenster einschränken.");
+        }
+
+        TimeWindow window = new TimeWindow(firstBucket * intervalMillis, (lastBucket + 1) * intervalMillis);
+        long[] eventTimes = EventUtil.loadEventTimes(tx, eventLabel, window, eventFilter);
+
+        // --- 3) Bucketing auf Epoch-Sekunden ---
+        int buckets = (int) bucketCount;
+        int[] eventCounts = new int[buckets];
+        for (long t : eventTimes) {
+            long b = Math.floorDiv(Math.floorDiv(t, 1000L), intervalSeconds) - firstBucket;
+            if (b >= 0 && b < buckets) eventCounts[(int) b]++;
+        }
+
+        double[] valueSums = new double[buckets];
+        int[] valueCounts = new int[buckets];
+        for (int i = 0; i < series.size(); i++) {
+            double v = series.values[i];
+            if (Double.isNaN(v)) continue;
+            int b = (int) (Math.floorDiv(Math.floorDiv(series.times[i], 1000L), intervalSeconds) - firstBucket);
+            valueSums[b] += v;
+            valueCounts[b]++;
+        }
+
+        // --- 4) Pearson über alle Intervalle mit Metrikwerten (ohne Events = 0) ---
+        long n = 0;
+        double sumX = 0.0, sumY = 0.0, sumXY = 0.0, sumXX = 0.0, sumYY = 0.0;
+        for (int b = 0; b < buckets; b++) {
+            if (valueCounts[b] == 0) continue;
+            double x = eventCounts[b];
+            double y = valueSums[b] / valueCounts[b];
+            n++;
+            sumX += x;
+            sumY += y;
+            sumXY += x * y;
+            sumXX += x * x;
+            sumYY += y * y;
+        }
+
+        if (n < 2) {
+            log.warn("correlate_events_with_metric: Nach der Aggregation in %ds-Intervalle sind weniger als 2 Datenpunkte übrig.", intervalSeconds);
+            return Stream.empty();
+        }
+
+        double numerator = n * sumXY - sumX * sumY;
+        double denominator = Math.sqrt((n * sumXX - sumX * sumX) * (n * sumYY - sumY * sumY));
+        double correlation = denominator < 1e-9 ? 0.0 : numerator / denominator;
+
+        return Stream.of(new CorrelationResult(correlation, n, eventTimes.length));
+    }
+}
@@ -0,0 +1,228 @@
+package mathematical_relations;
+
+import org.apache.commons.math3.distribution.FDistribution;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.QRDecomposition;
+import org.apache.commons.math3.linear.RealVector;
+import org.apache.commons.math3.linear.SingularMatrixException;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.logging.Log;
+import org.neo4j.procedure.*;
+import temporal_joins.TimeGrid;
+import util.NumericSeries;
+import util.ParallelUtil;
+import util.TimeSeriesUtil;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Granger-Kausalitäts-Screening über den Abhängigkeitsgraphen (Operation)-[:DEPENDS_ON]->(Operation).
+ * <p>
+ * Jede Operation wird genau einmal geladen und auf ein gemeinsames Zeitgitter gelegt; diese Gitterwerte
+ * (und die Lag-Verfügbarkeit) werden von allen Kanten geteilt, an denen die Operation beteiligt ist.
+ * Pro Kante laufen zwei F-Tests (caller -> callee und callee -> caller), die Kanten werden parallel getestet.
+ */
+public class GrangerCausalityScreening {
+
+    @Context
+    public GraphDatabaseService db;
+
+    @Context
+    public Transaction tx;
+
+    @Context
+    public Log log;
+
+    public static class GrangerEdgeResult {
+        public Node cause;
+        public Node effect;
+        public String direction; // "caller->callee" oder "callee->caller"
+        public double fStatistic;
+        public double pValue;
+        public boolean significant;
+        public long lag;
+        public long observations;
+
+        public GrangerEdgeResult(Node cause, Node effect, String direction, double fStatistic, double pValue,
+                                 boolean significant, long lag, long observations) {
+            this.cause = cause;
+            this.effect = effect;
+            this.direction = direction;
+            this.fStatistic = fStatistic;
+            this.pValue = pValue;
+            this.significant = significant;
+            this.lag = lag;
+            this.observations = observations;
+        }
+    }
+
+    @Procedure(name = "graphobs.analysis.granger_dependency_graph", mode = Mode.READ)
+    @Description("Granger-Kausalitätstest (F-Test) für jede DEPENDS_ON-Kante zwischen Operationen, in beide Richtungen. " +
+            "params: serviceName (nur Kanten mit Operationen dieses Services), lags (Default 2), intervalSeconds (60), " +
+            "join ('linear', 'forward_fill', 'resample'), alpha (0.05), limit sowie die üblichen Zeitfenster-Parameter. " +
+            "Liefert die Kanten aufsteigend nach p-Wert sortiert.")
+    public Stream<GrangerEdgeResult> grangerDependencyGraph(
+            @Name("metric") String metric,
+            @Name(value = "params", defaultValue = "{}") Map<String, Object> params
+    ) {
+        int lags = ((Number) params.getOrDefault("lags", 2)).intValue();
+        long intervalSeconds = ((Number) params.getOrDefault("intervalSeconds", 60L)).longValue();
+        double alpha = ((Number) params.getOrDefault("alpha", 0.05)).doubleValue();
+        long limit = ((Number) params.getOrDefault("limit", Long.MAX_VALUE)).longValue();
+        String join = (String) params.getOrDefault("join", "linear");
+        if (lags < 1) throw new IllegalArgumentException("Parameter 'lags' muss >= 1 sein.");
+        if (intervalSeconds <= 0) intervalSeconds = 60;
+
+        // --- 1) Kanten einsammeln ---
+        String query = params.containsKey("serviceName")
+                ? "MATCH (s:Service {name: $serviceName})-[:HAS_OPERATION]->(op:Operation) " +
+                  "MATCH (caller:Operation)-[:DEPENDS_ON]->(callee:Operation) WHERE caller = op OR callee = op " +
+                  "RETURN DISTINCT caller, callee"
+                : "MATCH (caller:Operation)-[:DEPENDS_ON]->(callee:Operation) RETURN caller, callee";
+        Map<String, Object> queryParams = new HashMap<>();
+        if (params.containsKey("serviceName")) queryParams.put("serviceName", params.get("serviceName"));
+
+        List<Node> operations = new ArrayList<>();
+        Map<String, Integer> indexById = new HashMap<>();
+        List<int[]> edges = new ArrayList<>();
+        try (Result result = tx.execute(query, queryParams)) {
+            while (result.hasNext()) {
+                Map<String, Object> row = result.next();
+                Node caller = (Node) row.get("caller");
+                Node callee = (Node) row.get("callee");
+                if (caller.equals(callee)) continue;
+                int a = indexById.computeIfAbsent(caller.getElementId(), id -> { operations.add(caller); return operations.size() - 1; });
+                int b = indexById.computeIfAbsent(callee.getElementId(), id -> { operations.add(callee); return operations.size() - 1; });
+                edges.add(new int[]{a, b});
+            }
+        }
+        if (edges.isEmpty()) {
+            log.warn("granger_dependency_graph: Keine DEPENDS_ON-Kanten gefunden.");
+            return Stream.empty();
+        }
+
+        // --- 2) Jede Operation einmal laden (parallel) und auf ein gemeinsames Gitter legen ---
+        List<NumericSeries> series = ParallelUtil.mapNodes(db, operations,
+                op -> NumericSeries.of(
+                        TimeSeriesUtil.getFilteredTimeSeries(op, metric, params, db, log).collect(Collectors.toList()),
+                        metric),
+                log);
+
+        long from = Long.MAX_VALUE, to = Long.MIN_VALUE;
+        for (NumericSeries s : series) {
+            if (s == null || s.isEmpty()) continue;
+            from = Math.min(from, s.firstTime());
+            to = Math.max(to, s.lastTime());
+        }
+        if (from >= to) {
+            log.warn("granger_dependency_graph: Keine Zeitreihen '%s' für die Operationen gefunden.", metric);
+            return Stream.empty();
+        }
+
+        TimeGrid grid = TimeGrid.covering(from, to, intervalSeconds * 1000L);
+        double[][] gridded = new double[operations.size()][];
+        boolean[][] masks = new boolean[operations.size()][];
+        for (int i = 0; i < operations.size(); i++) {
+            NumericSeries s = series.get(i);
+            if (s == null || s.isEmpty()) continue;
+            gridded[i] = grid.sample(s, join);
+            masks[i] = VARModel.lagMask(gridded[i], lags);
+        }
+
+        // --- 3) Kanten parallel testen ---
+        List<List<GrangerEdgeResult>> perEdge = ParallelUtil.map(edges, edge -> {
+            int a = edge[0], b = edge[1];
+            if (gridded[a] == null || gridded[b] == null) return Collections.<GrangerEdgeResult>emptyList();
+            List<GrangerEdgeResult> out = new ArrayList<>(2);
+            double[] forward = grangerTest(gridded[a], gridded[b], masks[a], masks[b], lags);
+            if (forward != null) {
+                out.add(new GrangerEdgeResult(operations.get(a), operations.get(b), "caller->callee",
+                        forward[0], forward[1], forward[1] < alpha, lags, (long) forward[2]));
+            }
+            double[] backward = grangerTest(gridded[b], gridded[a], masks[b], masks[a], lags);
+            if (backward != null) {
+                out.add(new GrangerEdgeResult(operations.get(b), operations.get(a), "callee->caller",
+                        backward[0], backward[1], backward[1] < alpha, lags, (long) backward[2]));
+            }
+            return out;
+        }, log);
+
+        return perEdge.stream()
+                .filter(Objects::nonNull)
+                .flatMap(List::stream)
+                .sorted(Comparator.comparingDouble((GrangerEdgeResult r) -> r.pValue)
+                        .thenComparing(r -> -r.fStatistic))
+                .limit(limit);
+    }
+
+    /**
+     * F-Test "cause Granger-verursacht effect" mit p Lags:
+     * restringiert  effect_t ~ 1 + effect_{t-1..t-p}
+     * unrestringiert effect_t ~ 1 + effect_{t-1..t-p} + cause_{t-1..t-p}.
+     *
+     * @return {F, pValue, n} oder null, wenn zu wenige gemeinsame Beobachtungen vorliegen.
+     */
+    static double[] grangerTest(double[] cause, double[] effect, boolean[] causeMask, boolean[] effectMask, int p) {
+        int len = effect.length;
+        int n = 0;
+        for (int t = 0; t < len; t++) if (causeMask[t] && effectMask[t]) n++;
+        int dfDenominator = n - 2 * p - 1;
+        if (dfDenominator < 1) return null;
+
+        double[][] restricted = new double[n][p + 1];
+        double[][] unrestricted = new double[n][2 * p + 1];
+        double[] y = new double[n];
+        int r = 0;
+        for (int t = 0; t < len; t++) {
+            if (!(causeMask[t] && effectMask[t])) continue;
+            restricted[r][0] = 1.0;
+            unrestricted[r][0] = 1.0;
+            for (int l = 1; l <= p; l++) {
+                restricted[r][l] = effect[t - l];
+                unrestricted[r][l] = effect[t - l];
+                unrestricted[r][p + l] = cause[t - l];
+            }
+            y[r] = effect[t];
+            r++;
+        }
+
+        double rssR = residualSumOfSquares(restricted, y);
+        double rssU = residualSumOfSquares(unrestricted, y);
+        if (Double.isNaN(rssR) || Double.isNaN(rssU)) return null;
+
+        double f;
+        if (rssU <= 0.0) {
+            f = rssR > 0.0 ? Double.POSITIVE_INFINITY : 0.0;
+        } else {
+            f = ((rssR - rssU) / p) / (rssU / dfDenominator);
+        }
+        f = Math.max(0.0, f);
+        double pValue = Double.isInfinite(f) ? 0.0 : 1.0 - new FDistribution(p, dfDenominator).cumulativeProbability(f);
+        return new double[]{f, pValue, n};
+    }
+
+    private static double residualSumOfSquares(double[][] X, double[] y) {
+        RealVector beta;
+        try {
+            beta = new QRDecomposition(new Array2DRowRealMatrix(X, false), 1e-12).getSolver()
+                    .solve(new ArrayRealVector(y, false));
+        } catch (SingularMatrixException e) {
+            return Double.NaN;
+        }
+        double rss = 0.0;
+        int m = X[0].length;
+        for (int i = 0; i < X.length; i++) {
+            double pred = 0.0;
+            for (int c = 0; c < m; c++) pred += X[i][c] * beta.getEntry(c);
+            double e = y[i] - pred;
+            rss += e * e;
+        }
+        return rss;
+    }
+}
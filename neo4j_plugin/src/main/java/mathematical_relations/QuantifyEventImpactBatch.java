@@ -0,0 +1,188 @@
+package mathematical_relations;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.logging.Log;
+import org.neo4j.procedure.*;
+import util.*;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Batch-Variante von graphobs.analysis.quantify_event_impact: bewertet alle :event-Knoten eines Labels
+ * gegen eine Metrik auf mehreren Knoten.
+ * <p>
+ * Jede Zeitreihe wird genau einmal geladen (parallel). Baseline- und Post-Event-Fenster werden per
+ * Binärsuche gefunden, Mittelwert/Standardabweichung der Baseline kommen aus Präfixsummen.
+ * Die Paare (Event, Knoten) werden parallel ausgewertet.
+ */
+public class QuantifyEventImpactBatch {
+
+    @Context
+    public GraphDatabaseService db;
+
+    @Context
+    public Transaction tx;
+
+    @Context
+    public Log log;
+
+    public static class EventImpactBatchResult {
+        public Node event;
+        public Node node;
+        public String eventTime;
+        public double baselineMean;
+        public double baselineStd;
+        public double peakImpact;
+        public long impactDuration;
+
+        public EventImpactBatchResult(Node event, Node node, String eventTime, double baselineMean, double baselineStd,
+                                      double peakImpact, long impactDuration) {
+            this.event = event;
+            this.node = node;
+            this.eventTime = eventTime;
+            this.baselineMean = baselineMean;
+            this.baselineStd = baselineStd;
+            this.peakImpact = peakImpact;
+            this.impactDuration = impactDuration;
+        }
+    }
+
+    /** Präfixsummen einer Serie (verschoben um den ersten Wert, damit die Varianz numerisch stabil bleibt). */
+    private static final class PreparedSeries {
+        final NumericSeries series;
+        final double shift;
+        final double[] prefixSum;
+        final double[] prefixSumSq;
+
+        PreparedSeries(NumericSeries series) {
+            this.series = series;
+            int n = series.size();
+            this.shift = n > 0 ? series.values[0] : 0.0;
+            this.prefixSum = new double[n + 1];
+            this.prefixSumSq = new double[n + 1];
+            for (int i = 0; i < n; i++) {
+                double d = series.values[i] - shift;
+                prefixSum[i + 1] = prefixSum[i] + d;
+                prefixSumSq[i + 1] = prefixSumSq[i] + d * d;
+            }
+        }
+    }
+
+    @Procedure(name = "graphobs.analysis.quantify_event_impact_batch", mode = Mode.READ)
+    @Description("Peak Impact und Impact Duration für jedes :event (optional mit zusätzlichem Label) gegen eine Metrik " +
+            "auf jedem der übergebenen Knoten. params: windowMinutes (60), baselineWindowMinutes (60), thresholdSigma (1.0), " +
+            "eventFilter (Gleichheitsfilter auf Event-Properties) sowie startTime/endTime bzw. time/range für die Eventauswahl. " +
+            "impactDuration = Anzahl der Punkte im Post-Event-Fenster über mean + thresholdSigma * std.")
+    public Stream<EventImpactBatchResult> quantifyEventImpactBatch(
+            @Name("eventLabel") String eventLabel,
+            @Name("nodes") List<Node> nodes,
+            @Name("metric") String metric,
+            @Name(value = "params", defaultValue = "{}") Map<String, Object> params
+    ) {
+        if (nodes == null || nodes.isEmpty()) {
+            throw new IllegalArgumentException("nodes darf nicht leer sein.");
+        }
+        long windowMillis = ((Number) params.getOrDefault("windowMinutes", 60L)).longValue() * 60_000L;
+        long baselineMillis = ((Number) params.getOrDefault("baselineWindowMinutes", 60L)).longValue() * 60_000L;
+        double thresholdSigma = ((Number) params.getOrDefault("thresholdSigma", 1.0)).doubleValue();
+        if (windowMillis <= 0 || baselineMillis <= 0) {
+            throw new IllegalArgumentException("windowMinutes und baselineWindowMinutes müssen > 0 sein.");
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> eventFilter = (Map<String, Object>) params.get("eventFilter");
+
+        // --- 1) Events per Range-Scan ---
+        TimeWindow eventWindow = TimeSeriesUtil.extractTimeWindow(params, log);
+        EventUtil.Events events = EventUtil.loadEvents(tx, eventLabel, eventWindow, eventFilter);
+        if (events.size() == 0) {
+            log.warn("quantify_event_impact_batch: Keine Events für Label '%s' gefunden.", eventLabel);
+            return Stream.empty();
+        }
+
+        // --- 2) Jede Zeitreihe einmal laden, nur den Bereich, den die Events brauchen ---
+        Map<String, Object> seriesParams = new HashMap<>(params);
+        seriesParams.remove("time");
+        seriesParams.remove("range");
+        seriesParams.put("startTime", events.times[0] - baselineMillis);
+        seriesParams.put("endTime", events.times[events.size() - 1] + windowMillis);
+
+        List<PreparedSeries> prepared = ParallelUtil.mapNodes(db, nodes,
+                node -> new PreparedSeries(NumericSeries.of(
+                        TimeSeriesUtil.getFilteredTimeSeries(node, metric, seriesParams, db, log).collect(Collectors.toList()),
+                        metric)),
+                log);
+
+        // --- 3) (Event x Knoten) parallel, in Blöcken von Events ---
+        int eventCount = events.size();
+        int chunks = Math.min(eventCount, ParallelUtil.parallelism() * 4);
+        List<int[]> ranges = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            ranges.add(new int[]{(int) ((long) eventCount * c / chunks), (int) ((long) eventCount * (c + 1) / chunks)});
+        }
+
+        List<List<double[]>> perChunk = ParallelUtil.map(ranges, range -> {
+            List<double[]> out = new ArrayList<>();
+            for (int e = range[0]; e < range[1]; e++) {
+                long eventTime = events.times[e];
+                for (int n = 0; n < prepared.size(); n++) {
+                    PreparedSeries ps = prepared.get(n);
+                    if (ps == null || ps.series.isEmpty()) continue;
+                    double[] impact = impact(ps, eventTime, baselineMillis, windowMillis, thresholdSigma);
+                    if (impact != null) out.add(new double[]{e, n, impact[0], impact[1], impact[2], impact[3]});
+                }
+            }
+            return out;
+        }, log);
+
+        // --- 4) Ergebnisse im Aufrufer-Thread zusammensetzen ---
+        Node[] eventNodes = new Node[eventCount];
+        List<EventImpactBatchResult> results = new ArrayList<>();
+        for (List<double[]> chunk : perChunk) {
+            if (chunk == null) continue;
+            for (double[] row : chunk) {
+                int e = (int) row[0];
+                if (eventNodes[e] == null) eventNodes[e] = tx.getNodeByElementId(events.elementIds[e]);
+                results.add(new EventImpactBatchResult(eventNodes[e], nodes.get((int) row[1]),
+                        Instant.ofEpochMilli(events.times[e]).toString(), row[2], row[3], row[4], (long) row[5]));
+            }
+        }
+        return results.stream();
+    }
+
+    /**
+     * Baseline = [eventTime - baselineMillis, eventTime), Post-Event = [eventTime, eventTime + windowMillis].
+     *
+     * @return {baselineMean, baselineStd, peakImpact, impactDuration} oder null, wenn ein Fenster leer ist.
+     */
+    private static double[] impact(PreparedSeries ps, long eventTime, long baselineMillis, long windowMillis, double thresholdSigma) {
+        NumericSeries s = ps.series;
+        int baseFrom = s.lowerBound(eventTime - baselineMillis);
+        int postFrom = s.lowerBound(eventTime);
+        int postTo = s.lowerBound(eventTime + windowMillis + 1);
+
+        int baselineCount = postFrom - baseFrom;
+        if (baselineCount <= 0 || postTo <= postFrom) return null;
+
+        double sum = ps.prefixSum[postFrom] - ps.prefixSum[baseFrom];
+        double sumSq = ps.prefixSumSq[postFrom] - ps.prefixSumSq[baseFrom];
+        double shiftedMean = sum / baselineCount;
+        double variance = Math.max(0.0, sumSq / baselineCount - shiftedMean * shiftedMean);
+        double mean = shiftedMean + ps.shift;
+        double std = Math.sqrt(variance);
+        double threshold = mean + thresholdSigma * std;
+
+        double peak = Double.NEGATIVE_INFINITY;
+        long duration = 0;
+        for (int i = postFrom; i < postTo; i++) {
+            double v = s.values[i];
+            if (v - mean > peak) peak = v - mean;
+            if (v > threshold) duration++;
+        }
+        return new double[]{mean, std, peak, duration};
+    }
+}
@@ -0,0 +1,159 @@
+package mathematical_relations;
+
+import org.neo4j.logging.Log;
+import org.neo4j.procedure.*;
+import result_classes.TimeSeriesResult;
+import temporal_joins.AlignedData;
+import temporal_joins.JoinStrategyFactory;
+import temporal_joins.TemporalJoinStrategy;
+import util.TimeSeriesUtil;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Gleitende Pearson-Korrelation zwischen zwei Zeitreihen ("Korrelation über die Zeit").
+ * <p>
+ * Die beiden Serien werden genau einmal über eine {@link TemporalJoinStrategy} ausgerichtet.
+ * Danach wird ein Zeitfenster über die gemeinsame Zeitachse geschoben, wobei Summen und
+ * Kreuzprodukte inkrementell gepflegt werden (Punkt rein / Punkt raus) – jeder Punkt wird
+ * also höchstens zweimal angefasst, statt pro Fenster neu auszurichten und neu zu summieren.
+ */
+public class RollingCorrelation {
+
+    @Context
+    public Log log;
+
+    public static final String RESULT_KEY = "correlation";
+
+    @Procedure(name = "graphobs.analysis.rolling_correlation", mode = Mode.READ)
+    @Description("Berechnet eine gleitende Pearson-Korrelation zwischen zwei Zeitreihen (timestamps, values). " +
+            "params: window (z.B. '15m'), join ('linear', 'forward_fill', 'resample'), intervalSeconds, minPoints. " +
+            "Liefert eine TimeSeriesResult mit der Serie 'correlation' am jeweiligen Fensterende.")
+    public Stream<TimeSeriesResult> rollingCorrelation(
+            @Name("timestamps1") List<String> timestamps1,
+            @Name("values1") Map<String, List<Double>> values1,
+            @Name("timestamps2") List<String> timestamps2,
+            @Name("values2") Map<String, List<Double>> values2,
+            @Name(value = "params", defaultValue = "{}") Map<String, Object> params
+    ) {
+        if (params == null) params = Collections.emptyMap();
+
+        String metricKey1 = getAndValidateMetricKey(values1, "values1");
+        String metricKey2 = getAndValidateMetricKey(values2, "values2");
+
+        if (timestamps1.size() != values1.get(metricKey1).size()) {
+            throw new IllegalArgumentException("timestamps1 und values1 müssen gleich lang sein.");
+        }
+        if (timestamps2.size() != values2.get(metricKey2).size()) {
+            throw new IllegalArgumentException("timestamps2 und values2 müssen gleich lang sein.");
+        }
+
+        long windowMillis = TimeSeriesUtil.parseDuration(params.getOrDefault("window", "15m"));
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("Parameter 'window' muss positiv sein.");
+        }
+        int minPoints = Math.max(2, ((Number) params.getOrDefault("minPoints", 3)).intValue());
+
+        // --- 1) Einmaliges Ausrichten ---
+        TemporalJoinStrategy joinStrategy = JoinStrategyFactory.getStrategy((String) params.getOrDefault("join", "linear"));
+        Map<String, Object> joinParams = new HashMap<>();
+        joinParams.put("intervalSeconds", params.getOrDefault("intervalSeconds", 60));
+        AlignedData aligned = joinStrategy.align(
+                Collections.singletonList(new TimeSeriesResult(timestamps1, values1)), metricKey1,
+                Collections.singletonList(new TimeSeriesResult(timestamps2, values2)), metricKey2,
+                joinParams);
+
+        if (aligned.size() < minPoints || aligned.timestamps.size() != aligned.size()) {
+            log.warn("rolling_correlation: Nicht genug ausgerichtete Punkte (%d) für ein Fenster.", aligned.size());
+            return Stream.empty();
+        }
+
+        int n = aligned.size();
+        long[] times = new long[n];
+        for (int i = 0; i < n; i++) {
+            times[i] = aligned.timestamps.get(i).toInstant().toEpochMilli();
+        }
+
+        // --- 2) Gleitendes Fenster (t - window, t] ---
+        double[] correlation = slidingPearson(times, aligned.valuesA, aligned.valuesB, windowMillis, minPoints);
+
+        List<String> outTimestamps = new ArrayList<>(n);
+        List<Double> outValues = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            if (Double.isNaN(correlation[i])) continue;
+            outTimestamps.add(aligned.timestamps.get(i).toInstant().toString());
+            outValues.add(correlation[i]);
+        }
+
+        if (outValues.isEmpty()) {
+            return Stream.empty();
+        }
+
+        Map<String, List<Double>> values = new HashMap<>();
+        values.put(RESULT_KEY, outValues);
+        return Stream.of(new TimeSeriesResult(outTimestamps, values));
+    }
+
+    /**
+     * Pearson-Korrelation für jedes Fenster (times[i] - window, times[i]].
+     * Die Werte werden vorab um den globalen Mittelwert zentriert; Pearson ist verschiebungsinvariant,
+     * so bleiben die laufenden Summen klein und das Abziehen alter Punkte numerisch stabil.
+     *
+     * @return Array gleicher Länge wie times, NaN für Fenster mit weniger als minPoints Punkten oder Varianz 0.
+     */
+    static double[] slidingPearson(long[] times, double[] a, double[] b, long windowMillis, int minPoints) {
+        int n = times.length;
+        double meanA = 0.0, meanB = 0.0;
+        for (int i = 0; i < n; i++) {
+            meanA += a[i];
+            meanB += b[i];
+        }
+        meanA /= n;
+        meanB /= n;
+
+        double[] out = new double[n];
+        double sx = 0.0, sy = 0.0, sxx = 0.0, syy = 0.0, sxy = 0.0;
+        int left = 0;
+
+        for (int right = 0; right < n; right++) {
+            double x = a[right] - meanA;
+            double y = b[right] - meanB;
+            sx += x; sy += y; sxx += x * x; syy += y * y; sxy += x * y;
+
+            while (times[left] <= times[right] - windowMillis) {
+                double ox = a[left] - meanA;
+                double oy = b[left] - meanB;
+                sx -= ox; sy -= oy; sxx -= ox * ox; syy -= oy * oy; sxy -= ox * oy;
+                left++;
+            }
+
+            int count = right - left + 1;
+            if (count < minPoints) {
+                out[right] = Double.NaN;
+                continue;
+            }
+            double cov = count * sxy - sx * sy;
+            double varX = count * sxx - sx * sx;
+            double varY = count * syy - sy * sy;
+            if (varX <= 0.0 || varY <= 0.0) {
+                out[right] = Double.NaN;
+                continue;
+            }
+            double r = cov / Math.sqrt(varX * varY);
+            out[right] = Math.max(-1.0, Math.min(1.0, r));
+        }
+        return out;
+    }
+
+    private static String getAndValidateMetricKey(Map<String, List<Double>> valuesMap, String paramName) {
+        if (valuesMap == null || valuesMap.isEmpty()) {
+            throw new IllegalArgumentException(paramName + " darf nicht leer sein und muss genau eine Serie enthalten.");
+        }
+        if (valuesMap.size() != 1) {
+            throw new IllegalArgumentException(paramName + " enthält " + valuesMap.size() +
+                    " Serien. Nur univariate Zeitreihen (genau eine Serie) sind erlaubt.");
+        }
+        return valuesMap.keySet().iterator().next();
+    }
+}
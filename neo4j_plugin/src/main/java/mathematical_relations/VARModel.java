@@ -0,0 +1,321 @@
+package mathematical_relations;
+
+import org.apache.commons.math3.linear.*;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Wiederverwendbare VAR(p)-Schätzung für k Variablen.
+ * <p>
+ * Modell: y_t = c + A_1 y_{t-1} + ... + A_p y_{t-p} + u_t.
+ * Alle k Gleichungen teilen sich dieselbe Designmatrix X = [1, y_{t-1}, ..., y_{t-p}], daher wird X genau
+ * einmal QR-zerlegt und für alle Gleichungen gleichzeitig gelöst (statt k-mal X'X zu invertieren).
+ * Die Cholesky-Zerlegung der Residuenkovarianz wird beim ersten Bedarf berechnet und im Modell gehalten,
+ * orthogonalisierte IRFs und die Varianzzerlegung (FEVD) greifen darauf zurück.
+ * <p>
+ * Eingaben sind Variablen als Zeilen (data[variable][zeitindex]) auf einer gemeinsamen, regelmäßigen Achse;
+ * NaN markiert fehlende Werte. Verwendet werden nur Zeitpunkte t, für die alle Variablen bei t, t-1, ..., t-maxLag
+ * vorhanden sind.
+ */
+public final class VARModel {
+
+    public final int k;
+    public final int p;
+    public final int nObs;
+    /** Achsenabschnitt je Gleichung. */
+    public final double[] intercept;
+    /** coefficients[l][i][j]: Einfluss von Variable j mit Lag l+1 auf Gleichung i. */
+    public final double[][][] coefficients;
+    /** Residuenkovarianz (Nenner n-1, wie in den bisherigen VAR(1)-Procedures). */
+    public final double[][] sigma;
+    public final double aic;
+    public final double bic;
+
+    private double[][] choleskyL;
+
+    private VARModel(int k, int p, int nObs, double[] intercept, double[][][] coefficients,
+                     double[][] sigma, double aic, double bic) {
+        this.k = k;
+        this.p = p;
+        this.nObs = nObs;
+        this.intercept = intercept;
+        this.coefficients = coefficients;
+        this.sigma = sigma;
+        this.aic = aic;
+        this.bic = bic;
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Fit
+    // ---------------------------------------------------------------------------------------------
+
+    /**
+     * Liest lags / maxLag / criterion aus den Procedure-Parametern.
+     * Ohne Angabe wird wie bisher ein VAR(1) geschätzt.
+     */
+    public static VARModel fromParams(double[][] data, Map<String, Object> params) {
+        return fromParams(data, null, params);
+    }
+
+    /**
+     * Wie {@link #fromParams(double[][], Map)}, aber mit einer vorab berechneten Verfügbarkeitsmaske
+     * (siehe {@link #lagMask(double[], int)}), z.B. der bereits bekannten Maske einer Referenzserie.
+     */
+    public static VARModel fromParams(double[][] data, boolean[] knownMask, Map<String, Object> params) {
+        if (params.containsKey("lags")) {
+            int p = ((Number) params.get("lags")).intValue();
+            return fit(data, rows(data, knownMask, p), p);
+        }
+        int maxLag = maxLag(params);
+        String criterion = params.getOrDefault("criterion", "aic").toString();
+        return select(data, rows(data, knownMask, maxLag), maxLag, criterion);
+    }
+
+    /** Größter Lag, der für die Parameter relevant ist (für die Maskenberechnung). */
+    public static int maxLag(Map<String, Object> params) {
+        Object raw = params.containsKey("lags") ? params.get("lags") : params.getOrDefault("maxLag", 1);
+        int lag = ((Number) raw).intValue();
+        if (lag < 1) throw new IllegalArgumentException("lags/maxLag muss >= 1 sein.");
+        return lag;
+    }
+
+    /** Schätzt VAR(p) auf allen gültigen Zeilen. */
+    public static VARModel fit(double[][] data, int p) {
+        return fit(data, rows(data, null, p), p);
+    }
+
+    /**
+     * Schätzt VAR(p) auf den übergebenen Zeitindizes (jeder Index t benötigt gültige Werte bei t-p..t).
+     */
+    public static VARModel fit(double[][] data, int[] rows, int p) {
+        int k = data.length;
+        int m = 1 + k * p;
+        int n = rows.length;
+        if (n <= m) {
+            throw new IllegalArgumentException("Zu wenige Beobachtungen (" + n + ") für VAR(" + p + ") mit " + k + " Variablen.");
+        }
+
+        double[][] X = new double[n][m];
+        double[][] Y = new double[n][k];
+        for (int r = 0; r < n; r++) {
+            int t = rows[r];
+            X[r][0] = 1.0;
+            for (int l = 1; l <= p; l++) {
+                int base = 1 + (l - 1) * k;
+                for (int j = 0; j < k; j++) X[r][base + j] = data[j][t - l];
+            }
+            for (int i = 0; i < k; i++) Y[r][i] = data[i][t];
+        }
+        return fitDesign(X, Y, k, p);
+    }
+
+    /**
+     * Wählt p in 1..maxLag per AIC oder BIC. Alle Kandidaten werden auf derselben Stichprobe
+     * (gültig für maxLag) geschätzt, damit die Kriterien vergleichbar sind.
+     */
+    public static VARModel select(double[][] data, int[] rows, int maxLag, String criterion) {
+        boolean useBic = "bic".equalsIgnoreCase(criterion);
+        if (!useBic && !"aic".equalsIgnoreCase(criterion)) {
+            throw new IllegalArgumentException("Ungültiges Kriterium: '" + criterion + "'. Erlaubt: 'aic' oder 'bic'.");
+        }
+        VARModel best = null;
+        for (int p = 1; p <= maxLag; p++) {
+            VARModel candidate;
+            try {
+                candidate = fit(data, rows, p);
+            } catch (IllegalArgumentException e) {
+                break; // größere p haben erst recht zu wenige Freiheitsgrade
+            }
+            double score = useBic ? candidate.bic : candidate.aic;
+            double bestScore = best == null ? Double.POSITIVE_INFINITY : (useBic ? best.bic : best.aic);
+            if (best == null || score < bestScore) best = candidate;
+        }
+        if (best == null) {
+            throw new IllegalArgumentException("Zu wenige Beobachtungen (" + rows.length + ") für ein VAR-Modell.");
+        }
+        return best;
+    }
+
+    private static VARModel fitDesign(double[][] X, double[][] Y, int k, int p) {
+        int n = X.length;
+        int m = X[0].length;
+
+        RealMatrix x = new Array2DRowRealMatrix(X, false);
+        RealMatrix y = new Array2DRowRealMatrix(Y, false);
+        RealMatrix beta;
+        try {
+            beta = new QRDecomposition(x, 1e-12).getSolver().solve(y); // m x k
+        } catch (SingularMatrixException e) {
+            throw new IllegalStateException("Designmatrix ist singulär (konstante oder kollineare Serien?).");
+        }
+
+        double[][] b = beta.getData();
+        double[] intercept = new double[k];
+        double[][][] coefficients = new double[p][k][k];
+        for (int i = 0; i < k; i++) {
+            intercept[i] = b[0][i];
+            for (int l = 0; l < p; l++) {
+                for (int j = 0; j < k; j++) coefficients[l][i][j] = b[1 + l * k + j][i];
+            }
+        }
+
+        // Residuen-Kreuzprodukte U'U
+        double[][] uu = new double[k][k];
+        double[] u = new double[k];
+        for (int r = 0; r < n; r++) {
+            for (int i = 0; i < k; i++) {
+                double pred = 0.0;
+                for (int c = 0; c < m; c++) pred += X[r][c] * b[c][i];
+                u[i] = Y[r][i] - pred;
+            }
+            for (int i = 0; i < k; i++) {
+                for (int j = 0; j <= i; j++) uu[i][j] += u[i] * u[j];
+            }
+        }
+        double[][] sigma = new double[k][k];
+        double[][] sigmaMl = new double[k][k];
+        for (int i = 0; i < k; i++) {
+            for (int j = 0; j <= i; j++) {
+                sigma[i][j] = sigma[j][i] = uu[i][j] / (n - 1.0);
+                sigmaMl[i][j] = sigmaMl[j][i] = uu[i][j] / n;
+            }
+        }
+
+        double det = new LUDecomposition(new Array2DRowRealMatrix(sigmaMl, false)).getDeterminant();
+        double logDet = Math.log(Math.max(det, Double.MIN_NORMAL));
+        double freeParams = (double) k * k * p + k;
+        double aic = logDet + 2.0 * freeParams / n;
+        double bic = logDet + Math.log(n) * freeParams / n;
+
+        return new VARModel(k, p, n, intercept, coefficients, sigma, aic, bic);
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Gültige Zeilen
+    // ---------------------------------------------------------------------------------------------
+
+    /** mask[t] == true, wenn series bei t, t-1, ..., t-maxLag endliche Werte hat. */
+    public static boolean[] lagMask(double[] series, int maxLag) {
+        boolean[] mask = new boolean[series.length];
+        int run = 0; // Länge der aktuellen Folge gültiger Werte
+        for (int t = 0; t < series.length; t++) {
+            run = Double.isFinite(series[t]) ? run + 1 : 0;
+            mask[t] = run > maxLag;
+        }
+        return mask;
+    }
+
+    private static int[] rows(double[][] data, boolean[] knownMask, int lag) {
+        int len = data[0].length;
+        boolean[] mask = new boolean[len];
+        Arrays.fill(mask, true);
+        if (knownMask != null) {
+            for (int t = 0; t < len; t++) mask[t] = knownMask[t];
+        }
+        for (double[] series : data) {
+            boolean[] m = lagMask(series, lag);
+            for (int t = 0; t < len; t++) mask[t] &= m[t];
+        }
+        int count = 0;
+        for (boolean b : mask) if (b) count++;
+        int[] rows = new int[count];
+        int w = 0;
+        for (int t = 0; t < len; t++) if (mask[t]) rows[w++] = t;
+        return rows;
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // IRF / FEVD
+    // ---------------------------------------------------------------------------------------------
+
+    /** Untere Dreiecksmatrix P mit P P' = sigma (einmal berechnet, danach gecacht). */
+    public synchronized double[][] cholesky() {
+        if (choleskyL == null) {
+            try {
+                choleskyL = new CholeskyDecomposition(new Array2DRowRealMatrix(sigma)).getL().getData();
+            } catch (NonPositiveDefiniteMatrixException | NonSymmetricMatrixException e) {
+                // nicht positiv definit -> kleine Regularisierung
+                double[][] reg = new double[k][k];
+                for (int i = 0; i < k; i++) {
+                    reg[i] = sigma[i].clone();
+                    reg[i][i] += 1e-9;
+                }
+                choleskyL = new CholeskyDecomposition(new Array2DRowRealMatrix(reg), 1e-12, 0.0).getL().getData();
+            }
+        }
+        return choleskyL;
+    }
+
+    /**
+     * MA-Koeffizienten Φ_h (h = 0..steps) mit Φ_0 = I und Φ_h = Σ_{l=1..min(h,p)} Φ_{h-l} A_l.
+     */
+    public double[][][] maCoefficients(int steps) {
+        double[][][] phi = new double[steps + 1][][];
+        phi[0] = identity(k);
+        for (int h = 1; h <= steps; h++) {
+            double[][] acc = new double[k][k];
+            for (int l = 1; l <= Math.min(h, p); l++) {
+                addProduct(acc, phi[h - l], coefficients[l - 1]);
+            }
+            phi[h] = acc;
+        }
+        return phi;
+    }
+
+    /**
+     * Orthogonalisierte Impulsantworten Θ_h = Φ_h P für h = 0..steps.
+     * Ergebnis [h][response][impulse]: Reaktion von Variable response auf einen Ein-Sigma-Schock in impulse.
+     */
+    public double[][][] orthogonalizedIrf(int steps) {
+        double[][][] phi = maCoefficients(steps);
+        double[][] P = cholesky();
+        double[][][] theta = new double[steps + 1][][];
+        for (int h = 0; h <= steps; h++) {
+            double[][] acc = new double[k][k];
+            addProduct(acc, phi[h], P);
+            theta[h] = acc;
+        }
+        return theta;
+    }
+
+    /**
+     * Varianzzerlegung des Prognosefehlers für die Horizonte 1..steps+1.
+     * Ergebnis [h][response][impulse]: Anteil (0..1) der Fehlervarianz von response, der auf Schocks in impulse
+     * zurückgeht; index h entspricht Horizont h+1.
+     */
+    public double[][][] fevd(int steps) {
+        double[][][] theta = orthogonalizedIrf(steps);
+        double[][][] out = new double[steps + 1][k][k];
+        double[][] cumulative = new double[k][k];
+        for (int h = 0; h <= steps; h++) {
+            for (int i = 0; i < k; i++) {
+                for (int j = 0; j < k; j++) cumulative[i][j] += theta[h][i][j] * theta[h][i][j];
+            }
+            for (int i = 0; i < k; i++) {
+                double total = 0.0;
+                for (int j = 0; j < k; j++) total += cumulative[i][j];
+                for (int j = 0; j < k; j++) out[h][i][j] = total == 0.0 ? 0.0 : cumulative[i][j] / total;
+            }
+        }
+        return out;
+    }
+
+    private static double[][] identity(int size) {
+        double[][] id = new double[size][size];
+        for (int i = 0; i < size; i++) id[i][i] = 1.0;
+        return id;
+    }
+
+    /** acc += A * B (quadratisch, k x k). */
+    private static void addProduct(double[][] acc, double[][] A, double[][] B) {
+        int n = acc.length;
+        for (int i = 0; i < n; i++) {
+            for (int c = 0; c < n; c++) {
+                double a = A[i][c];
+                if (a == 0.0) continue;
+                for (int j = 0; j < n; j++) acc[i][j] += a * B[c][j];
+            }
+        }
+    }
+}
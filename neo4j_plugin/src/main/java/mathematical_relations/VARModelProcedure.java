@@ -0,0 +1,143 @@
+package mathematical_relations;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.logging.Log;
+import org.neo4j.procedure.*;
+import temporal_joins.TimeGrid;
+import util.NumericSeries;
+import util.ParallelUtil;
+import util.TimeSeriesUtil;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Multivariates VAR(p) über k (Knoten, Metrik)-Paare mit Lag-Auswahl, orthogonalisierten IRFs und FEVD.
+ * Alle Serien werden auf ein gemeinsames Gitter (intervalSeconds) gelegt; die Reihenfolge der Variablen
+ * bestimmt die Cholesky-Ordnung der orthogonalisierten Schocks.
+ */
+public class VARModelProcedure {
+
+    @Context
+    public GraphDatabaseService db;
+
+    @Context
+    public Log log;
+
+    public static class VARResult {
+        public Node impulseNode;
+        public String impulseMetric;
+        public Node responseNode;
+        public String responseMetric;
+        public long lag;
+        public long observations;
+        public double aic;
+        public double bic;
+        public List<Double> irf;  // h = 0..steps
+        public List<Double> fevd; // Horizont 1..steps+1, Anteil an der Fehlervarianz von response
+
+        public VARResult(Node impulseNode, String impulseMetric, Node responseNode, String responseMetric,
+                         long lag, long observations, double aic, double bic, List<Double> irf, List<Double> fevd) {
+            this.impulseNode = impulseNode;
+            this.impulseMetric = impulseMetric;
+            this.responseNode = responseNode;
+            this.responseMetric = responseMetric;
+            this.lag = lag;
+            this.observations = observations;
+            this.aic = aic;
+            this.bic = bic;
+            this.irf = irf;
+            this.fevd = fevd;
+        }
+    }
+
+    @Procedure(name = "graphobs.analysis.var_model", mode = Mode.READ)
+    @Description("Schätzt ein VAR(p) über k Variablen (nodes[i].metrics[i]; eine einzelne Metrik gilt für alle Knoten, " +
+            "ein einzelner Knoten für alle Metriken). params: intervalSeconds, steps, join, lags oder maxLag + criterion ('aic'/'bic'), " +
+            "sowie die üblichen Zeitfenster-Parameter. Liefert je (impulse, response) die orthogonalisierte IRF und die FEVD.")
+    public Stream<VARResult> varModel(
+            @Name("nodes") List<Node> nodes,
+            @Name("metrics") List<String> metrics,
+            @Name(value = "params", defaultValue = "{}") Map<String, Object> params
+    ) {
+        if (nodes == null || nodes.isEmpty() || metrics == null || metrics.isEmpty()) {
+            throw new IllegalArgumentException("nodes und metrics dürfen nicht leer sein.");
+        }
+
+        int k = Math.max(nodes.size(), metrics.size());
+        if (k < 2) {
+            throw new IllegalArgumentException("Ein VAR-Modell benötigt mindestens zwei Variablen.");
+        }
+        if ((nodes.size() != 1 && nodes.size() != k) || (metrics.size() != 1 && metrics.size() != k)) {
+            throw new IllegalArgumentException("nodes und metrics müssen gleich lang sein (oder eine Seite genau ein Element haben).");
+        }
+
+        List<Node> varNodes = new ArrayList<>(k);
+        List<String> varMetrics = new ArrayList<>(k);
+        for (int i = 0; i < k; i++) {
+            varNodes.add(nodes.size() == 1 ? nodes.get(0) : nodes.get(i));
+            varMetrics.add(metrics.size() == 1 ? metrics.get(0) : metrics.get(i));
+        }
+
+        long intervalSeconds = ((Number) params.getOrDefault("intervalSeconds", 60L)).longValue();
+        if (intervalSeconds <= 0) intervalSeconds = 60;
+        int steps = (int) Math.max(0, ((Number) params.getOrDefault("steps", 10L)).longValue());
+        String join = (String) params.getOrDefault("join", "linear");
+
+        // --- 1) Serien parallel laden ---
+        List<NumericSeries> series = ParallelUtil.mapNodesIndexed(db, varNodes,
+                (node, i) -> NumericSeries.of(
+                        TimeSeriesUtil.getFilteredTimeSeries(node, varMetrics.get(i), params, db, log).collect(Collectors.toList()),
+                        varMetrics.get(i)),
+                log);
+
+        long from = Long.MIN_VALUE, to = Long.MAX_VALUE;
+        for (int i = 0; i < k; i++) {
+            NumericSeries s = series.get(i);
+            if (s == null || s.isEmpty()) {
+                log.warn("var_model: Keine Daten für Variable %d (%s).", i, varMetrics.get(i));
+                return Stream.empty();
+            }
+            from = Math.max(from, s.firstTime());
+            to = Math.min(to, s.lastTime());
+        }
+        if (from >= to) {
+            log.warn("var_model: Die Serien überlappen zeitlich nicht.");
+            return Stream.empty();
+        }
+
+        // --- 2) Gemeinsames Gitter + Schätzung ---
+        TimeGrid grid = TimeGrid.covering(from, to, intervalSeconds * 1000L);
+        double[][] data = new double[k][];
+        for (int i = 0; i < k; i++) data[i] = grid.sample(series.get(i), join);
+
+        VARModel model;
+        try {
+            model = VARModel.fromParams(data, params);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            log.warn("var_model: %s", e.getMessage());
+            return Stream.empty();
+        }
+
+        double[][][] irf = model.orthogonalizedIrf(steps);
+        double[][][] fevd = model.fevd(steps);
+
+        List<VARResult> results = new ArrayList<>(k * k);
+        for (int impulse = 0; impulse < k; impulse++) {
+            for (int response = 0; response < k; response++) {
+                List<Double> irfList = new ArrayList<>(steps + 1);
+                List<Double> fevdList = new ArrayList<>(steps + 1);
+                for (int h = 0; h <= steps; h++) {
+                    irfList.add(irf[h][response][impulse]);
+                    fevdList.add(fevd[h][response][impulse]);
+                }
+                results.add(new VARResult(varNodes.get(impulse), varMetrics.get(impulse),
+                        varNodes.get(response), varMetrics.get(response),
+                        model.p, model.nObs, model.aic, model.bic, irfList, fevdList));
+            }
+        }
+        return results.stream();
+    }
+}
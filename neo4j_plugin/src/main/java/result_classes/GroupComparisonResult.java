@@ -0,0 +1,44 @@
+package result_classes;
+
+public class GroupComparisonResult {
+    public long samplesA;
+    public long samplesB;
+    public long pointsA;
+    public long pointsB;
+    public double meanGroupA;
+    public double meanGroupB;
+    public double stdGroupA;
+    public double stdGroupB;
+    public double difference;
+    public double tStatistic;
+    public double pValueWelch;
+    public double uStatistic;
+    public double pValueMannWhitney;
+    public double ciLower;
+    public double ciUpper;
+    public boolean significant;
+
+    public GroupComparisonResult() {}
+
+    public GroupComparisonResult(long samplesA, long samplesB, long pointsA, long pointsB,
+                                 double meanGroupA, double meanGroupB, double stdGroupA, double stdGroupB,
+                                 double tStatistic, double pValueWelch, double uStatistic, double pValueMannWhitney,
+                                 double ciLower, double ciUpper, boolean significant) {
+        this.samplesA = samplesA;
+        this.samplesB = samplesB;
+        this.pointsA = pointsA;
+        this.pointsB = pointsB;
+        this.meanGroupA = meanGroupA;
+        this.meanGroupB = meanGroupB;
+        this.stdGroupA = stdGroupA;
+        this.stdGroupB = stdGroupB;
+        this.difference = meanGroupB - meanGroupA;
+        this.tStatistic = tStatistic;
+        this.pValueWelch = pValueWelch;
+        this.uStatistic = uStatistic;
+        this.pValueMannWhitney = pValueMannWhitney;
+        this.ciLower = ciLower;
+        this.ciUpper = ciUpper;
+        this.significant = significant;
+    }
+}
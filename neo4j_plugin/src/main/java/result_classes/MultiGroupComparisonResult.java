@@ -0,0 +1,30 @@
+package result_classes;
+
+import java.util.List;
+import java.util.Map;
+
+public class MultiGroupComparisonResult {
+    public long groupCount;
+    public List<Map<String, Object>> groups;
+    public double fStatistic;
+    public double pValueAnova;
+    public double hStatistic;
+    public double pValueKruskalWallis;
+    public boolean significant;
+    public List<Map<String, Object>> pairwise;
+
+    public MultiGroupComparisonResult() {}
+
+    public MultiGroupComparisonResult(List<Map<String, Object>> groups, double fStatistic, double pValueAnova,
+                                      double hStatistic, double pValueKruskalWallis, boolean significant,
+                                      List<Map<String, Object>> pairwise) {
+        this.groupCount = groups.size();
+        this.groups = groups;
+        this.fStatistic = fStatistic;
+        this.pValueAnova = pValueAnova;
+        this.hStatistic = hStatistic;
+        this.pValueKruskalWallis = pValueKruskalWallis;
+        this.significant = significant;
+        this.pairwise = pairwise;
+    }
+}
@@ -0,0 +1,159 @@
+package structural_search;
+
+import org.neo4j.graphdb.*;
+import org.neo4j.logging.Log;
+import util.ReachabilityIndex;
+
+import java.util.*;
+
+/**
+ * Gemeinsame Suche der Aufrufketten-Prozeduren.
+ * <ul>
+ *   <li>Ohne wirksame Schrittgrenze und ohne angeforderte Entfernung: Antwort direkt aus dem
+ *       {@link ReachabilityIndex} (Durchlauf über gesetzte Bits).</li>
+ *   <li>Sonst Breitensuche über DEPENDS_ON zwischen Operationen mit visited-Set statt variabler Pfade in Cypher,
+ *       O(Knoten + Kanten) im erreichten Teilgraphen, jeder Treffer mit seiner kürzesten Entfernung. Ist der Index
+ *       aktuell, endet sie, sobald jede laut Index erreichbare Operation gefunden ist.</li>
+ * </ul>
+ * Hat der Aufrufgraph mehr als {@link ReachabilityIndex#MAX_COMPONENTS} Komponenten, gibt es keinen Index und alle
+ * Anfragen laufen per Breitensuche.
+ */
+final class CallGraphSearch {
+
+    private static final Label OPERATION = Label.label("Operation");
+    private static final Label SERVICE = Label.label("Service");
+
+    private CallGraphSearch() {}
+
+    /** Gefundener Knoten mit Entfernung (DEPENDS_ON-Schritte); null, wenn aus dem Index ohne Entfernung beantwortet. */
+    static final class Hit {
+        final Node node;
+        final Long distance;
+
+        Hit(Node node, Long distance) {
+            this.node = node;
+            this.distance = distance;
+        }
+    }
+
+    /** elementIds der Operationen eines Services; operationName null = alle. */
+    static List<String> operations(Transaction tx, String serviceName, String operationName) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("serviceName", serviceName);
+        params.put("operationName", operationName);
+        List<String> ids = new ArrayList<>();
+        try (Result result = tx.execute(
+                "MATCH (:Service {name: $serviceName})-[:HAS_OPERATION]->(op:Operation) " +
+                        "WHERE $operationName IS NULL OR op.name = $operationName " +
+                        "RETURN DISTINCT elementId(op) AS id", params)) {
+            while (result.hasNext()) ids.add((String) result.next().get("id"));
+        }
+        return ids;
+    }
+
+    /**
+     * Operationen, die von den Start-Operationen aus in 1..maxSteps (bzw. 0..maxSteps) Schritten erreichbar sind;
+     * mit Entfernung aufsteigend nach Entfernung.
+     *
+     * @param forward      true = Aufgerufene (DEPENDS_ON vorwärts), false = Aufrufer
+     * @param includeStart true = Start-Operationen selbst mit Entfernung 0 (Cypher *0..)
+     * @param withDistance true = Entfernung berechnen (immer Breitensuche)
+     */
+    static List<Hit> reachableOperations(GraphDatabaseService db, Transaction tx, List<String> startIds,
+                                         boolean forward, boolean includeStart, long maxSteps, boolean withDistance,
+                                         Log log) {
+        ReachabilityIndex index = ReachabilityIndex.of(db);
+        if (!withDistance && maxSteps >= 1) {
+            ReachabilityIndex.Snapshot snapshot = index.current(db, log);
+            // jede erreichbare Operation liegt höchstens size() Schritte entfernt -> maxSteps schränkt nicht ein
+            if (snapshot.isAvailable() && maxSteps >= snapshot.size()) {
+                return fromIndex(tx, snapshot.reach(startIds, forward, includeStart).ids());
+            }
+        }
+
+        // Index nur für den vorzeitigen Abbruch, und nur wenn er ohne Neuaufbau aktuell ist
+        ReachabilityIndex.Snapshot snapshot = index.ifCurrent();
+        if (snapshot != null && !snapshot.isAvailable()) snapshot = null;
+        ReachabilityIndex.Reach reach = snapshot == null ? null : snapshot.reach(startIds, forward, includeStart);
+        List<Hit> hits = bfs(tx, startIds, forward, includeStart, maxSteps, reach);
+        // Abbruch auf einem inzwischen veralteten Index-Stand -> ohne Abbruch wiederholen
+        if (reach != null && !index.isCurrent(snapshot)) {
+            hits = bfs(tx, startIds, forward, includeStart, maxSteps, null);
+        }
+        return hits;
+    }
+
+    private static List<Hit> fromIndex(Transaction tx, List<String> ids) {
+        List<Hit> hits = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            try {
+                hits.add(new Hit(tx.getNodeByElementId(id), null));
+            } catch (NotFoundException e) {
+                // zwischen Index-Stand und Transaktion gelöscht
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Breitensuche ebenenweise bis maxSteps über DEPENDS_ON zwischen Operationen (wie der Index). Mit reach endet
+     * sie, sobald jede Operation aus reach gefunden ist; Treffer außerhalb von reach zählen dafür nicht.
+     * Start-Operationen werden bei includeStart = false nur über einen Zyklus zum Treffer.
+     */
+    static List<Hit> bfs(Transaction tx, List<String> startIds, boolean forward, boolean includeStart,
+                         long maxSteps, ReachabilityIndex.Reach reach) {
+        Direction direction = forward ? Direction.OUTGOING : Direction.INCOMING;
+        List<Hit> hits = new ArrayList<>();
+        Set<String> found = new HashSet<>();
+        Set<String> expanded = new HashSet<>();
+        int missing = reach == null ? -1 : reach.size();
+
+        List<Node> frontier = new ArrayList<>();
+        for (String id : startIds) {
+            Node start;
+            try {
+                start = tx.getNodeByElementId(id);
+            } catch (NotFoundException e) {
+                continue;
+            }
+            frontier.add(start);
+            if (includeStart && found.add(id)) {
+                hits.add(new Hit(start, 0L));
+                if (reach != null && reach.contains(id)) missing--;
+            }
+        }
+        if (missing == 0) return hits;
+
+        for (long depth = 1; depth <= maxSteps && !frontier.isEmpty(); depth++) {
+            List<Node> next = new ArrayList<>();
+            for (Node node : frontier) {
+                if (!expanded.add(node.getElementId())) continue;
+                for (Relationship rel : node.getRelationships(direction, ReachabilityIndex.DEPENDS_ON)) {
+                    Node other = rel.getOtherNode(node);
+                    if (!other.hasLabel(OPERATION) || !found.add(other.getElementId())) continue;
+                    next.add(other);
+                    hits.add(new Hit(other, depth));
+                    if (reach != null && reach.contains(other.getElementId()) && --missing == 0) return hits;
+                }
+            }
+            frontier = next;
+        }
+        return hits;
+    }
+
+    /** Besitzende Services der Operationen; Entfernung eines Services = kleinste Entfernung seiner Operationen. */
+    static List<Hit> owningServices(List<Hit> operations) {
+        List<Hit> services = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        // mit Entfernung ist operations danach sortiert: der erste Treffer je Service hat die kleinste
+        for (Hit op : operations) {
+            for (Relationship rel : op.node.getRelationships(Direction.INCOMING, ReachabilityIndex.HAS_OPERATION)) {
+                Node service = rel.getStartNode();
+                if (service.hasLabel(SERVICE) && seen.add(service.getElementId())) {
+                    services.add(new Hit(service, op.distance));
+                }
+            }
+        }
+        return services;
+    }
+}
@@ -2,101 +2,83 @@ package structural_search;
 
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
-import org.neo4j.graphdb.Result;
 import org.neo4j.graphdb.Transaction;
+import org.neo4j.logging.Log;
 import org.neo4j.procedure.*;
 
-import java.util.Map;
+import java.util.List;
 import java.util.stream.Stream;
 
+import static structural_search.CallGraphSearch.operations;
+import static structural_search.CallGraphSearch.reachableOperations;
+
 public class OperationCallChain {
 
     @Context
     public GraphDatabaseService db;
 
+    @Context
+    public Log log;
+
     public static class OperationResult {
         public Node operation;
+        public Long distance;
 
-        public OperationResult(Node operation) {
+        public OperationResult(Node operation, Long distance) {
             this.operation = operation;
+            this.distance = distance;
         }
     }
 
     // 1) Operationen, die eine bestimmte Operation (service + opName) aufrufen (rückwärts)
     @Procedure(name = "graphobs.search.get_calling_operations_from_operation", mode = Mode.READ)
-    @Description("Find operations that call a specific operation within maxSteps")
+    @Description("Find operations that call a specific operation within maxSteps (distance = DEPENDS_ON hops; may be null unless withDistance)")
     public Stream<OperationResult> getCallingOperationsFromOperation(
             @Name("serviceName") String serviceName,
             @Name("operationName") String operationName,
-            @Name(value = "maxSteps", defaultValue = "2147483647") long maxSteps) {
-
-        String query =
-                "MATCH (targetService:Service {name: $serviceName})-[:HAS_OPERATION]->(targetOp:Operation {name: $operationName}) " +
-                        "MATCH (callerOp:Operation)-[:DEPENDS_ON*1.." + maxSteps + "]->(targetOp) " +
-                        "RETURN DISTINCT callerOp";
-
-        Transaction tx = db.beginTx();
-        Result result = tx.execute(query, Map.of("serviceName", serviceName, "operationName", operationName));
-        return result.stream()
-                .map(row -> new OperationResult((Node) row.get("callerOp")))
-                .onClose(tx::close);
+            @Name(value = "maxSteps", defaultValue = "2147483647") long maxSteps,
+            @Name(value = "withDistance", defaultValue = "false") boolean withDistance) {
+        return search(serviceName, operationName, false, false, maxSteps, withDistance);
     }
 
     // 2) Operationen, die von einer bestimmten Operation aufgerufen werden (vorwärts)
     @Procedure(name = "graphobs.search.get_called_operations_from_operation", mode = Mode.READ)
-    @Description("Find operations called by a specific operation within maxSteps")
+    @Description("Find operations called by a specific operation within maxSteps (distance = DEPENDS_ON hops; may be null unless withDistance)")
     public Stream<OperationResult> getCalledOperationsFromOperation(
             @Name("serviceName") String serviceName,
             @Name("operationName") String operationName,
-            @Name(value = "maxSteps", defaultValue = "2147483647") long maxSteps) {
-
-        String query =
-                "MATCH (sourceService:Service {name: $serviceName})-[:HAS_OPERATION]->(sourceOp:Operation {name: $operationName}) " +
-                        "MATCH (sourceOp)-[:DEPENDS_ON*1.." + maxSteps + "]->(calledOp:Operation) " +
-                        "RETURN DISTINCT calledOp";
-
-        Transaction tx = db.beginTx();
-        Result result = tx.execute(query, Map.of("serviceName", serviceName, "operationName", operationName));
-        return result.stream()
-                .map(row -> new OperationResult((Node) row.get("calledOp")))
-                .onClose(tx::close);
+            @Name(value = "maxSteps", defaultValue = "2147483647") long maxSteps,
+            @Name(value = "withDistance", defaultValue = "false") boolean withDistance) {
+        return search(serviceName, operationName, true, false, maxSteps, withDistance);
     }
 
-    // 3) Operationen, die irgendeine Operation eines Services aufrufen (rückwärts)
+    // 3) Operationen, die irgendeine Operation eines Services aufrufen (rückwärts, inkl. der eigenen)
     @Procedure(name = "graphobs.search.get_calling_operations_from_service", mode = Mode.READ)
-    @Description("Find operations that call any operation of a given service within maxSteps")
+    @Description("Find operations that call any operation of a given service within maxSteps (distance = DEPENDS_ON hops, 0 = own operation; may be null unless withDistance)")
     public Stream<OperationResult> getCallingOperationsFromService(
             @Name("serviceName") String serviceName,
-            @Name(value = "maxSteps", defaultValue = "2147483647") long maxSteps) {
-
-        String query =
-                "MATCH (targetService:Service {name: $serviceName})-[:HAS_OPERATION]->(targetOp:Operation) " +
-                        "MATCH (callerOp:Operation)-[:DEPENDS_ON*0.." + maxSteps + "]->(targetOp) " +
-                        "RETURN DISTINCT callerOp";
-
-        Transaction tx = db.beginTx();
-        Result result = tx.execute(query, Map.of("serviceName", serviceName));
-        return result.stream()
-                .map(row -> new OperationResult((Node) row.get("callerOp")))
-                .onClose(tx::close);
+            @Name(value = "maxSteps", defaultValue = "2147483647") long maxSteps,
+            @Name(value = "withDistance", defaultValue = "false") boolean withDistance) {
+        return search(serviceName, null, false, true, maxSteps, withDistance);
     }
 
-    // 4) Operationen, die von irgendeiner Operation eines Services aufgerufen werden (vorwärts)
+    // 4) Operationen, die von irgendeiner Operation eines Services aufgerufen werden (vorwärts, inkl. der eigenen)
     @Procedure(name = "graphobs.search.get_called_operations_from_service", mode = Mode.READ)
-    @Description("Find operations called by any operation of a given service within maxSteps")
+    @Description("Find operations called by any operation of a given service within maxSteps (distance = DEPENDS_ON hops, 0 = own operation; may be null unless withDistance)")
     public Stream<OperationResult> getCalledOperationsFromService(
             @Name("serviceName") String serviceName,
-            @Name(value = "maxSteps", defaultValue = "2147483647") long maxSteps) {
-
-        String query =
-                "MATCH (sourceService:Service {name: $serviceName})-[:HAS_OPERATION]->(sourceOp:Operation) " +
-                        "MATCH (sourceOp)-[:DEPENDS_ON*0.." + maxSteps + "]->(calledOp:Operation) " +
-                        "RETURN DISTINCT calledOp";
+            @Name(value = "maxSteps", defaultValue = "2147483647") long maxSteps,
+            @Name(value = "withDistance", defaultValue = "false") boolean withDistance) {
+        return search(serviceName, null, true, true, maxSteps, withDistance);
+    }
 
+    private Stream<OperationResult> search(String serviceName, String operationName, boolean forward,
+                                           boolean includeStart, long maxSteps, boolean withDistance) {
         Transaction tx = db.beginTx();
-        Result result = tx.execute(query, Map.of("serviceName", serviceName));
-        return result.stream()
-                .map(row -> new OperationResult((Node) row.get("calledOp")))
+        List<String> start = operations(tx, serviceName, operationName);
+        return reachableOperations(db, tx, start, forward, includeStart, maxSteps, withDistance, log)
+                .stream()
+                .map(hit -> new OperationResult(hit.node, hit.distance))
                 .onClose(tx::close);
     }
-}
\ No newline at end of file
+}
@@ -5,15 +5,26 @@ import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Result;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.procedure.*;
+import util.Ownership;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
 
+/**
+ * Besitzender Service per Rückwärts-Breitensuche über HAS_OPERATION, HAS_POD, HAS_TIME_SERIES und DEPLOYED_ON
+ * (siehe {@link Ownership}); stoppt beim ersten :Service statt alle Pfade beliebiger Kanten zu bewerten.
+ */
 public class OwnershipLookup {
 
     @Context
     public GraphDatabaseService db;
 
+    @Context
+    public Transaction tx;
+
     public static class ServiceResult {
         public Node service;
 
@@ -22,41 +33,54 @@ public class OwnershipLookup {
         }
     }
 
+    public static class OwnerResult {
+        public Node node;
+        public Node service;
+
+        public OwnerResult(Node node, Node service) {
+            this.node = node;
+            this.service = service;
+        }
+    }
+
     @Procedure(name = "graphobs.search.get_owning_service_by_name", mode = Mode.READ)
-    @Description("Finds the closest owning Service for a given node name, based on outgoing relationships from the Service to the node")
+    @Description("Finds the closest owning Service for a given node name, based on outgoing ownership relationships " +
+            "(HAS_OPERATION, HAS_POD, HAS_TIME_SERIES, DEPLOYED_ON) from the Service to the node")
     public Stream<ServiceResult> getOwningService(@Name("nodeName") String nodeName) {
-
-        String query =
-                "MATCH (target {name: $nodeName}) " +
-                        "MATCH path = (s:Service)-[*]->(target) " +
-                        "RETURN s AS service " +
-                        "ORDER BY length(path) ASC " +
-                        "LIMIT 1";
-
-        Transaction tx = db.beginTx();
-        Result result = tx.execute(query, Map.of("nodeName", nodeName));
-        return result.stream()
-                .map(row -> new ServiceResult((Node) row.get("service")))
-                .onClose(tx::close);
+        List<Node> targets = new ArrayList<>();
+        try (Result result = tx.execute("MATCH (target {name: $nodeName}) RETURN target", Map.of("nodeName", nodeName))) {
+            while (result.hasNext()) targets.add((Node) result.next().get("target"));
+        }
+        if (targets.isEmpty()) return Stream.empty();
+        Node owner = Ownership.owner(targets);
+        return owner == null ? Stream.empty() : Stream.of(new ServiceResult(owner));
     }
 
 
     @Procedure(name = "graphobs.search.get_owning_service", mode = Mode.READ)
-    @Description("Finds the closest owning Service for a given node")
-    public Stream<ServiceResult> getOwningService(@Name("targetNode") Node targetNode) {
-
-        String query =
-                "MATCH (target) WHERE elementId(target) = $elementId " +
-                        "MATCH path = (s:Service)-[*]->(target) " +
-                        "RETURN s AS service " +
-                        "ORDER BY length(path) " +
-                        "LIMIT 1";
-
-        Transaction tx = db.beginTx();
-        Result result = tx.execute(query, Map.of("elementId", targetNode.getElementId()));
-        return result.stream()
-                    .map(row -> new ServiceResult((Node) row.get("service")))
-                    .onClose(tx::close);
+    @Description("Finds the closest owning Service for a given node (useCache: read the cached owningServiceId first)")
+    public Stream<ServiceResult> getOwningService(@Name("targetNode") Node targetNode,
+                                                  @Name(value = "useCache", defaultValue = "true") boolean useCache) {
+        if (targetNode == null) return Stream.empty();
+        Node owner = useCache ? Ownership.cachedOwner(tx, targetNode) : Ownership.owner(targetNode);
+        return owner == null ? Stream.empty() : Stream.of(new ServiceResult(owner));
+    }
+
 
+    @Procedure(name = "graphobs.search.get_owning_services", mode = Mode.READ)
+    @Description("Batch variant of get_owning_service: one row per input node, service is null if none is found")
+    public Stream<OwnerResult> getOwningServices(@Name("nodes") List<Node> nodes,
+                                                 @Name(value = "useCache", defaultValue = "true") boolean useCache) {
+        if (nodes == null || nodes.isEmpty()) return Stream.empty();
+        List<OwnerResult> results = new ArrayList<>(nodes.size());
+        Map<String, Node> owners = new HashMap<>();
+        for (Node node : nodes) {
+            if (node == null) continue;
+            // gleiche Knoten mehrfach in der Liste nur einmal suchen
+            Node owner = owners.computeIfAbsent(node.getElementId(),
+                    id -> useCache ? Ownership.cachedOwner(tx, node) : Ownership.owner(node));
+            results.add(new OwnerResult(node, owner));
+        }
+        return results.stream();
     }
 }
@@ -1,56 +1,61 @@
 package structural_search;
 
 import org.neo4j.graphdb.*;
+import org.neo4j.logging.Log;
 import org.neo4j.procedure.*;
 
 import javax.ws.rs.DefaultValue;
-import java.util.Map;
+import java.util.List;
 import java.util.stream.Stream;
 
+import static structural_search.CallGraphSearch.operations;
+import static structural_search.CallGraphSearch.owningServices;
+import static structural_search.CallGraphSearch.reachableOperations;
+
 public class ServiceCallChain {
 
     // Neo4j API wird injiziert
     @Context
     public GraphDatabaseService db;
 
+    @Context
+    public Log log;
+
     // Ergebnis-Typ
     public static class ServiceResult {
         public Node service;
+        public Long distance;
 
-        public ServiceResult(Node service) {
+        public ServiceResult(Node service, Long distance) {
             this.service = service;
+            this.distance = distance;
         }
     }
 
     @Procedure(name = "graphobs.search.get_calling_services", mode = Mode.READ)
-    @Description("Find all services that call the given service within maxSteps (logical hops)")
+    @Description("Find all services that call the given service within maxSteps (logical hops, distance = DEPENDS_ON hops; may be null unless withDistance)")
     public Stream<ServiceResult> getCallingServices(@Name("serviceName") String serviceName,
-                                                    @Name(value = "maxSteps", defaultValue = "2147483647") long maxSteps) {
-        String query =
-                "MATCH (target:Service {name: $serviceName}) " +
-                        "MATCH path = (caller:Service)-[:HAS_OPERATION]->(:Operation)-[:DEPENDS_ON*1.." + (maxSteps) + "]->(:Operation)<-[:HAS_OPERATION]-(target) " +
-                        "RETURN DISTINCT caller";
-
-        Transaction tx = db.beginTx();
-        Result result = tx.execute(query, Map.of("serviceName", serviceName));
-        return result.stream().map(row -> new ServiceResult((Node) row.get("caller"))).onClose(tx::close);
+                                                    @Name(value = "maxSteps", defaultValue = "2147483647") long maxSteps,
+                                                    @Name(value = "withDistance", defaultValue = "false") boolean withDistance) {
+        return search(serviceName, false, maxSteps, withDistance);
     }
 
 
 
     @Procedure(name = "graphobs.search.get_called_services", mode = Mode.READ)
-    @Description("Find all services called by the given service within maxSteps (logical hops)")
+    @Description("Find all services called by the given service within maxSteps (logical hops, distance = DEPENDS_ON hops; may be null unless withDistance)")
     public Stream<ServiceResult> getCalledServices(@Name("serviceName") String serviceName,
-                                                   @Name(value = "maxSteps", defaultValue = "2147483647") long maxSteps) {
-        String query =
-                "MATCH (source:Service {name: $serviceName}) " +
-                        "MATCH path = (source)-[:HAS_OPERATION]->(:Operation)-[:DEPENDS_ON*1.." + maxSteps + "]->(:Operation)<-[:HAS_OPERATION]-(called:Service) " +
-                        "RETURN DISTINCT called";
+                                                   @Name(value = "maxSteps", defaultValue = "2147483647") long maxSteps,
+                                                   @Name(value = "withDistance", defaultValue = "false") boolean withDistance) {
+        return search(serviceName, true, maxSteps, withDistance);
+    }
 
+    private Stream<ServiceResult> search(String serviceName, boolean forward, long maxSteps, boolean withDistance) {
         Transaction tx = db.beginTx();
-        Result result = tx.execute(query, Map.of("serviceName", serviceName));
-        return result.stream()
-                .map(row -> new ServiceResult((Node) row.get("called")))
+        List<String> start = operations(tx, serviceName, null);
+        return owningServices(reachableOperations(db, tx, start, forward, false, maxSteps, withDistance, log))
+                .stream()
+                .map(hit -> new ServiceResult(hit.node, hit.distance))
                 .onClose(tx::close);
     }
-}
\ No newline at end of file
+}
@@ -13,6 +13,10 @@ import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static structural_search.CallGraphSearch.operations;
+import static structural_search.CallGraphSearch.owningServices;
+import static structural_search.CallGraphSearch.reachableOperations;
+
 public class ServiceCallChainByOperation {
     @Context
     public GraphDatabaseService db;
@@ -23,29 +27,22 @@ public class ServiceCallChainByOperation {
     // Ergebnis-Typ
     public static class ServiceResult {
         public Node service;
+        public Long distance;
 
-        public ServiceResult(Node service) {
+        public ServiceResult(Node service, Long distance) {
             this.service = service;
+            this.distance = distance;
         }
     }
 
     @Procedure(name = "graphobs.search.get_calling_services_from_operation", mode = Mode.READ)
-    @Description("Find services that call a specific operation (by name + service) within maxSteps hops")
+    @Description("Find services that call a specific operation (by name + service) within maxSteps hops (distance = DEPENDS_ON hops, 0 = own service; may be null unless withDistance)")
     public Stream<ServiceResult> getCallingServicesFromOperation(
             @Name("serviceName") String serviceName,
             @Name("operationName") String operationName,
-            @Name(value = "maxSteps", defaultValue = "2147483647") long maxSteps) {
-
-        String query =
-                "MATCH (targetService:Service {name: $serviceName})-[:HAS_OPERATION]->(targetOp:Operation {name: $operationName}) " +
-                        "MATCH (caller:Service)-[:HAS_OPERATION]->(:Operation)-[:DEPENDS_ON*0.." + maxSteps + "]->(targetOp) " +
-                        "RETURN DISTINCT caller";
-
-        Transaction tx = db.beginTx();
-        Result result = tx.execute(query, Map.of("serviceName", serviceName, "operationName", operationName));
-        return result.stream()
-                .map(row -> new ServiceResult((Node) row.get("caller")))
-                .onClose(tx::close);
+            @Name(value = "maxSteps", defaultValue = "2147483647") long maxSteps,
+            @Name(value = "withDistance", defaultValue = "false") boolean withDistance) {
+        return search(serviceName, operationName, false, maxSteps, withDistance);
     }
 
 
@@ -79,27 +76,22 @@ public class ServiceCallChainByOperation {
 
 
     @Procedure(name = "graphobs.search.get_called_services_from_operation", mode = Mode.READ)
-    @Description("Find services called by a specific operation (by name + service) within maxSteps hops")
+    @Description("Find services called by a specific operation (by name + service) within maxSteps hops (distance = DEPENDS_ON hops, 0 = own service; may be null unless withDistance)")
     public Stream<ServiceResult> getCalledServicesFromOperation(
             @Name("serviceName") String serviceName,
             @Name("operationName") String operationName,
-            @Name(value = "maxSteps", defaultValue = "2147483647") long maxSteps) {
-
-        String query =
-                "MATCH (sourceService:Service {name: $serviceName})-[:HAS_OPERATION]->(sourceOp:Operation {name: $operationName}) " +
-                        "MATCH (sourceOp)-[:DEPENDS_ON*0.." + maxSteps + "]->(:Operation)<-[:HAS_OPERATION]-(called:Service) " +
-                        // Anstatt zu versuchen, die Zeilen eindeutig zu machen, sammeln wir alle gefundenen Knoten
-                        // und erstellen eine Liste, die nur die eindeutigen Knoten enthält.
-                        "RETURN collect(DISTINCT called) AS services";
+            @Name(value = "maxSteps", defaultValue = "2147483647") long maxSteps,
+            @Name(value = "withDistance", defaultValue = "false") boolean withDistance) {
+        return search(serviceName, operationName, true, maxSteps, withDistance);
+    }
 
+    // Services der in 0..maxSteps Schritten erreichten Operationen (inkl. des eigenen Services mit distance 0)
+    private Stream<ServiceResult> search(String serviceName, String operationName, boolean forward, long maxSteps, boolean withDistance) {
         Transaction tx = db.beginTx();
-        Result result = tx.execute(query, Map.of("serviceName", serviceName, "operationName", operationName));
-
-        // Die Abfrage gibt jetzt nur noch EINE Zeile zurück. Diese Zeile enthält die Liste.
-        // Wir müssen diese Liste aus der einen Zeile extrahieren und in einen Stream umwandeln.
-        return result.stream()
-                .flatMap(row -> ((List<Node>) row.get("services")).stream())
-                .map(ServiceResult::new)
+        List<String> start = operations(tx, serviceName, operationName);
+        return owningServices(reachableOperations(db, tx, start, forward, true, maxSteps, withDistance, log))
+                .stream()
+                .map(hit -> new ServiceResult(hit.node, hit.distance))
                 .onClose(tx::close);
     }
 
@@ -4,6 +4,9 @@ package temporal_joins;
 
 import result_classes.TimeSeriesResult;
 
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -61,6 +64,7 @@ public class ForwardFillJoinStrategy implements TemporalJoinStrategy {
         // 4. Werte für jeden gemeinsamen Zeitpunkt mittels "last known value" ermitteln
         List<Double> alignedValuesA = new ArrayList<>();
         List<Double> alignedValuesB = new ArrayList<>();
+        List<ZonedDateTime> alignedTimestamps = new ArrayList<>();
 
         for (Long t : mergedTimestamps) {
             Double vA = findLastValueAt(t, mapA, sortedKeysA);
@@ -71,6 +75,7 @@ public class ForwardFillJoinStrategy implements TemporalJoinStrategy {
             if (vA != null && vB != null) {
                 alignedValuesA.add(vA);
                 alignedValuesB.add(vB);
+                alignedTimestamps.add(ZonedDateTime.ofInstant(Instant.ofEpochMilli(t), ZoneOffset.UTC));
             }
         }
 
@@ -81,7 +86,7 @@ public class ForwardFillJoinStrategy implements TemporalJoinStrategy {
         double[] finalA = alignedValuesA.stream().mapToDouble(Double::doubleValue).toArray();
         double[] finalB = alignedValuesB.stream().mapToDouble(Double::doubleValue).toArray();
 
-        return new AlignedData(finalA, finalB);
+        return new AlignedData(alignedTimestamps, finalA, finalB);
     }
 
     /**
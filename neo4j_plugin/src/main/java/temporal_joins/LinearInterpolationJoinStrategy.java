@@ -2,6 +2,9 @@ package temporal_joins;
 
 import result_classes.TimeSeriesResult;
 
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -65,6 +68,7 @@ public class LinearInterpolationJoinStrategy implements TemporalJoinStrategy {
         // 4. Werte für jeden gemeinsamen Zeitpunkt interpolieren
         List<Double> alignedValuesA = new ArrayList<>(mergedTimestamps.size());
         List<Double> alignedValuesB = new ArrayList<>(mergedTimestamps.size());
+        List<ZonedDateTime> alignedTimestamps = new ArrayList<>(mergedTimestamps.size());
 
         for (Long t : mergedTimestamps) {
             Double vA = interpolateAt(xsA, ysA, t);
@@ -74,6 +78,7 @@ public class LinearInterpolationJoinStrategy implements TemporalJoinStrategy {
             if (vA != null && vB != null) {
                 alignedValuesA.add(vA);
                 alignedValuesB.add(vB);
+                alignedTimestamps.add(ZonedDateTime.ofInstant(Instant.ofEpochMilli(t), ZoneOffset.UTC));
             }
         }
 
@@ -84,7 +89,7 @@ public class LinearInterpolationJoinStrategy implements TemporalJoinStrategy {
         double[] finalA = alignedValuesA.stream().mapToDouble(Double::doubleValue).toArray();
         double[] finalB = alignedValuesB.stream().mapToDouble(Double::doubleValue).toArray();
 
-        return new AlignedData(finalA, finalB);
+        return new AlignedData(alignedTimestamps, finalA, finalB);
     }
 
     /**
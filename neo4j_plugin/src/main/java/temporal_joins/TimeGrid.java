@@ -0,0 +1,123 @@
+package temporal_joins;
+
+import util.NumericSeries;
+
+import java.util.Arrays;
+
+/**
+ * Ein reguläres Zeitraster (start + i * step), auf das mehrere Zeitreihen gelegt werden können.
+ * <p>
+ * Im Gegensatz zu den {@link TemporalJoinStrategy}-Implementierungen, die immer ein Paar von Serien
+ * ausrichten, wird hier jede Serie einzeln auf dasselbe Raster abgebildet. Damit lassen sich beliebig
+ * viele Serien kombinieren, und eine einmal abgebildete Serie kann für viele Paare wiederverwendet werden.
+ * Fehlende Rasterpunkte sind NaN.
+ */
+public final class TimeGrid {
+
+    /** Schutz gegen versehentlich riesige Raster (z.B. 1s-Schritt über ein Jahr). */
+    public static final int MAX_POINTS = 2_000_000;
+
+    public final long startMillis;
+    public final long stepMillis;
+    public final int size;
+
+    public TimeGrid(long startMillis, long stepMillis, int size) {
+        if (stepMillis <= 0) throw new IllegalArgumentException("stepMillis muss positiv sein.");
+        this.startMillis = startMillis;
+        this.stepMillis = stepMillis;
+        this.size = size;
+    }
+
+    /**
+     * Raster mit auf Vielfache von step ausgerichteten Punkten, das [fromMillis, toMillis] abdeckt.
+     */
+    public static TimeGrid covering(long fromMillis, long toMillis, long stepMillis) {
+        if (stepMillis <= 0) throw new IllegalArgumentException("stepMillis muss positiv sein.");
+        if (toMillis < fromMillis) return new TimeGrid(fromMillis, stepMillis, 0);
+        long start = Math.floorDiv(fromMillis, stepMillis) * stepMillis;
+        long points = (toMillis - start) / stepMillis + 1;
+        if (points > MAX_POINTS) {
+            throw new IllegalArgumentException("Zeitraster zu groß (" + points + " Punkte). intervalSeconds erhöhen oder Zeitfenster verkleinern.");
+        }
+        return new TimeGrid(start, stepMillis, (int) points);
+    }
+
+    public long timeAt(int i) {
+        return startMillis + i * stepMillis;
+    }
+
+    /**
+     * Bildet eine Serie auf das Raster ab.
+     *
+     * @param mode "linear" (Interpolation zwischen Nachbarpunkten), "forward_fill"/"locf"
+     *             (letzter bekannter Wert) oder "resample" (Mittelwert aller Punkte in [t, t + step)).
+     *             Die Namen entsprechen denen von {@link JoinStrategyFactory}.
+     */
+    public double[] sample(NumericSeries series, String mode) {
+        double[] out = new double[size];
+        Arrays.fill(out, Double.NaN);
+        if (series == null || series.isEmpty() || size == 0) return out;
+
+        String m = mode == null ? "linear" : mode.toLowerCase().trim();
+        switch (m) {
+            case "linear":
+            case "interpolate":
+            case "interpolate_linear":
+                sampleLinear(series.times, series.values, out);
+                break;
+            case "forward_fill":
+            case "locf":
+                sampleForwardFill(series.times, series.values, out);
+                break;
+            case "resample":
+            case "resample_avg":
+            case "aggregate":
+                sampleBucketMean(series.times, series.values, out);
+                break;
+            default:
+                throw new IllegalArgumentException("Unbekannte Temporal Join Strategie: " + mode);
+        }
+        return out;
+    }
+
+    private void sampleLinear(long[] xs, double[] ys, double[] out) {
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            long t = timeAt(i);
+            if (t < xs[0]) continue;
+            if (t > xs[xs.length - 1]) break;
+            while (j + 1 < xs.length && xs[j + 1] <= t) j++;
+            if (xs[j] == t || j + 1 >= xs.length) {
+                out[i] = ys[j];
+            } else {
+                double ratio = (double) (t - xs[j]) / (double) (xs[j + 1] - xs[j]);
+                out[i] = ys[j] + ratio * (ys[j + 1] - ys[j]);
+            }
+        }
+    }
+
+    private void sampleForwardFill(long[] xs, double[] ys, double[] out) {
+        int j = -1;
+        for (int i = 0; i < size; i++) {
+            long t = timeAt(i);
+            while (j + 1 < xs.length && xs[j + 1] <= t) j++;
+            if (j >= 0) out[i] = ys[j];
+        }
+    }
+
+    private void sampleBucketMean(long[] xs, double[] ys, double[] out) {
+        int[] counts = new int[size];
+        double[] sums = new double[size];
+        for (int k = 0; k < xs.length; k++) {
+            long offset = xs[k] - startMillis;
+            if (offset < 0) continue;
+            long bucket = offset / stepMillis;
+            if (bucket >= size) break;
+            counts[(int) bucket]++;
+            sums[(int) bucket] += ys[k];
+        }
+        for (int i = 0; i < size; i++) {
+            if (counts[i] > 0) out[i] = sums[i] / counts[i];
+        }
+    }
+}
@@ -3,7 +3,6 @@ package temporal_joins;
 import result_classes.TimeSeriesResult; // Annahme: TimeSeriesResult ist in diesem Package
 import util.TimeSeriesUtil; // Annahme: Ihr Util ist hier
 
-import java.time.ZonedDateTime;
 import java.util.*;
 
 /**
@@ -64,8 +63,7 @@ public final class TimeSeriesConverter {
                         continue;
                     }
 
-                    ZonedDateTime zdt = TimeSeriesUtil.parseToZonedDateTime(timestampStr);
-                    long epochMillis = zdt.toInstant().toEpochMilli();
+                    long epochMillis = TimeSeriesUtil.toEpochMillis(timestampStr);
 
                     map.put(epochMillis, value);
 
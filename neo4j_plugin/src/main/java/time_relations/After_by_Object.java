@@ -2,6 +2,7 @@ package time_relations;
 
 import org.neo4j.graphdb.*;
 import org.neo4j.procedure.*;
+import util.TemporalIndex;
 
 import java.time.Instant;
 import java.time.ZoneId;
@@ -15,6 +16,12 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
+import static time_relations.TemporalIndexSearch.candidates;
+import static time_relations.TemporalIndexSearch.hasCandidates;
+import static time_relations.TemporalIndexSearch.millis;
+import static time_relations.TemporalIndexSearch.readyIndex;
+import static time_relations.TemporalIndexSearch.resolve;
+
 
 public class After_by_Object {
 
@@ -34,7 +41,8 @@ public class After_by_Object {
     @Description("Gibt alle Objekte (event, time_period, time_series) zurück, die vollständig NACH dem gegebenen Zeit-Knoten liegen.")
     public Stream<NodeResult> filterObjectsAfterNode(
             @Name("referenceNode") Node referenceNode,
-            @Name(value = "nodeElementIds", defaultValue = "[]") List<String> nodeElementIds
+            @Name(value = "nodeElementIds", defaultValue = "[]") List<String> nodeElementIds,
+            @Name(value = "nodes", defaultValue = "[]") List<Node> nodes
     ) {
         Set<String> labels = StreamSupport.stream(referenceNode.getLabels().spliterator(), false)
                 .map(Label::name)
@@ -57,7 +65,7 @@ public class After_by_Object {
         }
 
         Map<String, Object> params = new HashMap<>();
-        params.put("refTime", referenceTime);
+        params.put("refTime", millis(referenceTime));
         String idFilter = "";
 
         if (nodeElementIds != null && !nodeElementIds.isEmpty()) {
@@ -68,20 +76,31 @@ public class After_by_Object {
         String query = String.format("""
         CALL {
             MATCH (n:event)
-            WHERE n.time > $refTime %s
+            WHERE n.timeMs > $refTime %s
             RETURN n
             UNION
             MATCH (n:time_period)
-            WHERE n.start > $refTime %s
+            WHERE n.startMs > $refTime %s
             RETURN n
             UNION
             MATCH (n:time_series)
-            WHERE n.start > $refTime %s
+            WHERE n.startMs > $refTime %s
             RETURN n
         }
         RETURN n
         """, idFilter, idFilter, idFilter);
 
+        if (hasCandidates(nodes, nodeElementIds)) {
+            long ref = millis(referenceTime);
+            return candidates(db, nodes, nodeElementIds, TemporalIndex.ALL_KINDS, (s, e) -> s > ref).map(c -> new NodeResult(c.node));
+        }
+
+        // Index-Pfad (Intervallindex im Speicher), Cypher nur solange der Index noch aufgebaut wird
+        TemporalIndex index = readyIndex(db);
+        if (index != null) {
+            return resolve(db, index.after(millis(referenceTime), TemporalIndex.ALL_KINDS), nodeElementIds).map(NodeResult::new);
+        }
+
         Transaction tx = db.beginTx();
         Result result = tx.execute(query, params);
         return result.stream()
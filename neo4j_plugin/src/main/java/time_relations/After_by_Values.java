@@ -5,6 +5,7 @@ import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Result;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.procedure.*;
+import util.TemporalIndex;
 
 import java.time.Instant;
 import java.time.ZoneId;
@@ -15,6 +16,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
 
+import static time_relations.TemporalIndexSearch.candidates;
+import static time_relations.TemporalIndexSearch.hasCandidates;
+import static time_relations.TemporalIndexSearch.millis;
+import static time_relations.TemporalIndexSearch.readyIndex;
+import static time_relations.TemporalIndexSearch.resolve;
 
 
 public class After_by_Values {
@@ -36,7 +42,8 @@ public class After_by_Values {
     public Stream<NodeResult> filterObjectsAfterTime(
             @Name("start") String start,
             @Name(value = "end", defaultValue = "") String end,
-            @Name(value = "nodeElementIds", defaultValue = "[]") List<String> nodeElementIds
+            @Name(value = "nodeElementIds", defaultValue = "[]") List<String> nodeElementIds,
+            @Name(value = "nodes", defaultValue = "[]") List<Node> nodes
     ) {
         ZonedDateTime referenceTime;
         if (end != null && !end.isBlank()) {
@@ -48,7 +55,7 @@ public class After_by_Values {
         }
 
         Map<String, Object> params = new HashMap<>();
-        params.put("refTime", referenceTime);
+        params.put("refTime", millis(referenceTime));
         String idFilter = "";
 
         if (nodeElementIds != null && !nodeElementIds.isEmpty()) {
@@ -59,20 +66,31 @@ public class After_by_Values {
         String query = String.format("""
         CALL {
             MATCH (n:event)
-            WHERE n.time > $refTime %s
+            WHERE n.timeMs > $refTime %s
             RETURN n
             UNION
             MATCH (n:time_period)
-            WHERE n.start > $refTime %s
+            WHERE n.startMs > $refTime %s
             RETURN n
             UNION
             MATCH (n:time_series)
-            WHERE n.start > $refTime %s
+            WHERE n.startMs > $refTime %s
             RETURN n
         }
         RETURN n
         """, idFilter, idFilter, idFilter);
 
+        if (hasCandidates(nodes, nodeElementIds)) {
+            long ref = millis(referenceTime);
+            return candidates(db, nodes, nodeElementIds, TemporalIndex.ALL_KINDS, (s, e) -> s > ref).map(c -> new NodeResult(c.node));
+        }
+
+        // Index-Pfad (Intervallindex im Speicher), Cypher nur solange der Index noch aufgebaut wird
+        TemporalIndex index = readyIndex(db);
+        if (index != null) {
+            return resolve(db, index.after(millis(referenceTime), TemporalIndex.ALL_KINDS), nodeElementIds).map(NodeResult::new);
+        }
+
         Transaction tx = db.beginTx();
         Result result = tx.execute(query, params);
         return result.stream()
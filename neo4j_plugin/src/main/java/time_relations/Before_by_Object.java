@@ -2,6 +2,7 @@ package time_relations;
 
 import org.neo4j.graphdb.*;
 import org.neo4j.procedure.*;
+import util.TemporalIndex;
 
 import java.time.Instant;
 import java.time.ZoneId;
@@ -15,6 +16,13 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
+import static time_relations.TemporalIndexSearch.candidates;
+import static time_relations.TemporalIndexSearch.hasCandidates;
+import static time_relations.TemporalIndexSearch.millis;
+import static time_relations.TemporalIndexSearch.readyIndex;
+import static time_relations.TemporalIndexSearch.resolve;
+
+
 public class Before_by_Object {
 
     @Context
@@ -34,7 +42,8 @@ public class Before_by_Object {
     @Description("Gibt alle Objekte (event, time_period, time_series) zurück, die vollständig VOR dem gegebenen Zeit-Knoten liegen.")
     public Stream<NodeResult> filterObjectsBeforeNode(
             @Name("referenceNode") Node referenceNode,
-            @Name(value = "nodeElementIds", defaultValue = "[]") List<String> nodeElementIds
+            @Name(value = "nodeElementIds", defaultValue = "[]") List<String> nodeElementIds,
+            @Name(value = "nodes", defaultValue = "[]") List<Node> nodes
     ) {
         String label = StreamSupport.stream(referenceNode.getLabels().spliterator(), false)
                 .map(Label::name).findFirst()
@@ -61,7 +70,7 @@ public class Before_by_Object {
         }
 
         Map<String, Object> params = new HashMap<>();
-        params.put("refTime", referenceTime);
+        params.put("refTime", millis(referenceTime));
         String idFilter = "";
 
         if (nodeElementIds != null && !nodeElementIds.isEmpty()) {
@@ -72,20 +81,31 @@ public class Before_by_Object {
         String query = String.format("""
         CALL {
             MATCH (n:event)
-            WHERE n.time < $refTime %s
+            WHERE n.timeMs < $refTime %s
             RETURN n
             UNION
             MATCH (n:time_period)
-            WHERE n.end < $refTime %s
+            WHERE n.endMs < $refTime %s
             RETURN n
             UNION
             MATCH (n:time_series)
-            WHERE n.end < $refTime %s
+            WHERE n.endMs < $refTime %s
             RETURN n
         }
         RETURN n
         """, idFilter, idFilter, idFilter);
 
+        if (hasCandidates(nodes, nodeElementIds)) {
+            long ref = millis(referenceTime);
+            return candidates(db, nodes, nodeElementIds, TemporalIndex.ALL_KINDS, (s, e) -> e < ref).map(c -> new NodeResult(c.node));
+        }
+
+        // Index-Pfad (Intervallindex im Speicher), Cypher nur solange der Index noch aufgebaut wird
+        TemporalIndex index = readyIndex(db);
+        if (index != null) {
+            return resolve(db, index.before(millis(referenceTime), TemporalIndex.ALL_KINDS), nodeElementIds).map(NodeResult::new);
+        }
+
         Transaction tx = db.beginTx();
         Result result = tx.execute(query, params);
         return result.stream()
@@ -5,6 +5,7 @@ import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Result;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.procedure.*;
+import util.TemporalIndex;
 
 import java.time.Instant;
 import java.time.ZoneId;
@@ -14,6 +15,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
 
+import static time_relations.TemporalIndexSearch.candidates;
+import static time_relations.TemporalIndexSearch.hasCandidates;
+import static time_relations.TemporalIndexSearch.millis;
+import static time_relations.TemporalIndexSearch.PERIODS_AND_SERIES;
+
+
 public class EndIn_by_Object {
 
     @Context
@@ -33,7 +40,8 @@ public class EndIn_by_Object {
     @Description("Filtert Knoten anhand des Zeitbereichs eines gegebenen time_period oder time_series Knotens")
     public Stream<NodeResult> filterNodesByTimeNode(
             @Name("timeNode") Node timeNode,
-            @Name(value = "nodeElementIds", defaultValue = "[]") List<String> nodeElementIds) {
+            @Name(value = "nodeElementIds", defaultValue = "[]") List<String> nodeElementIds,
+            @Name(value = "nodes", defaultValue = "[]") List<Node> nodes) {
 
         // Hole start und end vom übergebenen Zeitknoten
         if (!timeNode.hasProperty("start") || !timeNode.hasProperty("end")) {
@@ -51,29 +59,34 @@ public class EndIn_by_Object {
         if (nodeElementIds == null) {
             cypherQuery = """
             MATCH (n:time_series)
-            WHERE n.end <= $end AND n.end >= $start
+            WHERE n.endMs <= $end AND n.endMs >= $start
             RETURN n
             UNION
             MATCH (n:time_period)
-            WHERE n.end <= $end AND n.end >= $start
+            WHERE n.endMs <= $end AND n.endMs >= $start
             RETURN n
             """;
 
-            params = Map.of("start", startDateTime, "end", endDateTime);
+            params = Map.of("start", millis(startDateTime), "end", millis(endDateTime));
         } else {
             cypherQuery = """
             MATCH (n:time_series)
             WHERE elementId(n) IN $nodeElementIds
-            AND n.end <= $end AND n.end >= $start
+            AND n.endMs <= $end AND n.endMs >= $start
             RETURN n
             UNION
             MATCH (n:time_period)
             WHERE elementId(n) IN $nodeElementIds
-            AND n.end <= $end AND n.end >= $start
+            AND n.endMs <= $end AND n.endMs >= $start
             RETURN n
             """;
 
-            params = Map.of("start", startDateTime, "end", endDateTime, "nodeElementIds", nodeElementIds);
+            params = Map.of("start", millis(startDateTime), "end", millis(endDateTime), "nodeElementIds", nodeElementIds);
+        }
+
+        if (hasCandidates(nodes, nodeElementIds)) {
+            long qs = millis(startDateTime), qe = millis(endDateTime);
+            return candidates(db, nodes, nodeElementIds, PERIODS_AND_SERIES, (s, e) -> e >= qs && e <= qe).map(c -> new NodeResult(c.node));
         }
 
         Transaction tx = db.beginTx();
@@ -5,6 +5,7 @@ import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Result;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.procedure.*;
+import util.TemporalIndex;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
@@ -15,6 +16,10 @@ import java.util.Map;
 import java.util.stream.Stream;
 
 import static util.TimeSeriesUtil.parseToZonedDateTime;
+import static time_relations.TemporalIndexSearch.candidates;
+import static time_relations.TemporalIndexSearch.hasCandidates;
+import static time_relations.TemporalIndexSearch.millis;
+import static time_relations.TemporalIndexSearch.PERIODS_AND_SERIES;
 
 
 public class EndIn_by_Values {
@@ -34,28 +39,29 @@ public class EndIn_by_Values {
     @Procedure(name = "graphobs.time_search.end_in_by_value", mode = Mode.READ)
     @Description("Filters nodes based on the provided time range using indexes")
     public Stream<NodeResult> filterNodesByTime(@Name("start") String start, @Name("end") String end,
-                                                @Name(value = "nodeElementIds", defaultValue = "[]") List<String> nodeElementIds) { //@Name(value = "nodes", defaultValue = "[]") List<Node> nodes
+                                                @Name(value = "nodeElementIds", defaultValue = "[]") List<String> nodeElementIds,
+                                                @Name(value = "nodes", defaultValue = "[]") List<Node> nodes) {
         ZonedDateTime startDateTime = parseToZonedDateTime(start);
         ZonedDateTime endDateTime = parseToZonedDateTime(end);
 
-        Map<String, Object> params = Map.of("start", startDateTime, "end", endDateTime);
+        Map<String, Object> params = Map.of("start", millis(startDateTime), "end", millis(endDateTime));
         String cypherQuery_II;
 
         String cypherQuery = """
             MATCH (n)
-            WHERE (n:time_series OR n:time_period) AND n.start <= $end AND n.end >= $start
-               OR (n:event AND n.time >= $start AND n.time <= $end)
+            WHERE (n:time_series OR n:time_period) AND n.startMs <= $end AND n.endMs >= $start
+               OR (n:event AND n.timeMs >= $start AND n.timeMs <= $end)
             RETURN n
         """;
 
         if (nodeElementIds == null || nodeElementIds.isEmpty()){
             cypherQuery_II = """
                 MATCH (n:time_series)
-                WHERE n.end <= $end AND n.end >= $start
+                WHERE n.endMs <= $end AND n.endMs >= $start
                 RETURN n
                 UNION
                 MATCH (n:time_period)
-                WHERE n.end <= $end AND n.end >= $start
+                WHERE n.endMs <= $end AND n.endMs >= $start
                 RETURN n
                 """;
         }
@@ -63,20 +69,25 @@ public class EndIn_by_Values {
             cypherQuery_II = """
                 MATCH (n:time_series)
                 WHERE elementId(n) IN $nodeElementIds
-                AND n.end <= $end AND n.end >= $start
+                AND n.endMs <= $end AND n.endMs >= $start
                 RETURN n
                 UNION
                 MATCH (n:time_period)
                 WHERE elementId(n) IN $nodeElementIds
-                AND n.end <= $end AND n.end >= $start
+                AND n.endMs <= $end AND n.endMs >= $start
                 RETURN n
                 """;
-            params = Map.of("start", startDateTime, "end", endDateTime, "nodeElementIds", nodeElementIds);
+            params = Map.of("start", millis(startDateTime), "end", millis(endDateTime), "nodeElementIds", nodeElementIds);
             //params.put("nodes", nodes);
         }
 
 
 
+        if (hasCandidates(nodes, nodeElementIds)) {
+            long qs = millis(startDateTime), qe = millis(endDateTime);
+            return candidates(db, nodes, nodeElementIds, PERIODS_AND_SERIES, (s, e) -> e >= qs && e <= qe).map(c -> new NodeResult(c.node));
+        }
+
         Transaction tx = db.beginTx();  // Transaktion manuell starten
         Result result = tx.execute(cypherQuery_II, params);
 
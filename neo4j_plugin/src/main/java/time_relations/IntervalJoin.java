@@ -0,0 +1,184 @@
+package time_relations;
+
+import org.neo4j.graphdb.*;
+import org.neo4j.logging.Log;
+import org.neo4j.procedure.*;
+import util.TemporalIndex;
+import util.TimeSeriesUtil;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Intervall-Join zweier Knotenmengen: alle Paare (l, r), deren Zeiträume sich überschneiden.
+ * <p>
+ * Sort-Merge-Sweep: beide Seiten nach start sortieren und gemeinsam ablaufen. Jede Seite hält die noch aktiven
+ * Intervalle in einem Min-Heap nach end; beim nächsten Intervall werden auf der Gegenseite zuerst alle
+ * abgelaufenen (end < start) entfernt, alle übrigen überschneiden sich. Laufzeit O((n + m) log(n + m) + k)
+ * statt n × m Einzelabfragen.
+ */
+public class IntervalJoin {
+
+    @Context
+    public GraphDatabaseService db;
+
+    @Context
+    public Transaction tx;
+
+    @Context
+    public Log log;
+
+    public static class JoinResult {
+        public Node left;
+        public Node right;
+        public String overlapStart;
+        public String overlapEnd;
+        public long overlapMillis;
+
+        public JoinResult(Node left, Node right, String overlapStart, String overlapEnd, long overlapMillis) {
+            this.left = left;
+            this.right = right;
+            this.overlapStart = overlapStart;
+            this.overlapEnd = overlapEnd;
+            this.overlapMillis = overlapMillis;
+        }
+    }
+
+    /**
+     * Zeitraum eines Knotens in Epoch-Millis; offenes Ende (noch laufend) als Long.MAX_VALUE.
+     * start/end sind um tolerance erweitert, rawStart/rawEnd die Originalwerte.
+     */
+    static final class Interval {
+        final Node node;
+        final long rawStart;
+        final long rawEnd;
+        final long start;
+        final long end;
+
+        Interval(Node node, long rawStart, long rawEnd, long tolerance) {
+            this.node = node;
+            this.rawStart = rawStart;
+            this.rawEnd = rawEnd;
+            this.start = rawStart - tolerance;
+            this.end = rawEnd == Long.MAX_VALUE ? Long.MAX_VALUE : rawEnd + tolerance;
+        }
+    }
+
+    @Procedure(name = "graphobs.time_search.interval_join", mode = Mode.READ)
+    @Description("Gibt alle Paare (left, right) mit sich überschneidenden Zeiträumen zurück (Sweep-Line). " +
+            "left/right: Liste von Knoten oder Label-Selektor wie 'Pod' bzw. 'Pod:time_period'. " +
+            "options: tolerance (z.B. '30s', erweitert die linken Intervalle auf beiden Seiten).")
+    public Stream<JoinResult> intervalJoin(
+            @Name("left") Object left,
+            @Name("right") Object right,
+            @Name(value = "options", defaultValue = "{}") Map<String, Object> options
+    ) {
+        long tolerance = options.containsKey("tolerance") ? TimeSeriesUtil.parseDuration(options.get("tolerance")) : 0L;
+        if (tolerance < 0) throw new IllegalArgumentException("tolerance darf nicht negativ sein.");
+
+        List<Interval> lefts = intervals(select(left, "left"), tolerance);
+        List<Interval> rights = intervals(select(right, "right"), 0L);
+        if (lefts.isEmpty() || rights.isEmpty()) return Stream.empty();
+
+        List<JoinResult> results = new ArrayList<>();
+        for (Interval[] pair : sweep(lefts, rights)) {
+            Interval l = pair[0], r = pair[1];
+            if (l.node.getElementId().equals(r.node.getElementId())) continue;
+            // Überschneidung auf den Originalintervallen; bei tolerance > 0 ggf. leer (overlapMillis 0)
+            long start = Math.max(l.rawStart, r.rawStart);
+            long end = Math.min(l.rawEnd, r.rawEnd);
+            results.add(new JoinResult(l.node, r.node,
+                    Instant.ofEpochMilli(start).toString(),
+                    end == Long.MAX_VALUE ? null : Instant.ofEpochMilli(end).toString(),
+                    end == Long.MAX_VALUE ? -1L : Math.max(0L, end - start)));
+        }
+        return results.stream();
+    }
+
+    /** Sweep über beide nach start sortierten Seiten; liefert alle Paare mit l.start <= r.end und r.start <= l.end. */
+    static List<Interval[]> sweep(List<Interval> lefts, List<Interval> rights) {
+        Comparator<Interval> byStart = Comparator.comparingLong(i -> i.start);
+        lefts.sort(byStart);
+        rights.sort(byStart);
+        PriorityQueue<Interval> activeLeft = new PriorityQueue<>(Comparator.comparingLong(i -> i.end));
+        PriorityQueue<Interval> activeRight = new PriorityQueue<>(Comparator.comparingLong(i -> i.end));
+
+        List<Interval[]> pairs = new ArrayList<>();
+        int li = 0, ri = 0;
+        while (li < lefts.size() || ri < rights.size()) {
+            boolean takeLeft = ri >= rights.size()
+                    || (li < lefts.size() && lefts.get(li).start <= rights.get(ri).start);
+            if (takeLeft) {
+                Interval l = lefts.get(li++);
+                while (!activeRight.isEmpty() && activeRight.peek().end < l.start) activeRight.poll();
+                for (Interval r : activeRight) pairs.add(new Interval[]{l, r});
+                activeLeft.add(l);
+            } else {
+                Interval r = rights.get(ri++);
+                while (!activeLeft.isEmpty() && activeLeft.peek().end < r.start) activeLeft.poll();
+                for (Interval l : activeLeft) pairs.add(new Interval[]{l, r});
+                activeRight.add(r);
+            }
+            // Eine Seite erschöpft und ohne aktive Intervalle -> keine weiteren Paare möglich
+            if (li >= lefts.size() && activeLeft.isEmpty() || ri >= rights.size() && activeRight.isEmpty()) break;
+        }
+        return pairs;
+    }
+
+    private List<Interval> intervals(List<Node> nodes, long tolerance) {
+        List<Interval> out = new ArrayList<>(nodes.size());
+        int skipped = 0;
+        for (Node node : nodes) {
+            Interval interval = interval(node, tolerance);
+            if (interval == null) {
+                skipped++;
+                continue;
+            }
+            out.add(interval);
+        }
+        if (skipped > 0) log.warn("interval_join: " + skipped + " Knoten ohne gültigen Zeitraum übersprungen.");
+        return out;
+    }
+
+    private static Interval interval(Node node, long tolerance) {
+        TemporalIndex.Entry entry = TemporalIndex.entryOf(node);
+        if (entry != null) return new Interval(node, entry.start, entry.end, tolerance);
+        // time_period ohne end (z.B. noch laufender Pod) gilt als offen
+        Object start = node.getProperty("start", null);
+        if (start == null || node.hasProperty("end")) return null;
+        try {
+            return new Interval(node, TimeSeriesUtil.toEpochMillis(start), Long.MAX_VALUE, tolerance);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private List<Node> select(Object selector, String side) {
+        if (selector instanceof List) {
+            List<Node> nodes = new ArrayList<>();
+            for (Object item : (List<?>) selector) {
+                if (!(item instanceof Node)) {
+                    throw new IllegalArgumentException(side + " muss eine Liste von Knoten oder ein Label-Selektor sein.");
+                }
+                nodes.add((Node) item);
+            }
+            return nodes;
+        }
+        if (selector instanceof Node) return List.of((Node) selector);
+        if (selector instanceof String && !((String) selector).isBlank()) {
+            String[] labels = ((String) selector).replaceFirst("^:", "").split(":");
+            List<Node> nodes = new ArrayList<>();
+            try (ResourceIterator<Node> it = tx.findNodes(Label.label(labels[0].trim()))) {
+                while (it.hasNext()) {
+                    Node node = it.next();
+                    boolean match = true;
+                    for (int i = 1; i < labels.length && match; i++) match = node.hasLabel(Label.label(labels[i].trim()));
+                    if (match) nodes.add(node);
+                }
+            }
+            return nodes;
+        }
+        throw new IllegalArgumentException(side + " muss eine Liste von Knoten oder ein Label-Selektor sein.");
+    }
+}
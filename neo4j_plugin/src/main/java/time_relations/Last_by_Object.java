@@ -2,6 +2,7 @@ package time_relations;
 
 import org.neo4j.graphdb.*;
 import org.neo4j.procedure.*;
+import util.TemporalIndex;
 
 import java.time.Instant;
 import java.time.ZoneId;
@@ -15,6 +16,15 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
+import static time_relations.TemporalIndexSearch.candidates;
+import static time_relations.TemporalIndexSearch.checkK;
+import static time_relations.TemporalIndexSearch.hasCandidates;
+import static time_relations.TemporalIndexSearch.latestEnd;
+import static time_relations.TemporalIndexSearch.millis;
+import static time_relations.TemporalIndexSearch.nearest;
+import static time_relations.TemporalIndexSearch.readyIndex;
+import static time_relations.TemporalIndexSearch.resolve;
+
 
 public class Last_by_Object {
 
@@ -31,11 +41,15 @@ public class Last_by_Object {
     }
 
     @Procedure(name = "graphobs.time_search.last_by_object", mode = Mode.READ)
-    @Description("Gibt das vorherige Objekt zurück, das vor dem gegebenen Zeitknoten liegt – optional eingeschränkt auf bestimmte elementId-Liste.")
+    @Description("Gibt die k vorherigen Objekte (Default 1, absteigend) zurück, die vor dem gegebenen Zeitknoten liegen – optional eingeschränkt auf bestimmte elementId-Liste.")
     public Stream<NodeResult> previousObjectBeforeNode(
             @Name("referenceNode") Node referenceNode,
-            @Name(value = "nodeElementIds", defaultValue = "[]") List<String> nodeElementIds
+            @Name(value = "nodeElementIds", defaultValue = "[]") List<String> nodeElementIds,
+            @Name(value = "nodes", defaultValue = "[]") List<Node> nodes,
+            @Name(value = "k", defaultValue = "1") Long k
     ) {
+        int limit = checkK(k);
+
         Set<String> labels = StreamSupport.stream(referenceNode.getLabels().spliterator(), false)
                 .map(Label::name)
                 .collect(Collectors.toSet());
@@ -56,38 +70,19 @@ public class Last_by_Object {
             throw new IllegalArgumentException("Knoten muss eines der Labels 'event', 'time_period' oder 'time_series' haben.");
         }
 
-        Map<String, Object> params = new HashMap<>();
-        params.put("refTime", referenceTime);
-        String idFilter = "";
-
-        if (nodeElementIds != null && !nodeElementIds.isEmpty()) {
-            params.put("nodeElementIds", nodeElementIds);
-            idFilter = "AND elementId(n) IN $nodeElementIds";
+        if (hasCandidates(nodes, nodeElementIds)) {
+            long ref = millis(referenceTime);
+            return latestEnd(candidates(db, nodes, nodeElementIds, TemporalIndex.ALL_KINDS, (s, e) -> e < ref), limit).map(NodeResult::new);
         }
 
-        String cypherQuery = String.format("""
-        CALL {
-            MATCH (n:event)
-            WHERE n.time < $refTime %s
-            RETURN n, n.time AS t
-            UNION
-            MATCH (n:time_period)
-            WHERE n.end < $refTime %s
-            RETURN n, n.end AS t
-            UNION
-            MATCH (n:time_series)
-            WHERE n.end < $refTime %s
-            RETURN n, n.end AS t
+        // Index-Pfad: nur die k nächsten Einträge ablaufen statt alle Kandidaten zu sortieren
+        TemporalIndex index = readyIndex(db);
+        if (index != null) {
+            return resolve(db, index.last(millis(referenceTime), limit, TemporalIndex.ALL_KINDS), null).map(NodeResult::new);
         }
-        RETURN n ORDER BY t DESC LIMIT 1
-        """, idFilter, idFilter, idFilter);
-
-        Transaction tx = db.beginTx();
-        Result result = tx.execute(cypherQuery, params);
 
-        return result.stream()
-                .map(row -> new NodeResult((Node) row.get("n")))
-                .onClose(tx::close);
+        // Cypher-Pfad: je Label index-geordnet mit LIMIT k, lazy gemischt
+        return nearest(db, false, millis(referenceTime), limit).map(NodeResult::new);
     }
 
 
@@ -5,6 +5,7 @@ import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Result;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.procedure.*;
+import util.TemporalIndex;
 
 import java.time.Instant;
 import java.time.ZoneId;
@@ -15,6 +16,16 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
 
+import static time_relations.TemporalIndexSearch.candidates;
+import static time_relations.TemporalIndexSearch.checkK;
+import static time_relations.TemporalIndexSearch.hasCandidates;
+import static time_relations.TemporalIndexSearch.latestEnd;
+import static time_relations.TemporalIndexSearch.millis;
+import static time_relations.TemporalIndexSearch.nearest;
+import static time_relations.TemporalIndexSearch.readyIndex;
+import static time_relations.TemporalIndexSearch.resolve;
+
+
 public class Last_by_Value {
 
     @Context
@@ -30,12 +41,16 @@ public class Last_by_Value {
     }
 
     @Procedure(name = "graphobs.time_search.last_by_value", mode = Mode.READ)
-    @Description("Gibt das vorherige Objekt zurück, das vor einem gegebenen Zeitpunkt oder Zeitraum liegt – optional eingeschränkt auf bestimmte elementId-Liste.")
+    @Description("Gibt die k vorherigen Objekte (Default 1, absteigend) zurück, die vor einem gegebenen Zeitpunkt oder Zeitraum liegen – optional eingeschränkt auf bestimmte elementId-Liste.")
     public Stream<Last_by_Object.NodeResult> previousObjectBeforeTime(
             @Name("start") String start,
             @Name(value = "end", defaultValue = "") String end,
-            @Name(value = "nodeElementIds", defaultValue = "[]") List<String> nodeElementIds
+            @Name(value = "nodeElementIds", defaultValue = "[]") List<String> nodeElementIds,
+            @Name(value = "nodes", defaultValue = "[]") List<Node> nodes,
+            @Name(value = "k", defaultValue = "1") Long k
     ) {
+        int limit = checkK(k);
+
         ZonedDateTime referenceTime;
         if (end != null && !end.isBlank()) {
             referenceTime = parseToZonedDateTime(end);
@@ -45,38 +60,19 @@ public class Last_by_Value {
             throw new IllegalArgumentException("Mindestens ein Zeitwert (start oder end) muss angegeben werden.");
         }
 
-        Map<String, Object> params = new HashMap<>();
-        params.put("refTime", referenceTime);
-        String idFilter = "";
-
-        if (nodeElementIds != null && !nodeElementIds.isEmpty()) {
-            params.put("nodeElementIds", nodeElementIds);
-            idFilter = "AND elementId(n) IN $nodeElementIds";
+        if (hasCandidates(nodes, nodeElementIds)) {
+            long ref = millis(referenceTime);
+            return latestEnd(candidates(db, nodes, nodeElementIds, TemporalIndex.ALL_KINDS, (s, e) -> e < ref), limit).map(Last_by_Object.NodeResult::new);
         }
 
-        String cypherQuery = String.format("""
-        CALL {
-            MATCH (n:event)
-            WHERE n.time < $refTime %s
-            RETURN n, n.time AS t
-            UNION
-            MATCH (n:time_period)
-            WHERE n.end < $refTime %s
-            RETURN n, n.end AS t
-            UNION
-            MATCH (n:time_series)
-            WHERE n.end < $refTime %s
-            RETURN n, n.end AS t
+        // Index-Pfad: nur die k nächsten Einträge ablaufen statt alle Kandidaten zu sortieren
+        TemporalIndex index = readyIndex(db);
+        if (index != null) {
+            return resolve(db, index.last(millis(referenceTime), limit, TemporalIndex.ALL_KINDS), null).map(Last_by_Object.NodeResult::new);
         }
-        RETURN n ORDER BY t DESC LIMIT 1
-        """, idFilter, idFilter, idFilter);
-
-        Transaction tx = db.beginTx();
-        Result result = tx.execute(cypherQuery, params);
 
-        return result.stream()
-                .map(row -> new Last_by_Object.NodeResult((Node) row.get("n")))
-                .onClose(tx::close);
+        // Cypher-Pfad: je Label index-geordnet mit LIMIT k, lazy gemischt
+        return nearest(db, false, millis(referenceTime), limit).map(Last_by_Object.NodeResult::new);
     }
 
 
@@ -5,6 +5,7 @@ import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Result;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.procedure.*;
+import util.TemporalIndex;
 
 import java.time.Instant;
 import java.time.ZoneId;
@@ -15,6 +16,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
 
+import static time_relations.TemporalIndexSearch.candidates;
+import static time_relations.TemporalIndexSearch.checkK;
+import static time_relations.TemporalIndexSearch.earliestStart;
+import static time_relations.TemporalIndexSearch.hasCandidates;
+import static time_relations.TemporalIndexSearch.millis;
+import static time_relations.TemporalIndexSearch.nearest;
+import static time_relations.TemporalIndexSearch.readyIndex;
+import static time_relations.TemporalIndexSearch.resolve;
+
 
 public class Next_by_Values {
 
@@ -31,12 +41,16 @@ public class Next_by_Values {
     }
 
     @Procedure(name = "graphobs.time_search.next_by_value", mode = Mode.READ)
-    @Description("Gibt das nächstfolgende Objekt nach einem Zeitpunkt oder Zeitraum zurück – optional gefiltert auf bestimmte elementId-Liste.")
+    @Description("Gibt die k nächstfolgenden Objekte (Default 1, aufsteigend) nach einem Zeitpunkt oder Zeitraum zurück – optional gefiltert auf bestimmte elementId-Liste.")
     public Stream<NodeResult> nextObjectAfterTime(
             @Name("start") String start,
             @Name(value = "end", defaultValue = "") String end,
-            @Name(value = "nodeElementIds", defaultValue = "[]") List<String> nodeElementIds
+            @Name(value = "nodeElementIds", defaultValue = "[]") List<String> nodeElementIds,
+            @Name(value = "nodes", defaultValue = "[]") List<Node> nodes,
+            @Name(value = "k", defaultValue = "1") Long k
     ) {
+        int limit = checkK(k);
+
 
         ZonedDateTime referenceTime;
         if (end != null && !end.isBlank()) {
@@ -47,38 +61,19 @@ public class Next_by_Values {
             throw new IllegalArgumentException("Mindestens ein Zeitwert (start oder end) muss angegeben werden.");
         }
 
-        Map<String, Object> params = new HashMap<>();
-        params.put("refTime", referenceTime);
-        String idFilter = "";
-
-        if (nodeElementIds != null && !nodeElementIds.isEmpty()) {
-            params.put("nodeElementIds", nodeElementIds);
-            idFilter = "AND elementId(n) IN $nodeElementIds";
+        if (hasCandidates(nodes, nodeElementIds)) {
+            long ref = millis(referenceTime);
+            return earliestStart(candidates(db, nodes, nodeElementIds, TemporalIndex.ALL_KINDS, (s, e) -> s > ref), limit).map(NodeResult::new);
         }
 
-        String cypherQuery = String.format("""
-        CALL {
-            MATCH (n:event)
-            WHERE n.time > $refTime %s
-            RETURN n, n.time AS t
-            UNION
-            MATCH (n:time_period)
-            WHERE n.start > $refTime %s
-            RETURN n, n.start AS t
-            UNION
-            MATCH (n:time_series)
-            WHERE n.start > $refTime %s
-            RETURN n, n.start AS t
+        // Index-Pfad: nur die k nächsten Einträge ablaufen statt alle Kandidaten zu sortieren
+        TemporalIndex index = readyIndex(db);
+        if (index != null) {
+            return resolve(db, index.next(millis(referenceTime), limit, TemporalIndex.ALL_KINDS), null).map(NodeResult::new);
         }
-        RETURN n ORDER BY t ASC LIMIT 1
-        """, idFilter, idFilter, idFilter);
-
-        Transaction tx = db.beginTx();
-        Result result = tx.execute(cypherQuery, params);
 
-        return result.stream()
-                .map(row -> new NodeResult((Node) row.get("n")))
-                .onClose(tx::close);
+        // Cypher-Pfad: je Label index-geordnet mit LIMIT k, lazy gemischt
+        return nearest(db, true, millis(referenceTime), limit).map(NodeResult::new);
     }
 
 
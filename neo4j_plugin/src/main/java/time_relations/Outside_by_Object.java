@@ -5,6 +5,7 @@ import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Result;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.procedure.*;
+import util.TemporalIndex;
 
 import java.time.Instant;
 import java.time.ZoneId;
@@ -14,6 +15,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
 
+import static time_relations.TemporalIndexSearch.candidates;
+import static time_relations.TemporalIndexSearch.hasCandidates;
+import static time_relations.TemporalIndexSearch.millis;
+
+
 public class Outside_by_Object {
 
     @Context
@@ -33,7 +39,8 @@ public class Outside_by_Object {
     @Description("Filtert Knoten anhand des Zeitbereichs eines gegebenen time_period oder time_series Knotens")
     public Stream<NodeResult> filterNodesByTimeNode(
             @Name("timeNode") Node timeNode,
-            @Name(value = "nodeElementIds", defaultValue = "[]") List<String> nodeElementIds) {
+            @Name(value = "nodeElementIds", defaultValue = "[]") List<String> nodeElementIds,
+            @Name(value = "nodes", defaultValue = "[]") List<Node> nodes) {
 
         // Hole start und end vom übergebenen Zeitknoten
         if (!timeNode.hasProperty("start") || !timeNode.hasProperty("end")) {
@@ -51,38 +58,43 @@ public class Outside_by_Object {
         if (nodeElementIds == null  || nodeElementIds.isEmpty()) {
             cypherQuery = """
             MATCH (n:time_series)
-            WHERE n.start >= $end OR n.end <= $start
+            WHERE n.startMs >= $end OR n.endMs <= $start
             RETURN n
             UNION
             MATCH (n:time_period)
-            WHERE n.start >= $end OR n.end <= $start
+            WHERE n.startMs >= $end OR n.endMs <= $start
             RETURN n
             UNION
             MATCH (n:event)
-            WHERE n.time >= $end OR n.time <= $start
+            WHERE n.timeMs >= $end OR n.timeMs <= $start
             RETURN n
             """;
 
-            params = Map.of("start", startDateTime, "end", endDateTime);
+            params = Map.of("start", millis(startDateTime), "end", millis(endDateTime));
         } else {
             cypherQuery = """
             MATCH (n:time_series)
             WHERE elementId(n) IN $nodeElementIds
-            AND n.start >= $end OR n.end <= $start
+            AND n.startMs >= $end OR n.endMs <= $start
             RETURN n
             UNION
             MATCH (n:time_period)
             WHERE elementId(n) IN $nodeElementIds
-            AND n.start >= $end OR n.end <= $start
+            AND n.startMs >= $end OR n.endMs <= $start
             RETURN n
             UNION
             MATCH (n:event)
             WHERE elementId(n) IN $nodeElementIds
-            AND n.time >= $end OR n.time <= $start
+            AND n.timeMs >= $end OR n.timeMs <= $start
             RETURN n
             """;
 
-            params = Map.of("start", startDateTime, "end", endDateTime, "nodeElementIds", nodeElementIds);
+            params = Map.of("start", millis(startDateTime), "end", millis(endDateTime), "nodeElementIds", nodeElementIds);
+        }
+
+        if (hasCandidates(nodes, nodeElementIds)) {
+            long qs = millis(startDateTime), qe = millis(endDateTime);
+            return candidates(db, nodes, nodeElementIds, TemporalIndex.ALL_KINDS, (s, e) -> s >= qe || e <= qs).map(c -> new NodeResult(c.node));
         }
 
         Transaction tx = db.beginTx();
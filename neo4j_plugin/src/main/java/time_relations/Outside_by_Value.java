@@ -5,6 +5,7 @@ import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Result;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.procedure.*;
+import util.TemporalIndex;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
@@ -15,6 +16,9 @@ import java.util.Map;
 import java.util.stream.Stream;
 
 import static util.TimeSeriesUtil.parseToZonedDateTime;
+import static time_relations.TemporalIndexSearch.candidates;
+import static time_relations.TemporalIndexSearch.hasCandidates;
+import static time_relations.TemporalIndexSearch.millis;
 
 
 public class Outside_by_Value {
@@ -34,11 +38,12 @@ public class Outside_by_Value {
     @Procedure(name = "graphobs.time_search.outside_by_value", mode = Mode.READ)
     @Description("Filters nodes based on the provided time range using indexes")
     public Stream<NodeResult> filterNodesByTime(@Name("start") String start, @Name("end") String end,
-                                                @Name(value = "nodeElementIds", defaultValue = "[]") List<String> nodeElementIds) { //@Name(value = "nodes", defaultValue = "[]") List<Node> nodes
+                                                @Name(value = "nodeElementIds", defaultValue = "[]") List<String> nodeElementIds,
+                                                @Name(value = "nodes", defaultValue = "[]") List<Node> nodes) {
         ZonedDateTime startDateTime = parseToZonedDateTime(start);
         ZonedDateTime endDateTime = parseToZonedDateTime(end);
 
-        Map<String, Object> params = Map.of("start", startDateTime, "end", endDateTime);
+        Map<String, Object> params = Map.of("start", millis(startDateTime), "end", millis(endDateTime));
         String cypherQuery_II;
 
 
@@ -46,15 +51,15 @@ public class Outside_by_Value {
         if (nodeElementIds == null || nodeElementIds.isEmpty()){
             cypherQuery_II = """
             MATCH (n:time_series)
-            WHERE n.start >= $end OR n.end <= $start
+            WHERE n.startMs >= $end OR n.endMs <= $start
             RETURN n
             UNION
             MATCH (n:time_period)
-            WHERE n.start >= $end OR n.end <= $start
+            WHERE n.startMs >= $end OR n.endMs <= $start
             RETURN n
             UNION
             MATCH (n:event)
-            WHERE n.time >= $end OR n.time <= $start
+            WHERE n.timeMs >= $end OR n.timeMs <= $start
             RETURN n
             """;
         }
@@ -62,25 +67,30 @@ public class Outside_by_Value {
             cypherQuery_II = """
             MATCH (n:time_series)
             WHERE elementId(n) IN $nodeElementIds
-            AND n.start >= $end OR n.end <= $start
+            AND n.startMs >= $end OR n.endMs <= $start
             RETURN n
             UNION
             MATCH (n:time_period)
             WHERE elementId(n) IN $nodeElementIds
-            AND n.start >= $end OR n.end <= $start
+            AND n.startMs >= $end OR n.endMs <= $start
             RETURN n
             UNION
             MATCH (n:event)
             WHERE elementId(n) IN $nodeElementIds
-            AND n.time >= $end OR n.time <= $start
+            AND n.timeMs >= $end OR n.timeMs <= $start
             RETURN n
             """;
-            params = Map.of("start", startDateTime, "end", endDateTime, "nodeElementIds", nodeElementIds);
+            params = Map.of("start", millis(startDateTime), "end", millis(endDateTime), "nodeElementIds", nodeElementIds);
             //params.put("nodes", nodes);
         }
 
 
 
+        if (hasCandidates(nodes, nodeElementIds)) {
+            long qs = millis(startDateTime), qe = millis(endDateTime);
+            return candidates(db, nodes, nodeElementIds, TemporalIndex.ALL_KINDS, (s, e) -> s >= qe || e <= qs).map(c -> new NodeResult(c.node));
+        }
+
         Transaction tx = db.beginTx();  // Transaktion manuell starten
         Result result = tx.execute(cypherQuery_II, params);
 
@@ -5,6 +5,7 @@ import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Result;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.procedure.*;
+import util.TemporalIndex;
 
 import java.time.Instant;
 import java.time.ZoneId;
@@ -14,6 +15,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
 
+import static time_relations.TemporalIndexSearch.candidates;
+import static time_relations.TemporalIndexSearch.hasCandidates;
+import static time_relations.TemporalIndexSearch.millis;
+import static time_relations.TemporalIndexSearch.readyIndex;
+import static time_relations.TemporalIndexSearch.resolve;
+
+
 public class Overlap_by_Object {
 
     @Context
@@ -32,7 +40,8 @@ public class Overlap_by_Object {
     @Description("Filtert Knoten anhand des Zeitbereichs eines gegebenen time_period oder time_series Knotens")
     public Stream<NodeResult> filterNodesByTimeNode(
             @Name("timeNode") Node timeNode,
-            @Name(value = "nodeElementIds", defaultValue = "[]") List<String> nodeElementIds) {
+            @Name(value = "nodeElementIds", defaultValue = "[]") List<String> nodeElementIds,
+            @Name(value = "nodes", defaultValue = "[]") List<Node> nodes) {
 
         // Hole start und end vom übergebenen Zeitknoten
         if (!timeNode.hasProperty("start") || !timeNode.hasProperty("end")) {
@@ -50,38 +59,49 @@ public class Overlap_by_Object {
         if (nodeElementIds == null) {
             cypherQuery = """
             MATCH (n:time_series)
-            WHERE n.start <= $end AND n.end >= $start
+            WHERE n.startMs <= $end AND n.endMs >= $start
             RETURN n
             UNION
             MATCH (n:time_period)
-            WHERE n.start <= $end AND n.end >= $start
+            WHERE n.startMs <= $end AND n.endMs >= $start
             RETURN n
             UNION
             MATCH (n:event)
-            WHERE n.time >= $start AND n.time <= $end
+            WHERE n.timeMs >= $start AND n.timeMs <= $end
             RETURN n
             """;
 
-            params = Map.of("start", startDateTime, "end", endDateTime);
+            params = Map.of("start", millis(startDateTime), "end", millis(endDateTime));
         } else {
             cypherQuery = """
             MATCH (n:time_series)
             WHERE elementId(n) IN $nodeElementIds
-            AND n.start <= $end AND n.end >= $start
+            AND n.startMs <= $end AND n.endMs >= $start
             RETURN n
             UNION
             MATCH (n:time_period)
             WHERE elementId(n) IN $nodeElementIds
-            AND n.start <= $end AND n.end >= $start
+            AND n.startMs <= $end AND n.endMs >= $start
             RETURN n
             UNION
             MATCH (n:event)
             WHERE elementId(n) IN $nodeElementIds
-            AND n.time >= $start AND n.time <= $end
+            AND n.timeMs >= $start AND n.timeMs <= $end
             RETURN n
             """;
 
-            params = Map.of("start", startDateTime, "end", endDateTime, "nodeElementIds", nodeElementIds);
+            params = Map.of("start", millis(startDateTime), "end", millis(endDateTime), "nodeElementIds", nodeElementIds);
+        }
+
+        if (hasCandidates(nodes, nodeElementIds)) {
+            long qs = millis(startDateTime), qe = millis(endDateTime);
+            return candidates(db, nodes, nodeElementIds, TemporalIndex.ALL_KINDS, (s, e) -> s <= qe && e >= qs).map(c -> new NodeResult(c.node));
+        }
+
+        // Index-Pfad (Intervallindex im Speicher), Cypher nur solange der Index noch aufgebaut wird
+        TemporalIndex index = readyIndex(db);
+        if (index != null) {
+            return resolve(db, index.overlapping(millis(startDateTime), millis(endDateTime), TemporalIndex.ALL_KINDS), nodeElementIds).map(NodeResult::new);
         }
 
         Transaction tx = db.beginTx();
@@ -5,6 +5,7 @@ import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Result;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.procedure.*;
+import util.TemporalIndex;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
@@ -15,6 +16,11 @@ import java.util.Map;
 import java.util.stream.Stream;
 
 import static util.TimeSeriesUtil.parseToZonedDateTime;
+import static time_relations.TemporalIndexSearch.candidates;
+import static time_relations.TemporalIndexSearch.hasCandidates;
+import static time_relations.TemporalIndexSearch.millis;
+import static time_relations.TemporalIndexSearch.readyIndex;
+import static time_relations.TemporalIndexSearch.resolve;
 
 
 public class Overlap_by_Val {
@@ -33,32 +39,33 @@ public class Overlap_by_Val {
     @Procedure(name = "graphobs.time_search.overlap_by_value", mode = Mode.READ)
     @Description("Filters nodes based on the provided time range using indexes")
     public Stream<NodeResult> filterNodesByTime(@Name("start") String start, @Name("end") String end,
-                                                @Name(value = "nodeElementIds", defaultValue = "[]") List<String> nodeElementIds) { //@Name(value = "nodes", defaultValue = "[]") List<Node> nodes
+                                                @Name(value = "nodeElementIds", defaultValue = "[]") List<String> nodeElementIds,
+                                                @Name(value = "nodes", defaultValue = "[]") List<Node> nodes) {
         ZonedDateTime startDateTime = parseToZonedDateTime(start);
         ZonedDateTime endDateTime = parseToZonedDateTime(end);
 
-        Map<String, Object> params = Map.of("start", startDateTime, "end", endDateTime);
+        Map<String, Object> params = Map.of("start", millis(startDateTime), "end", millis(endDateTime));
         String cypherQuery_II;
 
         String cypherQuery = """
             MATCH (n)
-            WHERE (n:time_series OR n:time_period) AND n.start <= $end AND n.end >= $start
-               OR (n:event AND n.time >= $start AND n.time <= $end)
+            WHERE (n:time_series OR n:time_period) AND n.startMs <= $end AND n.endMs >= $start
+               OR (n:event AND n.timeMs >= $start AND n.timeMs <= $end)
             RETURN n
         """;
 
         if (nodeElementIds == null || nodeElementIds.isEmpty()){
             cypherQuery_II = """
                 MATCH (n:time_series)
-                WHERE n.start <= $end AND n.end >= $start
+                WHERE n.startMs <= $end AND n.endMs >= $start
                 RETURN n
                 UNION
                 MATCH (n:time_period)
-                WHERE n.start <= $end AND n.end >= $start
+                WHERE n.startMs <= $end AND n.endMs >= $start
                 RETURN n
                 UNION
                 MATCH (n:event)
-                WHERE n.time >= $start AND n.time <= $end
+                WHERE n.timeMs >= $start AND n.timeMs <= $end
                 RETURN n
                 """;
         }
@@ -66,15 +73,15 @@ public class Overlap_by_Val {
             String cypherQuery_collect = """
                 UNWIND $nodes AS n
                 MATCH (n:time_series)
-                WHERE n.start <= $end AND n.end >= $start
+                WHERE n.startMs <= $end AND n.endMs >= $start
                 RETURN n
                 UNION
                 MATCH (n:time_period)
-                WHERE n.start <= $end AND n.end >= $start
+                WHERE n.startMs <= $end AND n.endMs >= $start
                 RETURN n
                 UNION
                 MATCH (n:event)
-                WHERE n.time >= $start AND n.time <= $end
+                WHERE n.timeMs >= $start AND n.timeMs <= $end
                 RETURN n
                 """;
 
@@ -82,25 +89,36 @@ public class Overlap_by_Val {
             cypherQuery_II = """
                 MATCH (n:time_series)
                 WHERE elementId(n) IN $nodeElementIds
-                AND n.start <= $end AND n.end >= $start
+                AND n.startMs <= $end AND n.endMs >= $start
                 RETURN n
                 UNION
                 MATCH (n:time_period)
                 WHERE elementId(n) IN $nodeElementIds
-                AND n.start <= $end AND n.end >= $start
+                AND n.startMs <= $end AND n.endMs >= $start
                 RETURN n
                 UNION
                 MATCH (n:event)
                 WHERE elementId(n) IN $nodeElementIds
-                AND n.time >= $start AND n.time <= $end
+                AND n.timeMs >= $start AND n.timeMs <= $end
                 RETURN n
                 """;
-            params = Map.of("start", startDateTime, "end", endDateTime, "nodeElementIds", nodeElementIds);
+            params = Map.of("start", millis(startDateTime), "end", millis(endDateTime), "nodeElementIds", nodeElementIds);
             //params.put("nodes", nodes);
         }
 
 
 
+        if (hasCandidates(nodes, nodeElementIds)) {
+            long qs = millis(startDateTime), qe = millis(endDateTime);
+            return candidates(db, nodes, nodeElementIds, TemporalIndex.ALL_KINDS, (s, e) -> s <= qe && e >= qs).map(c -> new NodeResult(c.node));
+        }
+
+        // Index-Pfad (Intervallindex im Speicher), Cypher nur solange der Index noch aufgebaut wird
+        TemporalIndex index = readyIndex(db);
+        if (index != null) {
+            return resolve(db, index.overlapping(millis(startDateTime), millis(endDateTime), TemporalIndex.ALL_KINDS), nodeElementIds).map(NodeResult::new);
+        }
+
         Transaction tx = db.beginTx();  // Transaktion manuell starten
         Result result = tx.execute(cypherQuery_II, params);
 
@@ -16,6 +16,7 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
+import static time_relations.TemporalIndexSearch.millis;
 
 
 public class Range_by_Objects {
@@ -81,16 +82,16 @@ public class Range_by_Objects {
         String filterClause;
         filterClause = """
             (
-              (n:time_series OR n:time_period) AND n.start > $start AND n.end < $end
-              OR (n:event AND n.time > $start AND n.time < $end)
+              (n:time_series OR n:time_period) AND n.startMs > $start AND n.endMs < $end
+              OR (n:event AND n.timeMs > $start AND n.timeMs < $end)
             )
            """;
         String idFilter = (nodeElementIds != null && !nodeElementIds.isEmpty()) ? "AND elementId(n) IN $nodeElementIds" : "";
 
 
         Map<String, Object> params = new HashMap<>();
-        params.put("start", start);
-        params.put("end", end);
+        params.put("start", millis(start));
+        params.put("end", millis(end));
 
         if (!idFilter.isEmpty()) {
             params.put("nodeElementIds", nodeElementIds);
@@ -0,0 +1,235 @@
+package time_relations;
+
+import org.neo4j.graphdb.*;
+import org.neo4j.logging.Log;
+import org.neo4j.procedure.*;
+import util.TemporalIndex;
+import util.TimeSeriesUtil;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Eine Prozedur für alle 13 Relationen der Allen-Intervallalgebra statt je einer Klasse pro Relation und
+ * Eingabeart. Jede Relation ist ein Box-Constraint auf (start, end) des Kandidaten und wird damit direkt zu einer
+ * {@link TemporalIndex#query}-Anfrage; strikte Ungleichungen werden auf Millisekunden-Ebene als ±1 abgebildet.
+ * <p>
+ * Mehrere Referenzen werden gemeinsam geplant: gleiche Referenzintervalle werden nur einmal angefragt, und ohne
+ * fertigen Index laufen alle Referenzen über einen einzigen Label-Scan statt über N Cypher-Abfragen.
+ */
+public class Relate {
+
+    @Context
+    public GraphDatabaseService db;
+
+    @Context
+    public Transaction tx;
+
+    @Context
+    public Log log;
+
+    /** Relation "Kandidat X relation Referenz Y" für X = [xs, xe], Y = [ys, ye]. */
+    public enum Relation {
+        BEFORE, AFTER, MEETS, MET_BY, OVERLAPS, OVERLAPPED_BY, DURING, CONTAINS,
+        STARTS, STARTED_BY, FINISHES, FINISHED_BY, EQUALS;
+
+        /** {startMin, startMax, endMin, endMax}, jeweils inklusiv. */
+        long[] box(long ys, long ye) {
+            long min = Long.MIN_VALUE, max = Long.MAX_VALUE;
+            switch (this) {
+                case BEFORE:        return new long[]{min, max, min, ys - 1};          // xe < ys
+                case AFTER:         return new long[]{ye + 1, max, min, max};          // xs > ye
+                case MEETS:         return new long[]{min, ys - 1, ys, ys};            // xe = ys
+                case MET_BY:        return new long[]{ye, ye, ye + 1, max};            // xs = ye
+                case OVERLAPS:      return new long[]{min, ys - 1, ys + 1, ye - 1};    // xs < ys < xe < ye
+                case OVERLAPPED_BY: return new long[]{ys + 1, ye - 1, ye + 1, max};    // ys < xs < ye < xe
+                case DURING:        return new long[]{ys + 1, max, min, ye - 1};       // ys < xs, xe < ye
+                case CONTAINS:      return new long[]{min, ys - 1, ye + 1, max};       // xs < ys, ye < xe
+                case STARTS:        return new long[]{ys, ys, min, ye - 1};            // xs = ys, xe < ye
+                case STARTED_BY:    return new long[]{ys, ys, ye + 1, max};            // xs = ys, xe > ye
+                case FINISHES:      return new long[]{ys + 1, max, ye, ye};            // xe = ye, xs > ys
+                case FINISHED_BY:   return new long[]{min, ys - 1, ye, ye};            // xe = ye, xs < ys
+                case EQUALS:        return new long[]{ys, ys, ye, ye};
+                default:            throw new IllegalStateException(name());
+            }
+        }
+
+        static Relation parse(String name) {
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                throw new IllegalArgumentException("Unbekannte Relation '" + name + "'. Erlaubt: "
+                        + Arrays.toString(values()).toLowerCase(Locale.ROOT));
+            }
+        }
+    }
+
+    public static class RelationResult {
+        public long referenceIndex;
+        public Node reference;
+        public String relation;
+        public Node node;
+
+        public RelationResult(long referenceIndex, Node reference, String relation, Node node) {
+            this.referenceIndex = referenceIndex;
+            this.reference = reference;
+            this.relation = relation;
+            this.node = node;
+        }
+    }
+
+    /** Aufgelöste Referenz: Intervall in Epoch-Millis und ggf. der Knoten selbst (wird nicht mit sich verglichen). */
+    private static final class Reference {
+        final int index;
+        final Node node;
+        final long start;
+        final long end;
+
+        Reference(int index, Node node, long start, long end) {
+            this.index = index;
+            this.node = node;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    @Procedure(name = "graphobs.time_search.relate", mode = Mode.READ)
+    @Description("Sucht zeitliche Knoten (event, time_period, time_series) X mit 'X relation Referenz' nach Allen: " +
+            "before, after, meets, met_by, overlaps, overlapped_by, during, contains, starts, started_by, finishes, " +
+            "finished_by, equals. reference: Knoten, Map {start, end} bzw. {time}, Zeitwert oder Liste davon. " +
+            "options: labels (Default alle), nodeElementIds (Kandidaten einschränken).")
+    public Stream<RelationResult> relate(
+            @Name("relation") String relation,
+            @Name("reference") Object reference,
+            @Name(value = "options", defaultValue = "{}") Map<String, Object> options
+    ) {
+        Relation rel = Relation.parse(relation);
+        List<Reference> refs = references(reference);
+        int kinds = kinds(options.get("labels"));
+        Set<String> allowed = idFilter(options.get("nodeElementIds"));
+        String relName = rel.name().toLowerCase(Locale.ROOT);
+
+        // Referenzen mit gleichem Intervall teilen sich eine Anfrage
+        Map<List<Long>, List<Reference>> byInterval = new LinkedHashMap<>();
+        for (Reference ref : refs) {
+            byInterval.computeIfAbsent(List.of(ref.start, ref.end), key -> new ArrayList<>()).add(ref);
+        }
+
+        TemporalIndex index = TemporalIndex.of(db);
+        List<RelationResult> results = new ArrayList<>();
+        if (index.isReady()) {
+            for (List<Reference> group : byInterval.values()) {
+                Reference first = group.get(0);
+                long[] box = rel.box(first.start, first.end);
+                List<Node> hits = new ArrayList<>();
+                for (TemporalIndex.Entry entry : index.query(box[0], box[1], box[2], box[3], kinds)) {
+                    if (allowed != null && !allowed.contains(entry.id)) continue;
+                    try {
+                        hits.add(tx.getNodeByElementId(entry.id));
+                    } catch (NotFoundException e) {
+                        // zwischen Index-Stand und Transaktion gelöscht
+                    }
+                }
+                for (Reference ref : group) addResults(results, ref, relName, hits);
+            }
+        } else {
+            log.debug("relate: TemporalIndex noch nicht bereit, Label-Scan für " + refs.size() + " Referenzen.");
+            scan(rel, relName, byInterval, kinds, allowed, results);
+        }
+        results.sort(Comparator.comparingLong(r -> r.referenceIndex));
+        return results.stream();
+    }
+
+    /** Fallback ohne Index: ein Scan je Label, jeder Kandidat wird gegen alle Referenzintervalle geprüft. */
+    private void scan(Relation rel, String relName, Map<List<Long>, List<Reference>> byInterval, int kinds,
+                      Set<String> allowed, List<RelationResult> results) {
+        List<long[]> boxes = new ArrayList<>(byInterval.size());
+        List<List<Reference>> groups = new ArrayList<>(byInterval.values());
+        for (List<Reference> group : groups) boxes.add(rel.box(group.get(0).start, group.get(0).end));
+
+        for (TemporalIndex.Kind kind : TemporalIndex.Kind.values()) {
+            if ((kinds & kind.bit()) == 0) continue;
+            try (ResourceIterator<Node> nodes = tx.findNodes(Label.label(kind.label))) {
+                while (nodes.hasNext()) {
+                    Node node = nodes.next();
+                    if (allowed != null && !allowed.contains(node.getElementId())) continue;
+                    TemporalIndex.Entry entry = TemporalIndex.entryOf(node);
+                    if (entry == null || entry.kind != kind) continue;
+                    for (int g = 0; g < boxes.size(); g++) {
+                        long[] box = boxes.get(g);
+                        if (entry.start >= box[0] && entry.start <= box[1] && entry.end >= box[2] && entry.end <= box[3]) {
+                            addResults(results, groups.get(g), relName, node);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void addResults(List<RelationResult> results, Reference ref, String relName, List<Node> hits) {
+        for (Node hit : hits) {
+            if (ref.node != null && ref.node.getElementId().equals(hit.getElementId())) continue;
+            results.add(new RelationResult(ref.index, ref.node, relName, hit));
+        }
+    }
+
+    private static void addResults(List<RelationResult> results, List<Reference> group, String relName, Node hit) {
+        for (Reference ref : group) addResults(results, ref, relName, List.of(hit));
+    }
+
+    // --- Eingaben ---
+
+    private static List<Reference> references(Object reference) {
+        if (reference == null) throw new IllegalArgumentException("reference darf nicht null sein.");
+        List<?> items = reference instanceof List ? (List<?>) reference : List.of(reference);
+        if (items.isEmpty()) throw new IllegalArgumentException("reference darf nicht leer sein.");
+        List<Reference> refs = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) refs.add(reference(i, items.get(i)));
+        return refs;
+    }
+
+    private static Reference reference(int index, Object item) {
+        if (item instanceof Node) {
+            Node node = (Node) item;
+            TemporalIndex.Entry entry = TemporalIndex.entryOf(node);
+            if (entry == null) {
+                throw new IllegalArgumentException("Referenzknoten " + node.getElementId()
+                        + " muss event (time) oder time_period/time_series (start, end) sein.");
+            }
+            return new Reference(index, node, entry.start, entry.end);
+        }
+        if (item instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) item;
+            if (map.get("time") != null) {
+                long t = TimeSeriesUtil.toEpochMillis(map.get("time"));
+                return new Reference(index, null, t, t);
+            }
+            if (map.get("start") == null || map.get("end") == null) {
+                throw new IllegalArgumentException("Referenz-Map braucht 'time' oder 'start' und 'end'.");
+            }
+            long start = TimeSeriesUtil.toEpochMillis(map.get("start"));
+            long end = TimeSeriesUtil.toEpochMillis(map.get("end"));
+            if (end < start) throw new IllegalArgumentException("Referenz: end liegt vor start.");
+            return new Reference(index, null, start, end);
+        }
+        if (item == null) throw new IllegalArgumentException("reference enthält null.");
+        long t = TimeSeriesUtil.toEpochMillis(item);
+        return new Reference(index, null, t, t);
+    }
+
+    private static int kinds(Object labels) {
+        if (labels == null) return TemporalIndex.ALL_KINDS;
+        List<?> list = labels instanceof List ? (List<?>) labels : List.of(labels);
+        if (list.isEmpty()) return TemporalIndex.ALL_KINDS;
+        int kinds = 0;
+        for (Object label : list) kinds |= TemporalIndex.Kind.parse(String.valueOf(label)).bit();
+        return kinds;
+    }
+
+    private static Set<String> idFilter(Object ids) {
+        if (!(ids instanceof List) || ((List<?>) ids).isEmpty()) return null;
+        Set<String> set = new HashSet<>();
+        for (Object id : (List<?>) ids) set.add(String.valueOf(id));
+        return set;
+    }
+}
@@ -0,0 +1,209 @@
+package time_relations;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+import util.TemporalIndex;
+import util.TemporalProperties;
+
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Gemeinsame Pfade der time_search-Prozeduren:
+ * <ul>
+ *   <li>Kandidaten übergeben (nodes / nodeElementIds): {@link #candidates}.</li>
+ *   <li>Sonst über den {@link TemporalIndex}: Treffer (elementIds) in einer eigenen Lese-Transaktion auflösen.</li>
+ * </ul>
+ */
+final class TemporalIndexSearch {
+
+    private TemporalIndexSearch() {}
+
+    static final int PERIODS_AND_SERIES = TemporalIndex.Kind.TIME_PERIOD.bit() | TemporalIndex.Kind.TIME_SERIES.bit();
+
+    /** Bedingung auf [start, end] eines Kandidaten in Epoch-Millis (Events: start = end = time). */
+    @FunctionalInterface
+    interface IntervalPredicate {
+        boolean test(long start, long end);
+    }
+
+    static final class Candidate {
+        final Node node;
+        final TemporalIndex.Entry entry;
+
+        Candidate(Node node, TemporalIndex.Entry entry) {
+            this.node = node;
+            this.entry = entry;
+        }
+    }
+
+    static boolean hasCandidates(List<Node> nodes, List<String> nodeElementIds) {
+        return (nodes != null && !nodes.isEmpty()) || (nodeElementIds != null && !nodeElementIds.isEmpty());
+    }
+
+    /**
+     * Übergebene Knoten und elementIds (doppelte nur einmal), gefiltert auf kinds und predicate. IDs werden in einer
+     * eigenen Transaktion aufgelöst, die mit dem Stream geschlossen wird; fehlende IDs werden übersprungen.
+     * <p>
+     * Jeder Kandidat wird genau einmal aufgelöst und Label + Zeiten in Java geprüft: ein linearer Durchgang statt
+     * eines {@code IN}-Filters je Label-Zweig der Cypher-UNION.
+     */
+    static Stream<Candidate> candidates(GraphDatabaseService db, List<Node> nodes, List<String> nodeElementIds,
+                                        int kinds, IntervalPredicate predicate) {
+        Transaction tx = db.beginTx();
+        Set<String> seen = new HashSet<>();
+        Stream<Node> given = nodes == null ? Stream.empty() : nodes.stream();
+        Stream<Node> byId = nodeElementIds == null ? Stream.empty() : nodeElementIds.stream()
+                .map(id -> {
+                    try {
+                        return tx.getNodeByElementId(id);
+                    } catch (NotFoundException e) {
+                        return null;
+                    }
+                });
+        return Stream.concat(given, byId)
+                .filter(Objects::nonNull)
+                .filter(node -> seen.add(node.getElementId()))
+                .map(node -> new Candidate(node, TemporalIndex.entryOf(node)))
+                .filter(c -> c.entry != null && (kinds & c.entry.kind.bit()) != 0 && predicate.test(c.entry.start, c.entry.end))
+                .onClose(tx::close);
+    }
+
+    /** Die k Kandidaten mit dem kleinsten start (next), aufsteigend. */
+    static Stream<Node> earliestStart(Stream<Candidate> candidates, int k) {
+        return topK(candidates, Comparator.comparingLong(c -> c.entry.start), k);
+    }
+
+    /** Die k Kandidaten mit dem größten end (last), absteigend. */
+    static Stream<Node> latestEnd(Stream<Candidate> candidates, int k) {
+        return topK(candidates, Comparator.comparingLong((Candidate c) -> c.entry.end).reversed(), k);
+    }
+
+    /** Beschränkter Heap: O(n log k) statt alle Kandidaten zu sortieren. */
+    private static Stream<Node> topK(Stream<Candidate> candidates, Comparator<Candidate> order, int k) {
+        PriorityQueue<Candidate> heap = new PriorityQueue<>(order.reversed());
+        candidates.forEach(c -> {
+            if (heap.size() < k) {
+                heap.add(c);
+            } else if (order.compare(c, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(c);
+            }
+        });
+        List<Candidate> best = new ArrayList<>(heap);
+        best.sort(order);
+        return best.stream().map(c -> c.node).onClose(candidates::close);
+    }
+
+    static int checkK(Long k) {
+        if (k == null || k < 1) throw new IllegalArgumentException("k muss >= 1 sein.");
+        return (int) Math.min(k, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Cypher-Pfad für next/last ohne fertigen Index: je Label eine Abfrage, die über den Range-Index auf
+     * timeMs bzw. startMs/endMs in Zeitordnung läuft und nach k Treffern abbricht. Die drei sortierten Ströme werden
+     * erst beim Konsumieren gemischt, es werden also höchstens k Zeilen je Label gelesen.
+     *
+     * @param next true: kleinster Zeitpunkt > ref (event.timeMs, sonst startMs); false: größter < ref (timeMs bzw. endMs)
+     */
+    static Stream<Node> nearest(GraphDatabaseService db, boolean next, long ref, int k) {
+        String op = next ? ">" : "<";
+        String dir = next ? "ASC" : "DESC";
+        String intervalKey = next ? TemporalProperties.START_MS : TemporalProperties.END_MS;
+        Map<String, Object> params = Map.of("ref", ref, "k", (long) k);
+
+        Transaction tx = db.beginTx();
+        List<Result> results = new ArrayList<>(3);
+        Comparator<Head> order = Comparator.comparingLong(h -> h.t);
+        PriorityQueue<Head> heads = new PriorityQueue<>(next ? order : order.reversed());
+        try {
+            for (TemporalIndex.Kind kind : TemporalIndex.Kind.values()) {
+                String key = kind == TemporalIndex.Kind.EVENT ? TemporalProperties.TIME_MS : intervalKey;
+                Result result = tx.execute("MATCH (n:" + kind.label + ") WHERE n." + key + " " + op + " $ref " +
+                        "RETURN n, n." + key + " AS t ORDER BY t " + dir + " LIMIT $k", params);
+                results.add(result);
+                Head head = Head.next(result);
+                if (head != null) heads.add(head);
+            }
+        } catch (RuntimeException e) {
+            results.forEach(Result::close);
+            tx.close();
+            throw e;
+        }
+
+        Set<String> seen = new HashSet<>();
+        Iterator<Node> merged = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public Node next() {
+                Head head = heads.poll();
+                if (head == null) throw new NoSuchElementException();
+                Head following = Head.next(head.source);
+                if (following != null) heads.add(following);
+                return head.node;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED), false)
+                .filter(node -> seen.add(node.getElementId()))
+                .limit(k)
+                .onClose(() -> {
+                    results.forEach(Result::close);
+                    tx.close();
+                });
+    }
+
+    /** Nächste Zeile eines Label-Stroms. */
+    private static final class Head {
+        final Node node;
+        final long t;
+        final Result source;
+
+        private Head(Node node, long t, Result source) {
+            this.node = node;
+            this.t = t;
+            this.source = source;
+        }
+
+        static Head next(Result source) {
+            if (!source.hasNext()) return null;
+            Map<String, Object> row = source.next();
+            return new Head((Node) row.get("n"), ((Number) row.get("t")).longValue(), source);
+        }
+    }
+
+    /** Index der Datenbank, falls fertig aufgebaut; sonst null (-> Cypher-Fallback). */
+    static TemporalIndex readyIndex(GraphDatabaseService db) {
+        TemporalIndex index = TemporalIndex.of(db);
+        return index.isReady() ? index : null;
+    }
+
+    static long millis(ZonedDateTime time) {
+        return time.toInstant().toEpochMilli();
+    }
+
+    static Stream<Node> resolve(GraphDatabaseService db, List<TemporalIndex.Entry> hits, List<String> nodeElementIds) {
+        Set<String> allowed = nodeElementIds == null || nodeElementIds.isEmpty() ? null : new HashSet<>(nodeElementIds);
+        Transaction tx = db.beginTx();
+        return hits.stream()
+                .filter(hit -> allowed == null || allowed.contains(hit.id))
+                .map(hit -> {
+                    try {
+                        return tx.getNodeByElementId(hit.id);
+                    } catch (NotFoundException e) {
+                        return null; // zwischenzeitlich gelöscht
+                    }
+                })
+                .filter(Objects::nonNull)
+                .onClose(tx::close);
+    }
+}
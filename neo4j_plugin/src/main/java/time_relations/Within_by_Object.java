@@ -5,6 +5,7 @@ import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Result;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.procedure.*;
+import util.TemporalIndex;
 
 import java.time.Instant;
 import java.time.ZoneId;
@@ -14,6 +15,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
 
+import static time_relations.TemporalIndexSearch.candidates;
+import static time_relations.TemporalIndexSearch.hasCandidates;
+import static time_relations.TemporalIndexSearch.millis;
+import static time_relations.TemporalIndexSearch.readyIndex;
+import static time_relations.TemporalIndexSearch.resolve;
+
+
 public class Within_by_Object {
     @Context
     public GraphDatabaseService db;
@@ -33,7 +41,8 @@ public class Within_by_Object {
     @Description("Gibt Knoten zurück, deren Zeiträume vollständig im Zeitbereich des übergebenen time_series oder time_period Knotens liegen")
     public Stream<NodeResult> filterNodesContainedByTimeNode(
             @Name("timeNode") Node timeNode,
-            @Name(value = "nodeElementIds", defaultValue = "[]") List<String> nodeElementIds) {
+            @Name(value = "nodeElementIds", defaultValue = "[]") List<String> nodeElementIds,
+            @Name(value = "nodes", defaultValue = "[]") List<Node> nodes) {
 
         if (!timeNode.hasProperty("start") || !timeNode.hasProperty("end")) {
             throw new IllegalArgumentException("Der gegebene Knoten muss 'start' und 'end' Eigenschaften besitzen.");
@@ -48,38 +57,49 @@ public class Within_by_Object {
         if (nodeElementIds == null || nodeElementIds.isEmpty()) {
             cypherQuery = """
             MATCH (n:time_series)
-            WHERE n.start >= $start AND n.end <= $end
+            WHERE n.startMs >= $start AND n.endMs <= $end
             RETURN n
             UNION
             MATCH (n:time_period)
-            WHERE n.start >= $start AND n.end <= $end
+            WHERE n.startMs >= $start AND n.endMs <= $end
             RETURN n
             UNION
             MATCH (n:event)
-            WHERE n.time >= $start AND n.time <= $end
+            WHERE n.timeMs >= $start AND n.timeMs <= $end
             RETURN n
             """;
 
-            params = Map.of("start", startDateTime, "end", endDateTime);
+            params = Map.of("start", millis(startDateTime), "end", millis(endDateTime));
         } else {
             cypherQuery = """
             MATCH (n:time_series)
             WHERE elementId(n) IN $nodeElementIds
-              AND n.start >= $start AND n.end <= $end
+              AND n.startMs >= $start AND n.endMs <= $end
             RETURN n
             UNION
             MATCH (n:time_period)
             WHERE elementId(n) IN $nodeElementIds
-              AND n.start >= $start AND n.end <= $end
+              AND n.startMs >= $start AND n.endMs <= $end
             RETURN n
             UNION
             MATCH (n:event)
             WHERE elementId(n) IN $nodeElementIds
-              AND n.time >= $start AND n.time <= $end
+              AND n.timeMs >= $start AND n.timeMs <= $end
             RETURN n
             """;
 
-            params = Map.of("start", startDateTime, "end", endDateTime, "nodeElementIds", nodeElementIds);
+            params = Map.of("start", millis(startDateTime), "end", millis(endDateTime), "nodeElementIds", nodeElementIds);
+        }
+
+        if (hasCandidates(nodes, nodeElementIds)) {
+            long qs = millis(startDateTime), qe = millis(endDateTime);
+            return candidates(db, nodes, nodeElementIds, TemporalIndex.ALL_KINDS, (s, e) -> s >= qs && e <= qe).map(c -> new NodeResult(c.node));
+        }
+
+        // Index-Pfad (Intervallindex im Speicher), Cypher nur solange der Index noch aufgebaut wird
+        TemporalIndex index = readyIndex(db);
+        if (index != null) {
+            return resolve(db, index.within(millis(startDateTime), millis(endDateTime), TemporalIndex.ALL_KINDS), nodeElementIds).map(NodeResult::new);
         }
 
         Transaction tx = db.beginTx();
@@ -0,0 +1,166 @@
+package time_series_analysis;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.logging.Log;
+import org.neo4j.procedure.*;
+import util.NumericSeries;
+import util.ParallelUtil;
+import util.TimeSeriesUtil;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Anomalie-Erkennung für beliebige Knoten/Metriken über den normalen Fetch-Pfad (lokal oder Prometheus).
+ * Die Knoten werden parallel geladen und ausgewertet, die Anomalien nach Severity absteigend sortiert.
+ */
+public class AnomalyDetection {
+
+    @Context
+    public GraphDatabaseService db;
+
+    @Context
+    public Transaction tx;
+
+    @Context
+    public Log log;
+
+    public static class AnomalyResult {
+        public Node node;
+        public String metric;
+        public String time;
+        public double value;
+        public double expected;
+        public double score;
+        public double severity;
+        public String method;
+
+        public AnomalyResult(Node node, String metric, String time, double value, double expected,
+                             double score, double severity, String method) {
+            this.node = node;
+            this.metric = metric;
+            this.time = time;
+            this.value = value;
+            this.expected = expected;
+            this.score = score;
+            this.severity = severity;
+            this.method = method;
+        }
+    }
+
+    @Procedure(name = "graphobs.analysis.detect_anomalies", mode = Mode.READ)
+    @Description("Anomalien einer Metrik auf mehreren Knoten, parallel ausgewertet und nach Severity sortiert. " +
+            "params: method ('mad' = gleitender Median/MAD, 'shesd' = Seasonal-Hybrid-ESD, 'ewma' = EWMA-z-Score), " +
+            "threshold (mad 3.5, ewma 4.0), window (mad, Punkte, Default 60), period (shesd, Punkte) oder seasonality " +
+            "(shesd, Dauer wie '1d'), maxAnomalies (shesd, Anteil, 0.05), alpha (shesd, 0.05), smoothing (ewma, 0.1), " +
+            "warmup (ewma, 30), limit sowie die üblichen Zeitfenster-Parameter.")
+    public Stream<AnomalyResult> detectAnomalies(
+            @Name("nodes") List<Node> nodes,
+            @Name("metric") String metric,
+            @Name(value = "params", defaultValue = "{}") Map<String, Object> params
+    ) {
+        if (nodes == null || nodes.isEmpty()) {
+            throw new IllegalArgumentException("nodes darf nicht leer sein.");
+        }
+        return run(nodes, metric, params);
+    }
+
+    @Procedure(name = "graphobs.analysis.detect_service_anomalies", mode = Mode.READ)
+    @Description("Wie graphobs.analysis.detect_anomalies, für alle Pods eines Services (Service-[:HAS_POD]->Pod). " +
+            "Hat der Service keine Pods, wird der Service-Knoten selbst ausgewertet.")
+    public Stream<AnomalyResult> detectServiceAnomalies(
+            @Name("serviceName") String serviceName,
+            @Name("metric") String metric,
+            @Name(value = "params", defaultValue = "{}") Map<String, Object> params
+    ) {
+        List<Node> targets = new ArrayList<>();
+        Node service = null;
+        try (Result result = tx.execute(
+                "MATCH (s:Service {name: $name}) OPTIONAL MATCH (s)-[:HAS_POD]->(p:Pod) RETURN s, collect(p) AS pods",
+                Map.of("name", serviceName))) {
+            if (result.hasNext()) {
+                Map<String, Object> row = result.next();
+                service = (Node) row.get("s");
+                @SuppressWarnings("unchecked")
+                List<Node> pods = (List<Node>) row.get("pods");
+                targets.addAll(pods);
+            }
+        }
+        if (service == null) {
+            log.warn("detect_service_anomalies: Service '%s' nicht gefunden.", serviceName);
+            return Stream.empty();
+        }
+        if (targets.isEmpty()) targets.add(service);
+        return run(targets, metric, params);
+    }
+
+    private Stream<AnomalyResult> run(List<Node> nodes, String metric, Map<String, Object> params) {
+        String method = params.getOrDefault("method", "mad").toString().toLowerCase();
+        if (!method.equals("mad") && !method.equals("shesd") && !method.equals("ewma")) {
+            throw new IllegalArgumentException("Unbekannte Methode '" + method + "'. Erlaubt: mad, shesd, ewma.");
+        }
+        long limit = ((Number) params.getOrDefault("limit", Long.MAX_VALUE)).longValue();
+
+        List<List<AnomalyResult>> perNode = ParallelUtil.mapNodesIndexed(db, nodes, (node, i) -> {
+            NumericSeries series = NumericSeries.of(
+                    TimeSeriesUtil.getFilteredTimeSeries(node, metric, params, db, log).collect(Collectors.toList()),
+                    metric);
+            if (series.isEmpty()) return Collections.<AnomalyResult>emptyList();
+
+            List<AnomalyDetectors.Anomaly> anomalies = detect(series, method, params);
+            List<AnomalyResult> out = new ArrayList<>(anomalies.size());
+            Node outputNode = nodes.get(i);
+            for (AnomalyDetectors.Anomaly a : anomalies) {
+                out.add(new AnomalyResult(outputNode, metric, Instant.ofEpochMilli(series.times[a.index]).toString(),
+                        series.values[a.index], a.expected, a.score, a.severity, method));
+            }
+            return out;
+        }, log);
+
+        return perNode.stream()
+                .filter(Objects::nonNull)
+                .flatMap(List::stream)
+                .sorted(Comparator.comparingDouble((AnomalyResult r) -> r.severity).reversed())
+                .limit(limit);
+    }
+
+    private static List<AnomalyDetectors.Anomaly> detect(NumericSeries series, String method, Map<String, Object> params) {
+        switch (method) {
+            case "shesd": {
+                int period = ((Number) params.getOrDefault("period", 0L)).intValue();
+                if (period <= 0 && params.containsKey("seasonality") && series.size() > 1) {
+                    long seasonality = TimeSeriesUtil.parseDuration(params.get("seasonality"));
+                    long step = medianStep(series.times);
+                    if (step > 0) period = (int) (seasonality / step);
+                }
+                double maxAnomalies = ((Number) params.getOrDefault("maxAnomalies", 0.05)).doubleValue();
+                double alpha = ((Number) params.getOrDefault("alpha", 0.05)).doubleValue();
+                return AnomalyDetectors.seasonalHybridEsd(series.values, period, maxAnomalies, alpha);
+            }
+            case "ewma": {
+                double smoothing = ((Number) params.getOrDefault("smoothing", 0.1)).doubleValue();
+                double threshold = ((Number) params.getOrDefault("threshold", 4.0)).doubleValue();
+                int warmup = ((Number) params.getOrDefault("warmup", 30L)).intValue();
+                if (smoothing <= 0 || smoothing > 1) throw new IllegalArgumentException("smoothing muss in (0, 1] liegen.");
+                return AnomalyDetectors.ewma(series.values, smoothing, threshold, warmup);
+            }
+            default: {
+                int window = ((Number) params.getOrDefault("window", 60L)).intValue();
+                double threshold = ((Number) params.getOrDefault("threshold", 3.5)).doubleValue();
+                return AnomalyDetectors.rollingMad(series.values, window, threshold);
+            }
+        }
+    }
+
+    private static long medianStep(long[] times) {
+        long[] steps = new long[times.length - 1];
+        for (int i = 1; i < times.length; i++) steps[i - 1] = times[i] - times[i - 1];
+        Arrays.sort(steps);
+        return steps[steps.length / 2];
+    }
+}
@@ -0,0 +1,219 @@
+package time_series_analysis;
+
+import org.apache.commons.math3.distribution.TDistribution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Robuste Anomalie-Detektoren auf primitiven Arrays (ohne Datenbankzugriff, thread-safe).
+ * <ul>
+ *   <li>{@link #rollingMad}  – gleitender Median/MAD (nachlaufendes Fenster), robuster z-Score</li>
+ *   <li>{@link #seasonalHybridEsd} – saisonale Bereinigung per Phasen-Median + Generalized ESD mit Median/MAD</li>
+ *   <li>{@link #ewma} – exponentiell gewichteter Mittelwert/Varianz, z-Score gegen den Stand vor dem Punkt</li>
+ * </ul>
+ * Alle Detektoren liefern {@link Anomaly}-Objekte mit Index, Erwartungswert, Score und Severity
+ * (= Score / Schwelle, also &gt;= 1 für gemeldete Punkte).
+ */
+public final class AnomalyDetectors {
+
+    private AnomalyDetectors() {}
+
+    /** Umrechnung MAD -> Standardabweichung unter Normalverteilung. */
+    private static final double MAD_SCALE = 1.4826;
+
+    public static final class Anomaly {
+        public final int index;
+        public final double expected;
+        public final double score;
+        public final double severity;
+
+        Anomaly(int index, double expected, double score, double severity) {
+            this.index = index;
+            this.expected = expected;
+            this.score = score;
+            this.severity = severity;
+        }
+    }
+
+    /**
+     * Gleitender Median/MAD über die window vorangehenden Punkte. Das Fenster wird als sortiertes Array
+     * gepflegt (Einfügen/Entfernen per Binärsuche), der MAD per Quickselect bestimmt.
+     */
+    public static List<Anomaly> rollingMad(double[] values, int window, double threshold) {
+        int n = values.length;
+        List<Anomaly> out = new ArrayList<>();
+        if (window < 3 || n <= window) return out;
+
+        double[] sorted = Arrays.copyOf(values, window);
+        Arrays.sort(sorted);
+        double[] scratch = new double[window];
+
+        for (int i = window; i < n; i++) {
+            double median = medianOfSorted(sorted, window);
+            for (int j = 0; j < window; j++) scratch[j] = Math.abs(sorted[j] - median);
+            double sigma = MAD_SCALE * select(scratch, window);
+
+            double x = values[i];
+            double score = sigma > 0 ? Math.abs(x - median) / sigma : (x == median ? 0.0 : Double.POSITIVE_INFINITY);
+            if (score > threshold) out.add(new Anomaly(i, median, score, score / threshold));
+
+            // Fenster verschieben: values[i - window] raus, values[i] rein
+            int removeAt = Math.abs(Arrays.binarySearch(sorted, 0, window, values[i - window]));
+            if (removeAt >= window) removeAt = window - 1;
+            int insertAt = Arrays.binarySearch(sorted, 0, window, x);
+            if (insertAt < 0) insertAt = -insertAt - 1;
+            if (insertAt > removeAt) {
+                System.arraycopy(sorted, removeAt + 1, sorted, removeAt, insertAt - 1 - removeAt);
+                sorted[insertAt - 1] = x;
+            } else {
+                System.arraycopy(sorted, insertAt, sorted, insertAt + 1, removeAt - insertAt);
+                sorted[insertAt] = x;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Seasonal-Hybrid-ESD (Twitter, Hochenbaum et al. 2017): Residuum = x - Phasen-Median - Gesamtmedian,
+     * danach Generalized ESD mit Median/MAD statt Mittelwert/Standardabweichung.
+     *
+     * @param period       Saisonlänge in Punkten (&lt;= 1: keine saisonale Bereinigung)
+     * @param maxAnomalies Anteil der Punkte, der höchstens als Anomalie gemeldet wird (z.B. 0.05)
+     */
+    public static List<Anomaly> seasonalHybridEsd(double[] values, int period, double maxAnomalies, double alpha) {
+        int n = values.length;
+        List<Anomaly> out = new ArrayList<>();
+        if (n < 3) return out;
+
+        // --- 1) Saisonale Komponente: Median je Phase ---
+        double[] seasonal = new double[n];
+        if (period > 1 && n >= 2 * period) {
+            double[] phaseValues = new double[(n + period - 1) / period];
+            for (int phase = 0; phase < period; phase++) {
+                int count = 0;
+                for (int i = phase; i < n; i += period) phaseValues[count++] = values[i];
+                double med = select(Arrays.copyOf(phaseValues, count), count);
+                for (int i = phase; i < n; i += period) seasonal[i] = med;
+            }
+        }
+        double[] residual = new double[n];
+        for (int i = 0; i < n; i++) residual[i] = values[i] - seasonal[i];
+        double overall = select(residual.clone(), n);
+        for (int i = 0; i < n; i++) residual[i] -= overall;
+
+        // --- 2) Generalized ESD (robust) ---
+        int k = Math.max(1, (int) Math.floor(n * Math.min(0.49, maxAnomalies)));
+        boolean[] removed = new boolean[n];
+        double[] scratch = new double[n];
+        int[] candidates = new int[k];
+        double[] scores = new double[k];
+        double[] criticals = new double[k];
+        int lastSignificant = -1;
+
+        for (int step = 0; step < k; step++) {
+            int remaining = n - step;
+            if (remaining < 3) break;
+
+            int m = 0;
+            for (int i = 0; i < n; i++) if (!removed[i]) scratch[m++] = residual[i];
+            double median = select(scratch, m);
+            for (int i = 0, j = 0; i < n; i++) if (!removed[i]) scratch[j++] = Math.abs(residual[i] - median);
+            double sigma = MAD_SCALE * select(scratch, m);
+            if (sigma <= 0) break;
+
+            int worst = -1;
+            double worstScore = -1.0;
+            for (int i = 0; i < n; i++) {
+                if (removed[i]) continue;
+                double r = Math.abs(residual[i] - median) / sigma;
+                if (r > worstScore) {
+                    worstScore = r;
+                    worst = i;
+                }
+            }
+            removed[worst] = true;
+
+            double p = 1.0 - alpha / (2.0 * remaining);
+            int df = remaining - 2;
+            double t = new TDistribution(df).inverseCumulativeProbability(p);
+            double lambda = (remaining - 1) * t / Math.sqrt((df + t * t) * remaining);
+
+            candidates[step] = worst;
+            scores[step] = worstScore;
+            criticals[step] = lambda;
+            if (worstScore > lambda) lastSignificant = step;
+        }
+
+        for (int step = 0; step <= lastSignificant; step++) {
+            int i = candidates[step];
+            out.add(new Anomaly(i, seasonal[i] + overall, scores[step], scores[step] / criticals[step]));
+        }
+        return out;
+    }
+
+    /**
+     * EWMA-z-Score: Mittelwert und Varianz werden exponentiell geglättet (Gewicht alpha); jeder Punkt wird
+     * gegen den Stand vor dem Punkt bewertet. Die ersten warmup Punkte werden nur gelernt.
+     */
+    public static List<Anomaly> ewma(double[] values, double alpha, double threshold, int warmup) {
+        int n = values.length;
+        List<Anomaly> out = new ArrayList<>();
+        if (n == 0) return out;
+
+        double mean = values[0];
+        double var = 0.0;
+        for (int i = 1; i < n; i++) {
+            double x = values[i];
+            double diff = x - mean;
+            if (i >= warmup) {
+                double sd = Math.sqrt(var);
+                double score = sd > 0 ? Math.abs(diff) / sd : (diff == 0 ? 0.0 : Double.POSITIVE_INFINITY);
+                if (score > threshold) out.add(new Anomaly(i, mean, score, score / threshold));
+            }
+            double incr = alpha * diff;
+            mean += incr;
+            var = (1.0 - alpha) * (var + diff * incr);
+        }
+        return out;
+    }
+
+    private static double medianOfSorted(double[] sorted, int len) {
+        int mid = len / 2;
+        return len % 2 == 1 ? sorted[mid] : 0.5 * (sorted[mid - 1] + sorted[mid]);
+    }
+
+    /** Median der ersten len Elemente per Quickselect (verändert die Reihenfolge in a). */
+    static double select(double[] a, int len) {
+        if (len == 0) return Double.NaN;
+        int mid = len / 2;
+        double upper = kth(a, 0, len - 1, mid);
+        if (len % 2 == 1) return upper;
+        double lower = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < mid; i++) if (a[i] > lower) lower = a[i];
+        return 0.5 * (lower + upper);
+    }
+
+    private static double kth(double[] a, int lo, int hi, int k) {
+        while (lo < hi) {
+            double pivot = a[(lo + hi) >>> 1];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (a[i] < pivot) i++;
+                while (a[j] > pivot) j--;
+                if (i <= j) {
+                    double tmp = a[i];
+                    a[i] = a[j];
+                    a[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) hi = j;
+            else if (k >= i) lo = i;
+            else return a[k];
+        }
+        return a[k];
+    }
+}
@@ -0,0 +1,159 @@
+package time_series_analysis;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.QRDecomposition;
+import org.apache.commons.math3.linear.RealVector;
+
+import java.util.Arrays;
+
+/**
+ * Kleines ARIMA(p, d, 0): AR(p) mit Konstante auf der d-mal differenzierten Reihe, geschätzt per OLS (QR).
+ * <p>
+ * Der Zustand sind die letzten p + d Rohwerte; neue Punkte werden angehängt, die Koeffizienten bleiben fest.
+ * Die Prognosevarianz ergibt sich aus den psi-Gewichten des Polynoms phi(B)(1 - B)^d.
+ */
+public final class ArimaModel extends ForecastModel {
+
+    private final int p;
+    private final int d;
+    private double intercept;
+    private double[] phi;      // AR-Koeffizienten auf der differenzierten Reihe, phi[0] = Lag 1
+    private double[] history;  // letzte p + d + 1 Rohwerte, history[length-1] = jüngster Wert
+
+    private ArimaModel(long stepMillis, int p, int d) {
+        super(stepMillis);
+        this.p = p;
+        this.d = d;
+    }
+
+    public static ArimaModel fit(double[] y, long firstTime, long stepMillis, int p, int d) {
+        if (p < 0 || d < 0 || d > 2) {
+            throw new IllegalArgumentException("ARIMA erfordert p >= 0 und 0 <= d <= 2.");
+        }
+        double[] w = y;
+        for (int i = 0; i < d; i++) w = difference(w);
+        int rows = w.length - p;
+        if (rows < p + 2) {
+            throw new IllegalArgumentException("Zu wenige Punkte für ARIMA(" + p + "," + d + ",0).");
+        }
+
+        double[][] x = new double[rows][p + 1];
+        double[] target = new double[rows];
+        for (int r = 0; r < rows; r++) {
+            int t = r + p;
+            x[r][0] = 1.0;
+            for (int l = 1; l <= p; l++) x[r][l] = w[t - l];
+            target[r] = w[t];
+        }
+        RealVector beta = new QRDecomposition(new Array2DRowRealMatrix(x, false), 1e-12).getSolver()
+                .solve(new ArrayRealVector(target, false));
+
+        ArimaModel model = new ArimaModel(stepMillis, p, d);
+        model.intercept = beta.getEntry(0);
+        model.phi = new double[p];
+        for (int l = 0; l < p; l++) model.phi[l] = beta.getEntry(l + 1);
+
+        double sumSq = 0.0;
+        for (int r = 0; r < rows; r++) {
+            double pred = model.intercept;
+            for (int l = 0; l < p; l++) pred += model.phi[l] * x[r][l + 1];
+            double e = target[r] - pred;
+            sumSq += e * e;
+        }
+        model.sse = sumSq;
+        model.errors = rows;
+
+        int keep = Math.min(y.length, p + d + 1);
+        model.history = Arrays.copyOfRange(y, y.length - keep, y.length);
+        model.lastTime = firstTime + (y.length - 1) * stepMillis;
+        return model;
+    }
+
+    private static double[] difference(double[] a) {
+        double[] out = new double[a.length - 1];
+        for (int i = 1; i < a.length; i++) out[i - 1] = a[i] - a[i - 1];
+        return out;
+    }
+
+    @Override
+    protected double predictNext() {
+        return pointForecast(1)[0];
+    }
+
+    @Override
+    protected void advance(double x) {
+        System.arraycopy(history, 1, history, 0, history.length - 1);
+        history[history.length - 1] = x;
+    }
+
+    @Override
+    protected double[] pointForecast(int horizon) {
+        // Auf der differenzierten Skala prognostizieren und anschließend d-mal integrieren.
+        double[][] levels = new double[d + 1][];
+        levels[0] = history.clone();
+        for (int i = 1; i <= d; i++) levels[i] = difference(levels[i - 1]);
+
+        double[] w = levels[d];
+        double[] extended = Arrays.copyOf(w, w.length + horizon);
+        for (int h = 0; h < horizon; h++) {
+            int t = w.length + h;
+            double pred = intercept;
+            for (int l = 1; l <= p; l++) pred += phi[l - 1] * extended[t - l];
+            extended[t] = pred;
+        }
+        double[] forecast = Arrays.copyOfRange(extended, w.length, extended.length);
+
+        for (int i = d - 1; i >= 0; i--) {
+            double last = levels[i][levels[i].length - 1];
+            for (int h = 0; h < horizon; h++) {
+                last += forecast[h];
+                forecast[h] = last;
+            }
+        }
+        return forecast;
+    }
+
+    @Override
+    protected double[] varianceFactors(int horizon) {
+        // phi*(B) = phi(B) (1 - B)^d
+        double[] poly = new double[p + 1];
+        poly[0] = 1.0;
+        for (int l = 0; l < p; l++) poly[l + 1] = -phi[l];
+        for (int i = 0; i < d; i++) {
+            double[] next = new double[poly.length + 1];
+            for (int j = 0; j < poly.length; j++) {
+                next[j] += poly[j];
+                next[j + 1] -= poly[j];
+            }
+            poly = next;
+        }
+
+        double[] psi = new double[horizon];
+        psi[0] = 1.0;
+        for (int j = 1; j < horizon; j++) {
+            double v = 0.0;
+            for (int i = 1; i < poly.length && i <= j; i++) v -= poly[i] * psi[j - i];
+            psi[j] = v;
+        }
+        double[] out = new double[horizon];
+        double acc = 0.0;
+        for (int h = 0; h < horizon; h++) {
+            acc += psi[h] * psi[h];
+            out[h] = acc;
+        }
+        return out;
+    }
+
+    @Override
+    public synchronized String describe() {
+        return "arima(" + p + "," + d + ",0)";
+    }
+
+    public synchronized double[] parameters() {
+        double[] out = new double[p + 1];
+        out[0] = intercept;
+        System.arraycopy(phi, 0, out, 1, p);
+        return out;
+    }
+}
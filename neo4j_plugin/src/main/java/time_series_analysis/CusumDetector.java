@@ -0,0 +1,262 @@
+package time_series_analysis;
+
+import org.neo4j.graphdb.*;
+import org.neo4j.graphdb.event.TransactionData;
+import util.TimeSeriesUtil;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Zweiseitiger CUSUM-Detektor für den Online-Betrieb (ein Zustand pro Knoten + Metrik).
+ * <p>
+ * Nach einer Warmup-Phase (Mittelwert/Streuung per Welford) werden die normierten Abweichungen
+ * z = (x - mean) / sigma aufsummiert: S+ = max(0, S+ + z - k), S- = max(0, S- - z - k).
+ * Überschreitet eine Summe h, wird ein Changepoint gemeldet und der Detektor lernt das neue Niveau neu.
+ * Jeder Aufruf verarbeitet nur Samples mit Zeitstempel nach dem zuletzt gesehenen.
+ * <p>
+ * Ein Aufruf rechnet auf einer Kopie ({@link #copy}); der neue Zustand ersetzt den alten per {@link #publish}. Wurden
+ * dabei Changepoints als :event geschrieben, erst nach dem Commit ({@link #publishAfterCommit}, {@link #collect}),
+ * damit ein Rollback sie beim nächsten Aufruf erneut meldet. Höchstens {@link #MAX_STATES} Zustände bleiben im
+ * Speicher; darüber werden die am längsten unbenutzten verworfen.
+ */
+public final class CusumDetector {
+
+    /** Zustände aller laufenden Detektoren, Schlüssel = elementId + '|' + Metrik. */
+    private static final ConcurrentMap<String, CusumDetector> STATES = new ConcurrentHashMap<>();
+    static final int MAX_STATES = 10_000;
+
+    /** Zustände, deren Changepoints gerade als :event geschrieben werden; Schlüssel wie STATES. */
+    private static final ConcurrentMap<String, Publication> UNCOMMITTED = new ConcurrentHashMap<>();
+    /** Einträge von Transaktionen, die vor beforeCommit zurückgerollt wurden, verfallen danach. */
+    private static final long UNCOMMITTED_TTL = 3_600_000L;
+    private static final Label EVENT = Label.label("event");
+    private static final RelationshipType HAS_EVENT = RelationshipType.withName("HAS_EVENT");
+
+    public static final class Changepoint {
+        public final long time;
+        public final String direction;
+        public final double value;
+        public final double baselineMean;
+        public final double baselineStd;
+        public final double statistic;
+
+        Changepoint(long time, String direction, double value, double baselineMean, double baselineStd, double statistic) {
+            this.time = time;
+            this.direction = direction;
+            this.value = value;
+            this.baselineMean = baselineMean;
+            this.baselineStd = baselineStd;
+            this.statistic = statistic;
+        }
+    }
+
+    private final double k;
+    private final double h;
+    private final int warmup;
+
+    private long lastTime = Long.MIN_VALUE;
+    private long samples;
+
+    // Warmup / Baseline (Welford)
+    private int warmupCount;
+    private double mean;
+    private double m2;
+    private double sigma;
+
+    private double sPos;
+    private double sNeg;
+
+    private volatile long lastUsed;
+    /** true, sobald der Zustand in STATES steht. */
+    private boolean published;
+
+    private CusumDetector(double k, double h, int warmup) {
+        this.k = k;
+        this.h = h;
+        this.warmup = Math.max(2, warmup);
+    }
+
+    /** Ein noch nicht veröffentlichter neuer Zustand samt dem Zustand, auf dem er berechnet wurde. */
+    public static final class Publication {
+        final String key;
+        final CusumDetector base;
+        final CusumDetector next;
+        final long lastChangepoint;
+        final long created = System.currentTimeMillis();
+
+        Publication(String key, CusumDetector base, CusumDetector next, long lastChangepoint) {
+            this.key = key;
+            this.base = base;
+            this.next = next;
+            this.lastChangepoint = lastChangepoint;
+        }
+    }
+
+    public static String key(String elementId, String metric) {
+        return elementId + "|" + metric;
+    }
+
+    /**
+     * Liefert den bestehenden Detektor oder einen neuen, noch nicht veröffentlichten. Geänderte k/h/warmup-Werte
+     * gelten erst nach einem Reset, damit ein laufender Zustand nicht mit anderen Parametern weitergeführt wird.
+     */
+    public static CusumDetector current(String key, double k, double h, int warmup) {
+        CusumDetector detector = STATES.get(key);
+        if (detector == null) detector = new CusumDetector(k, h, warmup);
+        detector.lastUsed = System.currentTimeMillis();
+        return detector;
+    }
+
+    /**
+     * Ersetzt base durch next, wenn base noch der veröffentlichte Zustand ist bzw. noch keiner existiert. Sonst hat
+     * ein Reset oder ein gleichzeitiger Aufruf Vorrang und next wird verworfen.
+     */
+    public static boolean publish(String key, CusumDetector base, CusumDetector next) {
+        next.published = true;
+        next.lastUsed = System.currentTimeMillis();
+        boolean replaced = base.published ? STATES.replace(key, base, next) : STATES.putIfAbsent(key, next) == null;
+        if (replaced && STATES.size() > MAX_STATES) evict();
+        return replaced;
+    }
+
+    /** Wie {@link #publish}, aber erst nach dem Commit der Transaktion, die den Changepoint bei lastChangepoint schreibt. */
+    public static void publishAfterCommit(String key, CusumDetector base, CusumDetector next, long lastChangepoint) {
+        long expired = System.currentTimeMillis() - UNCOMMITTED_TTL;
+        UNCOMMITTED.values().removeIf(p -> p.created < expired);
+        UNCOMMITTED.put(key, new Publication(key, base, next, lastChangepoint));
+    }
+
+    /**
+     * beforeCommit: die Veröffentlichungen, deren letzter Changepoint in dieser Transaktion als :event (detector
+     * 'cusum') am Quellknoten angelegt wird. Bei Rollback verworfen, sodass der alte Zustand bleibt.
+     */
+    public static List<Publication> collect(TransactionData data) {
+        if (UNCOMMITTED.isEmpty()) return null;
+        List<Publication> out = null;
+        for (Node node : data.createdNodes()) {
+            if (data.isDeleted(node) || !node.hasLabel(EVENT) || !"cusum".equals(node.getProperty("detector", null))) continue;
+            Object metric = node.getProperty("metric", null);
+            Object time = node.getProperty("time", null);
+            if (metric == null || time == null) continue;
+            for (Relationship rel : node.getRelationships(Direction.INCOMING, HAS_EVENT)) {
+                String key = key(rel.getStartNode().getElementId(), metric.toString());
+                Publication p = UNCOMMITTED.get(key);
+                if (p != null && p.lastChangepoint == TimeSeriesUtil.toEpochMillis(time) && UNCOMMITTED.remove(key, p)) {
+                    if (out == null) out = new ArrayList<>();
+                    out.add(p);
+                }
+            }
+        }
+        return out;
+    }
+
+    /** afterCommit: veröffentlicht die in {@link #collect} gesammelten Zustände. */
+    public static void apply(List<Publication> publications) {
+        if (publications == null) return;
+        for (Publication p : publications) publish(p.key, p.base, p.next);
+    }
+
+    /** Entfernt die am längsten unbenutzten Zustände, bis höchstens 90 % von MAX_STATES belegt sind. */
+    private static synchronized void evict() {
+        int excess = STATES.size() - MAX_STATES / 10 * 9;
+        if (excess <= 0) return;
+        List<Map.Entry<String, CusumDetector>> entries = new ArrayList<>(STATES.entrySet());
+        entries.sort(Comparator.comparingLong(e -> e.getValue().lastUsed));
+        for (int i = 0; i < excess && i < entries.size(); i++) {
+            STATES.remove(entries.get(i).getKey(), entries.get(i).getValue());
+        }
+    }
+
+    public static CusumDetector get(String key) {
+        return STATES.get(key);
+    }
+
+    public static boolean reset(String key) {
+        return STATES.remove(key) != null;
+    }
+
+    /** Entfernt alle Zustände, deren Schlüssel auf '|' + metric endet (metric == null: alle). */
+    public static int resetAll(String metric) {
+        if (metric == null) {
+            int n = STATES.size();
+            STATES.clear();
+            return n;
+        }
+        String suffix = "|" + metric;
+        int[] removed = {0};
+        STATES.keySet().removeIf(key -> {
+            boolean match = key.endsWith(suffix);
+            if (match) removed[0]++;
+            return match;
+        });
+        return removed[0];
+    }
+
+    public synchronized CusumDetector copy() {
+        CusumDetector c = new CusumDetector(k, h, warmup);
+        c.lastTime = lastTime;
+        c.samples = samples;
+        c.warmupCount = warmupCount;
+        c.mean = mean;
+        c.m2 = m2;
+        c.sigma = sigma;
+        c.sPos = sPos;
+        c.sNeg = sNeg;
+        return c;
+    }
+
+    public synchronized long lastTime() {
+        return lastTime;
+    }
+
+    public synchronized long samples() {
+        return samples;
+    }
+
+    /**
+     * Verarbeitet neue Samples (aufsteigend sortiert). Bereits gesehene Zeitstempel werden übersprungen.
+     *
+     * @return die in diesem Aufruf erkannten Changepoints
+     */
+    public synchronized List<Changepoint> update(long[] times, double[] values) {
+        List<Changepoint> out = new ArrayList<>();
+        for (int i = 0; i < times.length; i++) {
+            long t = times[i];
+            double x = values[i];
+            if (t <= lastTime || Double.isNaN(x) || Double.isInfinite(x)) continue;
+            lastTime = t;
+            samples++;
+
+            if (warmupCount < warmup) {
+                warmupCount++;
+                double delta = x - mean;
+                mean += delta / warmupCount;
+                m2 += delta * (x - mean);
+                if (warmupCount == warmup) {
+                    sigma = Math.sqrt(m2 / (warmupCount - 1));
+                    if (sigma <= 0) sigma = Math.max(1e-9, Math.abs(mean) * 1e-6);
+                }
+                continue;
+            }
+
+            double z = (x - mean) / sigma;
+            sPos = Math.max(0.0, sPos + z - k);
+            sNeg = Math.max(0.0, sNeg - z - k);
+
+            if (sPos > h || sNeg > h) {
+                boolean up = sPos > h;
+                out.add(new Changepoint(t, up ? "up" : "down", x, mean, sigma, up ? sPos : sNeg));
+                // neues Niveau ab dem Alarm-Sample lernen
+                sPos = 0.0;
+                sNeg = 0.0;
+                warmupCount = 1;
+                mean = x;
+                m2 = 0.0;
+                sigma = 0.0;
+            }
+        }
+        return out;
+    }
+}
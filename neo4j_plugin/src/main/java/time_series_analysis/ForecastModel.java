@@ -0,0 +1,93 @@
+package time_series_analysis;
+
+/**
+ * Gemeinsame Basis für Prognosemodelle auf einem regelmäßigen Zeitgitter (Schrittweite stepMillis).
+ * <p>
+ * Ein einmal geschätztes Modell hält seinen Zustand (Level/Trend/Saison bzw. die letzten Werte) und kann per
+ * {@link #update} mit neuen Gitterpunkten fortgeschrieben werden, ohne die Parameter neu zu schätzen.
+ * Die Residualvarianz für die Konfidenzintervalle wird dabei aus den Ein-Schritt-Fehlern mitgeführt.
+ */
+public abstract class ForecastModel {
+
+    public final long stepMillis;
+    protected long lastTime;
+    protected double sse;
+    protected long errors;
+    /** Letzter Zugriff über {@link ForecastModels}, für die Verdrängung. */
+    volatile long lastUsed;
+
+    protected ForecastModel(long stepMillis) {
+        this.stepMillis = stepMillis;
+    }
+
+    public synchronized long lastTime() {
+        return lastTime;
+    }
+
+    /** Ein-Schritt-Prognose für den nächsten Gitterpunkt. */
+    protected abstract double predictNext();
+
+    /** Zustand um einen beobachteten Wert fortschreiben. */
+    protected abstract void advance(double x);
+
+    /** Punktprognosen für h = 1..horizon. */
+    protected abstract double[] pointForecast(int horizon);
+
+    /** Multiplikatoren der Prognosevarianz relativ zu sigma² für h = 1..horizon. */
+    protected abstract double[] varianceFactors(int horizon);
+
+    public abstract String describe();
+
+    /**
+     * Schreibt Gitterwerte ab lastTime + step fort (values[i] gehört zu firstTime + i * step).
+     * NaN-Lücken werden mit der Ein-Schritt-Prognose gefüllt.
+     *
+     * @return Anzahl der tatsächlich beobachteten (nicht imputierten) Punkte
+     */
+    public synchronized int update(long firstTime, double[] values) {
+        int observed = 0;
+        for (int i = 0; i < values.length; i++) {
+            long t = firstTime + i * stepMillis;
+            if (t <= lastTime) continue;
+            // Lücke zwischen lastTime und t (fehlende Gitterpunkte) mit Prognosen überbrücken
+            while (lastTime + stepMillis < t) {
+                advance(predictNext());
+                lastTime += stepMillis;
+            }
+            double x = values[i];
+            double prediction = predictNext();
+            if (Double.isNaN(x)) {
+                x = prediction;
+            } else {
+                double e = x - prediction;
+                if (!Double.isNaN(e) && !Double.isInfinite(e)) {
+                    sse += e * e;
+                    errors++;
+                }
+                observed++;
+            }
+            advance(x);
+            lastTime = t;
+        }
+        return observed;
+    }
+
+    public synchronized double sigma2() {
+        return errors > 0 ? sse / errors : 0.0;
+    }
+
+    /** @return {mean[], lower[], upper[]} für h = 1..horizon bei Quantil z. */
+    public synchronized double[][] forecast(int horizon, double z) {
+        double[] mean = pointForecast(horizon);
+        double[] factors = varianceFactors(horizon);
+        double sigma2 = sigma2();
+        double[] lower = new double[horizon];
+        double[] upper = new double[horizon];
+        for (int h = 0; h < horizon; h++) {
+            double half = z * Math.sqrt(sigma2 * factors[h]);
+            lower[h] = mean[h] - half;
+            upper[h] = mean[h] + half;
+        }
+        return new double[][]{mean, lower, upper};
+    }
+}
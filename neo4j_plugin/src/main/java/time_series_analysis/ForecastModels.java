@@ -0,0 +1,65 @@
+package time_series_analysis;
+
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.event.TransactionData;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Geschätzte Prognosemodelle im Speicher, Schlüssel = elementId + '|' + Metrik + Spezifikation (siehe
+ * {@link ForecastProcedure}).
+ * <p>
+ * Höchstens {@link #MAX_MODELS} Modelle; darüber werden die am längsten unbenutzten verworfen. Modelle gelöschter
+ * Knoten entfernt der Transaction-Listener nach dem Commit, damit eine wiederverwendete elementId kein fremdes Modell
+ * erbt.
+ */
+public final class ForecastModels {
+
+    static final int MAX_MODELS = 10_000;
+
+    private static final ConcurrentMap<String, ForecastModel> MODELS = new ConcurrentHashMap<>();
+
+    private ForecastModels() {}
+
+    static ForecastModel get(String key) {
+        ForecastModel model = MODELS.get(key);
+        if (model != null) model.lastUsed = System.currentTimeMillis();
+        return model;
+    }
+
+    static void put(String key, ForecastModel model) {
+        model.lastUsed = System.currentTimeMillis();
+        MODELS.put(key, model);
+        if (MODELS.size() > MAX_MODELS) evict();
+    }
+
+    /** Entfernt die am längsten unbenutzten Modelle, bis höchstens 90 % von MAX_MODELS belegt sind. */
+    private static synchronized void evict() {
+        int excess = MODELS.size() - MAX_MODELS / 10 * 9;
+        if (excess <= 0) return;
+        List<Map.Entry<String, ForecastModel>> entries = new ArrayList<>(MODELS.entrySet());
+        entries.sort(Comparator.comparingLong(e -> e.getValue().lastUsed));
+        for (int i = 0; i < excess && i < entries.size(); i++) {
+            MODELS.remove(entries.get(i).getKey(), entries.get(i).getValue());
+        }
+    }
+
+    /** beforeCommit: elementIds gelöschter Knoten, falls Modelle gehalten werden; sonst null. */
+    public static Set<String> deleted(TransactionData data) {
+        if (MODELS.isEmpty()) return null;
+        Set<String> ids = null;
+        for (Node node : data.deletedNodes()) {
+            if (ids == null) ids = new HashSet<>();
+            ids.add(node.getElementId());
+        }
+        return ids;
+    }
+
+    /** afterCommit: verwirft alle Modelle der gelöschten Knoten. */
+    public static void forget(Set<String> elementIds) {
+        if (elementIds == null || elementIds.isEmpty()) return;
+        MODELS.keySet().removeIf(key -> elementIds.contains(key.substring(0, key.indexOf('|'))));
+    }
+}
@@ -0,0 +1,221 @@
+package time_series_analysis;
+
+import org.apache.commons.math3.distribution.NormalDistribution;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.logging.Log;
+import org.neo4j.procedure.*;
+import temporal_joins.TimeGrid;
+import util.NumericSeries;
+import util.ParallelUtil;
+import util.TimeSeriesUtil;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Prognosen (Holt-Winters oder ARIMA(p,d,0)) für Knoten-Metriken mit Konfidenzintervallen.
+ * <p>
+ * Geschätzte Modelle werden pro Knoten + Metrik + allen Parametern, die Modell oder Daten bestimmen (Zeitfenster,
+ * aggregation, ...), im Speicher gehalten ({@link ForecastModels}). Ein erneuter Aufruf holt nur die Punkte seit dem
+ * letzten Gitterpunkt bis zum Fensterende und schreibt den Modellzustand fort, statt neu zu schätzen (refit: true
+ * erzwingt eine Neuschätzung).
+ */
+public class ForecastProcedure {
+
+    /** Parameter, die nur die Ausgabe betreffen und daher nicht in den Modell-Schlüssel eingehen. */
+    private static final Set<String> OUTPUT_PARAMS = Set.of("horizon", "confidence", "refit");
+
+    @Context
+    public GraphDatabaseService db;
+
+    @Context
+    public Transaction tx;
+
+    @Context
+    public Log log;
+
+    public static class ForecastResult {
+        public Node node;
+        public String metric;
+        public String model;
+        public boolean refitted;
+        public double sigma;
+        public List<String> timestamps;
+        public List<Double> forecast;
+        public List<Double> lower;
+        public List<Double> upper;
+
+        public ForecastResult(Node node, String metric, String model, boolean refitted, double sigma, List<String> timestamps,
+                              List<Double> forecast, List<Double> lower, List<Double> upper) {
+            this.node = node;
+            this.metric = metric;
+            this.model = model;
+            this.refitted = refitted;
+            this.sigma = sigma;
+            this.timestamps = timestamps;
+            this.forecast = forecast;
+            this.lower = lower;
+            this.upper = upper;
+        }
+    }
+
+    @Procedure(name = "graphobs.analysis.forecast", mode = Mode.READ)
+    @Description("Prognose einer Metrik mit Konfidenzintervall. params: model ('holt_winters' (Default) oder 'arima'), " +
+            "seasonal ('additive', 'multiplicative', 'none'), period (Saisonlänge in Punkten) oder seasonality (Dauer wie '1d'), " +
+            "p (2) und d (1) für ARIMA, horizon (Punkte, Default 24), confidence (0.95), intervalSeconds (Default: medianer " +
+            "Abstand), refit (false) sowie die üblichen Zeitfenster-Parameter für die erste Schätzung.")
+    public Stream<ForecastResult> forecast(
+            @Name("node") Node node,
+            @Name("metric") String metric,
+            @Name(value = "params", defaultValue = "{}") Map<String, Object> params
+    ) {
+        ForecastResult result = forecastNode(node, node, metric, params, db, log);
+        return result == null ? Stream.empty() : Stream.of(result);
+    }
+
+    @Procedure(name = "graphobs.analysis.forecast_service", mode = Mode.READ)
+    @Description("Wie graphobs.analysis.forecast, parallel für alle Pods eines Services (Service-[:HAS_POD]->Pod).")
+    public Stream<ForecastResult> forecastService(
+            @Name("serviceName") String serviceName,
+            @Name("metric") String metric,
+            @Name(value = "params", defaultValue = "{}") Map<String, Object> params
+    ) {
+        List<Node> pods = new ArrayList<>();
+        try (Result result = tx.execute("MATCH (:Service {name: $name})-[:HAS_POD]->(p:Pod) RETURN p",
+                Map.of("name", serviceName))) {
+            while (result.hasNext()) pods.add((Node) result.next().get("p"));
+        }
+        if (pods.isEmpty()) {
+            log.warn("forecast_service: Keine Pods für Service '%s' gefunden.", serviceName);
+            return Stream.empty();
+        }
+        List<ForecastResult> results = ParallelUtil.mapNodesIndexed(db, pods,
+                (pod, i) -> forecastNode(pod, pods.get(i), metric, params, db, log), log);
+        return results.stream().filter(Objects::nonNull);
+    }
+
+    /**
+     * @param node       Knoten in der aktuellen (ggf. Worker-)Transaktion, von dem gelesen wird
+     * @param outputNode Knoten, der im Ergebnis zurückgegeben wird (aus der Aufrufer-Transaktion)
+     */
+    private static ForecastResult forecastNode(Node node, Node outputNode, String metric, Map<String, Object> params,
+                                               GraphDatabaseService db, Log log) {
+        String modelName = params.getOrDefault("model", "holt_winters").toString().toLowerCase();
+        if (!modelName.equals("holt_winters") && !modelName.equals("arima")) {
+            throw new IllegalArgumentException("Unbekanntes Modell '" + modelName + "'. Erlaubt: holt_winters, arima.");
+        }
+        int horizon = ((Number) params.getOrDefault("horizon", 24L)).intValue();
+        double confidence = ((Number) params.getOrDefault("confidence", 0.95)).doubleValue();
+        boolean refit = Boolean.TRUE.equals(params.get("refit"));
+        if (horizon < 1) throw new IllegalArgumentException("horizon muss >= 1 sein.");
+        if (confidence <= 0 || confidence >= 1) throw new IllegalArgumentException("confidence muss in (0, 1) liegen.");
+
+        // alle übrigen Parameter (Modell, Zeitfenster, aggregation, ...) bestimmen das Modell
+        Map<String, Object> spec = new TreeMap<>(params);
+        spec.keySet().removeAll(OUTPUT_PARAMS);
+        spec.put("model", modelName);
+        String key = node.getElementId() + "|" + metric + "|" + spec;
+
+        ForecastModel model = refit ? null : ForecastModels.get(key);
+        boolean refitted = model == null;
+
+        if (model != null) {
+            // --- Inkrementell: nur neue Punkte seit dem letzten Gitterpunkt bis zum Fensterende ---
+            long step = model.stepMillis;
+            long last = model.lastTime();
+            long end = Math.min(TimeSeriesUtil.extractTimeWindow(params, log).endTime, System.currentTimeMillis());
+            Map<String, Object> fetchParams = new HashMap<>(params);
+            fetchParams.remove("time");
+            fetchParams.remove("range");
+            fetchParams.put("startTime", last - 2 * step);
+            fetchParams.put("endTime", end);
+            NumericSeries fresh = fetch(node, metric, fetchParams, db, log);
+            if (!fresh.isEmpty() && fresh.lastTime() >= last + step) {
+                TimeGrid grid = TimeGrid.covering(last + step, fresh.lastTime(), step);
+                model.update(grid.startMillis, grid.sample(fresh, "linear"));
+            }
+        } else {
+            // --- Erste Schätzung ---
+            NumericSeries series = fetch(node, metric, params, db, log);
+            if (series.size() < 3) {
+                log.warn("forecast: Zu wenige Punkte für Metrik '%s' an Knoten %s.", metric, node.getElementId());
+                return null;
+            }
+            long step = params.containsKey("intervalSeconds")
+                    ? ((Number) params.get("intervalSeconds")).longValue() * 1000L
+                    : medianStep(series.times);
+            if (step <= 0) throw new IllegalArgumentException("intervalSeconds muss > 0 sein.");
+
+            TimeGrid grid = TimeGrid.covering(series.firstTime(), series.lastTime(), step);
+            double[] sampled = grid.sample(series, "linear");
+            int from = 0, to = sampled.length;
+            while (from < to && Double.isNaN(sampled[from])) from++;
+            while (to > from && Double.isNaN(sampled[to - 1])) to--;
+            double[] y = Arrays.copyOfRange(sampled, from, to);
+            long firstTime = grid.timeAt(from);
+
+            if (modelName.equals("arima")) {
+                int p = ((Number) params.getOrDefault("p", 2L)).intValue();
+                int d = ((Number) params.getOrDefault("d", 1L)).intValue();
+                model = ArimaModel.fit(y, firstTime, step, p, d);
+            } else {
+                HoltWintersModel.Seasonality seasonality = parseSeasonality(params.getOrDefault("seasonal", "additive"));
+                int period = ((Number) params.getOrDefault("period", 0L)).intValue();
+                if (period <= 0 && params.containsKey("seasonality")) {
+                    period = (int) (TimeSeriesUtil.parseDuration(params.get("seasonality")) / step);
+                }
+                if (period < 2 || y.length < 2 * period + 1) seasonality = HoltWintersModel.Seasonality.NONE;
+                model = HoltWintersModel.fit(y, firstTime, step, seasonality, period);
+            }
+            ForecastModels.put(key, model);
+        }
+
+        double z = new NormalDistribution().inverseCumulativeProbability(0.5 + confidence / 2.0);
+        double[][] fc = model.forecast(horizon, z);
+        long last = model.lastTime();
+
+        List<String> timestamps = new ArrayList<>(horizon);
+        List<Double> mean = new ArrayList<>(horizon);
+        List<Double> lower = new ArrayList<>(horizon);
+        List<Double> upper = new ArrayList<>(horizon);
+        for (int h = 0; h < horizon; h++) {
+            timestamps.add(Instant.ofEpochMilli(last + (h + 1) * model.stepMillis).toString());
+            mean.add(fc[0][h]);
+            lower.add(fc[1][h]);
+            upper.add(fc[2][h]);
+        }
+        return new ForecastResult(outputNode, metric, model.describe(), refitted, Math.sqrt(model.sigma2()),
+                timestamps, mean, lower, upper);
+    }
+
+    private static NumericSeries fetch(Node node, String metric, Map<String, Object> params, GraphDatabaseService db, Log log) {
+        return NumericSeries.of(
+                TimeSeriesUtil.getFilteredTimeSeries(node, metric, params, db, log).collect(Collectors.toList()),
+                metric);
+    }
+
+    private static HoltWintersModel.Seasonality parseSeasonality(Object raw) {
+        switch (raw.toString().toLowerCase()) {
+            case "additive":
+                return HoltWintersModel.Seasonality.ADDITIVE;
+            case "multiplicative":
+                return HoltWintersModel.Seasonality.MULTIPLICATIVE;
+            case "none":
+                return HoltWintersModel.Seasonality.NONE;
+            default:
+                throw new IllegalArgumentException("seasonal muss 'additive', 'multiplicative' oder 'none' sein.");
+        }
+    }
+
+    private static long medianStep(long[] times) {
+        long[] steps = new long[times.length - 1];
+        for (int i = 1; i < times.length; i++) steps[i - 1] = times[i] - times[i - 1];
+        Arrays.sort(steps);
+        return steps[steps.length / 2];
+    }
+}
@@ -0,0 +1,217 @@
+package time_series_analysis;
+
+/**
+ * Holt-Winters-Exponentialglättung (Level + Trend + optional additive oder multiplikative Saison).
+ * <p>
+ * α, β, γ werden per Grobraster + lokaler Verfeinerung auf die Summe der quadrierten Ein-Schritt-Fehler
+ * geschätzt. Die Prognosevarianz folgt der Näherung für ETS(A,A,A) (Hyndman et al.); für die
+ * multiplikative Variante ist sie eine Approximation.
+ */
+public final class HoltWintersModel extends ForecastModel {
+
+    public enum Seasonality { NONE, ADDITIVE, MULTIPLICATIVE }
+
+    private final Seasonality seasonality;
+    private final int period;
+    private double alpha;
+    private double beta;
+    private double gamma;
+
+    // Zustand
+    private double level;
+    private double trend;
+    private double[] season;
+    private long t; // Anzahl verarbeiteter Punkte seit Beginn (Saisonposition = t % period)
+
+    private HoltWintersModel(long stepMillis, Seasonality seasonality, int period) {
+        super(stepMillis);
+        this.seasonality = seasonality;
+        this.period = seasonality == Seasonality.NONE ? 1 : period;
+    }
+
+    /**
+     * Schätzt das Modell auf y (regelmäßiges Gitter ohne NaN, y[0] gehört zu firstTime).
+     */
+    public static HoltWintersModel fit(double[] y, long firstTime, long stepMillis, Seasonality seasonality, int period) {
+        if (seasonality != Seasonality.NONE && period < 2) {
+            throw new IllegalArgumentException("Für saisonales Holt-Winters muss period >= 2 sein.");
+        }
+        int minPoints = seasonality == Seasonality.NONE ? 3 : 2 * period + 1;
+        if (y.length < minPoints) {
+            throw new IllegalArgumentException("Zu wenige Punkte für Holt-Winters (" + y.length + " < " + minPoints + ").");
+        }
+        if (seasonality == Seasonality.MULTIPLICATIVE) {
+            for (double v : y) {
+                if (v <= 0) throw new IllegalArgumentException("Multiplikatives Holt-Winters erfordert positive Werte.");
+            }
+        }
+
+        HoltWintersModel model = new HoltWintersModel(stepMillis, seasonality, period);
+
+        // --- Grobraster ---
+        double[] best = {0.5, 0.1, 0.1};
+        double bestSse = Double.POSITIVE_INFINITY;
+        double[] grid = {0.05, 0.15, 0.3, 0.5, 0.7, 0.9};
+        double[] gammas = seasonality == Seasonality.NONE ? new double[]{0.0} : grid;
+        for (double a : grid) {
+            for (double b : grid) {
+                for (double g : gammas) {
+                    double s = model.simulate(y, a, b, g, false);
+                    if (s < bestSse) {
+                        bestSse = s;
+                        best = new double[]{a, b, g};
+                    }
+                }
+            }
+        }
+
+        // --- Koordinatenweise Verfeinerung ---
+        int dims = seasonality == Seasonality.NONE ? 2 : 3;
+        double delta = 0.05;
+        while (delta > 1e-3) {
+            boolean improved = false;
+            for (int d = 0; d < dims; d++) {
+                for (double sign : new double[]{-1, 1}) {
+                    double[] candidate = best.clone();
+                    candidate[d] = Math.min(0.999, Math.max(0.001, candidate[d] + sign * delta));
+                    double s = model.simulate(y, candidate[0], candidate[1], candidate[2], false);
+                    if (s < bestSse) {
+                        bestSse = s;
+                        best = candidate;
+                        improved = true;
+                    }
+                }
+            }
+            if (!improved) delta /= 2;
+        }
+
+        model.alpha = best[0];
+        model.beta = best[1];
+        model.gamma = best[2];
+        model.simulate(y, model.alpha, model.beta, model.gamma, true);
+        model.lastTime = firstTime + (y.length - 1) * stepMillis;
+        return model;
+    }
+
+    /** Läuft die Rekursion über y; mit keep = true bleibt der Endzustand samt SSE im Modell. */
+    private double simulate(double[] y, double a, double b, double g, boolean keep) {
+        int m = period;
+        double l, tr;
+        double[] s = new double[m];
+        int start;
+        if (seasonality == Seasonality.NONE) {
+            l = y[0];
+            tr = y[1] - y[0];
+            start = 1;
+        } else {
+            double first = 0, second = 0;
+            for (int i = 0; i < m; i++) {
+                first += y[i];
+                second += y[m + i];
+            }
+            first /= m;
+            second /= m;
+            l = first;
+            tr = (second - first) / m;
+            for (int i = 0; i < m; i++) {
+                s[i] = seasonality == Seasonality.ADDITIVE ? y[i] - first : y[i] / first;
+            }
+            start = m;
+        }
+
+        double sumSq = 0.0;
+        int count = 0;
+        for (int i = start; i < y.length; i++) {
+            int idx = i % m;
+            double seasonal = seasonality == Seasonality.NONE ? 0.0 : s[idx];
+            double prediction = seasonality == Seasonality.MULTIPLICATIVE ? (l + tr) * seasonal : l + tr + seasonal;
+            double e = y[i] - prediction;
+            sumSq += e * e;
+            count++;
+
+            double newLevel;
+            if (seasonality == Seasonality.MULTIPLICATIVE) {
+                newLevel = a * (y[i] / seasonal) + (1 - a) * (l + tr);
+                s[idx] = g * (y[i] / newLevel) + (1 - g) * seasonal;
+            } else {
+                newLevel = a * (y[i] - seasonal) + (1 - a) * (l + tr);
+                if (seasonality == Seasonality.ADDITIVE) s[idx] = g * (y[i] - newLevel) + (1 - g) * seasonal;
+            }
+            tr = b * (newLevel - l) + (1 - b) * tr;
+            l = newLevel;
+        }
+
+        if (keep) {
+            level = l;
+            trend = tr;
+            season = s;
+            t = y.length;
+            sse = sumSq;
+            errors = count;
+        }
+        return Double.isNaN(sumSq) ? Double.POSITIVE_INFINITY : sumSq;
+    }
+
+    @Override
+    protected double predictNext() {
+        return pointAt(1);
+    }
+
+    private double pointAt(int h) {
+        if (seasonality == Seasonality.NONE) return level + h * trend;
+        double seasonal = season[(int) ((t + h - 1) % period)];
+        return seasonality == Seasonality.MULTIPLICATIVE ? (level + h * trend) * seasonal : level + h * trend + seasonal;
+    }
+
+    @Override
+    protected void advance(double x) {
+        int idx = (int) (t % period);
+        double newLevel;
+        if (seasonality == Seasonality.MULTIPLICATIVE) {
+            double seasonal = season[idx];
+            newLevel = alpha * (x / seasonal) + (1 - alpha) * (level + trend);
+            season[idx] = gamma * (x / newLevel) + (1 - gamma) * seasonal;
+        } else if (seasonality == Seasonality.ADDITIVE) {
+            double seasonal = season[idx];
+            newLevel = alpha * (x - seasonal) + (1 - alpha) * (level + trend);
+            season[idx] = gamma * (x - newLevel) + (1 - gamma) * seasonal;
+        } else {
+            newLevel = alpha * x + (1 - alpha) * (level + trend);
+        }
+        trend = beta * (newLevel - level) + (1 - beta) * trend;
+        level = newLevel;
+        t++;
+    }
+
+    @Override
+    protected double[] pointForecast(int horizon) {
+        double[] out = new double[horizon];
+        for (int h = 1; h <= horizon; h++) out[h - 1] = pointAt(h);
+        return out;
+    }
+
+    @Override
+    protected double[] varianceFactors(int horizon) {
+        double[] out = new double[horizon];
+        double acc = 1.0;
+        out[0] = 1.0;
+        for (int h = 2; h <= horizon; h++) {
+            int j = h - 1;
+            double seasonalTerm = (seasonality != Seasonality.NONE && j % period == 0) ? gamma * (1 - alpha) : 0.0;
+            double c = alpha * (1 + j * beta) + seasonalTerm;
+            acc += c * c;
+            out[h - 1] = acc;
+        }
+        return out;
+    }
+
+    @Override
+    public synchronized String describe() {
+        return String.format(java.util.Locale.ROOT, "holt_winters(%s, period=%d, alpha=%.3f, beta=%.3f, gamma=%.3f)",
+                seasonality.name().toLowerCase(), period, alpha, beta, gamma);
+    }
+
+    public synchronized double[] parameters() {
+        return new double[]{alpha, beta, gamma};
+    }
+}
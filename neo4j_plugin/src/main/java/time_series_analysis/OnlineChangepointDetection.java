@@ -0,0 +1,185 @@
+package time_series_analysis;
+
+import org.neo4j.graphdb.*;
+import org.neo4j.logging.Log;
+import org.neo4j.procedure.*;
+import util.NumericSeries;
+import util.ParallelUtil;
+import util.TimeSeriesUtil;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Online-Changepoint-Erkennung (CUSUM) für laufend wachsende Metriken, z.B. aus Prometheus.
+ * <p>
+ * Der Zustand pro (Knoten, Metrik) liegt im Speicher ({@link CusumDetector}); jeder Aufruf holt nur die
+ * Samples seit dem zuletzt verarbeiteten Zeitstempel über den normalen TimeSeriesSource-Pfad.
+ * Mit write = true werden erkannte Changepoints als :event-Knoten (type 'changepoint') angelegt und per
+ * HAS_EVENT mit dem Quellknoten verbunden; der Zustand rückt dann erst mit dem Commit vor.
+ */
+public class OnlineChangepointDetection {
+
+    private static final RelationshipType HAS_EVENT = RelationshipType.withName("HAS_EVENT");
+
+    @Context
+    public GraphDatabaseService db;
+
+    @Context
+    public Transaction tx;
+
+    @Context
+    public Log log;
+
+    public static class OnlineChangepointResult {
+        public Node node;
+        public String metric;
+        public String time;
+        public String direction;
+        public double value;
+        public double baselineMean;
+        public double baselineStd;
+        public double statistic;
+        public Node event;
+
+        public OnlineChangepointResult(Node node, String metric, String time, String direction, double value,
+                                       double baselineMean, double baselineStd, double statistic, Node event) {
+            this.node = node;
+            this.metric = metric;
+            this.time = time;
+            this.direction = direction;
+            this.value = value;
+            this.baselineMean = baselineMean;
+            this.baselineStd = baselineStd;
+            this.statistic = statistic;
+            this.event = event;
+        }
+    }
+
+    public static class ResetResult {
+        public long reset;
+
+        public ResetResult(long reset) {
+            this.reset = reset;
+        }
+    }
+
+    @Procedure(name = "graphobs.analysis.online_changepoints", mode = Mode.WRITE)
+    @Description("Online-CUSUM-Changepoints für eine Metrik auf mehreren Knoten. Verarbeitet pro Aufruf nur neue Samples " +
+            "seit dem letzten Aufruf (Zustand im Speicher pro Knoten + Metrik). params: k (Drift in Sigma, Default 0.5), " +
+            "h (Schwelle in Sigma, Default 5.0), warmup (Samples zum Lernen der Baseline, Default 30), " +
+            "lookback (erster Abruf, Default '1h'), write (Default false: :event-Knoten anlegen und per HAS_EVENT verbinden).")
+    public Stream<OnlineChangepointResult> onlineChangepoints(
+            @Name("nodes") List<Node> nodes,
+            @Name("metric") String metric,
+            @Name(value = "params", defaultValue = "{}") Map<String, Object> params
+    ) {
+        if (nodes == null || nodes.isEmpty()) {
+            throw new IllegalArgumentException("nodes darf nicht leer sein.");
+        }
+        double k = ((Number) params.getOrDefault("k", 0.5)).doubleValue();
+        double h = ((Number) params.getOrDefault("h", 5.0)).doubleValue();
+        int warmup = ((Number) params.getOrDefault("warmup", 30L)).intValue();
+        long lookbackMillis = TimeSeriesUtil.parseDuration(params.getOrDefault("lookback", "1h"));
+        boolean write = Boolean.TRUE.equals(params.get("write"));
+        if (k < 0 || h <= 0) {
+            throw new IllegalArgumentException("k muss >= 0 und h > 0 sein.");
+        }
+
+        long now = System.currentTimeMillis();
+
+        // --- 1) Pro Knoten nur neue Samples holen und in eine Kopie des Detektors schieben (parallel) ---
+        List<Run> runs = ParallelUtil.mapNodes(db, nodes, node -> {
+            String key = CusumDetector.key(node.getElementId(), metric);
+            CusumDetector base = CusumDetector.current(key, k, h, warmup);
+            CusumDetector detector = base.copy();
+            long last = detector.lastTime();
+
+            Map<String, Object> fetchParams = new HashMap<>(params);
+            fetchParams.remove("time");
+            fetchParams.remove("range");
+            fetchParams.put("startTime", last == Long.MIN_VALUE ? now - lookbackMillis : last + 1);
+            fetchParams.put("endTime", now);
+
+            NumericSeries fresh = NumericSeries.of(
+                    TimeSeriesUtil.getFilteredTimeSeries(node, metric, fetchParams, db, log).collect(Collectors.toList()),
+                    metric);
+            return new Run(key, base, detector, detector.update(fresh.times, fresh.values));
+        }, log);
+
+        // --- 2) Ergebnisse (und ggf. Events) in der Aufrufer-Transaktion ---
+        List<OnlineChangepointResult> results = new ArrayList<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            Run run = runs.get(i);
+            if (run == null) continue;
+            Node node = nodes.get(i);
+            for (CusumDetector.Changepoint cp : run.changepoints) {
+                Node event = write ? createEvent(node, metric, cp) : null;
+                results.add(new OnlineChangepointResult(node, metric, Instant.ofEpochMilli(cp.time).toString(),
+                        cp.direction, cp.value, cp.baselineMean, cp.baselineStd, cp.statistic, event));
+            }
+            // geschriebene Changepoints: Zustand erst nach dem Commit, sonst gingen sie bei einem Rollback verloren
+            if (write && !run.changepoints.isEmpty()) {
+                long lastChangepoint = run.changepoints.get(run.changepoints.size() - 1).time;
+                CusumDetector.publishAfterCommit(run.key, run.base, run.next, lastChangepoint);
+            } else {
+                CusumDetector.publish(run.key, run.base, run.next);
+            }
+        }
+        return results.stream();
+    }
+
+    /** Ergebnis der parallelen Phase je Knoten: Ausgangs- und neuer Zustand sowie die erkannten Changepoints. */
+    private static final class Run {
+        final String key;
+        final CusumDetector base;
+        final CusumDetector next;
+        final List<CusumDetector.Changepoint> changepoints;
+
+        Run(String key, CusumDetector base, CusumDetector next, List<CusumDetector.Changepoint> changepoints) {
+            this.key = key;
+            this.base = base;
+            this.next = next;
+            this.changepoints = changepoints;
+        }
+    }
+
+    @Procedure(name = "graphobs.analysis.online_changepoints_reset", mode = Mode.READ)
+    @Description("Verwirft den Online-CUSUM-Zustand. Ohne nodes werden alle Zustände der Metrik (metric = null: alle) entfernt.")
+    public Stream<ResetResult> resetOnlineChangepoints(
+            @Name(value = "nodes", defaultValue = "[]") List<Node> nodes,
+            @Name(value = "metric", defaultValue = "") String metric
+    ) {
+        String m = (metric == null || metric.isEmpty()) ? null : metric;
+        if (nodes == null || nodes.isEmpty()) {
+            return Stream.of(new ResetResult(CusumDetector.resetAll(m)));
+        }
+        if (m == null) {
+            throw new IllegalArgumentException("Für einzelne Knoten muss metric angegeben werden.");
+        }
+        long count = 0;
+        for (Node node : nodes) {
+            if (CusumDetector.reset(CusumDetector.key(node.getElementId(), m))) count++;
+        }
+        return Stream.of(new ResetResult(count));
+    }
+
+    private Node createEvent(Node source, String metric, CusumDetector.Changepoint cp) {
+        Node event = tx.createNode(Label.label("event"));
+        event.setProperty("time", ZonedDateTime.ofInstant(Instant.ofEpochMilli(cp.time), ZoneOffset.UTC));
+        event.setProperty("type", "changepoint");
+        event.setProperty("metric", metric);
+        event.setProperty("direction", cp.direction);
+        event.setProperty("value", cp.value);
+        event.setProperty("baselineMean", cp.baselineMean);
+        event.setProperty("baselineStd", cp.baselineStd);
+        event.setProperty("statistic", cp.statistic);
+        event.setProperty("detector", "cusum");
+        source.createRelationshipTo(event, HAS_EVENT);
+        return event;
+    }
+}
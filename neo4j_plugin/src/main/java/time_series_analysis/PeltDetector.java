@@ -0,0 +1,181 @@
+package time_series_analysis;
+
+import java.util.Arrays;
+
+/**
+ * PELT (Pruned Exact Linear Time, Killick et al. 2012) auf primitiven Arrays.
+ * <p>
+ * Die Kandidatenmenge R ist ein int[], das nach jedem Schritt in-place kompaktiert wird; die Segmentkosten
+ * kommen aus Präfixsummen in O(1). Pro Schritt wird die Kostenfunktion für jeden Kandidaten genau einmal
+ * ausgewertet (für Minimum und Pruning gemeinsam).
+ * <p>
+ * Kostenfunktionen (jeweils -2·log-Likelihood bis auf Konstanten):
+ * <ul>
+ *   <li>{@code mean}    – Normalverteilung, Mittelwertwechsel bei fester Varianz (Summe der quadrierten Abweichungen)</li>
+ *   <li>{@code meanvar} – Normalverteilung, Mittelwert- und Varianzwechsel</li>
+ *   <li>{@code poisson} – Poisson-Raten für Zähldaten (Werte &gt;= 0)</li>
+ * </ul>
+ */
+public final class PeltDetector {
+
+    public enum Cost {
+        MEAN, MEANVAR, POISSON;
+
+        public static Cost parse(Object raw) {
+            if (raw == null) return MEAN;
+            switch (raw.toString().trim().toLowerCase()) {
+                case "mean":
+                case "normal_mean":
+                    return MEAN;
+                case "meanvar":
+                case "normal_meanvar":
+                    return MEANVAR;
+                case "poisson":
+                    return POISSON;
+                default:
+                    throw new IllegalArgumentException("Unbekannte Kostenfunktion '" + raw + "'. Erlaubt: mean, meanvar, poisson.");
+            }
+        }
+    }
+
+    /** Untergrenze der Segmentvarianz für meanvar (konstante Segmente würden sonst log(0) liefern). */
+    private static final double MIN_VARIANCE = 1e-12;
+
+    private final double[] cumsum;
+    private final double[] cumsumSq;
+    private final Cost cost;
+
+    private PeltDetector(double[] values, Cost cost) {
+        int n = values.length;
+        this.cost = cost;
+        this.cumsum = new double[n + 1];
+        this.cumsumSq = new double[n + 1];
+        for (int i = 0; i < n; i++) {
+            double v = values[i];
+            if (cost == Cost.POISSON && v < 0) {
+                throw new IllegalArgumentException("Poisson-Kosten erfordern nichtnegative Werte.");
+            }
+            cumsum[i + 1] = cumsum[i] + v;
+            cumsumSq[i + 1] = cumsumSq[i] + v * v;
+        }
+    }
+
+    /**
+     * Standardstrafe (BIC-artig: Anzahl neuer Parameter pro Changepoint · log n) je Kostenfunktion. Für {@code mean}
+     * wird mit einer robusten Varianzschätzung (MAD der ersten Differenzen) skaliert, da die Kosten nicht
+     * varianznormiert sind.
+     */
+    public static double defaultPenalty(double[] values, Cost cost) {
+        int n = values.length;
+        double logN = Math.log(Math.max(2, n));
+        switch (cost) {
+            case MEANVAR:
+                return 3.0 * logN;
+            case POISSON:
+                return 2.0 * logN;
+            default:
+                return 2.0 * logN * robustVariance(values);
+        }
+    }
+
+    /**
+     * Liefert die Changepoint-Indizes (Beginn eines neuen Segments, aufsteigend).
+     *
+     * @param penalty          Strafe pro Changepoint; null = {@link #defaultPenalty}
+     * @param minSegmentLength minimale Segmentlänge (&gt;= 1; für meanvar mindestens 2)
+     */
+    public static int[] detect(double[] values, Cost cost, Double penalty, int minSegmentLength) {
+        int n = values.length;
+        int m = Math.max(1, minSegmentLength);
+        if (cost == Cost.MEANVAR) m = Math.max(2, m);
+        if (n < 2 * m) return new int[0];
+
+        double beta = penalty == null ? defaultPenalty(values, cost) : penalty;
+        if (beta < 0 || Double.isNaN(beta)) {
+            throw new IllegalArgumentException("penalty muss >= 0 sein.");
+        }
+        return new PeltDetector(values, cost).run(n, beta, m);
+    }
+
+    private int[] run(int n, double beta, int m) {
+        double[] F = new double[n + 1];
+        int[] last = new int[n + 1];
+        Arrays.fill(F, Double.POSITIVE_INFINITY);
+        F[0] = 0.0;
+
+        int[] candidates = new int[n + 1];
+        double[] candidateCost = new double[n + 1];
+        int size = 0;
+
+        for (int t = m; t <= n; t++) {
+            // Kandidat t-m wird nutzbar, sobald das Segment (t-m, t] die Mindestlänge hat.
+            int fresh = t - m;
+            if (fresh == 0 || fresh >= m) candidates[size++] = fresh;
+
+            double best = Double.POSITIVE_INFINITY;
+            int bestTau = 0;
+            for (int i = 0; i < size; i++) {
+                int tau = candidates[i];
+                double c = F[tau] + segmentCost(tau, t);
+                candidateCost[i] = c;
+                if (c < best) {
+                    best = c;
+                    bestTau = tau;
+                }
+            }
+            F[t] = best + beta;
+            last[t] = bestTau;
+
+            // Pruning (K = 0): tau bleibt nur, wenn F[tau] + C(tau, t) <= F[t].
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (candidateCost[i] <= F[t]) candidates[kept++] = candidates[i];
+            }
+            size = kept;
+        }
+
+        int count = 0;
+        for (int cp = last[n]; cp > 0; cp = last[cp]) count++;
+        int[] result = new int[count];
+        for (int cp = last[n], i = count - 1; cp > 0; cp = last[cp], i--) result[i] = cp;
+        return result;
+    }
+
+    /** Kosten für das Segment [start, end). */
+    private double segmentCost(int start, int end) {
+        double s = cumsum[end] - cumsum[start];
+        int len = end - start;
+        switch (cost) {
+            case MEANVAR: {
+                double sq = cumsumSq[end] - cumsumSq[start];
+                double var = Math.max(MIN_VARIANCE, (sq - s * s / len) / len);
+                return len * (Math.log(2.0 * Math.PI * var) + 1.0);
+            }
+            case POISSON:
+                return s <= 0.0 ? 0.0 : 2.0 * (s - s * Math.log(s / len));
+            default: {
+                double sq = cumsumSq[end] - cumsumSq[start];
+                return Math.max(0.0, sq - s * s / len);
+            }
+        }
+    }
+
+    private static double robustVariance(double[] values) {
+        int n = values.length;
+        if (n < 3) return 1.0;
+        double[] diffs = new double[n - 1];
+        for (int i = 1; i < n; i++) diffs[i - 1] = values[i] - values[i - 1];
+        double med = median(diffs);
+        for (int i = 0; i < diffs.length; i++) diffs[i] = Math.abs(diffs[i] - med);
+        // MAD -> sigma (Faktor 1.4826), Differenzen haben die doppelte Varianz
+        double sigma = 1.4826 * median(diffs) / Math.sqrt(2.0);
+        return sigma > 0 ? sigma * sigma : 1.0;
+    }
+
+    private static double median(double[] a) {
+        double[] copy = a.clone();
+        Arrays.sort(copy);
+        int mid = copy.length / 2;
+        return copy.length % 2 == 1 ? copy[mid] : 0.5 * (copy[mid - 1] + copy[mid]);
+    }
+}
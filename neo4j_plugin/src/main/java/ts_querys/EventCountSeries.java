@@ -0,0 +1,104 @@
+package ts_querys;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.logging.Log;
+import org.neo4j.procedure.*;
+import result_classes.TimeSeriesResult;
+import util.EventCountRollup;
+import util.EventUtil;
+import util.TimeSeriesUtil;
+import util.TimeWindow;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static util.EventCountRollup.alignDown;
+import static util.EventCountRollup.alignUp;
+
+/**
+ * Anzahl von :event-Knoten je Zeitbucket als Zeitreihe, z.B. Deployments oder Fehler pro Minute.
+ * <p>
+ * Liest aus der {@link EventCountRollup} (O(Buckets)), wenn step ein Vielfaches einer Minute ist und der Filter
+ * höchstens eine geführte Property enthält; sonst werden die Zeitpunkte über {@link EventUtil} geladen und gezählt.
+ */
+public class EventCountSeries {
+
+    /** Schutz vor versehentlich riesigen Ergebnissen (z.B. step '1s' über ein Jahr). */
+    private static final long MAX_BUCKETS = 100_000L;
+
+    @Context
+    public GraphDatabaseService db;
+
+    @Context
+    public Log log;
+
+    @Procedure(name = "graphobs.data.event_count_series", mode = Mode.READ)
+    @Description("Anzahl der Events je Zeitbucket als Zeitreihe ('count'). label: zusätzliches Event-Label (leer = alle). " +
+            "params: step (Default '1m'), startTime/endTime oder time + range, filter (Map mit Property-Gleichheiten). " +
+            "Buckets sind an der Epoche ausgerichtet, leere Buckets werden mit 0 ausgegeben.")
+    public Stream<TimeSeriesResult> eventCountSeries(
+            @Name(value = "label", defaultValue = "") String label,
+            @Name(value = "params", defaultValue = "{}") Map<String, Object> params
+    ) {
+        long step = TimeSeriesUtil.parseDuration(params.getOrDefault("step", "1m"));
+        if (step <= 0) throw new IllegalArgumentException("step muss > 0 sein.");
+        Map<String, Object> filter = filter(params.get("filter"));
+        TimeWindow window = TimeSeriesUtil.extractTimeWindow(params, log);
+        if (window.endTime <= window.startTime) return Stream.empty();
+
+        SortedMap<Long, Long> counts;
+        EventCountRollup rollup = EventCountRollup.of(db);
+        if (step % EventCountRollup.MINUTE == 0 && rollup.covers(label, filter)) {
+            counts = rollup.counts(label, filter, step, window.startTime, window.endTime);
+        } else {
+            log.debug("event_count_series: kein Rollup für label=%s, filter=%s, step=%d ms, zähle Events.", label, filter, step);
+            counts = scan(label, filter, step, window);
+        }
+
+        // Unbeschränktes Fenster: vom ersten bis zum letzten nicht-leeren Bucket
+        long from, to;
+        if (window.startTime > 0L) from = alignDown(window.startTime, step);
+        else if (!counts.isEmpty()) from = counts.firstKey();
+        else return Stream.empty();
+        if (window.endTime < Long.MAX_VALUE) to = alignUp(window.endTime, step);
+        else if (!counts.isEmpty()) to = counts.lastKey() + step;
+        else return Stream.empty();
+
+        if ((to - from) / step > MAX_BUCKETS) {
+            throw new IllegalArgumentException("Zu viele Buckets (" + (to - from) / step + "), max. " + MAX_BUCKETS
+                    + ". Größeren step oder kleineres Zeitfenster wählen.");
+        }
+
+        int size = (int) ((to - from) / step);
+        List<String> timestamps = new ArrayList<>(size);
+        List<Double> values = new ArrayList<>(size);
+        for (long bucket = from; bucket < to; bucket += step) {
+            timestamps.add(Instant.ofEpochMilli(bucket).toString());
+            values.add(counts.getOrDefault(bucket, 0L).doubleValue());
+        }
+        return Stream.of(new TimeSeriesResult(timestamps, Map.of("count", values)));
+    }
+
+    /** Fallback: Zeitpunkte im auf ganze Buckets erweiterten Fenster laden und zählen. */
+    private SortedMap<Long, Long> scan(String label, Map<String, Object> filter, long step, TimeWindow window) {
+        long start = window.startTime > 0L ? alignDown(window.startTime, step) : window.startTime;
+        long end = window.endTime < Long.MAX_VALUE ? alignUp(window.endTime, step) : window.endTime;
+        SortedMap<Long, Long> counts = new TreeMap<>();
+        try (Transaction tx = db.beginTx()) {
+            for (long t : EventUtil.loadEventTimes(tx, label, new TimeWindow(start, end), filter)) {
+                counts.merge(alignDown(t, step), 1L, Long::sum);
+            }
+        }
+        return counts;
+    }
+
+    private static Map<String, Object> filter(Object raw) {
+        if (raw == null) return Map.of();
+        if (!(raw instanceof Map)) throw new IllegalArgumentException("filter muss eine Map sein.");
+        Map<String, Object> filter = new LinkedHashMap<>();
+        ((Map<?, ?>) raw).forEach((key, value) -> filter.put(String.valueOf(key), value));
+        return filter;
+    }
+}
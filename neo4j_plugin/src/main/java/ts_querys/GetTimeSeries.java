@@ -85,7 +85,7 @@ public class GetTimeSeries {
                                                               String tsName,
                                                               Map<String, Object> params) {
         // Aggregation & Period aus params extrahieren
-        String aggregation = (String) params.getOrDefault("aggregation", "");
+        Object aggregation = params.getOrDefault("aggregation", "");
         long period = ((Number) params.getOrDefault("period", 0L)).longValue();
 
         String podName = (String) params.getOrDefault("pod", "");
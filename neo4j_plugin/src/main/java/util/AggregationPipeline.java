@@ -0,0 +1,399 @@
+package util;
+
+import aggregation_functions.Rate_Increase;
+import result_classes.TimeSeriesResult;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Verkettete Aggregationen (z.B. derivative -> moving_average -> binned_average) als Operator-Kette.
+ * <p>
+ * Jede Stufe ist ein Push-Operator auf (Epoch-Millis, double); streamingfähige Stufen reichen ihre Ausgabe
+ * direkt an die nächste weiter, sodass die ganze Kette in einem Durchgang über primitive Puffer läuft und keine
+ * Zwischen-{@link TimeSeriesResult}s entstehen. Stufen, die alle Punkte brauchen (linear_regression, rate, irate,
+ * increase), sammeln intern und geben erst bei finish() weiter.
+ * <p>
+ * Spezifikation: ein Name ("derivative") oder eine Liste aus Namen bzw. Maps
+ * ({@code {op: 'moving_average', window: 5}}, {@code {op: 'binned_average', interval: 60}},
+ * {@code {op: 'rate', window: '5m'}}). Fehlt window/interval, gilt der globale period-Parameter.
+ */
+public final class AggregationPipeline {
+
+    public static final List<String> OPERATIONS = List.of(
+            "binned_average", "cu_sum", "integral", "time_integral", "difference", "derivative",
+            "linear_regression", "moving_average", "rate", "irate", "increase");
+
+    private final List<Map<String, Object>> stages;
+
+    private AggregationPipeline(List<Map<String, Object>> stages) {
+        this.stages = stages;
+    }
+
+    /**
+     * @param spec   String, Map oder Liste daraus
+     * @param period Default für window/interval der Stufen
+     * @throws IllegalArgumentException bei unbekannten Stufen oder fehlenden Parametern
+     */
+    public static AggregationPipeline parse(Object spec, long period) {
+        List<Object> raw = spec instanceof List ? new ArrayList<>((List<?>) spec) : List.of(spec);
+        List<Map<String, Object>> stages = new ArrayList<>(raw.size());
+        for (Object entry : raw) {
+            Map<String, Object> stage = new HashMap<>();
+            if (entry instanceof Map) {
+                ((Map<?, ?>) entry).forEach((k, v) -> stage.put(k.toString(), v));
+            } else if (entry != null) {
+                stage.put("op", entry.toString());
+            }
+            Object op = stage.get("op");
+            if (op == null || !OPERATIONS.contains(op.toString())) {
+                throw new IllegalArgumentException("Unbekannte Aggregation '" + op + "'. Erlaubt: " + OPERATIONS);
+            }
+            stage.putIfAbsent("period", period);
+            stages.add(stage);
+        }
+        return new AggregationPipeline(stages);
+    }
+
+    public static boolean isEmpty(Object spec) {
+        if (spec == null) return true;
+        if (spec instanceof List) return ((List<?>) spec).isEmpty();
+        return spec.toString().isBlank();
+    }
+
+    /**
+     * Jede Spalte läuft über alle Eingabezeiten; fehlende Werte am Ende einer kürzeren Spalte zählen wie null als NaN.
+     * Die Zeitachse entsteht aus einem eigenen Lauf über die Eingabezeiten, da keine Stufe Zeiten wertabhängig
+     * ausgibt, und gilt damit für jede Spalte.
+     */
+    public TimeSeriesResult apply(TimeSeriesResult raw) {
+        String[] stamps = raw.timestamps.toArray(new String[0]);
+        long[] times = Rate_Increase.toMillis(stamps);
+
+        Buffer axis = run(times, null);
+        Map<String, List<Double>> outValues = new HashMap<>();
+        for (Map.Entry<String, List<Double>> entry : raw.values.entrySet()) {
+            Buffer out = run(times, entry.getValue());
+            List<Double> boxed = new ArrayList<>(out.size);
+            for (int i = 0; i < out.size; i++) boxed.add(out.values[i]);
+            outValues.put(entry.getKey(), boxed);
+        }
+        return new TimeSeriesResult(timestamps(axis, times, stamps), outValues);
+    }
+
+    /** Ein Durchlauf der Kette über alle Eingabezeiten; values null = nur NaN (für die Zeitachse). */
+    private Buffer run(long[] times, List<Double> values) {
+        Buffer out = new Buffer(times.length);
+        Op head = build(out);
+        int n = values == null ? 0 : Math.min(times.length, values.size());
+        for (int i = 0; i < times.length; i++) {
+            Double v = i < n ? values.get(i) : null;
+            head.push(times[i], v == null ? Double.NaN : v);
+        }
+        head.finish();
+        return out;
+    }
+
+    private Op build(Buffer sink) {
+        Op next = sink;
+        for (int i = stages.size() - 1; i >= 0; i--) {
+            Op op = create(stages.get(i));
+            op.next = next;
+            next = op;
+        }
+        return next;
+    }
+
+    private static Op create(Map<String, Object> stage) {
+        String op = stage.get("op").toString();
+        switch (op) {
+            case "binned_average":
+                return new BinnedAverage(positive(stage, "interval", op) * 1000L);
+            case "cu_sum":
+                return new CumulativeSum();
+            case "integral":
+                return new Integral();
+            case "time_integral":
+                return new TrapezoidIntegral();
+            case "difference":
+                return new Difference(false);
+            case "derivative":
+                return new Difference(true);
+            case "linear_regression":
+                return new LinearRegression();
+            case "moving_average":
+                return new MovingAverage((int) positive(stage, "window", op));
+            case "rate":
+                return new Counter(Rate_Increase.Kind.RATE, duration(stage));
+            case "irate":
+                return new Counter(Rate_Increase.Kind.IRATE, duration(stage));
+            case "increase":
+                return new Counter(Rate_Increase.Kind.INCREASE, duration(stage));
+            default:
+                throw new IllegalArgumentException("Unbekannte Aggregation '" + op + "'.");
+        }
+    }
+
+    private static long positive(Map<String, Object> stage, String key, String op) {
+        Object value = stage.containsKey(key) ? stage.get(key) : stage.get("period");
+        long n = value instanceof Number ? ((Number) value).longValue() : 0L;
+        if (n <= 0) throw new IllegalArgumentException(op + " benötigt " + key + " (oder period) > 0.");
+        return n;
+    }
+
+    private static long duration(Map<String, Object> stage) {
+        long window = TimeSeriesUtil.parseDuration(stage.getOrDefault("window", "5m"));
+        if (window <= 0) throw new IllegalArgumentException("window muss > 0 sein.");
+        return window;
+    }
+
+    /** Ausgabezeiten auf die Original-Strings abbilden, wo sie Eingabezeiten sind (beide aufsteigend). */
+    private static List<String> timestamps(Buffer out, long[] inTimes, String[] inStamps) {
+        List<String> result = new ArrayList<>(out.size);
+        int j = 0;
+        for (int i = 0; i < out.size; i++) {
+            long t = out.times[i];
+            while (j < inTimes.length && inTimes[j] < t) j++;
+            result.add(j < inTimes.length && inTimes[j] == t ? inStamps[j] : Instant.ofEpochMilli(t).toString());
+        }
+        return result;
+    }
+
+    // --- Operatoren ---
+
+    private abstract static class Op {
+        Op next;
+
+        abstract void push(long t, double v);
+
+        void finish() {
+            next.finish();
+        }
+    }
+
+    private static final class Buffer extends Op {
+        long[] times;
+        double[] values;
+        int size;
+
+        Buffer(int capacity) {
+            times = new long[Math.max(capacity, 8)];
+            values = new double[times.length];
+        }
+
+        @Override
+        void push(long t, double v) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            times[size] = t;
+            values[size++] = v;
+        }
+
+        @Override
+        void finish() {
+        }
+    }
+
+    /** difference bzw. derivative (pro Sekunde, dt = 0 zählt als 1 ms); ab dem zweiten Punkt. */
+    private static final class Difference extends Op {
+        private final boolean perSecond;
+        private boolean primed;
+        private long prevT;
+        private double prevV;
+
+        Difference(boolean perSecond) {
+            this.perSecond = perSecond;
+        }
+
+        @Override
+        void push(long t, double v) {
+            if (primed) {
+                double delta = v - prevV;
+                if (perSecond) {
+                    long dt = t - prevT;
+                    delta /= (dt == 0 ? 1 : dt) / 1000.0;
+                }
+                next.push(t, delta);
+            }
+            primed = true;
+            prevT = t;
+            prevV = v;
+        }
+    }
+
+    private static final class CumulativeSum extends Op {
+        private double sum;
+
+        @Override
+        void push(long t, double v) {
+            sum += v;
+            next.push(t, sum);
+        }
+    }
+
+    /** Linksseitige Summe Wert × Sekunden wie calc_integral; ab dem zweiten Punkt. */
+    private static final class Integral extends Op {
+        private boolean primed;
+        private long prevT;
+        private double prevV;
+        private double integral;
+
+        @Override
+        void push(long t, double v) {
+            if (primed) {
+                integral += prevV * ((t - prevT) / 1000.0);
+                next.push(t, integral);
+            }
+            primed = true;
+            prevT = t;
+            prevV = v;
+        }
+    }
+
+    private static final class TrapezoidIntegral extends Op {
+        private boolean primed;
+        private long prevT;
+        private double prevV;
+        private double integral;
+
+        @Override
+        void push(long t, double v) {
+            if (primed) integral += 0.5 * (v + prevV) * ((t - prevT) / 1000.0);
+            next.push(t, integral);
+            primed = true;
+            prevT = t;
+            prevV = v;
+        }
+    }
+
+    /** Gleitender Mittelwert über window Punkte mit laufender Summe; NaN im Fenster ergibt NaN. */
+    private static final class MovingAverage extends Op {
+        private final double[] ring;
+        private int count;
+        private int nanCount;
+        private double sum;
+
+        MovingAverage(int window) {
+            this.ring = new double[window];
+        }
+
+        @Override
+        void push(long t, double v) {
+            int slot = count % ring.length;
+            if (count >= ring.length) {
+                double old = ring[slot];
+                if (Double.isNaN(old)) nanCount--; else sum -= old;
+            }
+            ring[slot] = v;
+            if (Double.isNaN(v)) nanCount++; else sum += v;
+            count++;
+            if (count >= ring.length) next.push(t, nanCount > 0 ? Double.NaN : sum / ring.length);
+        }
+    }
+
+    /** Mittelwert je Intervall ab dem ersten Zeitstempel; leere Intervalle ergeben 0.0 wie calc_binned_average. */
+    private static final class BinnedAverage extends Op {
+        private final long interval;
+        private boolean started;
+        private long binStart;
+        private double sum;
+        private int count;
+
+        BinnedAverage(long interval) {
+            this.interval = interval;
+        }
+
+        @Override
+        void push(long t, double v) {
+            if (!started) {
+                started = true;
+                binStart = t;
+            }
+            while (t >= binStart + interval) flush();
+            if (!Double.isNaN(v)) {
+                sum += v;
+                count++;
+            }
+        }
+
+        private void flush() {
+            next.push(binStart, count == 0 ? 0.0 : sum / count);
+            binStart += interval;
+            sum = 0;
+            count = 0;
+        }
+
+        @Override
+        void finish() {
+            if (started) flush();
+            next.finish();
+        }
+    }
+
+    /** Basisklasse für Stufen, die alle Punkte benötigen. */
+    private abstract static class Collecting extends Op {
+        long[] times = new long[64];
+        double[] values = new double[64];
+        int size;
+
+        @Override
+        void push(long t, double v) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            times[size] = t;
+            values[size++] = v;
+        }
+
+        @Override
+        void finish() {
+            long[] t = Arrays.copyOf(times, size);
+            double[] out = compute(t, Arrays.copyOf(values, size));
+            for (int i = 0; i < out.length; i++) next.push(t[i], out[i]);
+            next.finish();
+        }
+
+        abstract double[] compute(long[] t, double[] v);
+    }
+
+    /** Regressionsgerade gegen Sekunden seit dem ersten Punkt, wie calc_linear_regression. */
+    private static final class LinearRegression extends Collecting {
+        @Override
+        double[] compute(long[] t, double[] v) {
+            int n = t.length;
+            double sumX = 0, sumY = 0, sumXY = 0, sumX2 = 0;
+            for (int i = 0; i < n; i++) {
+                double x = (t[i] - t[0]) / 1000.0;
+                sumX += x;
+                sumY += v[i];
+                sumXY += x * v[i];
+                sumX2 += x * x;
+            }
+            double slope = (n * sumXY - sumX * sumY) / (n * sumX2 - sumX * sumX);
+            double intercept = (sumY - slope * sumX) / n;
+            double[] out = new double[n];
+            for (int i = 0; i < n; i++) out[i] = slope * ((t[i] - t[0]) / 1000.0) + intercept;
+            return out;
+        }
+    }
+
+    private static final class Counter extends Collecting {
+        private final Rate_Increase.Kind kind;
+        private final long window;
+
+        Counter(Rate_Increase.Kind kind, long window) {
+            this.kind = kind;
+            this.window = window;
+        }
+
+        @Override
+        double[] compute(long[] t, double[] v) {
+            return kind == Rate_Increase.Kind.IRATE
+                    ? Rate_Increase.irate(t, v, window, t)
+                    : Rate_Increase.extrapolatedIncrease(t, v, window, t, kind == Rate_Increase.Kind.RATE);
+        }
+    }
+}
@@ -8,7 +8,6 @@ import result_classes.TimeSeriesResult;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.stream.Collectors;
 
 public class ComparisonUtil {
@@ -22,33 +21,8 @@ public class ComparisonUtil {
                     .collect(Collectors.toList());
 
             for (TimeSeriesResult tsResult : results) {
-                if (tsResult == null || tsResult.values == null || tsResult.values.isEmpty()) continue;
-
-                List<Double> values = tsResult.values.get(metric);
-                if (values == null || values.isEmpty()) {
-                    // fallback: erste Serie nehmen
-                    if (!tsResult.values.isEmpty()) {
-                        values = tsResult.values.values().iterator().next();
-                    }
-                }
-
-                if (values != null && !values.isEmpty()) {
-                    List<Double> cleaned = values.stream()
-                            .filter(Objects::nonNull)
-                            .map(v -> (v.isNaN() || v.isInfinite()) ? 0.0 : v)
-                            .collect(Collectors.toList());
-
-                    if (!cleaned.isEmpty()) {
-                        double mean = meanFromList(cleaned);
-                        if (!Double.isNaN(mean)) {
-                            means.add(mean);
-                        } else {
-                            log.info("Computed NaN mean for node " + node.getElementId()
-                                    + " metric " + metric
-                                    + " for period options: " + periodOptions);
-                        }
-                    }
-                }
+                RunningStats stats = seriesStats(seriesValues(tsResult, metric));
+                if (stats != null) means.add(stats.getMean());
             }
         } catch (Exception e) {
             log.warn("Error computing means for node " + node.getElementId()
@@ -57,14 +31,65 @@ public class ComparisonUtil {
         return means;
     }
 
+    /**
+     * Mittelwerte aller Serien aller Knoten, parallel geholt (ein Wert pro Serie wie
+     * {@link #computeMeansForNodeAndPeriod}).
+     */
+    public static double[] collectMeans(List<Node> nodes, String metric, Map<String, Object> periodOptions,
+                                        GraphDatabaseService db, Log log) {
+        List<List<Double>> perNode = ParallelUtil.mapNodes(db, nodes,
+                node -> computeMeansForNodeAndPeriod(node, metric, periodOptions, db, log), log);
+        return perNode.stream()
+                .filter(list -> list != null)
+                .flatMap(List::stream)
+                .mapToDouble(Double::doubleValue)
+                .toArray();
+    }
+
+    /**
+     * Reduziert jede Serie eines Knotens auf eine {@link RunningStats}-Zusammenfassung, ohne Zwischenlisten.
+     * Nicht-endliche Werte werden übersprungen; leere Serien entfallen.
+     */
+    public static List<RunningStats> summarizeNode(Node node, String metric, Map<String, Object> periodOptions,
+                                                   GraphDatabaseService db, Log log) {
+        List<RunningStats> summaries = new ArrayList<>();
+        TimeSeriesUtil.getFilteredTimeSeries(node, metric, periodOptions, db, log).forEach(tsResult -> {
+            RunningStats stats = seriesStats(seriesValues(tsResult, metric));
+            if (stats != null) summaries.add(stats);
+        });
+        return summaries;
+    }
+
+    /** {@link #summarizeNode} für viele Knoten parallel; Reihenfolge wie nodes, Fehler ergeben eine leere Liste. */
+    public static List<List<RunningStats>> summarizeNodes(List<Node> nodes, String metric, Map<String, Object> periodOptions,
+                                                          GraphDatabaseService db, Log log) {
+        List<List<RunningStats>> perNode = ParallelUtil.mapNodes(db, nodes,
+                node -> summarizeNode(node, metric, periodOptions, db, log), log);
+        perNode.replaceAll(list -> list == null ? List.of() : list);
+        return perNode;
+    }
+
+    /**
+     * Zusammenfassung einer Serie für beide Vergleichswege; null und nicht-endliche Werte (Lücken) werden
+     * übersprungen. null, wenn kein Wert übrig bleibt.
+     */
+    static RunningStats seriesStats(List<Double> values) {
+        if (values == null) return null;
+        RunningStats stats = new RunningStats();
+        for (Double v : values) {
+            if (v != null && Double.isFinite(v)) stats.add(v);
+        }
+        return stats.getN() > 0 ? stats : null;
+    }
 
-    private static double meanFromList(List<Double> list) {
-        if (list == null || list.isEmpty()) return Double.NaN;
-        double s = 0.0;
-        for (Double d : list) {
-            if (d == null || d.isNaN() || d.isInfinite()) continue;
-            s += d;
+    /** Wert-Liste der Metrik, sonst die erste Serie des Ergebnisses. */
+    private static List<Double> seriesValues(TimeSeriesResult tsResult, String metric) {
+        if (tsResult == null || tsResult.values == null || tsResult.values.isEmpty()) return null;
+        List<Double> values = tsResult.values.get(metric);
+        if (values == null || values.isEmpty()) {
+            // fallback: erste Serie nehmen
+            values = tsResult.values.values().iterator().next();
         }
-        return s / list.size();
+        return values;
     }
 }
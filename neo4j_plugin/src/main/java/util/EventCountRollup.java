@@ -0,0 +1,402 @@
+package util;
+
+import org.neo4j.graphdb.*;
+import org.neo4j.graphdb.event.LabelEntry;
+import org.neo4j.graphdb.event.PropertyEntry;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.logging.Log;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Im Speicher gehaltene Anzahl von :event-Knoten je Minute, aufgeteilt nach Dimension:
+ * alle Events, je zusätzlichem Label, je String/Boolean-Property (key = value) sowie Label × Property.
+ * Eine Zählreihe für ein Zeitfenster ist damit ein Bereichs-Lesen über die Minuten statt eines Scans über Events.
+ * <p>
+ * Gepflegt wie der {@link TemporalIndex}: beforeCommit ermittelt aus altem und neuem Zustand jedes betroffenen Events
+ * die Zähländerungen, afterCommit wendet sie an. Properties mit mehr als {@link #MAX_VALUES_PER_PROPERTY}
+ * verschiedenen Werten (IDs o.ä.) werden nicht weiter geführt; Filter darauf fallen auf den Scan zurück.
+ * Transaktionen, die während des Aufbaus committen, werden gegen den Zustand verrechnet, den der Scan für das
+ * jeweilige Event gezählt hat (siehe {@link #rebuild}).
+ */
+public final class EventCountRollup {
+
+    public static final long MINUTE = 60_000L;
+    static final int MAX_VALUES_PER_PROPERTY = 1000;
+    private static final int MAX_VALUE_LENGTH = 128;
+    private static final Set<String> IGNORED_KEYS = Set.of("time", TemporalProperties.TIME_MS);
+    private static final String EVENT = TemporalProperties.EVENT_LABEL;
+    private static final int BATCH_SIZE = 10_000;
+
+    private static final ConcurrentMap<String, EventCountRollup> ROLLUPS = new ConcurrentHashMap<>();
+
+    public static EventCountRollup of(GraphDatabaseService db) {
+        return ROLLUPS.computeIfAbsent(db.databaseName(), name -> new EventCountRollup());
+    }
+
+    /** Dimension -> (Minute seit Epoch -> Anzahl). */
+    private volatile ConcurrentMap<String, ConcurrentSkipListMap<Long, Long>> series = new ConcurrentHashMap<>();
+    /** Label + Property-Key mit zu vielen Werten, siehe {@link #MAX_VALUES_PER_PROPERTY}. */
+    private final Set<String> overflowed = ConcurrentHashMap.newKeySet();
+    private final ConcurrentMap<String, Set<String>> valuesPerProperty = new ConcurrentHashMap<>();
+    private final List<Changes> pending = new ArrayList<>();
+    /** Events, die Transaktionen vor dem Ende des Aufbaus ändern (in beforeCommit, also vor deren Commit). */
+    private final Set<String> registered = ConcurrentHashMap.newKeySet();
+    /** Je registriertem Event der zuletzt gezählte Zustand (null = nicht gezählt); unter dem Lock von pending. */
+    private Map<String, State> bases;
+    /** Bis zum Ende des (ersten) Aufbaus true: collect registriert Events, siehe {@link #rebuild}. */
+    private volatile boolean registering = true;
+    private volatile boolean ready;
+    private boolean building;
+
+    private EventCountRollup() {}
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /** Zähländerungen einer Transaktion: Dimension -> (Minute -> Delta). */
+    public static final class Changes {
+        final Map<String, Map<Long, Long>> deltas = new HashMap<>();
+        /** Nur vor dem Ende des Aufbaus: elementId -> {Zustand vorher, Zustand nachher}. */
+        Map<String, State[]> nodes;
+
+        void add(Set<String> dimensions, long minute, long delta) {
+            for (String dimension : dimensions) {
+                deltas.computeIfAbsent(dimension, d -> new HashMap<>()).merge(minute, delta, Long::sum);
+            }
+        }
+
+        public boolean isEmpty() {
+            if (nodes != null && !nodes.isEmpty()) return false;
+            for (Map<Long, Long> byMinute : deltas.values()) {
+                for (long d : byMinute.values()) if (d != 0) return false;
+            }
+            return true;
+        }
+    }
+
+    // --- Dimensionen ---
+
+    /** Schlüssel einer Dimension; leeres Label bzw. leerer Property-Key = nicht eingeschränkt. */
+    static String dimension(String label, String key, Object value) {
+        return label + '\u0000' + key + '\u0000' + (key.isEmpty() ? "" : String.valueOf(value));
+    }
+
+    private static String property(String label, String key) {
+        return label + '\u0000' + key;
+    }
+
+    private static boolean isDimensionValue(Object value) {
+        return value instanceof Boolean || (value instanceof String && ((String) value).length() <= MAX_VALUE_LENGTH);
+    }
+
+    /** Alle Dimensionen eines Events mit den gegebenen Labels und Properties. */
+    static Set<String> dimensions(Collection<String> labels, Map<String, Object> properties) {
+        List<String> extraLabels = new ArrayList<>();
+        extraLabels.add("");
+        for (String label : labels) if (!EVENT.equals(label)) extraLabels.add(label);
+
+        Set<String> out = new HashSet<>();
+        for (String label : extraLabels) {
+            out.add(dimension(label, "", null));
+            for (Map.Entry<String, Object> p : properties.entrySet()) {
+                if (IGNORED_KEYS.contains(p.getKey()) || !isDimensionValue(p.getValue())) continue;
+                out.add(dimension(label, p.getKey(), p.getValue()));
+            }
+        }
+        return out;
+    }
+
+    // --- Pflege ---
+
+    /** Zustand eines Events vor bzw. nach der Transaktion. */
+    private static final class State {
+        final Set<String> labels;
+        final Map<String, Object> properties;
+
+        State(Set<String> labels, Map<String, Object> properties) {
+            this.labels = labels;
+            this.properties = properties;
+        }
+
+        Long minute() {
+            // das Original zuerst: timeMs setzt der Listener erst in beforeCommit, es fehlt im alten Zustand
+            Object time = properties.get("time");
+            if (time == null) time = properties.get(TemporalProperties.TIME_MS);
+            if (time == null) return null;
+            try {
+                return Math.floorDiv(TimeSeriesUtil.toEpochMillis(time), MINUTE);
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Sammelt in beforeCommit die Zähländerungen: für jeden erstellten, gelöschten oder geänderten Knoten, der vorher
+     * oder nachher ein Event ist, -1 auf die alten und +1 auf die neuen Dimensionen.
+     */
+    public Changes collect(TransactionData data) {
+        Map<String, Node> touched = new LinkedHashMap<>();
+        Map<String, Map<String, Object>> previous = new HashMap<>();
+        Map<String, Set<String>> addedLabels = new HashMap<>();
+        Map<String, Set<String>> removedLabels = new HashMap<>();
+        Set<String> created = new HashSet<>();
+
+        for (Node node : data.createdNodes()) {
+            touched.put(node.getElementId(), node);
+            created.add(node.getElementId());
+        }
+        for (Node node : data.deletedNodes()) touched.put(node.getElementId(), node);
+        for (PropertyEntry<Node> entry : data.assignedNodeProperties()) {
+            String id = entry.entity().getElementId();
+            touched.putIfAbsent(id, entry.entity());
+            previous.computeIfAbsent(id, k -> new HashMap<>()).putIfAbsent(entry.key(), entry.previouslyCommittedValue());
+        }
+        for (PropertyEntry<Node> entry : data.removedNodeProperties()) {
+            String id = entry.entity().getElementId();
+            touched.putIfAbsent(id, entry.entity());
+            previous.computeIfAbsent(id, k -> new HashMap<>()).putIfAbsent(entry.key(), entry.previouslyCommittedValue());
+        }
+        for (LabelEntry entry : data.assignedLabels()) {
+            String id = entry.node().getElementId();
+            touched.putIfAbsent(id, entry.node());
+            addedLabels.computeIfAbsent(id, k -> new HashSet<>()).add(entry.label().name());
+        }
+        for (LabelEntry entry : data.removedLabels()) {
+            String id = entry.node().getElementId();
+            touched.putIfAbsent(id, entry.node());
+            removedLabels.computeIfAbsent(id, k -> new HashSet<>()).add(entry.label().name());
+        }
+
+        Changes changes = new Changes();
+        if (registering) changes.nodes = new HashMap<>();
+        for (Map.Entry<String, Node> e : touched.entrySet()) {
+            String id = e.getKey();
+            Node node = e.getValue();
+            boolean deleted = data.isDeleted(node);
+            boolean isNew = created.contains(id);
+            if (deleted && isNew) continue;
+            boolean wasEvent = removedLabels.getOrDefault(id, Set.of()).contains(EVENT);
+            if (!wasEvent && (deleted || !node.hasLabel(Label.label(EVENT)))) continue;
+
+            State after = deleted ? null : new State(labels(node), node.getAllProperties());
+            State before = null;
+            if (!isNew) {
+                Map<String, Object> props = after == null ? new HashMap<>() : new HashMap<>(after.properties);
+                Set<String> labels = after == null ? new HashSet<>() : new HashSet<>(after.labels);
+                previous.getOrDefault(id, Map.of()).forEach((key, value) -> {
+                    if (value == null) props.remove(key);
+                    else props.put(key, value);
+                });
+                labels.removeAll(addedLabels.getOrDefault(id, Set.of()));
+                labels.addAll(removedLabels.getOrDefault(id, Set.of()));
+                before = new State(labels, props);
+            }
+            count(changes, before, -1);
+            count(changes, after, +1);
+            if (changes.nodes != null) {
+                registered.add(id);
+                changes.nodes.put(id, new State[]{before, after});
+            }
+        }
+        return changes;
+    }
+
+    private static void count(Changes changes, State state, long delta) {
+        if (state == null || !state.labels.contains(EVENT)) return;
+        Long minute = state.minute();
+        if (minute != null) changes.add(dimensions(state.labels, state.properties), minute, delta);
+    }
+
+    private static Set<String> labels(Node node) {
+        Set<String> labels = new HashSet<>();
+        for (Label label : node.getLabels()) labels.add(label.name());
+        return labels;
+    }
+
+    /** Übernimmt die Änderungen einer committeten Transaktion (während des Aufbaus: nach dem Aufbau). */
+    public void apply(Changes changes) {
+        if (changes == null || changes.isEmpty()) return;
+        synchronized (pending) {
+            if (building) {
+                pending.add(changes);
+                return;
+            }
+            if (changes.nodes != null && bases != null) {
+                applyCorrected(series, changes);
+                return;
+            }
+        }
+        if (ready) applyTo(series, changes);
+    }
+
+    /** Änderungen je Event gegen den zuletzt gezählten Zustand statt gegen den Zustand vor der Transaktion. */
+    private void applyCorrected(ConcurrentMap<String, ConcurrentSkipListMap<Long, Long>> target, Changes changes) {
+        Changes corrected = new Changes();
+        changes.nodes.forEach((id, states) -> {
+            State counted = bases.containsKey(id) ? bases.put(id, states[1]) : states[0];
+            count(corrected, counted, -1);
+            count(corrected, states[1], +1);
+        });
+        applyTo(target, corrected);
+    }
+
+    private void applyTo(ConcurrentMap<String, ConcurrentSkipListMap<Long, Long>> target, Changes changes) {
+        changes.deltas.forEach((dimension, byMinute) -> {
+            if (!track(target, dimension)) return;
+            ConcurrentSkipListMap<Long, Long> counts = target.computeIfAbsent(dimension, d -> new ConcurrentSkipListMap<>());
+            byMinute.forEach((minute, delta) -> {
+                if (delta != 0) counts.merge(minute, delta, (a, b) -> a + b == 0 ? null : a + b);
+            });
+        });
+    }
+
+    /** false, wenn die Property der Dimension zu viele Werte hat und nicht (mehr) geführt wird. */
+    private boolean track(ConcurrentMap<String, ConcurrentSkipListMap<Long, Long>> target, String dimension) {
+        int second = dimension.indexOf('\u0000', dimension.indexOf('\u0000') + 1);
+        String label = dimension.substring(0, dimension.indexOf('\u0000'));
+        String key = dimension.substring(dimension.indexOf('\u0000') + 1, second);
+        if (key.isEmpty()) return true;
+        String property = property(label, key);
+        if (overflowed.contains(property)) return false;
+        Set<String> values = valuesPerProperty.computeIfAbsent(property, p -> ConcurrentHashMap.newKeySet());
+        values.add(dimension);
+        if (values.size() <= MAX_VALUES_PER_PROPERTY) return true;
+        overflowed.add(property);
+        for (String d : values) target.remove(d);
+        valuesPerProperty.remove(property);
+        return false;
+    }
+
+    /**
+     * Zählt alle Events neu; danach ist die Rollup bereit. Erst werden die elementIds aller Events gesammelt, dann
+     * die Events in Transaktionen zu je {@link #BATCH_SIZE} gelesen und gezählt.
+     * <p>
+     * Transaktionen, die bis zum Ende des Aufbaus committen, registrieren ihre Events schon in beforeCommit. Der Scan
+     * merkt sich für registrierte Events, was er gezählt hat; deren Änderungen werden danach gegen diesen Zustand
+     * statt gegen den Zustand vor der Transaktion verrechnet. Registrierte Events außerhalb der Id-Liste hat der Scan
+     * nie gezählt; bei allen übrigen hat er den Zustand vor der ersten Änderung gelesen.
+     */
+    public void rebuild(GraphDatabaseService db, Log log) {
+        synchronized (pending) {
+            registering = true;
+            ready = false;
+            building = true;
+            bases = null;
+        }
+        try {
+            valuesPerProperty.clear();
+            overflowed.clear();
+            List<String> ids = new ArrayList<>();
+            try (Transaction tx = db.beginTx();
+                 ResourceIterator<Node> it = tx.findNodes(Label.label(EVENT))) {
+                while (it.hasNext()) ids.add(it.next().getElementId());
+            }
+
+            ConcurrentMap<String, ConcurrentSkipListMap<Long, Long>> built = new ConcurrentHashMap<>();
+            Map<String, State> counted = new HashMap<>();
+            long events = 0;
+            for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+                Changes batch = new Changes();
+                try (Transaction tx = db.beginTx()) {
+                    for (String id : ids.subList(from, Math.min(ids.size(), from + BATCH_SIZE))) {
+                        State state = null;
+                        try {
+                            Node node = tx.getNodeByElementId(id);
+                            if (node.hasLabel(Label.label(EVENT))) state = new State(labels(node), node.getAllProperties());
+                        } catch (NotFoundException e) {
+                            // zwischenzeitlich gelöscht
+                        }
+                        if (state != null) events++;
+                        count(batch, state, +1);
+                        // erst lesen, dann prüfen: war das Event da noch nicht registriert, hat der Scan den
+                        // Zustand vor jeder Änderung während des Aufbaus gesehen
+                        if (registered.contains(id)) counted.put(id, state);
+                    }
+                }
+                applyTo(built, batch);
+            }
+            Set<String> unseen = new HashSet<>(registered);
+            unseen.removeAll(counted.keySet());
+            if (!unseen.isEmpty()) {
+                for (String id : ids) unseen.remove(id);
+                for (String id : unseen) counted.put(id, null);
+            }
+
+            synchronized (pending) {
+                series = built;
+                bases = counted;
+                for (Changes changes : pending) {
+                    if (changes.nodes != null) applyCorrected(series, changes);
+                    else applyTo(series, changes);
+                }
+                pending.clear();
+                registered.clear();
+                registering = false;
+                building = false;
+                ready = true;
+            }
+            if (log != null) log.info("Event count rollup built from %d events.", events);
+        } catch (Exception e) {
+            synchronized (pending) {
+                pending.clear();
+                registered.clear();
+                registering = false;
+                building = false;
+            }
+            if (log != null) log.warn("Event count rollup build failed: %s", e.getMessage());
+        }
+    }
+
+    // --- Anfragen ---
+
+    /** true, wenn label + properties durch eine geführte Dimension abgedeckt sind. */
+    public boolean covers(String label, Map<String, Object> properties) {
+        if (!ready) return false;
+        if (properties == null || properties.isEmpty()) return true;
+        if (properties.size() > 1) return false;
+        Map.Entry<String, Object> p = properties.entrySet().iterator().next();
+        return isDimensionValue(p.getValue()) && !IGNORED_KEYS.contains(p.getKey())
+                && !overflowed.contains(property(normalizeLabel(label), p.getKey()));
+    }
+
+    /**
+     * Anzahl je Bucket [b, b + step) der Länge step (Vielfaches einer Minute, an der Epoche ausgerichtet) für alle
+     * Buckets, die [from, to) berühren. Gezählt werden immer ganze Buckets.
+     *
+     * @return Bucket-Beginn (Epoch-Millis) -> Anzahl, nur nicht-leere Buckets, aufsteigend
+     */
+    public SortedMap<Long, Long> counts(String label, Map<String, Object> properties, long step, long from, long to) {
+        if (step <= 0 || step % MINUTE != 0) throw new IllegalArgumentException("step muss ein Vielfaches von 1m sein.");
+        String l = normalizeLabel(label);
+        String dimension = properties == null || properties.isEmpty()
+                ? dimension(l, "", null)
+                : dimension(l, properties.keySet().iterator().next(), properties.values().iterator().next());
+        SortedMap<Long, Long> out = new TreeMap<>();
+        ConcurrentSkipListMap<Long, Long> counts = series.get(dimension);
+        if (counts == null) return out;
+        long fromMinute = Math.floorDiv(alignDown(from, step), MINUTE);
+        long toMinute = to == Long.MAX_VALUE ? Long.MAX_VALUE : Math.floorDiv(alignUp(to, step), MINUTE);
+        for (Map.Entry<Long, Long> e : counts.subMap(fromMinute, true, toMinute, false).entrySet()) {
+            out.merge(alignDown(e.getKey() * MINUTE, step), e.getValue(), Long::sum);
+        }
+        return out;
+    }
+
+    public static long alignDown(long millis, long step) {
+        return Math.floorDiv(millis, step) * step;
+    }
+
+    public static long alignUp(long millis, long step) {
+        return -Math.floorDiv(-millis, step) * step;
+    }
+
+    private static String normalizeLabel(String label) {
+        return label == null || label.isBlank() || EVENT.equals(label) ? "" : label;
+    }
+}
@@ -0,0 +1,115 @@
+package util;
+
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+
+import java.util.*;
+
+/**
+ * Laden von :event-Knoten über Label + Zeitfenster.
+ * <p>
+ * Die Abfrage filtert direkt auf e.timeMs (Range-Index event(timeMs), siehe {@link TemporalProperties}) und liefert
+ * nur Zeitstempel bzw. elementIds zurück, keine Knoten. Ergebnis sind nach Zeit sortierte Epoch-Millis.
+ */
+public final class EventUtil {
+
+    private EventUtil() {}
+
+    /** Zeitpunkte + elementIds, parallel und nach Zeit sortiert. */
+    public static final class Events {
+        public final long[] times;
+        public final String[] elementIds;
+
+        Events(long[] times, String[] elementIds) {
+            this.times = times;
+            this.elementIds = elementIds;
+        }
+
+        public int size() {
+            return times.length;
+        }
+    }
+
+    /**
+     * Nur die Zeitpunkte der passenden Events.
+     *
+     * @param label      zusätzliches Label (z.B. "deployment"); null/leer oder "event" = alle Events
+     * @param window     Zeitfenster [start, end)
+     * @param properties optionale Gleichheitsfilter auf Event-Properties (z.B. {type: 'deployment'})
+     */
+    public static long[] loadEventTimes(Transaction tx, String label, TimeWindow window, Map<String, Object> properties) {
+        return load(tx, label, window, properties, false).times;
+    }
+
+    /** Wie {@link #loadEventTimes}, zusätzlich mit elementIds. */
+    public static Events loadEvents(Transaction tx, String label, TimeWindow window, Map<String, Object> properties) {
+        return load(tx, label, window, properties, true);
+    }
+
+    private static Events load(Transaction tx, String label, TimeWindow window, Map<String, Object> properties, boolean withIds) {
+        StringBuilder query = new StringBuilder("MATCH (e:event");
+        if (label != null && !label.isBlank() && !"event".equals(label)) {
+            query.append(":`").append(label.replace("`", "``")).append('`');
+        }
+        query.append(")");
+
+        Map<String, Object> params = new HashMap<>();
+        List<String> predicates = new ArrayList<>();
+        if (window != null && window.startTime > 0L) {
+            predicates.add("e.timeMs >= $start");
+            params.put("start", window.startTime);
+        }
+        if (window != null && window.endTime < Long.MAX_VALUE) {
+            predicates.add("e.timeMs < $end");
+            params.put("end", window.endTime);
+        }
+        if (properties != null) {
+            int i = 0;
+            for (Map.Entry<String, Object> entry : properties.entrySet()) {
+                String param = "p" + i++;
+                predicates.add("e.`" + entry.getKey().replace("`", "``") + "` = $" + param);
+                params.put(param, entry.getValue());
+            }
+        }
+        if (!predicates.isEmpty()) {
+            query.append(" WHERE ").append(String.join(" AND ", predicates));
+        }
+        query.append(withIds ? " RETURN e.timeMs AS t, elementId(e) AS id" : " RETURN e.timeMs AS t");
+
+        long[] times = new long[1024];
+        String[] ids = withIds ? new String[1024] : null;
+        int n = 0;
+        try (Result result = tx.execute(query.toString(), params)) {
+            while (result.hasNext()) {
+                Map<String, Object> row = result.next();
+                Object t = row.get("t");
+                if (t == null) continue;
+                if (n == times.length) {
+                    times = Arrays.copyOf(times, n * 2);
+                    if (withIds) ids = Arrays.copyOf(ids, n * 2);
+                }
+                times[n] = ((Number) t).longValue();
+                if (withIds) ids[n] = (String) row.get("id");
+                n++;
+            }
+        }
+
+        if (!withIds) {
+            long[] out = Arrays.copyOf(times, n);
+            Arrays.sort(out);
+            return new Events(out, new String[0]);
+        }
+
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        long[] unsorted = times;
+        Arrays.sort(order, Comparator.comparingLong(i -> unsorted[i]));
+        long[] sortedTimes = new long[n];
+        String[] sortedIds = new String[n];
+        for (int i = 0; i < n; i++) {
+            sortedTimes[i] = unsorted[order[i]];
+            sortedIds[i] = ids[order[i]];
+        }
+        return new Events(sortedTimes, sortedIds);
+    }
+}
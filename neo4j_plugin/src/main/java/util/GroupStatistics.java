@@ -0,0 +1,197 @@
+package util;
+
+import org.apache.commons.math3.distribution.ChiSquaredDistribution;
+import org.apache.commons.math3.distribution.FDistribution;
+import org.apache.commons.math3.distribution.NormalDistribution;
+import org.apache.commons.math3.stat.inference.TTest;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Gruppentests auf bereits reduzierten Stichproben (z.B. ein Mittelwert pro Knoten und Serie):
+ * Welch-t-Test auf {@link RunningStats}, Mann-Whitney-U (Normalapproximation mit Bindungskorrektur)
+ * und Bootstrap-Konfidenzintervall der Mittelwertdifferenz; für k Gruppen einfaktorielle ANOVA (nur aus den
+ * Zusammenfassungen), Kruskal-Wallis und Holm-Korrektur für paarweise Post-hoc-Tests.
+ */
+public final class GroupStatistics {
+
+    private GroupStatistics() {}
+
+    public static final class TestResult {
+        public final double statistic;
+        public final double pValue;
+
+        TestResult(double statistic, double pValue) {
+            this.statistic = statistic;
+            this.pValue = pValue;
+        }
+    }
+
+    /** Welch-t-Test (ungleiche Varianzen); NaN, wenn eine Gruppe weniger als zwei Werte hat. */
+    public static TestResult welch(RunningStats a, RunningStats b) {
+        if (a.getN() < 2 || b.getN() < 2) return new TestResult(Double.NaN, Double.NaN);
+        TTest tTest = new TTest();
+        return new TestResult(tTest.t(a, b), tTest.tTest(a, b));
+    }
+
+    /** Zweiseitiger Mann-Whitney-U-Test; statistic ist U der ersten Gruppe. */
+    public static TestResult mannWhitney(double[] a, double[] b) {
+        int n1 = a.length, n2 = b.length;
+        if (n1 == 0 || n2 == 0) return new TestResult(Double.NaN, Double.NaN);
+        double[][] samples = {a, b};
+        Ranks ranks = rank(samples);
+        double u1 = ranks.rankSums[0] - n1 * (n1 + 1) / 2.0;
+
+        double n = n1 + n2;
+        double mu = n1 * (double) n2 / 2.0;
+        double variance = n1 * (double) n2 / 12.0 * ((n + 1) - ranks.tieTerm / (n * (n - 1)));
+        if (variance <= 0) return new TestResult(u1, 1.0);
+        double z = (u1 - mu) / Math.sqrt(variance);
+        double p = 2.0 * new NormalDistribution().cumulativeProbability(-Math.abs(z));
+        return new TestResult(u1, Math.min(1.0, p));
+    }
+
+    /**
+     * Perzentil-Bootstrap für mean(b) - mean(a). Fester Seed, damit gleiche Eingaben gleiche Intervalle liefern.
+     *
+     * @return {lower, upper}
+     */
+    public static double[] bootstrapMeanDiff(double[] a, double[] b, int resamples, double confidence, long seed) {
+        if (a.length == 0 || b.length == 0 || resamples < 1) return new double[]{Double.NaN, Double.NaN};
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] diffs = new double[resamples];
+        for (int r = 0; r < resamples; r++) {
+            diffs[r] = resampleMean(b, random) - resampleMean(a, random);
+        }
+        Arrays.sort(diffs);
+        double tail = (1.0 - confidence) / 2.0;
+        int lo = (int) Math.floor(tail * (resamples - 1));
+        int hi = (int) Math.ceil((1.0 - tail) * (resamples - 1));
+        return new double[]{diffs[lo], diffs[hi]};
+    }
+
+    private static double resampleMean(double[] values, SplittableRandom random) {
+        double sum = 0;
+        for (int i = 0; i < values.length; i++) sum += values[random.nextInt(values.length)];
+        return sum / values.length;
+    }
+
+    /** Einfaktorielle ANOVA aus Gruppen-Zusammenfassungen; statistic ist F. */
+    public static TestResult anova(List<RunningStats> groups) {
+        int k = 0;
+        long total = 0;
+        RunningStats all = new RunningStats();
+        for (RunningStats g : groups) {
+            if (g.getN() == 0) continue;
+            k++;
+            total += g.getN();
+            all.merge(g);
+        }
+        if (k < 2 || total <= k) return new TestResult(Double.NaN, Double.NaN);
+        double grand = all.getMean();
+        double ssBetween = 0, ssWithin = 0;
+        for (RunningStats g : groups) {
+            if (g.getN() == 0) continue;
+            double d = g.getMean() - grand;
+            ssBetween += g.getN() * d * d;
+            if (g.getN() > 1) ssWithin += (g.getN() - 1) * g.getVariance();
+        }
+        double dfBetween = k - 1, dfWithin = total - k;
+        if (ssWithin == 0) return new TestResult(ssBetween == 0 ? Double.NaN : Double.POSITIVE_INFINITY, ssBetween == 0 ? 1.0 : 0.0);
+        double f = (ssBetween / dfBetween) / (ssWithin / dfWithin);
+        double p = 1.0 - new FDistribution(dfBetween, dfWithin).cumulativeProbability(f);
+        return new TestResult(f, p);
+    }
+
+    /** Kruskal-Wallis-Test mit Bindungskorrektur (Chi²-Approximation); statistic ist H. */
+    public static TestResult kruskalWallis(double[][] groups) {
+        int k = 0, total = 0;
+        for (double[] g : groups) {
+            if (g.length > 0) k++;
+            total += g.length;
+        }
+        if (k < 2 || total < 3) return new TestResult(Double.NaN, Double.NaN);
+        Ranks ranks = rank(groups);
+        double sum = 0;
+        for (int g = 0; g < groups.length; g++) {
+            if (groups[g].length > 0) sum += ranks.rankSums[g] * ranks.rankSums[g] / groups[g].length;
+        }
+        double n = total;
+        double h = 12.0 / (n * (n + 1)) * sum - 3.0 * (n + 1);
+        double correction = 1.0 - ranks.tieTerm / (n * n * n - n);
+        if (correction <= 0) return new TestResult(Double.NaN, 1.0);
+        h /= correction;
+        double p = 1.0 - new ChiSquaredDistribution(k - 1).cumulativeProbability(h);
+        return new TestResult(h, p);
+    }
+
+    /** Holm-Bonferroni-adjustierte p-Werte (gleiche Reihenfolge wie die Eingabe, NaN bleibt NaN). */
+    public static double[] holm(double[] pValues) {
+        int m = 0;
+        for (double p : pValues) if (!Double.isNaN(p)) m++;
+        Integer[] order = new Integer[pValues.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (x, y) -> Double.compare(
+                Double.isNaN(pValues[x]) ? Double.POSITIVE_INFINITY : pValues[x],
+                Double.isNaN(pValues[y]) ? Double.POSITIVE_INFINITY : pValues[y]));
+
+        double[] adjusted = new double[pValues.length];
+        double running = 0;
+        for (int rank = 0; rank < order.length; rank++) {
+            int i = order[rank];
+            if (Double.isNaN(pValues[i])) {
+                adjusted[i] = Double.NaN;
+                continue;
+            }
+            running = Math.max(running, Math.min(1.0, (m - rank) * pValues[i]));
+            adjusted[i] = running;
+        }
+        return adjusted;
+    }
+
+    /** Rangsummen je Gruppe bei gemeinsamer Rangvergabe über alle Gruppen (Bindungen gemittelt). */
+    static final class Ranks {
+        final double[] rankSums;
+        /** Summe (t³ - t) über alle Bindungsgruppen. */
+        final double tieTerm;
+
+        Ranks(double[] rankSums, double tieTerm) {
+            this.rankSums = rankSums;
+            this.tieTerm = tieTerm;
+        }
+    }
+
+    static Ranks rank(double[][] groups) {
+        int total = 0;
+        for (double[] g : groups) total += g.length;
+        double[] values = new double[total];
+        int[] groupOf = new int[total];
+        int k = 0;
+        for (int g = 0; g < groups.length; g++) {
+            for (double v : groups[g]) {
+                values[k] = v;
+                groupOf[k++] = g;
+            }
+        }
+        // Indizes nach Wert sortieren, Gruppenzugehörigkeit bleibt über groupOf erhalten
+        Integer[] order = new Integer[total];
+        for (int i = 0; i < total; i++) order[i] = i;
+        Arrays.sort(order, (x, y) -> Double.compare(values[x], values[y]));
+
+        double[] rankSums = new double[groups.length];
+        double tieTerm = 0;
+        int i = 0;
+        while (i < total) {
+            int j = i;
+            while (j + 1 < total && values[order[j + 1]] == values[order[i]]) j++;
+            double avgRank = (i + j) / 2.0 + 1.0;
+            for (int m = i; m <= j; m++) rankSums[groupOf[order[m]]] += avgRank;
+            double t = j - i + 1;
+            tieTerm += t * t * t - t;
+            i = j + 1;
+        }
+        return new Ranks(rankSums, tieTerm);
+    }
+}
@@ -0,0 +1,164 @@
+package util;
+
+import result_classes.TimeSeriesResult;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Primitive Darstellung einer univariaten Zeitreihe: sortierte Epoch-Millis + Werte.
+ * <p>
+ * Gegenstück zu {@link TimeSeriesResult} für rechenintensive Procedures: Timestamps werden genau
+ * einmal geparst, danach wird nur noch auf long[]/double[] gearbeitet (kein Boxing, keine Maps).
+ */
+public final class NumericSeries {
+
+    public static final NumericSeries EMPTY = new NumericSeries(new long[0], new double[0]);
+
+    public final long[] times;
+    public final double[] values;
+
+    public NumericSeries(long[] times, double[] values) {
+        if (times.length != values.length) {
+            throw new IllegalArgumentException("times und values müssen gleich lang sein.");
+        }
+        this.times = times;
+        this.values = values;
+    }
+
+    public int size() {
+        return times.length;
+    }
+
+    public boolean isEmpty() {
+        return times.length == 0;
+    }
+
+    public long firstTime() {
+        return times[0];
+    }
+
+    public long lastTime() {
+        return times[times.length - 1];
+    }
+
+    /**
+     * Baut eine Serie aus (mehreren) TimeSeriesResults, analog zu TimeSeriesConverter.convert:
+     * bevorzugt den Key metric, sonst die erste vorhandene Werteliste. Ungültige Werte (null, NaN, ±∞)
+     * und unparsbare Timestamps werden übersprungen, bei doppelten Timestamps gewinnt der letzte Wert.
+     */
+    public static NumericSeries of(List<TimeSeriesResult> seriesList, String metric) {
+        if (seriesList == null || seriesList.isEmpty()) return EMPTY;
+
+        int capacity = 0;
+        for (TimeSeriesResult ts : seriesList) {
+            if (ts != null && ts.timestamps != null) capacity += ts.timestamps.size();
+        }
+        long[] t = new long[capacity];
+        double[] v = new double[capacity];
+        int n = 0;
+
+        for (TimeSeriesResult ts : seriesList) {
+            if (ts == null || ts.timestamps == null || ts.values == null || ts.values.isEmpty()) continue;
+            List<Double> list = metric != null ? ts.values.get(metric) : null;
+            if (list == null) list = ts.values.values().iterator().next();
+            if (list == null) continue;
+
+            int len = Math.min(ts.timestamps.size(), list.size());
+            for (int i = 0; i < len; i++) {
+                Double value = list.get(i);
+                String stamp = ts.timestamps.get(i);
+                if (value == null || value.isNaN() || value.isInfinite() || stamp == null) continue;
+                try {
+                    t[n] = TimeSeriesUtil.toEpochMillis(stamp);
+                } catch (Exception ignored) {
+                    continue;
+                }
+                v[n] = value;
+                n++;
+            }
+        }
+        return sortedUnique(t, v, n);
+    }
+
+    public static NumericSeries of(TimeSeriesResult series, String metric) {
+        return of(Collections.singletonList(series), metric);
+    }
+
+    /**
+     * Baut eine Serie aus parallelen Listen, wie sie die (timestamps, values)-Procedures übergeben bekommen.
+     */
+    public static NumericSeries of(List<String> timestamps, List<Double> values) {
+        Map<String, List<Double>> map = new HashMap<>();
+        map.put("value", values);
+        return of(new TimeSeriesResult(timestamps, map), "value");
+    }
+
+    /** Sortiert die ersten n Einträge nach Zeit (stabil) und entfernt Duplikate (letzter Wert gewinnt). */
+    static NumericSeries sortedUnique(long[] t, double[] v, int n) {
+        if (n == 0) return EMPTY;
+
+        boolean sorted = true;
+        for (int i = 1; i < n && sorted; i++) {
+            if (t[i] < t[i - 1]) sorted = false;
+        }
+        if (!sorted) {
+            Integer[] idx = new Integer[n];
+            for (int i = 0; i < n; i++) idx[i] = i;
+            Arrays.sort(idx, Comparator.comparingLong(i -> t[i])); // stabil -> Einfügereihenfolge bleibt erhalten
+            long[] ts = new long[n];
+            double[] vs = new double[n];
+            for (int i = 0; i < n; i++) {
+                ts[i] = t[idx[i]];
+                vs[i] = v[idx[i]];
+            }
+            return dedupe(ts, vs, n);
+        }
+        return dedupe(t, v, n);
+    }
+
+    private static NumericSeries dedupe(long[] t, double[] v, int n) {
+        int w = 0;
+        for (int i = 0; i < n; i++) {
+            if (w > 0 && t[w - 1] == t[i]) {
+                v[w - 1] = v[i];
+            } else {
+                t[w] = t[i];
+                v[w] = v[i];
+                w++;
+            }
+        }
+        return new NumericSeries(Arrays.copyOf(t, w), Arrays.copyOf(v, w));
+    }
+
+    /** Index des ersten Punktes mit time >= t (oder size(), falls keiner). */
+    public int lowerBound(long t) {
+        int lo = 0, hi = times.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] < t) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    /** Teilserie mit from <= time < to. */
+    public NumericSeries slice(long from, long to) {
+        int a = lowerBound(from);
+        int b = lowerBound(to);
+        if (a == 0 && b == times.length) return this;
+        return new NumericSeries(Arrays.copyOfRange(times, a, b), Arrays.copyOfRange(values, a, b));
+    }
+
+    /** Zurück in das Austauschformat der Procedures (ISO-Instant-Strings). */
+    public TimeSeriesResult toTimeSeriesResult(String metric) {
+        List<String> ts = new ArrayList<>(times.length);
+        List<Double> vs = new ArrayList<>(times.length);
+        for (int i = 0; i < times.length; i++) {
+            ts.add(Instant.ofEpochMilli(times[i]).toString());
+            vs.add(values[i]);
+        }
+        Map<String, List<Double>> map = new HashMap<>();
+        map.put(metric, vs);
+        return new TimeSeriesResult(ts, map);
+    }
+}
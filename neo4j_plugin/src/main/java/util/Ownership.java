@@ -0,0 +1,216 @@
+package util;
+
+import org.neo4j.graphdb.*;
+import org.neo4j.graphdb.event.LabelEntry;
+import org.neo4j.graphdb.event.PropertyEntry;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.logging.Log;
+
+import java.util.*;
+
+/**
+ * Besitzender Service eines Knotens: der nächste :Service, von dem aus der Knoten über Besitz-Kanten
+ * (HAS_OPERATION, HAS_POD, HAS_TIME_SERIES, DEPLOYED_ON) in Pfeilrichtung erreichbar ist.
+ * <p>
+ * Ermittelt per Rückwärts-Breitensuche vom Knoten aus, die beim ersten :Service stoppt, statt alle Pfade von allen
+ * Services aufzuzählen. Optional als Cache am Knoten: owningService (Name) und owningServiceId (elementId), nur
+ * für Operation, Pod und time_series und nur bei eindeutigem Owner. Geteilte Ziele wie Prometheus- oder
+ * Server-Knoten gehören keinem einzelnen Service und bleiben ohne Cache. Der Transaction-Listener hält ihn für
+ * Knoten unterhalb geänderter Besitz-Kanten bzw. Service-Labels aktuell; Bestandsdaten füllt {@link #backfill}.
+ */
+public final class Ownership {
+
+    public static final String OWNER_KEY = "owningService";
+    public static final String OWNER_ID_KEY = "owningServiceId";
+
+    public static final RelationshipType[] EDGE_TYPES = {
+            RelationshipType.withName("HAS_OPERATION"),
+            RelationshipType.withName("HAS_POD"),
+            RelationshipType.withName("HAS_TIME_SERIES"),
+            RelationshipType.withName("DEPLOYED_ON")
+    };
+    private static final Set<String> EDGE_NAMES = Set.of("HAS_OPERATION", "HAS_POD", "HAS_TIME_SERIES", "DEPLOYED_ON");
+    private static final Label SERVICE = Label.label("Service");
+    private static final Label[] CACHED_LABELS = {
+            Label.label("Operation"), Label.label("Pod"), Label.label("time_series")
+    };
+
+    private Ownership() {}
+
+    /** Nächster Service oberhalb des Knotens (mindestens eine Kante entfernt) oder null. */
+    public static Node owner(Node target) {
+        return owner(List.of(target));
+    }
+
+    /** Nächster Service oberhalb eines der Knoten; Breitensuche von allen gleichzeitig. */
+    public static Node owner(Collection<Node> targets) {
+        Set<String> visited = new HashSet<>();
+        List<Node> frontier = new ArrayList<>();
+        for (Node target : targets) {
+            if (visited.add(target.getElementId())) frontier.add(target);
+        }
+        while (!frontier.isEmpty()) {
+            List<Node> next = new ArrayList<>();
+            for (Node node : frontier) {
+                for (Relationship rel : node.getRelationships(Direction.INCOMING, EDGE_TYPES)) {
+                    Node parent = rel.getStartNode();
+                    if (parent.hasLabel(SERVICE)) return parent;
+                    if (visited.add(parent.getElementId())) next.add(parent);
+                }
+            }
+            frontier = next;
+        }
+        return null;
+    }
+
+    /**
+     * Der Owner, wenn er eindeutig ist: auf der ersten Ebene der Breitensuche, die Services erreicht, genau einer.
+     * Sonst (mehrdeutig oder keiner) null.
+     */
+    public static Node uniqueOwner(Node target) {
+        Set<String> visited = new HashSet<>();
+        visited.add(target.getElementId());
+        List<Node> frontier = List.of(target);
+        while (!frontier.isEmpty()) {
+            List<Node> next = new ArrayList<>();
+            Node found = null;
+            for (Node node : frontier) {
+                for (Relationship rel : node.getRelationships(Direction.INCOMING, EDGE_TYPES)) {
+                    Node parent = rel.getStartNode();
+                    if (parent.hasLabel(SERVICE)) {
+                        if (found != null && !found.getElementId().equals(parent.getElementId())) return null;
+                        found = parent;
+                    } else if (visited.add(parent.getElementId())) {
+                        next.add(parent);
+                    }
+                }
+            }
+            if (found != null) return found;
+            frontier = next;
+        }
+        return null;
+    }
+
+    /** true für Knotenarten mit Cache (Operation, Pod, time_series). */
+    public static boolean isCached(Node node) {
+        for (Label label : CACHED_LABELS) if (node.hasLabel(label)) return true;
+        return false;
+    }
+
+    /** Owner aus dem Cache am Knoten, sonst per Breitensuche. */
+    public static Node cachedOwner(Transaction tx, Node target) {
+        Object id = target.getProperty(OWNER_ID_KEY, null);
+        if (id instanceof String) {
+            try {
+                Node service = tx.getNodeByElementId((String) id);
+                if (service.hasLabel(SERVICE)) return service;
+            } catch (NotFoundException e) {
+                // veralteter Cache -> suchen
+            }
+        }
+        return owner(target);
+    }
+
+    /**
+     * Setzt bzw. entfernt den Cache passend zum eindeutigen Owner; Knoten ohne Cache-Label bzw. mit mehrdeutigem
+     * Owner bleiben ohne. Schreibt nur bei Abweichung.
+     *
+     * @return true, wenn sich etwas geändert hat
+     */
+    public static boolean refresh(Node node) {
+        Node owner = isCached(node) ? uniqueOwner(node) : null;
+        Object name = owner == null ? null : owner.getProperty("name", null);
+        String id = owner == null ? null : owner.getElementId();
+        if (Objects.equals(id, node.getProperty(OWNER_ID_KEY, null))
+                && Objects.equals(name, node.getProperty(OWNER_KEY, null))) {
+            return false;
+        }
+        if (id == null) {
+            node.removeProperty(OWNER_ID_KEY);
+            node.removeProperty(OWNER_KEY);
+        } else {
+            node.setProperty(OWNER_ID_KEY, id);
+            if (name == null) node.removeProperty(OWNER_KEY);
+            else node.setProperty(OWNER_KEY, name);
+        }
+        return true;
+    }
+
+    /**
+     * Knoten, deren Owner sich durch die Transaktion geändert haben kann: Endknoten angelegter oder gelöschter
+     * Besitz-Kanten, umbenannte Services und Knoten, die das Service-Label oder ein Cache-Label bekommen bzw.
+     * verloren haben, jeweils mit allem, was darunter hängt.
+     */
+    public static Collection<Node> affected(TransactionData data) {
+        List<Node> roots = new ArrayList<>();
+        for (Relationship rel : data.createdRelationships()) {
+            if (EDGE_NAMES.contains(rel.getType().name())) roots.add(rel.getEndNode());
+        }
+        for (Relationship rel : data.deletedRelationships()) {
+            if (EDGE_NAMES.contains(rel.getType().name())) roots.add(rel.getEndNode());
+        }
+        for (PropertyEntry<Node> entry : data.assignedNodeProperties()) {
+            if ("name".equals(entry.key()) && !data.isDeleted(entry.entity()) && entry.entity().hasLabel(SERVICE)) {
+                roots.add(entry.entity());
+            }
+        }
+        for (LabelEntry entry : data.assignedLabels()) {
+            if (affectsOwnership(entry.label())) roots.add(entry.node());
+        }
+        for (LabelEntry entry : data.removedLabels()) {
+            if (affectsOwnership(entry.label())) roots.add(entry.node());
+        }
+
+        Map<String, Node> out = new LinkedHashMap<>();
+        Deque<Node> queue = new ArrayDeque<>();
+        for (Node root : roots) {
+            if (!data.isDeleted(root) && out.putIfAbsent(root.getElementId(), root) == null) queue.add(root);
+        }
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            for (Relationship rel : node.getRelationships(Direction.OUTGOING, EDGE_TYPES)) {
+                Node child = rel.getEndNode();
+                if (!data.isDeleted(child) && out.putIfAbsent(child.getElementId(), child) == null) queue.add(child);
+            }
+        }
+        return out.values();
+    }
+
+    private static boolean affectsOwnership(Label label) {
+        if (label.name().equals(SERVICE.name())) return true;
+        for (Label cached : CACHED_LABELS) if (label.name().equals(cached.name())) return true;
+        return false;
+    }
+
+    /**
+     * Füllt den Cache für alle Endknoten von Besitz-Kanten; erst Ids sammeln, dann in Transaktionen zu je batchSize.
+     *
+     * @return Anzahl aktualisierter Knoten
+     */
+    public static long backfill(GraphDatabaseService db, int batchSize, Log log) {
+        if (batchSize <= 0) throw new IllegalArgumentException("batchSize muss > 0 sein.");
+        List<String> pending = new ArrayList<>();
+        try (Transaction tx = db.beginTx();
+             Result result = tx.execute(
+                     "MATCH ()-[:HAS_OPERATION|HAS_POD|HAS_TIME_SERIES|DEPLOYED_ON]->(n) RETURN DISTINCT elementId(n) AS id")) {
+            while (result.hasNext()) pending.add((String) result.next().get("id"));
+        }
+
+        long updated = 0;
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            List<String> batch = pending.subList(from, Math.min(pending.size(), from + batchSize));
+            try (Transaction tx = db.beginTx()) {
+                for (String id : batch) {
+                    try {
+                        if (refresh(tx.getNodeByElementId(id))) updated++;
+                    } catch (NotFoundException e) {
+                        // zwischenzeitlich gelöscht
+                    }
+                }
+                tx.commit();
+            }
+        }
+        if (updated > 0) log.info("Backfill owningService: " + updated + " Knoten aktualisiert.");
+        return updated;
+    }
+}
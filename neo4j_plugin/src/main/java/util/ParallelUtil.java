@@ -0,0 +1,162 @@
+package util;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.logging.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Parallele Verarbeitung von Knotenlisten (z.B. Zeitreihen pro Pod holen und auswerten).
+ * <p>
+ * Neo4j-Transaktionen sind nicht thread-safe: jeder Task öffnet deshalb seine eigene Lese-Transaktion
+ * und löst den Knoten dort per elementId neu auf. Knoten, die in einer Worker-Transaktion nicht
+ * sichtbar sind (z.B. noch nicht committed), werden anschließend im aufrufenden Thread verarbeitet.
+ */
+public final class ParallelUtil {
+
+    private ParallelUtil() {}
+
+    private static final int THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "graphobs-worker-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    public static int parallelism() {
+        return THREADS;
+    }
+
+    /**
+     * Wendet task auf jeden Knoten an. Die Ergebnisliste hat dieselbe Reihenfolge wie nodes;
+     * fehlgeschlagene Knoten liefern null (der Fehler wird geloggt).
+     * <p>
+     * task darf nur mit dem übergebenen Knoten (bzw. davon erreichbaren Entities) arbeiten und keine
+     * Entities aus der Aufrufer-Transaktion anfassen.
+     */
+    public static <R> List<R> mapNodes(GraphDatabaseService db, List<Node> nodes, Function<Node, R> task, Log log) {
+        return mapNodesIndexed(db, nodes, (node, index) -> task.apply(node), log);
+    }
+
+    /**
+     * Wie {@link #mapNodes}, der Task bekommt zusätzlich den Index des Knotens in nodes
+     * (z.B. um pro Knoten eine andere Metrik zu laden).
+     */
+    public static <R> List<R> mapNodesIndexed(GraphDatabaseService db, List<Node> nodes, BiFunction<Node, Integer, R> task, Log log) {
+        if (nodes == null || nodes.isEmpty()) return new ArrayList<>();
+
+        int n = nodes.size();
+        Object[] results = new Object[n];
+        boolean[] retryLocally = new boolean[n];
+
+        if (n == 1 || db == null) {
+            for (int i = 0; i < n; i++) results[i] = runIndexed(task, nodes.get(i), i, log);
+            return toList(results);
+        }
+
+        String[] ids = new String[n];
+        for (int i = 0; i < n; i++) ids[i] = nodes.get(i) == null ? null : nodes.get(i).getElementId();
+
+        List<Future<?>> futures = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            final int idx = i;
+            if (ids[idx] == null) continue;
+            futures.add(POOL.submit(() -> {
+                try (Transaction tx = db.beginTx()) {
+                    Node local;
+                    try {
+                        local = tx.getNodeByElementId(ids[idx]);
+                    } catch (NotFoundException e) {
+                        retryLocally[idx] = true;
+                        return;
+                    }
+                    results[idx] = runIndexed(task, local, idx, log);
+                } catch (Exception e) {
+                    log.warn("Parallel task for node %s failed: %s", ids[idx], e.getMessage());
+                }
+            }));
+        }
+
+        awaitAll(futures, log);
+
+        for (int i = 0; i < n; i++) {
+            if (retryLocally[i]) results[i] = runIndexed(task, nodes.get(i), i, log);
+        }
+        return toList(results);
+    }
+
+    /**
+     * Reine Rechenarbeit (ohne Datenbankzugriff) parallel ausführen. Reihenfolge bleibt erhalten,
+     * fehlgeschlagene Elemente liefern null.
+     */
+    public static <T, R> List<R> map(List<T> items, Function<T, R> task, Log log) {
+        if (items == null || items.isEmpty()) return new ArrayList<>();
+
+        int n = items.size();
+        Object[] results = new Object[n];
+        if (n == 1) {
+            results[0] = runSafely(task, items.get(0), log);
+            return toList(results);
+        }
+
+        List<Future<?>> futures = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            final int idx = i;
+            futures.add(POOL.submit(() -> { results[idx] = runSafely(task, items.get(idx), log); }));
+        }
+        awaitAll(futures, log);
+        return toList(results);
+    }
+
+    private static <T, R> R runSafely(Function<T, R> task, T item, Log log) {
+        try {
+            return task.apply(item);
+        } catch (Exception e) {
+            log.warn("Parallel task failed: %s", e.getMessage());
+            return null;
+        }
+    }
+
+    private static <R> R runIndexed(BiFunction<Node, Integer, R> task, Node node, int index, Log log) {
+        try {
+            return task.apply(node, index);
+        } catch (Exception e) {
+            log.warn("Parallel task failed: %s", e.getMessage());
+            return null;
+        }
+    }
+
+    private static void awaitAll(List<Future<?>> futures, Log log) {
+        for (Future<?> f : futures) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(other -> other.cancel(true));
+                throw new RuntimeException("Interrupted while waiting for parallel tasks", e);
+            } catch (ExecutionException e) {
+                log.warn("Parallel task failed: %s", e.getCause() == null ? e.getMessage() : e.getCause().getMessage());
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R> List<R> toList(Object[] results) {
+        return new ArrayList<>((List<R>) Arrays.asList(results));
+    }
+}
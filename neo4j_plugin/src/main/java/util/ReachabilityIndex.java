@@ -0,0 +1,354 @@
+package util;
+
+import org.neo4j.graphdb.*;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.logging.Log;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plugin-eigener Erreichbarkeitsindex über den Aufrufgraphen (Operation)-[:DEPENDS_ON]->(Operation).
+ * <p>
+ * Aufbau: starke Zusammenhangskomponenten (Tarjan, iterativ) kondensieren Zyklen zu einem DAG; für jede
+ * Komponente werden alle Nachfahren und Vorfahren als BitSet über die Komponenten gespeichert. Aufrufer bzw.
+ * Aufgerufene einer Operation sind damit ein Durchlauf über gesetzte Bits statt variabler Pfade in Cypher.
+ * Speicher O(C² / 8) Byte für C Komponenten; bei mehr als {@link #MAX_COMPONENTS} Komponenten werden die BitSets
+ * nicht gebaut ({@link Snapshot#isAvailable()} = false) und die Suche läuft per Breitensuche.
+ * <p>
+ * Der Index wird nach dem Jaeger-Import neu gebaut. Jede Transaktion, die DEPENDS_ON- oder HAS_OPERATION-Beziehungen
+ * anlegt oder löscht, erhöht die Version ({@link #invalidate()}); ein veralteter Snapshot wird bei der nächsten
+ * Anfrage neu gebaut.
+ */
+public final class ReachabilityIndex {
+
+    public static final RelationshipType DEPENDS_ON = RelationshipType.withName("DEPENDS_ON");
+    public static final RelationshipType HAS_OPERATION = RelationshipType.withName("HAS_OPERATION");
+    private static final Label OPERATION = Label.label("Operation");
+    private static final Label SERVICE = Label.label("Service");
+    /** Obergrenze für die BitSets: 2 × C² Bit, bei 10 000 Komponenten höchstens ca. 25 MB. */
+    public static final int MAX_COMPONENTS = 10_000;
+
+    private static final ConcurrentMap<String, ReachabilityIndex> INDEXES = new ConcurrentHashMap<>();
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    private ReachabilityIndex() {}
+
+    public static ReachabilityIndex of(GraphDatabaseService db) {
+        return INDEXES.computeIfAbsent(db.databaseName(), name -> new ReachabilityIndex());
+    }
+
+    /** true, wenn die Transaktion den Aufrufgraphen verändert (für beforeCommit). */
+    public static boolean affects(TransactionData data) {
+        for (Relationship rel : data.createdRelationships()) {
+            if (rel.isType(DEPENDS_ON) || rel.isType(HAS_OPERATION)) return true;
+        }
+        for (Relationship rel : data.deletedRelationships()) {
+            if (rel.isType(DEPENDS_ON) || rel.isType(HAS_OPERATION)) return true;
+        }
+        return false;
+    }
+
+    public void invalidate() {
+        version.incrementAndGet();
+    }
+
+    /** Aktueller Snapshot; baut neu, wenn sich der Aufrufgraph seit dem letzten Aufbau geändert hat. */
+    public Snapshot current(GraphDatabaseService db, Log log) {
+        Snapshot s = snapshot;
+        if (s != null && s.version == version.get()) return s;
+        synchronized (this) {
+            s = snapshot;
+            if (s != null && s.version == version.get()) return s;
+            return rebuild(db, log);
+        }
+    }
+
+    /** Snapshot nur, wenn er aktuell ist; baut nicht neu. */
+    public Snapshot ifCurrent() {
+        Snapshot s = snapshot;
+        return s != null && s.version == version.get() ? s : null;
+    }
+
+    /** true, solange seit dem Aufbau des Snapshots keine Änderung am Aufrufgraphen committet wurde. */
+    public boolean isCurrent(Snapshot s) {
+        return s != null && s == snapshot && s.version == version.get();
+    }
+
+    public synchronized Snapshot rebuild(GraphDatabaseService db, Log log) {
+        // Version vor dem Lesen: Änderungen während des Aufbaus machen den Snapshot sofort wieder veraltet
+        long v = version.get();
+        Snapshot built;
+        try (Transaction tx = db.beginTx()) {
+            built = Snapshot.build(tx, v);
+        }
+        snapshot = built;
+        if (log != null && !built.isAvailable()) {
+            log.warn("Reachability index not built: %d components exceed the limit of %d, call chains use BFS.",
+                    built.members.length, MAX_COMPONENTS);
+        } else if (log != null) {
+            log.info("Reachability index built: %d operations, %d components.", built.operations.length, built.members.length);
+        }
+        return built;
+    }
+
+    /** Ergebnis von {@link Snapshot#reach}: Komponenten als BitSet, Mitgliedschaft in O(1). */
+    public static final class Reach {
+        private final Snapshot snapshot;
+        private final BitSet components;
+        private final Set<String> extra;
+        private final int size;
+
+        Reach(Snapshot snapshot, BitSet components, Set<String> extra) {
+            this.snapshot = snapshot;
+            this.components = components;
+            this.extra = extra;
+            int n = extra.size();
+            for (int c = components.nextSetBit(0); c >= 0; c = components.nextSetBit(c + 1)) {
+                n += snapshot.members[c].length;
+            }
+            this.size = n;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean contains(String operationId) {
+            Integer op = snapshot.byId.get(operationId);
+            return op == null ? extra.contains(operationId) : components.get(snapshot.component[op]);
+        }
+
+        public List<String> ids() {
+            List<String> out = new ArrayList<>(size);
+            for (int c = components.nextSetBit(0); c >= 0; c = components.nextSetBit(c + 1)) {
+                for (int op : snapshot.members[c]) out.add(snapshot.operations[op]);
+            }
+            out.addAll(extra);
+            return out;
+        }
+    }
+
+    /** Unveränderlicher Stand des Index; Operationen und Services über elementId. */
+    public static final class Snapshot {
+        final long version;
+        final String[] operations;
+        final Map<String, Integer> byId;
+        final String[][] servicesOf;
+        final int[] component;
+        final int[][] members;
+        final boolean[] cyclic;
+        final BitSet[] descendants;
+        final BitSet[] ancestors;
+
+        private Snapshot(long version, String[] operations, Map<String, Integer> byId, String[][] servicesOf,
+                         int[] component, int[][] members, boolean[] cyclic, BitSet[] descendants, BitSet[] ancestors) {
+            this.version = version;
+            this.operations = operations;
+            this.byId = byId;
+            this.servicesOf = servicesOf;
+            this.component = component;
+            this.members = members;
+            this.cyclic = cyclic;
+            this.descendants = descendants;
+            this.ancestors = ancestors;
+        }
+
+        /** false, wenn der Aufrufgraph zu viele Komponenten für die BitSets hat; dann gibt es kein {@link #reach}. */
+        public boolean isAvailable() {
+            return descendants != null;
+        }
+
+        /** Anzahl Operationen; jede erreichbare Operation liegt höchstens so viele Schritte entfernt. */
+        public int size() {
+            return operations.length;
+        }
+
+        /** Von den Start-Operationen aus erreichbare Operationen (elementIds), siehe {@link #reach}. */
+        public List<String> reachable(Collection<String> startIds, boolean forward, boolean includeStart) {
+            return reach(startIds, forward, includeStart).ids();
+        }
+
+        /**
+         * Menge der von den Start-Operationen aus erreichbaren Operationen, ohne sie aufzuzählen.
+         *
+         * @param forward      true = Aufgerufene (DEPENDS_ON vorwärts), false = Aufrufer
+         * @param includeStart true = Pfade der Länge 0 zählen (Cypher *0..), sonst mindestens ein Schritt (*1..);
+         *                     eine Operation erreicht sich dann nur über einen Zyklus selbst
+         */
+        public Reach reach(Collection<String> startIds, boolean forward, boolean includeStart) {
+            if (!isAvailable()) throw new IllegalStateException("Reachability index exceeds " + MAX_COMPONENTS + " components.");
+            BitSet[] closure = forward ? descendants : ancestors;
+            BitSet comps = new BitSet(members.length);
+            Set<String> extra = new LinkedHashSet<>();
+            for (String id : startIds) {
+                Integer op = byId.get(id);
+                if (op == null) {
+                    // Operation ohne Kanten im Index: erreicht nur sich selbst
+                    if (includeStart) extra.add(id);
+                    continue;
+                }
+                int c = component[op];
+                if (includeStart || cyclic[c]) {
+                    comps.or(closure[c]);
+                } else {
+                    BitSet strict = (BitSet) closure[c].clone();
+                    strict.clear(c);
+                    comps.or(strict);
+                }
+            }
+            return new Reach(this, comps, extra);
+        }
+
+        /** Services (elementIds, ohne Duplikate), die eine der Operationen über HAS_OPERATION besitzen. */
+        public List<String> services(Collection<String> operationIds) {
+            Set<String> out = new LinkedHashSet<>();
+            for (String id : operationIds) {
+                Integer op = byId.get(id);
+                if (op != null) Collections.addAll(out, servicesOf[op]);
+            }
+            return new ArrayList<>(out);
+        }
+
+        static Snapshot build(Transaction tx, long version) {
+            List<String> ids = new ArrayList<>();
+            Map<String, Integer> byId = new HashMap<>();
+            List<String[]> services = new ArrayList<>();
+            try (ResourceIterator<Node> it = tx.findNodes(OPERATION)) {
+                while (it.hasNext()) {
+                    Node op = it.next();
+                    byId.put(op.getElementId(), ids.size());
+                    ids.add(op.getElementId());
+                    List<String> owners = new ArrayList<>(1);
+                    for (Relationship rel : op.getRelationships(Direction.INCOMING, HAS_OPERATION)) {
+                        Node service = rel.getStartNode();
+                        if (service.hasLabel(SERVICE)) owners.add(service.getElementId());
+                    }
+                    services.add(owners.toArray(new String[0]));
+                }
+            }
+
+            int n = ids.size();
+            int[][] adj = new int[n][];
+            for (int v = 0; v < n; v++) {
+                Node op = tx.getNodeByElementId(ids.get(v));
+                List<Integer> out = new ArrayList<>();
+                for (Relationship rel : op.getRelationships(Direction.OUTGOING, DEPENDS_ON)) {
+                    Integer w = byId.get(rel.getEndNode().getElementId());
+                    if (w != null) out.add(w);
+                }
+                adj[v] = out.stream().mapToInt(Integer::intValue).toArray();
+            }
+
+            int[] component = new int[n];
+            int count = tarjan(adj, component);
+
+            // Komponenten kommen in umgekehrter topologischer Reihenfolge: Kanten zeigen nur auf kleinere Nummern
+            List<List<Integer>> memberLists = new ArrayList<>(count);
+            for (int c = 0; c < count; c++) memberLists.add(new ArrayList<>());
+            for (int v = 0; v < n; v++) memberLists.get(component[v]).add(v);
+            int[][] members = new int[count][];
+            for (int c = 0; c < count; c++) members[c] = memberLists.get(c).stream().mapToInt(Integer::intValue).toArray();
+
+            if (count > MAX_COMPONENTS) {
+                // Stand merken (Version), damit nicht jede Anfrage erneut aufbaut, aber ohne BitSets
+                return new Snapshot(version, ids.toArray(new String[0]), byId, services.toArray(new String[0][]),
+                        component, members, new boolean[count], null, null);
+            }
+
+            boolean[] cyclic = new boolean[count];
+            List<Set<Integer>> succ = new ArrayList<>(count);
+            List<Set<Integer>> pred = new ArrayList<>(count);
+            for (int c = 0; c < count; c++) {
+                succ.add(new HashSet<>());
+                pred.add(new HashSet<>());
+                cyclic[c] = members[c].length > 1;
+            }
+            for (int v = 0; v < n; v++) {
+                for (int w : adj[v]) {
+                    int cv = component[v], cw = component[w];
+                    if (cv == cw) {
+                        if (v == w) cyclic[cv] = true;
+                    } else {
+                        succ.get(cv).add(cw);
+                        pred.get(cw).add(cv);
+                    }
+                }
+            }
+
+            BitSet[] descendants = new BitSet[count];
+            for (int c = 0; c < count; c++) {
+                BitSet set = new BitSet(count);
+                set.set(c);
+                for (int d : succ.get(c)) set.or(descendants[d]);
+                descendants[c] = set;
+            }
+            BitSet[] ancestors = new BitSet[count];
+            for (int c = count - 1; c >= 0; c--) {
+                BitSet set = new BitSet(count);
+                set.set(c);
+                for (int p : pred.get(c)) set.or(ancestors[p]);
+                ancestors[c] = set;
+            }
+
+            return new Snapshot(version, ids.toArray(new String[0]), byId, services.toArray(new String[0][]),
+                    component, members, cyclic, descendants, ancestors);
+        }
+
+        /** Iterativer Tarjan; schreibt die Komponente je Knoten und liefert die Anzahl der Komponenten. */
+        static int tarjan(int[][] adj, int[] component) {
+            int n = adj.length;
+            int[] index = new int[n];
+            int[] low = new int[n];
+            int[] edge = new int[n];
+            boolean[] onStack = new boolean[n];
+            int[] stack = new int[n];
+            int[] frames = new int[n];
+            Arrays.fill(index, -1);
+            int counter = 0, sp = 0, components = 0;
+
+            for (int s = 0; s < n; s++) {
+                if (index[s] != -1) continue;
+                int fp = 0;
+                frames[fp++] = s;
+                index[s] = low[s] = counter++;
+                stack[sp++] = s;
+                onStack[s] = true;
+                while (fp > 0) {
+                    int v = frames[fp - 1];
+                    if (edge[v] < adj[v].length) {
+                        int w = adj[v][edge[v]++];
+                        if (index[w] == -1) {
+                            index[w] = low[w] = counter++;
+                            stack[sp++] = w;
+                            onStack[w] = true;
+                            frames[fp++] = w;
+                        } else if (onStack[w]) {
+                            low[v] = Math.min(low[v], index[w]);
+                        }
+                        continue;
+                    }
+                    fp--;
+                    if (low[v] == index[v]) {
+                        int w;
+                        do {
+                            w = stack[--sp];
+                            onStack[w] = false;
+                            component[w] = components;
+                        } while (w != v);
+                        components++;
+                    }
+                    if (fp > 0) {
+                        int u = frames[fp - 1];
+                        low[u] = Math.min(low[u], low[v]);
+                    }
+                }
+            }
+            return components;
+        }
+    }
+}
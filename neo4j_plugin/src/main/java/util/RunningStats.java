@@ -0,0 +1,93 @@
+package util;
+
+import org.apache.commons.math3.stat.descriptive.StatisticalSummary;
+
+/**
+ * Streaming-Zusammenfassung (Anzahl, Mittelwert, M2 nach Welford, Min/Max) einer Werteserie.
+ * Teilsummen aus parallelen Workern lassen sich per {@link #merge} exakt zusammenführen (Chan et al.).
+ * Implementiert {@link StatisticalSummary}, damit z.B. TTest direkt auf den Zusammenfassungen rechnen kann.
+ */
+public final class RunningStats implements StatisticalSummary {
+
+    private long n;
+    private double mean;
+    private double m2;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public void add(double x) {
+        n++;
+        double delta = x - mean;
+        mean += delta / n;
+        m2 += delta * (x - mean);
+        if (x < min) min = x;
+        if (x > max) max = x;
+    }
+
+    public RunningStats merge(RunningStats other) {
+        if (other.n == 0) return this;
+        if (n == 0) {
+            n = other.n;
+            mean = other.mean;
+            m2 = other.m2;
+            min = other.min;
+            max = other.max;
+            return this;
+        }
+        long total = n + other.n;
+        double delta = other.mean - mean;
+        mean += delta * other.n / total;
+        m2 += other.m2 + delta * delta * ((double) n * other.n / total);
+        n = total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    public static RunningStats of(double[] values) {
+        RunningStats stats = new RunningStats();
+        for (double v : values) stats.add(v);
+        return stats;
+    }
+
+    @Override
+    public long getN() {
+        return n;
+    }
+
+    @Override
+    public double getMean() {
+        return n == 0 ? Double.NaN : mean;
+    }
+
+    /** Stichprobenvarianz (n - 1). */
+    @Override
+    public double getVariance() {
+        return n < 2 ? Double.NaN : m2 / (n - 1);
+    }
+
+    @Override
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    @Override
+    public double getMax() {
+        return n == 0 ? Double.NaN : max;
+    }
+
+    @Override
+    public double getMin() {
+        return n == 0 ? Double.NaN : min;
+    }
+
+    @Override
+    public double getSum() {
+        return mean * n;
+    }
+
+    @Override
+    public String toString() {
+        return "RunningStats[n=" + n + ", mean=" + getMean() + ", sd=" + getStandardDeviation() + "]";
+    }
+}
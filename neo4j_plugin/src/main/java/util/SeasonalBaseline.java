@@ -0,0 +1,134 @@
+package util;
+
+import org.neo4j.graphdb.*;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Saisonales Profil einer Metrik: Anzahl, Mittelwert und M2 (Welford) je Stunde der Woche (168 Buckets, UTC,
+ * Montag 00:00 = Bucket 0).
+ * <p>
+ * Persistiert kompakt als drei Arrays auf einem (:seasonal_baseline {metric})-Knoten, der per HAS_BASELINE am
+ * Quellknoten hängt; lastTime merkt sich den zuletzt eingerechneten Zeitstempel, damit Aktualisierungen nur neue
+ * Samples verarbeiten. Geladene Profile werden pro elementId + Metrik im Speicher gehalten; ein Cache-Eintrag gilt
+ * nur, solange lastTime am Knoten übereinstimmt, und wird erst nach einem erfolgreichen Commit gesetzt (siehe
+ * {@link #cache}), damit ein Rollback keinen nie gespeicherten Stand hinterlässt.
+ */
+public final class SeasonalBaseline {
+
+    public static final int BUCKETS = 168;
+    public static final Label LABEL = Label.label("seasonal_baseline");
+    public static final RelationshipType HAS_BASELINE = RelationshipType.withName("HAS_BASELINE");
+
+    private static final ConcurrentMap<String, SeasonalBaseline> CACHE = new ConcurrentHashMap<>();
+
+    public final long[] counts;
+    public final double[] means;
+    public final double[] m2;
+    public long lastTime;
+
+    public SeasonalBaseline() {
+        this(new long[BUCKETS], new double[BUCKETS], new double[BUCKETS], Long.MIN_VALUE);
+    }
+
+    private SeasonalBaseline(long[] counts, double[] means, double[] m2, long lastTime) {
+        this.counts = counts;
+        this.means = means;
+        this.m2 = m2;
+        this.lastTime = lastTime;
+    }
+
+    /** Stunde der Woche (0..167) für Epoch-Millis; 1970-01-01 war ein Donnerstag (= 72 Stunden nach Montag). */
+    public static int hourOfWeek(long epochMillis) {
+        return (int) Math.floorMod(Math.floorDiv(epochMillis, 3_600_000L) + 72L, (long) BUCKETS);
+    }
+
+    /** Rechnet alle Samples mit Zeitstempel nach lastTime ein; liefert die Anzahl neuer Samples. */
+    public int add(NumericSeries series) {
+        int added = 0;
+        for (int i = series.lowerBound(lastTime == Long.MIN_VALUE ? Long.MIN_VALUE : lastTime + 1); i < series.size(); i++) {
+            double x = series.values[i];
+            int b = hourOfWeek(series.times[i]);
+            long n = ++counts[b];
+            double delta = x - means[b];
+            means[b] += delta / n;
+            m2[b] += delta * (x - means[b]);
+            added++;
+        }
+        if (!series.isEmpty() && series.lastTime() > lastTime) lastTime = series.lastTime();
+        return added;
+    }
+
+    public double variance(int bucket) {
+        return counts[bucket] > 1 ? m2[bucket] / (counts[bucket] - 1) : Double.NaN;
+    }
+
+    public long totalCount() {
+        long total = 0;
+        for (long c : counts) total += c;
+        return total;
+    }
+
+    public SeasonalBaseline copy() {
+        return new SeasonalBaseline(counts.clone(), means.clone(), m2.clone(), lastTime);
+    }
+
+    // --- Persistenz ---
+
+    public static String key(String elementId, String metric) {
+        return elementId + "|" + metric;
+    }
+
+    public static Node findNode(Node source, String metric) {
+        for (Relationship rel : source.getRelationships(Direction.OUTGOING, HAS_BASELINE)) {
+            Node b = rel.getEndNode();
+            if (b.hasLabel(LABEL) && metric.equals(b.getProperty("metric", null))) return b;
+        }
+        return null;
+    }
+
+    /**
+     * Profil vom Baseline-Knoten, die Arrays aus dem Cache, wenn dessen lastTime zum Knoten passt; null, wenn noch
+     * keins existiert. Der Cache wird hier nicht befüllt: der Knoten kann ungespeicherte Änderungen der eigenen
+     * Transaktion zeigen.
+     */
+    public static SeasonalBaseline load(Node source, String metric) {
+        Node node = findNode(source, metric);
+        if (node == null) return null;
+        long lastTime = ((Number) node.getProperty("lastTime", Long.MIN_VALUE)).longValue();
+        SeasonalBaseline cached = CACHE.get(key(source.getElementId(), metric));
+        if (cached != null && cached.lastTime == lastTime) return cached;
+
+        return new SeasonalBaseline(
+                (long[]) node.getProperty("counts"),
+                (double[]) node.getProperty("means"),
+                (double[]) node.getProperty("m2"),
+                lastTime);
+    }
+
+    /** Schreibt das Profil auf den Baseline-Knoten (legt ihn bei Bedarf an); den Cache setzt erst {@link #cache}. */
+    public static Node store(Transaction tx, Node source, String metric, SeasonalBaseline baseline) {
+        Node node = findNode(source, metric);
+        if (node == null) {
+            node = tx.createNode(LABEL);
+            node.setProperty("metric", metric);
+            source.createRelationshipTo(node, HAS_BASELINE);
+        }
+        node.setProperty("counts", baseline.counts);
+        node.setProperty("means", baseline.means);
+        node.setProperty("m2", baseline.m2);
+        node.setProperty("lastTime", baseline.lastTime);
+        node.setProperty("updated", System.currentTimeMillis());
+        return node;
+    }
+
+    /** Übernimmt ein gespeichertes Profil in den Cache; nur nach erfolgreichem Commit aufrufen. */
+    public static void cache(String elementId, String metric, SeasonalBaseline baseline) {
+        CACHE.put(key(elementId, metric), baseline);
+    }
+
+    public static void invalidate(String elementId, String metric) {
+        CACHE.remove(key(elementId, metric));
+    }
+}
@@ -0,0 +1,557 @@
+package util;
+
+import org.neo4j.graphdb.*;
+import org.neo4j.graphdb.event.LabelEntry;
+import org.neo4j.graphdb.event.PropertyEntry;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.logging.Log;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Plugin-eigener Intervall-Index über alle zeitlichen Knoten (event, time_period, time_series) in Epoch-Millis.
+ * Events werden als Intervall [time, time] geführt, sodass alle Relationen auf (start, end) arbeiten.
+ * <p>
+ * Aufbau:
+ * <ul>
+ *   <li>Basis-Snapshot: Einträge nach start sortiert, darüber ein impliziter Segmentbaum mit max(end) und min(end)
+ *       je Teilbaum. Eine Anfrage "start in [a, b] und end in [c, d]" läuft per Binärsuche auf den start-Bereich
+ *       und steigt nur in Teilbäume ab, deren end-Spanne [c, d] schneiden kann -> O(log n + k) für overlap.
+ *       Zusätzlich eine Permutation nach end für before/last.</li>
+ *   <li>Delta-Puffer + Tombstones: Änderungen aus {@code afterCommit} landen zunächst dort. Jede Änderung bekommt
+ *       eine Sequenznummer; ein Delta-Eintrag gilt nur, solange kein neuerer Tombstone für die elementId existiert,
+ *       Basis-Einträge nur, solange gar keiner existiert. Wird der Puffer zu groß, baut ein Hintergrund-Thread einen
+ *       neuen Snapshot und übernimmt nur die seitdem hinzugekommenen Änderungen.</li>
+ * </ul>
+ * Ein Index pro Datenbank ({@link #of}). Solange der erste Aufbau nicht fertig ist, liefert {@link #isReady()}
+ * false und die Prozeduren nutzen Cypher.
+ */
+public final class TemporalIndex {
+
+    private static final ConcurrentMap<String, TemporalIndex> INDEXES = new ConcurrentHashMap<>();
+
+    private TemporalIndex() {}
+
+    public static TemporalIndex of(GraphDatabaseService db) {
+        return INDEXES.computeIfAbsent(db.databaseName(), name -> new TemporalIndex());
+    }
+
+    public enum Kind {
+        EVENT("event"), TIME_PERIOD("time_period"), TIME_SERIES("time_series");
+
+        public final String label;
+
+        Kind(String label) {
+            this.label = label;
+        }
+
+        public int bit() {
+            return 1 << ordinal();
+        }
+
+        public static Kind of(Node node) {
+            for (Kind kind : values()) {
+                if (node.hasLabel(Label.label(kind.label))) return kind;
+            }
+            return null;
+        }
+
+        public static Kind parse(String label) {
+            for (Kind kind : values()) {
+                if (kind.label.equals(label)) return kind;
+            }
+            throw new IllegalArgumentException("Unbekanntes Zeit-Label '" + label + "'. Erlaubt: event, time_period, time_series.");
+        }
+    }
+
+    public static final int ALL_KINDS = 0b111;
+    private static final Kind[] KINDS = Kind.values();
+
+    public static final class Entry {
+        public final String id;
+        public final Kind kind;
+        public final long start;
+        public final long end;
+        final long seq;
+
+        Entry(String id, Kind kind, long start, long end, long seq) {
+            this.id = id;
+            this.kind = kind;
+            this.start = start;
+            this.end = end;
+            this.seq = seq;
+        }
+
+        Entry withSeq(long seq) {
+            return new Entry(id, kind, start, end, seq);
+        }
+    }
+
+    /** In beforeCommit gesammelte Änderungen einer Transaktion, angewendet erst in afterCommit. */
+    public static final class Changes {
+        final List<Entry> upserts = new ArrayList<>();
+        final List<String> removals = new ArrayList<>();
+
+        public boolean isEmpty() {
+            return upserts.isEmpty() && removals.isEmpty();
+        }
+    }
+
+    private static final int MIN_COMPACT_THRESHOLD = 4096;
+    private static final int MAX_COMPACT_THRESHOLD = 65536;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private static final ExecutorService COMPACTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "graphobs-temporal-index");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private Snapshot base = Snapshot.build(new ArrayList<>());
+    private final List<Entry> delta = new ArrayList<>();
+    private final Map<String, Long> tombstones = new HashMap<>();
+    private long seq;
+    private volatile boolean ready;
+    private boolean compacting;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return base.size + delta.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- Aufbau & Pflege ---
+
+    /**
+     * Liest alle zeitlichen Knoten und ersetzt den Basis-Snapshot. Änderungen, die währenddessen committed werden,
+     * bleiben über Delta/Tombstones erhalten.
+     */
+    public void rebuild(GraphDatabaseService db, Log log) {
+        long captured;
+        lock.writeLock().lock();
+        try {
+            captured = seq;
+            compacting = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            List<Entry> entries = new ArrayList<>();
+            try (Transaction tx = db.beginTx()) {
+                for (Kind kind : Kind.values()) {
+                    try (ResourceIterator<Node> it = tx.findNodes(Label.label(kind.label))) {
+                        while (it.hasNext()) {
+                            Entry entry = entryOf(it.next());
+                            if (entry != null) entries.add(entry);
+                        }
+                    }
+                }
+            }
+            Snapshot built = Snapshot.build(entries);
+            swap(built, captured);
+            ready = true;
+            if (log != null) log.info("Temporal index built with %d entries.", built.size);
+        } catch (Exception e) {
+            lock.writeLock().lock();
+            try {
+                compacting = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (log != null) log.warn("Temporal index build failed: %s", e.getMessage());
+        }
+    }
+
+    /** Index-Eintrag für einen Knoten oder null, wenn er kein (vollständiger) zeitlicher Knoten ist. */
+    public static Entry entryOf(Node node) {
+        Kind kind = Kind.of(node);
+        if (kind == null) return null;
+        try {
+            // kanonische long-Properties bevorzugen, Originale nur für noch nicht nachgezogene Knoten parsen
+            if (kind == Kind.EVENT) {
+                Object time = node.getProperty(TemporalProperties.TIME_MS, null);
+                if (time == null) time = node.getProperty("time", null);
+                if (time == null) return null;
+                long t = TimeSeriesUtil.toEpochMillis(time);
+                return new Entry(node.getElementId(), kind, t, t, 0);
+            }
+            Object start = node.getProperty(TemporalProperties.START_MS, null);
+            if (start == null) start = node.getProperty("start", null);
+            Object end = node.getProperty(TemporalProperties.END_MS, null);
+            if (end == null) end = node.getProperty("end", null);
+            if (start == null || end == null) return null;
+            return new Entry(node.getElementId(), kind, TimeSeriesUtil.toEpochMillis(start), TimeSeriesUtil.toEpochMillis(end), 0);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Sammelt in beforeCommit alle für den Index relevanten Änderungen (nach dem Normalisieren der Zeiten).
+     * Entfernt werden nur Knoten, die vor der Transaktion ein Zeit-Label trugen; alle anderen kann der Index nicht
+     * enthalten und bekämen sonst einen Tombstone, der bis zur nächsten Kompaktierung liegen bleibt.
+     */
+    public static Changes collect(TransactionData data) {
+        Changes changes = new Changes();
+        Set<String> seen = new HashSet<>();
+        Map<String, Set<String>> addedKinds = new HashMap<>();
+        Set<String> removedKinds = new HashSet<>();
+        for (LabelEntry entry : data.assignedLabels()) {
+            addedKinds.computeIfAbsent(entry.node().getElementId(), k -> new HashSet<>()).add(entry.label().name());
+        }
+        for (LabelEntry entry : data.removedLabels()) {
+            if (isKindLabel(entry.label().name())) removedKinds.add(entry.node().getElementId());
+        }
+        for (Node node : data.deletedNodes()) {
+            // gelöschte Knoten melden ihre Labels als entfernt
+            if (removedKinds.contains(node.getElementId()) && seen.add(node.getElementId())) {
+                changes.removals.add(node.getElementId());
+            }
+        }
+        Set<String> created = new HashSet<>();
+        List<Node> touched = new ArrayList<>();
+        data.createdNodes().forEach(node -> {
+            created.add(node.getElementId());
+            touched.add(node);
+        });
+        for (PropertyEntry<Node> entry : data.assignedNodeProperties()) {
+            if (TemporalProperties.SOURCE_KEYS.contains(entry.key())) touched.add(entry.entity());
+        }
+        for (PropertyEntry<Node> entry : data.removedNodeProperties()) {
+            if (TemporalProperties.SOURCE_KEYS.contains(entry.key())) touched.add(entry.entity());
+        }
+        for (LabelEntry entry : data.assignedLabels()) touched.add(entry.node());
+        for (LabelEntry entry : data.removedLabels()) touched.add(entry.node());
+
+        for (Node node : touched) {
+            String id = node.getElementId();
+            if (data.isDeleted(node) || !seen.add(id)) continue;
+            Entry entry = entryOf(node);
+            if (entry != null) changes.upserts.add(entry);
+            else if (!created.contains(id) && wasTemporal(node, addedKinds.get(id), removedKinds.contains(id))) {
+                changes.removals.add(id);
+            }
+        }
+        return changes;
+    }
+
+    private static boolean isKindLabel(String label) {
+        for (Kind kind : KINDS) if (kind.label.equals(label)) return true;
+        return false;
+    }
+
+    /** true, wenn der Knoten vor der Transaktion ein Zeit-Label trug. */
+    private static boolean wasTemporal(Node node, Set<String> added, boolean kindRemoved) {
+        if (kindRemoved) return true;
+        for (Kind kind : KINDS) {
+            if (node.hasLabel(Label.label(kind.label)) && (added == null || !added.contains(kind.label))) return true;
+        }
+        return false;
+    }
+
+    /** Übernimmt die Änderungen einer committeten Transaktion. */
+    public void apply(Changes changes) {
+        if (changes == null || changes.isEmpty()) return;
+        boolean compact = false;
+        lock.writeLock().lock();
+        try {
+            for (String id : changes.removals) tombstones.put(id, ++seq);
+            for (Entry entry : changes.upserts) {
+                long s = ++seq;
+                tombstones.put(entry.id, s);
+                delta.add(entry.withSeq(s));
+            }
+            int threshold = Math.max(MIN_COMPACT_THRESHOLD, Math.min(MAX_COMPACT_THRESHOLD, base.size / 16));
+            // Tombstones zählen mit: erst die Kompaktierung räumt sie ab
+            if (ready && !compacting && (delta.size() > threshold || tombstones.size() > threshold)) {
+                compacting = true;
+                compact = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (compact) COMPACTOR.submit(this::compact);
+    }
+
+    private void compact() {
+        Snapshot current;
+        List<Entry> pending;
+        Map<String, Long> tombs;
+        long captured;
+        lock.readLock().lock();
+        try {
+            current = base;
+            pending = new ArrayList<>(delta);
+            tombs = new HashMap<>(tombstones);
+            captured = seq;
+        } finally {
+            lock.readLock().unlock();
+        }
+        try {
+            List<Entry> entries = new ArrayList<>(current.size + pending.size());
+            for (int i = 0; i < current.size; i++) {
+                if (!tombs.containsKey(current.ids[i])) entries.add(current.entry(i));
+            }
+            for (Entry e : pending) {
+                Long t = tombs.get(e.id);
+                if (t != null && t == e.seq) entries.add(e);
+            }
+            swap(Snapshot.build(entries), captured);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                compacting = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /** Neuer Basis-Snapshot für den Stand bis captured; nur spätere Änderungen bleiben im Delta. */
+    private void swap(Snapshot built, long captured) {
+        lock.writeLock().lock();
+        try {
+            base = built;
+            delta.removeIf(e -> e.seq <= captured);
+            tombstones.values().removeIf(s -> s <= captured);
+            compacting = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // --- Anfragen ---
+
+    /**
+     * Alle Einträge mit start in [startMin, startMax] und end in [endMin, endMax] (jeweils inklusiv).
+     *
+     * @param kinds Bitmaske aus {@link Kind#bit()}, {@link #ALL_KINDS} für alle
+     */
+    public List<Entry> query(long startMin, long startMax, long endMin, long endMax, int kinds) {
+        List<Entry> out = new ArrayList<>();
+        if (startMin > startMax || endMin > endMax) return out;
+        lock.readLock().lock();
+        try {
+            Snapshot s = base;
+            int lo = s.lowerBound(startMin);
+            int hi = s.upperBound(startMax);
+            if (lo < hi) s.collect(1, 0, s.leaves, lo, hi, endMin, endMax, kinds, out, tombstones);
+            for (Entry e : delta) {
+                if (e.start >= startMin && e.start <= startMax && e.end >= endMin && e.end <= endMax
+                        && (kinds & e.kind.bit()) != 0 && isLive(e)) {
+                    out.add(e);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return out;
+    }
+
+    /** start <= qe und end >= qs. */
+    public List<Entry> overlapping(long qs, long qe, int kinds) {
+        return query(Long.MIN_VALUE, qe, qs, Long.MAX_VALUE, kinds);
+    }
+
+    /** start >= qs und end <= qe. */
+    public List<Entry> within(long qs, long qe, int kinds) {
+        return query(qs, qe, qs, qe, kinds);
+    }
+
+    /** end < ref (bei Events: time < ref). */
+    public List<Entry> before(long ref, int kinds) {
+        return query(Long.MIN_VALUE, ref - 1, Long.MIN_VALUE, ref - 1, kinds);
+    }
+
+    /** start > ref. */
+    public List<Entry> after(long ref, int kinds) {
+        return query(ref + 1, Long.MAX_VALUE, ref + 1, Long.MAX_VALUE, kinds);
+    }
+
+    /** Die k Einträge mit dem kleinsten start > ref, aufsteigend. */
+    public List<Entry> next(long ref, int k, int kinds) {
+        List<Entry> out = new ArrayList<>(Math.min(k, 1024));
+        if (k <= 0) return out;
+        lock.readLock().lock();
+        try {
+            Snapshot s = base;
+            List<Entry> pending = new ArrayList<>();
+            for (Entry e : delta) {
+                if (e.start > ref && (kinds & e.kind.bit()) != 0 && isLive(e)) pending.add(e);
+            }
+            pending.sort(Comparator.comparingLong(e -> e.start));
+            int i = s.upperBound(ref), j = 0;
+            while (out.size() < k) {
+                while (i < s.size && !s.matches(i, kinds, tombstones)) i++;
+                boolean hasBase = i < s.size, hasDelta = j < pending.size();
+                if (!hasBase && !hasDelta) break;
+                if (hasBase && (!hasDelta || s.starts[i] <= pending.get(j).start)) out.add(s.entry(i++));
+                else out.add(pending.get(j++));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return out;
+    }
+
+    /** Die k Einträge mit dem größten end < ref, absteigend. */
+    public List<Entry> last(long ref, int k, int kinds) {
+        List<Entry> out = new ArrayList<>(Math.min(k, 1024));
+        if (k <= 0) return out;
+        lock.readLock().lock();
+        try {
+            Snapshot s = base;
+            List<Entry> pending = new ArrayList<>();
+            for (Entry e : delta) {
+                if (e.end < ref && (kinds & e.kind.bit()) != 0 && isLive(e)) pending.add(e);
+            }
+            pending.sort(Comparator.comparingLong((Entry e) -> e.end).reversed());
+            int i = s.lowerBoundEnd(ref) - 1, j = 0;
+            while (out.size() < k) {
+                while (i >= 0 && !s.matches(s.byEnd[i], kinds, tombstones)) i--;
+                boolean hasBase = i >= 0, hasDelta = j < pending.size();
+                if (!hasBase && !hasDelta) break;
+                if (hasBase && (!hasDelta || s.sortedEnds[i] >= pending.get(j).end)) out.add(s.entry(s.byEnd[i--]));
+                else out.add(pending.get(j++));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return out;
+    }
+
+    private boolean isLive(Entry e) {
+        Long t = tombstones.get(e.id);
+        return t != null && t == e.seq;
+    }
+
+    /** Unveränderlicher, nach start sortierter Bestand mit Segmentbaum über end. */
+    static final class Snapshot {
+        final int size;
+        final int leaves;
+        final long[] starts;
+        final long[] ends;
+        final String[] ids;
+        final byte[] kinds;
+        final long[] maxEnd;
+        final long[] minEnd;
+        final int[] byEnd;
+        final long[] sortedEnds;
+
+        private Snapshot(int size, int leaves, long[] starts, long[] ends, String[] ids, byte[] kinds,
+                         long[] maxEnd, long[] minEnd, int[] byEnd, long[] sortedEnds) {
+            this.size = size;
+            this.leaves = leaves;
+            this.starts = starts;
+            this.ends = ends;
+            this.ids = ids;
+            this.kinds = kinds;
+            this.maxEnd = maxEnd;
+            this.minEnd = minEnd;
+            this.byEnd = byEnd;
+            this.sortedEnds = sortedEnds;
+        }
+
+        static Snapshot build(List<Entry> entries) {
+            entries.sort(Comparator.comparingLong((Entry e) -> e.start).thenComparingLong(e -> e.end));
+            int n = entries.size();
+            int leaves = 1;
+            while (leaves < n) leaves <<= 1;
+
+            long[] starts = new long[n];
+            long[] ends = new long[n];
+            String[] ids = new String[n];
+            byte[] kinds = new byte[n];
+            long[] maxEnd = new long[2 * leaves];
+            long[] minEnd = new long[2 * leaves];
+            Arrays.fill(maxEnd, Long.MIN_VALUE);
+            Arrays.fill(minEnd, Long.MAX_VALUE);
+            for (int i = 0; i < n; i++) {
+                Entry e = entries.get(i);
+                starts[i] = e.start;
+                ends[i] = e.end;
+                ids[i] = e.id;
+                kinds[i] = (byte) e.kind.ordinal();
+                maxEnd[leaves + i] = e.end;
+                minEnd[leaves + i] = e.end;
+            }
+            for (int node = leaves - 1; node >= 1; node--) {
+                maxEnd[node] = Math.max(maxEnd[2 * node], maxEnd[2 * node + 1]);
+                minEnd[node] = Math.min(minEnd[2 * node], minEnd[2 * node + 1]);
+            }
+
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++) order[i] = i;
+            Arrays.sort(order, Comparator.comparingLong(i -> ends[i]));
+            int[] byEnd = new int[n];
+            long[] sortedEnds = new long[n];
+            for (int i = 0; i < n; i++) {
+                byEnd[i] = order[i];
+                sortedEnds[i] = ends[order[i]];
+            }
+            return new Snapshot(n, leaves, starts, ends, ids, kinds, maxEnd, minEnd, byEnd, sortedEnds);
+        }
+
+        Entry entry(int i) {
+            return new Entry(ids[i], KINDS[kinds[i]], starts[i], ends[i], 0);
+        }
+
+        boolean matches(int i, int kindMask, Map<String, Long> tombstones) {
+            return (kindMask & (1 << kinds[i])) != 0 && !tombstones.containsKey(ids[i]);
+        }
+
+        /** Erster Index mit start >= t. */
+        int lowerBound(long t) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (starts[mid] < t) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+
+        /** Erster Index mit start > t. */
+        int upperBound(long t) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (starts[mid] <= t) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+
+        /** Erster Index in sortedEnds mit end >= t. */
+        int lowerBoundEnd(long t) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (sortedEnds[mid] < t) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+
+        void collect(int node, int l, int r, int lo, int hi, long endMin, long endMax, int kindMask,
+                     List<Entry> out, Map<String, Long> tombstones) {
+            if (r <= lo || l >= hi || maxEnd[node] < endMin || minEnd[node] > endMax) return;
+            if (r - l == 1) {
+                if (matches(l, kindMask, tombstones)) out.add(entry(l));
+                return;
+            }
+            int mid = (l + r) >>> 1;
+            collect(2 * node, l, mid, lo, hi, endMin, endMax, kindMask, out, tombstones);
+            collect(2 * node + 1, mid, r, lo, hi, endMin, endMax, kindMask, out, tombstones);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package util;
+
+import org.neo4j.graphdb.*;
+import org.neo4j.logging.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Kanonische Zeit-Properties in Epoch-Millis (long) neben den gemischt typisierten Originalen:
+ * time_series (ISO-Strings), time_period (ZonedDateTime bzw. long), time_list (long) -> startMs/endMs,
+ * event (ZonedDateTime) -> timeMs.
+ * <p>
+ * Der Transaction-Listener hält sie bei jedem Schreiben von start/end/time aktuell; Cypher vergleicht dann nur
+ * noch long gegen long (Range-Index) statt Strings bzw. DateTimes untereinander.
+ */
+public final class TemporalProperties {
+
+    public static final String START_MS = "startMs";
+    public static final String END_MS = "endMs";
+    public static final String TIME_MS = "timeMs";
+
+    public static final List<String> INTERVAL_LABELS = List.of("time_series", "time_period", "time_list");
+    public static final String EVENT_LABEL = "event";
+
+    /** Originale, aus denen die kanonischen Properties abgeleitet werden. */
+    public static final Set<String> SOURCE_KEYS = Set.of("start", "end", "time");
+
+    private TemporalProperties() {}
+
+    public static boolean isTemporal(Node node) {
+        if (node.hasLabel(Label.label(EVENT_LABEL))) return true;
+        for (String label : INTERVAL_LABELS) {
+            if (node.hasLabel(Label.label(label))) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Setzt startMs/endMs bzw. timeMs passend zu start/end/time (entfernt sie, wenn das Original fehlt).
+     * Schreibt nur bei Abweichung.
+     *
+     * @return true, wenn sich etwas geändert hat
+     * @throws IllegalArgumentException wenn ein Original nicht als Zeitpunkt lesbar ist
+     */
+    public static boolean normalize(Node node) {
+        boolean changed = false;
+        if (node.hasLabel(Label.label(EVENT_LABEL))) {
+            changed |= sync(node, "time", TIME_MS);
+        }
+        for (String label : INTERVAL_LABELS) {
+            if (node.hasLabel(Label.label(label))) {
+                changed |= sync(node, "start", START_MS);
+                changed |= sync(node, "end", END_MS);
+                break;
+            }
+        }
+        return changed;
+    }
+
+    /** true, wenn die kanonischen Properties fehlen oder nicht zu den Originalen passen. */
+    public static boolean needsUpdate(Node node) {
+        try {
+            if (node.hasLabel(Label.label(EVENT_LABEL)) && differs(node, "time", TIME_MS)) return true;
+            for (String label : INTERVAL_LABELS) {
+                if (node.hasLabel(Label.label(label))) return differs(node, "start", START_MS) || differs(node, "end", END_MS);
+            }
+            return false;
+        } catch (IllegalArgumentException e) {
+            return false; // nicht lesbare Originale kann auch ein Backfill nicht reparieren
+        }
+    }
+
+    private static boolean sync(Node node, String sourceKey, String msKey) {
+        if (!differs(node, sourceKey, msKey)) return false;
+        Long millis = millis(node, sourceKey);
+        if (millis == null) node.removeProperty(msKey);
+        else node.setProperty(msKey, millis);
+        return true;
+    }
+
+    private static boolean differs(Node node, String sourceKey, String msKey) {
+        return !Objects.equals(millis(node, sourceKey), node.getProperty(msKey, null));
+    }
+
+    private static Long millis(Node node, String sourceKey) {
+        Object value = node.getProperty(sourceKey, null);
+        if (value == null) return null;
+        try {
+            return TimeSeriesUtil.toEpochMillis(value);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Property '" + sourceKey + "' von " + node.getElementId()
+                    + " ist kein Zeitpunkt: " + value, e);
+        }
+    }
+
+    /**
+     * Ergänzt die kanonischen Properties für Bestandsdaten. Erst werden in einer Lese-Transaktion alle
+     * betroffenen Knoten gesammelt, dann in Transaktionen zu je batchSize Knoten geschrieben.
+     *
+     * @return Anzahl aktualisierter Knoten
+     */
+    public static long backfill(GraphDatabaseService db, int batchSize, Log log) {
+        if (batchSize <= 0) throw new IllegalArgumentException("batchSize muss > 0 sein.");
+        List<String> pending = new ArrayList<>();
+        try (Transaction tx = db.beginTx()) {
+            List<String> labels = new ArrayList<>(INTERVAL_LABELS);
+            labels.add(EVENT_LABEL);
+            for (String label : labels) {
+                try (ResourceIterator<Node> nodes = tx.findNodes(Label.label(label))) {
+                    while (nodes.hasNext()) {
+                        Node node = nodes.next();
+                        if (needsUpdate(node)) pending.add(node.getElementId());
+                    }
+                }
+            }
+            tx.commit();
+        }
+
+        long updated = 0;
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            List<String> batch = pending.subList(from, Math.min(pending.size(), from + batchSize));
+            try (Transaction tx = db.beginTx()) {
+                for (String id : batch) {
+                    try {
+                        if (normalize(tx.getNodeByElementId(id))) updated++;
+                    } catch (NotFoundException e) {
+                        // zwischenzeitlich gelöscht
+                    } catch (IllegalArgumentException e) {
+                        log.warn("Backfill: " + e.getMessage());
+                    }
+                }
+                tx.commit();
+            }
+        }
+        if (updated > 0) log.info("Backfill startMs/endMs/timeMs: " + updated + " Knoten aktualisiert.");
+        return updated;
+    }
+}
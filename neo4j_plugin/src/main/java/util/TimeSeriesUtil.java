@@ -90,7 +90,7 @@ public final class TimeSeriesUtil {
             return Stream.of(agg);
         }
 
-        String aggregation = (String) params.getOrDefault("aggregation", "");
+        Object aggregation = params.getOrDefault("aggregation", "");
         long period = ((Number) params.getOrDefault("period", 0L)).longValue();
         return results.stream().flatMap(result -> AggregationUtil.apply(aggregation, result, (int) period, log));
 
@@ -202,6 +202,124 @@ public final class TimeSeriesUtil {
         throw new IllegalArgumentException("Timestamp-Format nicht erkannt: " + s);
     }
 
+    /**
+     * Schneller Weg von einem Timestamp-String zu Epoch-Millis.
+     * <p>
+     * Die gängigen ISO-8601-Formen mit 'Z' oder festem Offset (so wie sie die Sources liefern,
+     * z.B. "2024-05-01T12:00:00.123Z") werden direkt mit Integer-Arithmetik gelesen, ohne
+     * ZonedDateTime/Formatter. Alles andere fällt auf {@link #parseToInstant(String)} zurück.
+     */
+    public static long toEpochMillis(String s) {
+        if (s == null) throw new IllegalArgumentException("Timestamp darf nicht null sein.");
+        long fast = parseIsoMillisFast(s);
+        if (fast != Long.MIN_VALUE) return fast;
+        return parseToInstant(s).toEpochMilli();
+    }
+
+    /**
+     * Epoch-Millis für die Zeit-Properties im Graphen (ZonedDateTime nach dem TransactionEventListener,
+     * aber auch ältere String-/Long-Werte).
+     */
+    public static long toEpochMillis(Object value) {
+        if (value instanceof ZonedDateTime) return ((ZonedDateTime) value).toInstant().toEpochMilli();
+        if (value instanceof OffsetDateTime) return ((OffsetDateTime) value).toInstant().toEpochMilli();
+        if (value instanceof Instant) return ((Instant) value).toEpochMilli();
+        if (value instanceof LocalDateTime) return ((LocalDateTime) value).toInstant(ZoneOffset.UTC).toEpochMilli();
+        if (value instanceof Number) return ((Number) value).longValue();
+        if (value instanceof String) return toEpochMillis((String) value);
+        throw new IllegalArgumentException("Unsupported date format: " + value);
+    }
+
+    /** Liefert Long.MIN_VALUE, wenn s nicht der einfachen ISO-Form entspricht. */
+    private static long parseIsoMillisFast(String s) {
+        int len = s.length();
+        if (len < 17 || s.charAt(4) != '-' || s.charAt(7) != '-' || s.charAt(10) != 'T' || s.charAt(13) != ':') {
+            return Long.MIN_VALUE;
+        }
+        int year = digits(s, 0, 4);
+        int month = digits(s, 5, 7);
+        int day = digits(s, 8, 10);
+        int hour = digits(s, 11, 13);
+        int minute = digits(s, 14, 16);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            return Long.MIN_VALUE;
+        }
+
+        int pos = 16;
+        int second = 0;
+        long nanos = 0;
+        if (pos < len && s.charAt(pos) == ':') {
+            if (pos + 3 > len) return Long.MIN_VALUE;
+            second = digits(s, pos + 1, pos + 3);
+            if (second < 0 || second > 59) return Long.MIN_VALUE;
+            pos += 3;
+            if (pos < len && (s.charAt(pos) == '.' || s.charAt(pos) == ',')) {
+                pos++;
+                int fracDigits = 0;
+                while (pos < len && Character.isDigit(s.charAt(pos))) {
+                    if (fracDigits < 9) {
+                        nanos = nanos * 10 + (s.charAt(pos) - '0');
+                        fracDigits++;
+                    }
+                    pos++;
+                }
+                if (fracDigits == 0) return Long.MIN_VALUE;
+                for (int i = fracDigits; i < 9; i++) nanos *= 10;
+            }
+        }
+
+        if (pos >= len) return Long.MIN_VALUE; // kein Offset -> lokale Zeit, dem langsamen Pfad überlassen
+        int offsetSeconds;
+        char c = s.charAt(pos);
+        if (c == 'Z' || c == 'z') {
+            offsetSeconds = 0;
+            pos++;
+        } else if (c == '+' || c == '-') {
+            if (pos + 3 > len) return Long.MIN_VALUE;
+            int oh = digits(s, pos + 1, pos + 3);
+            int om = 0;
+            int next = pos + 3;
+            if (next < len && s.charAt(next) == ':') {
+                if (next + 3 > len) return Long.MIN_VALUE;
+                om = digits(s, next + 1, next + 3);
+                next += 3;
+            } else if (next + 2 <= len && Character.isDigit(s.charAt(next))) {
+                om = digits(s, next, next + 2);
+                next += 2;
+            }
+            if (oh < 0 || oh > 18 || om < 0 || om > 59) return Long.MIN_VALUE;
+            offsetSeconds = (oh * 3600 + om * 60) * (c == '-' ? -1 : 1);
+            pos = next;
+        } else {
+            return Long.MIN_VALUE;
+        }
+        if (pos != len) return Long.MIN_VALUE; // z.B. "[Europe/Berlin]" -> Zonenregeln nötig
+
+        long epochDay = daysFromCivil(year, month, day);
+        long epochSecond = epochDay * 86_400L + hour * 3600L + minute * 60L + second - offsetSeconds;
+        return epochSecond * 1000L + nanos / 1_000_000L;
+    }
+
+    private static int digits(String s, int from, int to) {
+        int v = 0;
+        for (int i = from; i < to; i++) {
+            char ch = s.charAt(i);
+            if (ch < '0' || ch > '9') return -1;
+            v = v * 10 + (ch - '0');
+        }
+        return v;
+    }
+
+    /** Tage seit 1970-01-01 für ein proleptisch-gregorianisches Datum. */
+    private static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yoe = y - era * 400;
+        long doy = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146_097L + doe - 719_468L;
+    }
+
 
     public static ZonedDateTime parseToZonedDateTime(Object value) {
         if (value instanceof ZonedDateTime) {
@@ -3,6 +3,10 @@ package util.source_registration.prometheus_registration_II;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Result;
 import org.neo4j.graphdb.Transaction;
+import util.TimeSeriesUtil;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.*;
 
@@ -54,29 +58,40 @@ public class Neo4jPodRepository implements PodRepository {
 
     @Override
     public Map<String, ZonedDateTime> findPodEndsForPrometheus(String prometheusUrl) {
+        return findEnds("MATCH (p:Pod:time_period)-[:HAS_TIME_SERIES]->(pr:Prometheus {url:$url}) " +
+                "RETURN p.name as name, p.endMs as endMs, p.end as end", prometheusUrl);
+    }
+
+    /**
+     * name -> end; bevorzugt das kanonische endMs (long), sonst das Original. Nicht lesbare Werte ergeben null
+     * statt den Eintrag wegzulassen (sonst gälte der Knoten als nicht vorhanden).
+     */
+    private Map<String, ZonedDateTime> findEnds(String query, String prometheusUrl) {
         Map<String,ZonedDateTime> out = new HashMap<>();
-        String q = "MATCH (p:Pod:time_period)-[:HAS_TIME_SERIES]->(pr:Prometheus {url:$url}) RETURN p.name as name, p.end as end";
         Map<String,Object> params = Collections.singletonMap("url", prometheusUrl);
         try (Transaction tx = db.beginTx()) {
-            Result r = tx.execute(q, params);
+            Result r = tx.execute(query, params);
             while (r.hasNext()) {
                 Map<String,Object> row = r.next();
-                Object end = row.get("end");
-                if (end != null) {
-                    try {
-                        out.put((String)row.get("name"), ZonedDateTime.parse(end.toString()));
-                    } catch (Exception ex) {
-                        // ignore malformed
-                    }
-                } else {
-                    out.put((String)row.get("name"), null);
-                }
+                out.put((String) row.get("name"), endOf(row.get("endMs"), row.get("end")));
             }
             tx.commit();
         }
         return out;
     }
 
+    private static ZonedDateTime endOf(Object endMs, Object end) {
+        if (endMs instanceof Number) {
+            return Instant.ofEpochMilli(((Number) endMs).longValue()).atZone(ZoneOffset.UTC);
+        }
+        if (end == null) return null;
+        try {
+            return Instant.ofEpochMilli(TimeSeriesUtil.toEpochMillis(end)).atZone(ZoneOffset.UTC);
+        } catch (Exception ex) {
+            return null; // ignore malformed
+        }
+    }
+
     @Override
     public void markPodsStopped(List<String> podNames, String prometheusUrl) {
         if (podNames == null || podNames.isEmpty()) return;
@@ -176,24 +191,8 @@ public class Neo4jPodRepository implements PodRepository {
     @Override
     public Map<String, ZonedDateTime> findServerEndsForPrometheus(String prometheusUrl) {
         // Identisch zur Pod Logik, nur Label :Server
-        Map<String,ZonedDateTime> out = new HashMap<>();
-        String q = "MATCH (s:Server:time_period)-[:HAS_TIME_SERIES]->(pr:Prometheus {url:$url}) RETURN s.name as name, s.end as end";
-        Map<String,Object> params = Collections.singletonMap("url", prometheusUrl);
-        try (Transaction tx = db.beginTx()) {
-            Result r = tx.execute(q, params);
-            while (r.hasNext()) {
-                Map<String,Object> row = r.next();
-                Object end = row.get("end");
-                if (end != null) {
-                    try { out.put((String)row.get("name"), ZonedDateTime.parse(end.toString())); }
-                    catch (Exception ex) { /*ignore*/ }
-                } else {
-                    out.put((String)row.get("name"), null);
-                }
-            }
-            tx.commit();
-        }
-        return out;
+        return findEnds("MATCH (s:Server:time_period)-[:HAS_TIME_SERIES]->(pr:Prometheus {url:$url}) " +
+                "RETURN s.name as name, s.endMs as endMs, s.end as end", prometheusUrl);
     }
 
     @Override
@@ -6,6 +6,7 @@ package util.trace.source_registration;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
+import util.ReachabilityIndex;
 import util.source_registration.prometheus_registration_II.ServicePodLinker;
 import util.trace.datatype.datastructs.JaegerServices;
 import util.trace.datatype.datastructs.JaegerTraces;
@@ -220,6 +221,13 @@ public class JaegerImportProcedure {
                 log.warn("Linker error: " + e.getMessage());
             }
 
+            // 6. Erreichbarkeitsindex für die Aufrufketten-Suche
+            try {
+                ReachabilityIndex.of(db).rebuild(db, log);
+            } catch (Exception e) {
+                log.warn("Reachability index error: " + e.getMessage());
+            }
+
             return Stream.of(new ImportResult(services.size(), operations.size(), dependencies.size(), System.currentTimeMillis() - start, "Success"));
 
         } catch (Exception e) {